@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sejda.sambox.cos.COSDictionary;
+
+/**
+ * Compares Flate decoding with pooled {@link Inflater}s and buffers against the previous implementation, that created
+ * an {@link Inflater} and 2KB buffers for every stream. Sizes cover content streams (4KB), fonts (256KB) and images
+ * (4MB).
+ *
+ * @author Andrea Vacondio
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlateFilterBenchmark
+{
+    @Param({ "4096", "262144", "4194304" })
+    private int size;
+
+    private byte[] encoded;
+    private final Filter filter = new FlateFilter();
+    private final COSDictionary parameters = new COSDictionary();
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        // text like data, compressing about 3:1 as content streams do
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflating = new DeflaterOutputStream(out,
+                new Deflater(Deflater.DEFAULT_COMPRESSION)))
+        {
+            deflating.write(data);
+        }
+        encoded = out.toByteArray();
+    }
+
+    @Benchmark
+    public DecodeResult pooled() throws IOException
+    {
+        return filter.decode(new ByteArrayInputStream(encoded), NullOutputStream.NULL_OUTPUT_STREAM,
+                parameters, 0);
+    }
+
+    @Benchmark
+    public long previous() throws IOException
+    {
+        return previousDecode(new ByteArrayInputStream(encoded),
+                NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+
+    /**
+     * The decoding as it was before pooling: a new nowrap {@link Inflater} and 2KB input and copy buffers per stream
+     */
+    private static long previousDecode(InputStream in, OutputStream out) throws IOException
+    {
+        byte[] input = new byte[2048];
+        byte[] output = new byte[2048];
+        Inflater inflater = new Inflater(true);
+        long total = 0;
+        try
+        {
+            in.read(input, 0, 2);
+            while (true)
+            {
+                int inflated = inflater.inflate(output);
+                if (inflated > 0)
+                {
+                    out.write(output, 0, inflated);
+                    total += inflated;
+                    continue;
+                }
+                if (inflater.finished() || inflater.needsDictionary())
+                {
+                    return total;
+                }
+                int read = in.read(input);
+                if (read <= 0)
+                {
+                    return total;
+                }
+                inflater.setInput(input, 0, read);
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException(e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+}
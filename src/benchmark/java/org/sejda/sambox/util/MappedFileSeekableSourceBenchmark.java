@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sejda.io.BufferedSeekableSource;
+import org.sejda.io.FileChannelSeekableSource;
+import org.sejda.io.MemoryMappedSeekableSource;
+import org.sejda.io.SeekableSource;
+import org.sejda.util.IOUtils;
+
+/**
+ * Reads views of a 64MB file the way the data of existing streams is read, comparing the {@link SeekableSource}s of
+ * sejda-io with {@link MappedFileSeekableSource}, whose views are slices of the single mapping of the file.
+ *
+ * @author Andrea Vacondio
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedFileSeekableSourceBenchmark
+{
+    private static final int FILE_SIZE = 64 * 1024 * 1024;
+
+    @Param({ "channel", "memoryMapped", "mapped" })
+    private String source;
+
+    @Param({ "16384", "1048576", "16777216" })
+    private int viewSize;
+
+    private File file;
+    private SeekableSource victim;
+    private ByteBuffer destination;
+    private long offset;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("sambox", ".benchmark");
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(42).nextBytes(chunk);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw"))
+        {
+            for (int i = 0; i < FILE_SIZE / chunk.length; i++)
+            {
+                out.write(chunk);
+            }
+        }
+        switch (source)
+        {
+        case "channel":
+            victim = new BufferedSeekableSource(new FileChannelSeekableSource(file));
+            break;
+        case "memoryMapped":
+            victim = new BufferedSeekableSource(new MemoryMappedSeekableSource(file));
+            break;
+        default:
+            victim = new MappedFileSeekableSource(file);
+        }
+        destination = ByteBuffer.allocate(64 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        IOUtils.closeQuietly(victim);
+        file.delete();
+    }
+
+    @Benchmark
+    public long readView() throws IOException
+    {
+        // views move through the file like the streams of a document
+        offset = (offset + viewSize + 4099) % (FILE_SIZE - viewSize);
+        long total = 0;
+        try (SeekableSource view = victim.view(offset, viewSize))
+        {
+            int read;
+            while ((read = view.read(destination)) > 0)
+            {
+                total += read;
+                destination.clear();
+            }
+        }
+        return total;
+    }
+}
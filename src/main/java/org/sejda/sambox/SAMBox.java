@@ -32,6 +32,80 @@ public final class SAMBox
      * The number of objects to include in a single ObjectsStream.
      */
     public static final String OBJECTS_STREAM_SIZE_PROPERTY = "org.sejda.sambox.objects.stream.size";
+    /**
+     * Estimated size in bytes the objects parsed from an existing document are allowed to occupy before the least
+     * recently used ones are evicted. Unbounded if not set.
+     */
+    public static final String OBJECTS_STORE_MEMORY_BUDGET_PROPERTY = "org.sejda.sambox.objects.store.memory.budget";
+    /**
+     * Estimated size in bytes the decoded objects streams of an existing document, kept to parse their objects on
+     * demand, are allowed to occupy before the least recently used ones are dropped. Defaults to 8MB.
+     */
+    public static final String OBJECTS_STREAMS_CACHE_MEMORY_BUDGET_PROPERTY = "org.sejda.sambox.objects.streams.cache.memory.budget";
+    /**
+     * Size in bytes of the pages a file is mapped in by a org.sejda.sambox.util.MappedFileSeekableSource. Defaults to
+     * 256MB.
+     */
+    public static final String MAPPED_PAGE_SIZE_PROPERTY = "org.sejda.sambox.mapped.page.size";
+    /**
+     * Number of threads used to scan the document when the xref is broken and a full scan is required. Defaults to the
+     * number of available processors.
+     */
+    public static final String FULL_SCAN_THREADS_PROPERTY = "org.sejda.sambox.full.scan.threads";
+    /**
+     * If true, objects of a parsed document can be retrieved concurrently by multiple threads. Each thread reads the
+     * document source through its own parser and objects requested at the same time by different threads are parsed
+     * only once. Defaults to false.
+     */
+    public static final String CONCURRENT_READERS_PROPERTY = "org.sejda.sambox.concurrent.readers";
+    /**
+     * Directory where the xref index of parsed files is cached, to be reused when the same unchanged file is parsed
+     * again. Disabled if not set.
+     */
+    public static final String XREF_INDEX_CACHE_DIRECTORY_PROPERTY = "org.sejda.sambox.xref.index.cache.directory";
+    /**
+     * Number of threads used to serialize pdf objects when a document is written using
+     * org.sejda.sambox.output.WriteOption#PARALLEL_BODY_WRITE and to compress objects streams when using
+     * org.sejda.sambox.output.WriteOption#OBJECT_STREAMS. Defaults to the number of available processors.
+     */
+    public static final String BODY_WRITER_THREADS_PROPERTY = "org.sejda.sambox.body.writer.threads";
+    /**
+     * Compression level used by default when streams are compressed using the Flate filter, between 0 and 9. Defaults
+     * to the zlib default level.
+     */
+    public static final String DEFLATE_LEVEL_PROPERTY = "org.sejda.sambox.deflate.level";
+    /**
+     * Minimum size in bytes of the data of a stream to be compressed in parallel blocks when the Flate filter is
+     * applied. The result is slightly larger than a sequential compression. Disabled if not set.
+     */
+    public static final String DEFLATE_PARALLEL_THRESHOLD_PROPERTY = "org.sejda.sambox.deflate.parallel.threshold";
+    /**
+     * Size in bytes the data of unchanged streams, read once and shared by the documents written from the same source
+     * by a org.sejda.sambox.output.PDDocumentSplitWriter, is allowed to occupy before the least recently used is
+     * dropped. Defaults to 32MB.
+     */
+    public static final String EXISTING_STREAMS_CACHE_MEMORY_BUDGET_PROPERTY = "org.sejda.sambox.existing.streams.cache.memory.budget";
+    /**
+     * If true, streams decode their data as it's read and don't retain it, see
+     * org.sejda.sambox.cos.COSStream#setStreamingDecode(boolean). Defaults to false.
+     */
+    public static final String STREAMING_DECODE_PROPERTY = "org.sejda.sambox.streaming.decode";
+    /**
+     * Size in bytes above which the data of a stream, written or decoded, is moved out of the heap to the storage set
+     * with {@link #STREAM_STORAGE_PROPERTY}, see org.sejda.sambox.cos.StreamStorage#defaultStorage(). Data is kept on
+     * the heap if not set.
+     */
+    public static final String STREAM_STORAGE_THRESHOLD_PROPERTY = "org.sejda.sambox.stream.storage.threshold";
+    /**
+     * Where the data of streams larger than {@link #STREAM_STORAGE_THRESHOLD_PROPERTY} is stored, "file" for temporary
+     * files or "direct" for direct byte buffers. Defaults to "file".
+     */
+    public static final String STREAM_STORAGE_PROPERTY = "org.sejda.sambox.stream.storage";
+    /**
+     * Directory where temporary files are created when streams data is stored in files. Defaults to the system
+     * temporary directory.
+     */
+    public static final String STREAM_STORAGE_DIRECTORY_PROPERTY = "org.sejda.sambox.stream.storage.directory";
 
     public static final String SAMBOX_PROPERTIES = "org/sejda/sambox/resources/version.properties";
 }
@@ -16,6 +16,9 @@
  */
 package org.sejda.sambox.contentstream.operator;
 
+import static org.sejda.sambox.util.CharUtils.matches;
+
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -37,6 +40,8 @@ public final class Operator
 
     /** map for singleton operator objects; use {@link ConcurrentHashMap} for better scalability with multiple threads */
     private static final ConcurrentMap<String, Operator> operators = new ConcurrentHashMap<String, Operator>();
+    /** operators recently resolved from bytes, indexed by hash. Collisions simply replace the previous entry */
+    private static final Operator[] BYTES_CACHE = new Operator[256];
 
     /**
      * Constructor.
@@ -86,6 +91,37 @@ public final class Operator
         return operation;
     }
 
+    /**
+     * This is used to create/cache operators in the system. No String is created if the operator was recently
+     * resolved.
+     *
+     * @param bytes the operator keyword bytes, where each byte is an ISO-8859-1 char
+     * @param offset
+     * @param length
+     * @return The operator that matches the operator keyword.
+     */
+    public static Operator getOperator(byte[] bytes, int offset, int length)
+    {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++)
+        {
+            hash = 31 * hash + (bytes[i] & 0xFF);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (BYTES_CACHE.length - 1);
+        Operator cached = BYTES_CACHE[slot];
+        if (cached != null && matches(cached.theOperator, bytes, offset, length))
+        {
+            return cached;
+        }
+        String operator = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        Operator value = getOperator(operator);
+        if (!ID_OPERATOR.equals(operator) && !BI_OPERATOR.equals(operator))
+        {
+            BYTES_CACHE[slot] = value;
+        }
+        return value;
+    }
+
     /**
      * This will get the name of the operator.
      *
@@ -17,6 +17,7 @@
 package org.sejda.sambox.cos;
 
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -59,6 +60,7 @@ public class COSArray extends COSBase implements List<COSBase>
     @Override
     public boolean add(COSBase object)
     {
+        setDirty(true);
         return objects.add(object);
     }
 
@@ -77,31 +79,48 @@ public class COSArray extends COSBase implements List<COSBase>
     @Override
     public void add(int index, COSBase object)
     {
+        setDirty(true);
         objects.add(index, object);
     }
 
     @Override
     public void clear()
     {
+        setDirty(true);
         objects.clear();
     }
 
     @Override
     public boolean removeAll(Collection<?> objectsList)
     {
-        return objects.removeAll(objectsList);
+        boolean changed = objects.removeAll(objectsList);
+        if (changed)
+        {
+            setDirty(true);
+        }
+        return changed;
     }
 
     @Override
     public boolean retainAll(Collection<?> objectsList)
     {
-        return objects.retainAll(objectsList);
+        boolean changed = objects.retainAll(objectsList);
+        if (changed)
+        {
+            setDirty(true);
+        }
+        return changed;
     }
 
     @Override
     public boolean addAll(Collection<? extends COSBase> objectsList)
     {
-        return objects.addAll(objectsList);
+        boolean changed = objects.addAll(objectsList);
+        if (changed)
+        {
+            setDirty(true);
+        }
+        return changed;
     }
 
     /**
@@ -111,9 +130,10 @@ public class COSArray extends COSBase implements List<COSBase>
      */
     public boolean addAll(COSArray objectList)
     {
-        if (objectList != null)
+        if (objectList != null && objects.addAll(objectList.objects))
         {
-            return objects.addAll(objectList.objects);
+            setDirty(true);
+            return true;
         }
         return false;
     }
@@ -121,12 +141,18 @@ public class COSArray extends COSBase implements List<COSBase>
     @Override
     public boolean addAll(int i, Collection<? extends COSBase> objectList)
     {
-        return objects.addAll(i, objectList);
+        boolean changed = objects.addAll(i, objectList);
+        if (changed)
+        {
+            setDirty(true);
+        }
+        return changed;
     }
 
     @Override
     public COSBase set(int index, COSBase object)
     {
+        setDirty(true);
         return objects.set(index, object);
     }
 
@@ -293,6 +319,7 @@ public class COSArray extends COSBase implements List<COSBase>
     @Override
     public COSBase remove(int i)
     {
+        setDirty(true);
         return objects.remove(i);
     }
 
@@ -305,6 +332,7 @@ public class COSArray extends COSBase implements List<COSBase>
     {
         if (!objects.isEmpty())
         {
+            setDirty(true);
             return objects.remove(objects.size() - 1);
         }
         return null;
@@ -313,7 +341,12 @@ public class COSArray extends COSBase implements List<COSBase>
     @Override
     public boolean remove(Object o)
     {
-        return objects.remove(o);
+        boolean changed = objects.remove(o);
+        if (changed)
+        {
+            setDirty(true);
+        }
+        return changed;
     }
 
     /**
@@ -342,19 +375,19 @@ public class COSArray extends COSBase implements List<COSBase>
     @Override
     public Iterator<COSBase> iterator()
     {
-        return objects.iterator();
+        return listIterator();
     }
 
     @Override
     public ListIterator<COSBase> listIterator()
     {
-        return objects.listIterator();
+        return new DirtyMarkingListIterator(objects.listIterator());
     }
 
     @Override
     public ListIterator<COSBase> listIterator(int index)
     {
-        return objects.listIterator(index);
+        return new DirtyMarkingListIterator(objects.listIterator(index));
     }
 
     @Override
@@ -487,7 +520,7 @@ public class COSArray extends COSBase implements List<COSBase>
     @Override
     public List<COSBase> subList(int fromIndex, int toIndex)
     {
-        return objects.subList(fromIndex, toIndex);
+        return new DirtyMarkingList(objects.subList(fromIndex, toIndex));
     }
 
     @Override
@@ -521,4 +554,139 @@ public class COSArray extends COSBase implements List<COSBase>
     {
         return "COSArray{" + objects + "}";
     }
+
+    /**
+     * A view of the array items that marks the array as dirty when modified
+     */
+    private class DirtyMarkingList extends AbstractList<COSBase>
+    {
+        private final List<COSBase> wrapped;
+
+        DirtyMarkingList(List<COSBase> wrapped)
+        {
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public COSBase get(int index)
+        {
+            return wrapped.get(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return wrapped.size();
+        }
+
+        @Override
+        public COSBase set(int index, COSBase element)
+        {
+            setDirty(true);
+            return wrapped.set(index, element);
+        }
+
+        @Override
+        public void add(int index, COSBase element)
+        {
+            setDirty(true);
+            wrapped.add(index, element);
+        }
+
+        @Override
+        public COSBase remove(int index)
+        {
+            setDirty(true);
+            return wrapped.remove(index);
+        }
+
+        @Override
+        public void clear()
+        {
+            setDirty(true);
+            wrapped.clear();
+        }
+
+        @Override
+        public ListIterator<COSBase> listIterator(int index)
+        {
+            return new DirtyMarkingListIterator(wrapped.listIterator(index));
+        }
+
+        @Override
+        public List<COSBase> subList(int fromIndex, int toIndex)
+        {
+            return new DirtyMarkingList(wrapped.subList(fromIndex, toIndex));
+        }
+    }
+
+    /**
+     * An iterator over the array items that marks the array as dirty when the array is modified through it
+     */
+    private class DirtyMarkingListIterator implements ListIterator<COSBase>
+    {
+        private final ListIterator<COSBase> wrapped;
+
+        DirtyMarkingListIterator(ListIterator<COSBase> wrapped)
+        {
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return wrapped.hasNext();
+        }
+
+        @Override
+        public COSBase next()
+        {
+            return wrapped.next();
+        }
+
+        @Override
+        public boolean hasPrevious()
+        {
+            return wrapped.hasPrevious();
+        }
+
+        @Override
+        public COSBase previous()
+        {
+            return wrapped.previous();
+        }
+
+        @Override
+        public int nextIndex()
+        {
+            return wrapped.nextIndex();
+        }
+
+        @Override
+        public int previousIndex()
+        {
+            return wrapped.previousIndex();
+        }
+
+        @Override
+        public void remove()
+        {
+            setDirty(true);
+            wrapped.remove();
+        }
+
+        @Override
+        public void set(COSBase e)
+        {
+            setDirty(true);
+            wrapped.set(e);
+        }
+
+        @Override
+        public void add(COSBase e)
+        {
+            setDirty(true);
+            wrapped.add(e);
+        }
+    }
 }
@@ -26,6 +26,7 @@ import java.io.IOException;
 public abstract class COSBase implements COSObjectable
 {
     private IndirectCOSObjectIdentifier id;
+    private boolean dirty;
 
     /**
      * Convert this standard java object to a COS object.
@@ -75,4 +76,22 @@ public abstract class COSBase implements COSObjectable
         return id() != null;
     }
 
+    /**
+     * @return true if this {@link COSBase} has been modified since it was parsed. Only the object itself is considered,
+     * not the values it contains.
+     * @see DirtyFlags
+     */
+    public boolean isDirty()
+    {
+        return dirty;
+    }
+
+    /**
+     * @param dirty true if this {@link COSBase} has been modified
+     */
+    public void setDirty(boolean dirty)
+    {
+        this.dirty = dirty;
+    }
+
 }
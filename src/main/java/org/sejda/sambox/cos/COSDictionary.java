@@ -16,6 +16,7 @@
  */
 package org.sejda.sambox.cos;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
 
@@ -23,6 +24,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -86,6 +88,10 @@ public class COSDictionary extends COSBase
 
     public void clear()
     {
+        if (!items.isEmpty())
+        {
+            setDirty(true);
+        }
         items.clear();
     }
 
@@ -173,13 +179,19 @@ public class COSDictionary extends COSBase
         }
         else
         {
-            items.put(key, value);
+            if (items.put(key, value) != value)
+            {
+                setDirty(true);
+            }
         }
     }
 
     public void putIfAbsent(COSName key, COSBase value)
     {
-        items.putIfAbsent(key, value);
+        if (isNull(items.putIfAbsent(key, value)))
+        {
+            setDirty(true);
+        }
     }
 
     /**
@@ -203,7 +215,10 @@ public class COSDictionary extends COSBase
     {
         if (nonNull(value))
         {
-            items.putIfAbsent(key, value.getCOSObject());
+            if (isNull(items.putIfAbsent(key, value.getCOSObject())))
+            {
+                setDirty(true);
+            }
         }
     }
 
@@ -243,7 +258,10 @@ public class COSDictionary extends COSBase
 
     public void putIfAbsent(COSName key, boolean value)
     {
-        items.putIfAbsent(key, COSBoolean.valueOf(value));
+        if (isNull(items.putIfAbsent(key, COSBoolean.valueOf(value))))
+        {
+            setDirty(true);
+        }
     }
 
     /**
@@ -367,7 +385,10 @@ public class COSDictionary extends COSBase
 
     public void putIfAbsent(COSName key, String value)
     {
-        items.putIfAbsent(key, COSString.parseLiteral(value));
+        if (isNull(items.putIfAbsent(key, COSString.parseLiteral(value))))
+        {
+            setDirty(true);
+        }
     }
 
     /**
@@ -429,7 +450,10 @@ public class COSDictionary extends COSBase
 
     public void putIfAbsent(COSName key, int value)
     {
-        items.putIfAbsent(key, COSInteger.get(value));
+        if (isNull(items.putIfAbsent(key, COSInteger.get(value))))
+        {
+            setDirty(true);
+        }
     }
 
     /**
@@ -456,7 +480,10 @@ public class COSDictionary extends COSBase
 
     public void putIfAbsent(COSName key, long value)
     {
-        items.putIfAbsent(key, COSInteger.get(value));
+        if (isNull(items.putIfAbsent(key, COSInteger.get(value))))
+        {
+            setDirty(true);
+        }
     }
 
     /**
@@ -1136,7 +1163,10 @@ public class COSDictionary extends COSBase
      */
     public void removeItem(COSName key)
     {
-        items.remove(key);
+        if (nonNull(items.remove(key)))
+        {
+            setDirty(true);
+        }
     }
 
     /**
@@ -1146,7 +1176,7 @@ public class COSDictionary extends COSBase
      */
     public void removeItems(COSName... keys)
     {
-        Arrays.stream(keys).forEach(items::remove);
+        Arrays.stream(keys).forEach(this::removeItem);
     }
 
     /**
@@ -1168,29 +1198,29 @@ public class COSDictionary extends COSBase
     }
 
     /**
-     * @return names of the entries in this dictionary. The returned set is in the order the entries were added to the
-     * dictionary.
+     * @return an unmodifiable view of the names of the entries in this dictionary. The returned set is in the order the
+     * entries were added to the dictionary.
      */
     public Set<COSName> keySet()
     {
-        return items.keySet();
+        return Collections.unmodifiableSet(items.keySet());
     }
 
     /**
-     * @return name-value entries in this dictionary. The returned set is in the order the entries were added to the
-     * dictionary.
+     * @return an unmodifiable view of the name-value entries in this dictionary. The returned set is in the order the
+     * entries were added to the dictionary.
      */
     public Set<Map.Entry<COSName, COSBase>> entrySet()
     {
-        return items.entrySet();
+        return Collections.unmodifiableMap(items).entrySet();
     }
 
     /**
-     * @return All the values for the dictionary.
+     * @return an unmodifiable view of all the values for the dictionary.
      */
     public Collection<COSBase> getValues()
     {
-        return items.values();
+        return Collections.unmodifiableCollection(items.values());
     }
 
     @Override
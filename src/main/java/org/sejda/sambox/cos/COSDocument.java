@@ -36,6 +36,7 @@ public class COSDocument extends COSBase
 
     private String headerVersion;
     private COSDictionary trailer;
+    private IncrementalSource incrementalSource;
 
     public COSDocument()
     {
@@ -109,6 +110,22 @@ public class COSDocument extends COSBase
         trailer.setItem(COSName.ENCRYPT, dictionary);
     }
 
+    /**
+     * @param incrementalSource the source this document has been parsed from, allowing incremental updates
+     */
+    public void setIncrementalSource(IncrementalSource incrementalSource)
+    {
+        this.incrementalSource = incrementalSource;
+    }
+
+    /**
+     * @return the source this document has been parsed from, if it can be incrementally updated
+     */
+    public Optional<IncrementalSource> incrementalSource()
+    {
+        return Optional.ofNullable(incrementalSource);
+    }
+
     public COSArray getDocumentID()
     {
         return trailer.getDictionaryObject(COSName.ID, COSArray.class);
@@ -16,7 +16,12 @@
  */
 package org.sejda.sambox.cos;
 
+import static org.sejda.sambox.util.CharUtils.isDigit;
+import static org.sejda.sambox.util.CharUtils.isLetter;
+import static org.sejda.sambox.util.CharUtils.matches;
+
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -30,6 +35,10 @@ public final class COSName extends COSBase implements Comparable<COSName>
 {
     private static Map<String, COSName> CUSTOM_NAMES = new ConcurrentHashMap<>(8192);
     private static Map<String, COSName> COMMON_NAMES = new HashMap<>();
+    /**
+     * Names recently resolved from bytes, indexed by hash. Collisions simply replace the previous entry.
+     */
+    private static final COSName[] BYTES_CACHE = new COSName[4096];
 
     // A
     public static final COSName A = newCommonInstance("A");
@@ -537,7 +546,11 @@ public final class COSName extends COSBase implements Comparable<COSName>
     public static final COSName Y_STEP = newCommonInstance("YStep");
     public static final COSName YES = newCommonInstance("Yes");
 
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF"
+            .getBytes(StandardCharsets.US_ASCII);
+
     private final String name;
+    private byte[] written;
 
     /**
      * This will get a COSName object with that name.
@@ -560,6 +573,35 @@ public final class COSName extends COSBase implements Comparable<COSName>
         return null;
     }
 
+    /**
+     * This will get a COSName object with the name made of the given bytes, where each byte is an ISO-8859-1 char. No
+     * String is created if the name was recently resolved.
+     * 
+     * @param bytes
+     * @param offset
+     * @param length
+     * @return A COSName with the specified name.
+     */
+    public static COSName getPDFName(byte[] bytes, int offset, int length)
+    {
+        // same as String.hashCode for the corresponding ISO-8859-1 String
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++)
+        {
+            hash = 31 * hash + (bytes[i] & 0xFF);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (BYTES_CACHE.length - 1);
+        COSName cached = BYTES_CACHE[slot];
+        if (cached != null && cached.hashCode() == hash
+                && matches(cached.name, bytes, offset, length))
+        {
+            return cached;
+        }
+        COSName value = getPDFName(new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+        BYTES_CACHE[slot] = value;
+        return value;
+    }
+
     private static COSName getCustom(String customName)
     {
         COSName cosName = CUSTOM_NAMES.get(customName);
@@ -595,6 +637,49 @@ public final class COSName extends COSBase implements Comparable<COSName>
         return name;
     }
 
+    /**
+     * @return the bytes of this name as written in a PDF document, starting with the solidus and with characters other
+     * than letters and digits written using the number sign notation. The bytes are created once and cached, callers
+     * must not modify the returned array.
+     */
+    public byte[] getWrittenBytes()
+    {
+        byte[] retVal = written;
+        if (retVal == null)
+        {
+            byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+            int length = 1;
+            for (byte current : bytes)
+            {
+                length += isRegular(current) ? 1 : 3;
+            }
+            retVal = new byte[length];
+            retVal[0] = '/';
+            int index = 1;
+            for (byte current : bytes)
+            {
+                if (isRegular(current))
+                {
+                    retVal[index++] = current;
+                }
+                else
+                {
+                    retVal[index++] = '#';
+                    retVal[index++] = HEX_DIGITS[(current >> 4) & 0x0F];
+                    retVal[index++] = HEX_DIGITS[current & 0x0F];
+                }
+            }
+            written = retVal;
+        }
+        return retVal;
+    }
+
+    private static boolean isRegular(byte value)
+    {
+        int current = value & 0xFF;
+        return isLetter(current) || isDigit(current);
+    }
+
     @Override
     public String toString()
     {
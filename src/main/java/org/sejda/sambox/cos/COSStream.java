@@ -16,12 +16,13 @@
  */
 package org.sejda.sambox.cos;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
 import static org.sejda.io.SeekableSources.inMemorySeekableSourceFrom;
 
-import java.io.ByteArrayInputStream;
 import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -30,15 +31,19 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.sejda.io.FastByteArrayOutputStream;
 import org.sejda.io.SeekableSource;
 import org.sejda.io.SeekableSourceSupplier;
+import org.sejda.sambox.SAMBox;
 import org.sejda.sambox.filter.DecodeResult;
 import org.sejda.sambox.filter.Filter;
 import org.sejda.sambox.filter.FilterFactory;
+import org.sejda.sambox.filter.FlateEncoder;
+import org.sejda.sambox.util.ByteBufferSeekableSource;
 import org.sejda.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,14 +62,18 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
     private static final Logger LOG = LoggerFactory.getLogger(COSStream.class);
 
     private LazySeekableSourceViewHolder existing;
-    private byte[] filtered;
-    private byte[] unfiltered;
+    private StreamData filtered;
+    private StreamData unfiltered;
     private DecodeResult decodeResult;
     // an encryption function that returns an encrypted view of the filtered stream
     private Function<InputStream, InputStream> encryptor;
     private boolean encryptable = true;
     // if the writer should write the stream length as indirect object
     private boolean indirectLength = false;
+    private StreamDecodeListener decodeListener;
+    private FlateEncoder flateEncoder;
+    private boolean streamingDecode = Boolean.getBoolean(SAMBox.STREAMING_DECODE_PROPERTY);
+    private StreamStorage streamStorage;
 
     public COSStream()
     {
@@ -93,6 +102,61 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         this.existing = new LazySeekableSourceViewHolder(seekableSource, startingPosition, length);
     }
 
+    /**
+     * @param flateEncoder the encoder used when the Flate filter is applied to encode the data of this stream. It has
+     * no effect on data that has been already encoded.
+     */
+    public void setFlateEncoder(FlateEncoder flateEncoder)
+    {
+        this.flateEncoder = flateEncoder;
+    }
+
+    /**
+     * @return the encoder used when the Flate filter is applied to encode the data of this stream
+     */
+    public FlateEncoder getFlateEncoder()
+    {
+        return ofNullable(flateEncoder).orElseGet(FlateEncoder::defaultEncoder);
+    }
+
+    /**
+     * @param streamStorage the storage for the data written to this stream or decoded from it. It has no effect on data
+     * that has been already stored.
+     */
+    public void setStreamStorage(StreamStorage streamStorage)
+    {
+        this.streamStorage = streamStorage;
+    }
+
+    /**
+     * @return the storage for the data written to this stream or decoded from it, {@link StreamStorage#defaultStorage()}
+     * if not set
+     */
+    public StreamStorage getStreamStorage()
+    {
+        return ofNullable(streamStorage).orElseGet(StreamStorage::defaultStorage);
+    }
+
+    /**
+     * @param decodeListener listener notified when a filter is applied to decode this stream
+     */
+    public void setDecodeListener(StreamDecodeListener decodeListener)
+    {
+        this.decodeListener = decodeListener;
+    }
+
+    /**
+     * @param streamingDecode if true, {@link #getUnfilteredStream()} returns a stream decoding the data as it's read,
+     * through the chain of filters, and the decoded data is not retained by this stream. Memory used to read the stream
+     * is bounded by the filters buffers rather than by the data size, for filters that can decode incrementally. Methods
+     * that need the whole decoded data (Ex. {@link #getUnfilteredLength()} or {@link #getUnfilteredSource()}) still
+     * decode and retain it. Defaults to the {@link SAMBox#STREAMING_DECODE_PROPERTY} value.
+     */
+    public void setStreamingDecode(boolean streamingDecode)
+    {
+        this.streamingDecode = streamingDecode;
+    }
+
     /**
      * @return the (encoded) stream with all of the filters applied.
      * @throws IOException when encoding/decoding causes an exception
@@ -115,9 +179,9 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         encodeIfRequired();
         if (nonNull(filtered))
         {
-            return new MyByteArrayInputStream(filtered);
+            return filtered.asInputStream();
         }
-        return new MyByteArrayInputStream(unfiltered);
+        return asInputStream(unfiltered);
     }
 
     /**
@@ -133,6 +197,21 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         return inMemorySeekableSourceFrom(getFilteredStream());
     }
 
+    /**
+     * @return the {@link SeekableSource} of the filtered data of a stream read from an existing document if the data
+     * has not been changed and the stream is not going to be encrypted, this is the data as found in the original
+     * document and it can be copied as is. An empty {@link Optional} otherwise.
+     * @throws IOException
+     */
+    public Optional<SeekableSource> getUnchangedFilteredSource() throws IOException
+    {
+        if (nonNull(existing) && isNull(encryptor))
+        {
+            return Optional.of(existing.get());
+        }
+        return Optional.empty();
+    }
+
     /**
      * @return the length of the encoded stream as long
      * @throws IOException
@@ -146,9 +225,9 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         encodeIfRequired();
         if (filtered != null)
         {
-            return Optional.ofNullable(filtered).map(f -> f.length).orElse(0);
+            return filtered.length();
         }
-        return Optional.ofNullable(unfiltered).map(f -> f.length).orElse(0);
+        return lengthOf(unfiltered);
     }
 
     private void encodeIfRequired() throws IOException
@@ -168,10 +247,14 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
      */
     public InputStream getUnfilteredStream() throws IOException
     {
+        if (streamingDecode && isNull(unfiltered) && nonNull(getFilters()))
+        {
+            return decodingStream();
+        }
         decodeIfRequired();
         if (unfiltered != null)
         {
-            return new MyByteArrayInputStream(unfiltered);
+            return unfiltered.asInputStream();
         }
         return getStreamToDecode();
     }
@@ -185,13 +268,13 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         decodeIfRequired();
         if (unfiltered != null)
         {
-            return inMemorySeekableSourceFrom(unfiltered);
+            return unfiltered.asSeekableSource();
         }
         if (existing != null)
         {
             return existing.get();
         }
-        return inMemorySeekableSourceFrom(filtered);
+        return ofNullable(filtered).orElse(HeapStreamData.EMPTY).asSeekableSource();
     }
 
     /**
@@ -203,13 +286,18 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         decodeIfRequired();
         if (unfiltered != null)
         {
-            return ByteBuffer.wrap(unfiltered).asReadOnlyBuffer();
+            return unfiltered.asByteBuffer();
         }
         if (existing != null)
         {
-            return ByteBuffer.wrap(IOUtils.toByteArray(existing.get().asInputStream()));
+            SeekableSource view = existing.get();
+            if (view instanceof ByteBufferSeekableSource)
+            {
+                return ((ByteBufferSeekableSource) view).asByteBuffer();
+            }
+            return ByteBuffer.wrap(IOUtils.toByteArray(view.asInputStream()));
         }
-        return ByteBuffer.wrap(filtered).asReadOnlyBuffer();
+        return ofNullable(filtered).orElse(HeapStreamData.EMPTY).asByteBuffer();
     }
 
     /**
@@ -221,13 +309,22 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         decodeIfRequired();
         if (unfiltered != null)
         {
-            return Optional.ofNullable(unfiltered).map(f -> f.length).orElse(0);
+            return unfiltered.length();
         }
         if (existing != null)
         {
             return existing.length;
         }
-        return Optional.ofNullable(filtered).map(f -> f.length).orElse(0);
+        return lengthOf(filtered);
+    }
+
+    /**
+     * @return the length of the decoded data currently held by this stream, 0 if the stream has not been decoded or its
+     * decoded data has been released. Unlike {@link #getUnfilteredLength()} the stream is not decoded.
+     */
+    public long getRetainedUnfilteredLength()
+    {
+        return lengthOf(unfiltered);
     }
 
     private void decodeIfRequired() throws IOException
@@ -302,11 +399,17 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         }
         else if (filters instanceof COSName)
         {
-            unfiltered = decode((COSName) filters, 0, getStreamToDecode());
+            try (InputStream toDecode = getStreamToDecode())
+            {
+                unfiltered = decode((COSName) filters, 0, toDecode);
+            }
         }
         else if (filters instanceof COSArray)
         {
-            unfiltered = decodeChain((COSArray) filters, getStreamToDecode());
+            try (InputStream toDecode = getStreamToDecode())
+            {
+                unfiltered = decodeChain((COSArray) filters, toDecode);
+            }
         }
         else
         {
@@ -320,20 +423,115 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         {
             return existing.get().asInputStream();
         }
-        return new MyByteArrayInputStream(filtered);
+        return asInputStream(filtered);
+    }
+
+    /**
+     * @return a new stream of the decoded data that doesn't change the state of this instance, the decoded data is not
+     * kept and reads of this stream by other threads are not affected. This allows a stream shared between threads to
+     * be read concurrently, as long as it's not modified.
+     * @throws IOException when decoding causes an exception
+     */
+    public InputStream newUnfilteredStream() throws IOException
+    {
+        StreamData decoded = unfiltered;
+        if (nonNull(decoded))
+        {
+            return decoded.asInputStream();
+        }
+        if (isNull(getFilters()))
+        {
+            return newFilteredStream();
+        }
+        return decodingStream();
     }
 
-    private byte[] decodeChain(COSArray filters, InputStream startingFrom) throws IOException
+    /**
+     * @return a stream decoding the data as it's read, chaining the filters
+     * @throws IOException
+     */
+    private InputStream decodingStream() throws IOException
+    {
+        InputStream decoding = newFilteredStream();
+        COSBase filters = getFilters();
+        if (filters instanceof COSName)
+        {
+            return decoding((COSName) filters, 0, decoding);
+        }
+        if (filters instanceof COSArray)
+        {
+            COSArray chain = (COSArray) filters;
+            for (int i = 0; i < chain.size(); i++)
+            {
+                decoding = decoding((COSName) chain.getObject(i), i, decoding);
+            }
+            return decoding;
+        }
+        throw new IOException("Unknown filter type:" + filters);
+    }
+
+    /**
+     * @return a stream of the filtered data with its own position
+     * @throws IOException
+     */
+    private InputStream newFilteredStream() throws IOException
+    {
+        if (nonNull(existing))
+        {
+            // an independent view so that other reads of this stream don't move the position
+            SeekableSource view = existing.newView();
+            return new FilterInputStream(view.asInputStream())
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    super.close();
+                    IOUtils.close(view);
+                }
+            };
+        }
+        return asInputStream(filtered);
+    }
+
+    private InputStream decoding(COSName filterName, int filterIndex, InputStream toDecode)
+            throws IOException
+    {
+        InputStream decoding = FilterFactory.INSTANCE.getFilter(filterName).decoding(toDecode,
+                this, filterIndex);
+        if (nonNull(decodeListener))
+        {
+            return new NotifyingInputStream(decoding, filterName, decodeListener);
+        }
+        return decoding;
+    }
+
+    private StreamData decodeChain(COSArray filters, InputStream startingFrom) throws IOException
     {
         if (filters.size() > 0)
         {
-            byte[] tmpResult = new byte[0];
+            StreamData tmpResult = null;
             InputStream input = startingFrom;
             for (int i = 0; i < filters.size(); i++)
             {
                 COSName filterName = (COSName) filters.getObject(i);
-                tmpResult = decode(filterName, i, input);
-                input = new MyByteArrayInputStream(tmpResult);
+                StreamData previous = tmpResult;
+                try
+                {
+                    tmpResult = decode(filterName, i, input);
+                }
+                finally
+                {
+                    // intermediate results are released once decoded by the next filter
+                    if (nonNull(previous))
+                    {
+                        IOUtils.closeQuietly(input);
+                    }
+                    IOUtils.closeQuietly(previous);
+                }
+                if (i < filters.size() - 1)
+                {
+                    input = tmpResult.asInputStream();
+                }
             }
             return tmpResult;
         }
@@ -341,19 +539,31 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         return null;
     }
 
-    private byte[] decode(COSName filterName, int filterIndex, InputStream toDecode)
+    private StreamData decode(COSName filterName, int filterIndex, InputStream toDecode)
             throws IOException
     {
         if (toDecode.available() > 0)
         {
             Filter filter = FilterFactory.INSTANCE.getFilter(filterName);
-            try (MyByteArrayOutputStream out = new MyByteArrayOutputStream())
+            long start = System.nanoTime();
+            AtomicReference<StreamData> decoded = new AtomicReference<>();
+            try (OutputStream out = getStreamStorage().newOutputStream(decoded::set))
             {
                 decodeResult = filter.decode(toDecode, out, this, filterIndex);
-                return out.toByteArray();
             }
+            catch (IOException | RuntimeException e)
+            {
+                IOUtils.closeQuietly(decoded.get());
+                throw e;
+            }
+            if (nonNull(decodeListener))
+            {
+                decodeListener.onDecoded(filterName, decoded.get().length(),
+                        System.nanoTime() - start);
+            }
+            return decoded.get();
         }
-        return new byte[0];
+        return HeapStreamData.EMPTY;
 
     }
 
@@ -365,39 +575,49 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
     private void doEncode() throws IOException
     {
         COSBase filters = getFilters();
-        if (filters instanceof COSName)
+        try (InputStream toEncode = asInputStream(unfiltered))
         {
-            filtered = encode((COSName) filters, new MyByteArrayInputStream(unfiltered));
-        }
-        else if (filters instanceof COSArray)
-        {
-            filtered = encodeChain((COSArray) filters, new MyByteArrayInputStream(unfiltered));
+            if (filters instanceof COSName)
+            {
+                filtered = encode((COSName) filters, toEncode);
+            }
+            else if (filters instanceof COSArray)
+            {
+                filtered = encodeChain((COSArray) filters, toEncode);
+            }
         }
     }
 
-    private byte[] encode(COSName filterName, InputStream toEncode) throws IOException
+    private StreamData encode(COSName filterName, InputStream toEncode) throws IOException
     {
         Filter filter = FilterFactory.INSTANCE.getFilter(filterName);
-        try (MyByteArrayOutputStream encoded = new MyByteArrayOutputStream())
+        AtomicReference<StreamData> encoded = new AtomicReference<>();
+        try (OutputStream out = getStreamStorage().newOutputStream(encoded::set))
+        {
+            filter.encode(toEncode, out, this);
+        }
+        catch (IOException | RuntimeException e)
         {
-            filter.encode(toEncode, encoded, this);
-            return encoded.toByteArray();
+            IOUtils.closeQuietly(encoded.get());
+            throw e;
         }
+        return encoded.get();
     }
 
-    private byte[] encodeChain(COSArray filters, InputStream startingFrom) throws IOException
+    private StreamData encodeChain(COSArray filters, InputStream startingFrom) throws IOException
     {
         if (filters.size() > 0)
         {
-            byte[] tmpResult = new byte[0];
             InputStream input = startingFrom;
-            for (int i = filters.size() - 1; i >= 0; i--)
+            for (int i = filters.size() - 1; i > 0; i--)
             {
-                COSName filterName = (COSName) filters.getObject(i);
-                tmpResult = encode(filterName, input);
-                input = new MyByteArrayInputStream(tmpResult);
+                // intermediate results are read back from the buffer they are written to, without copies
+                FastByteArrayOutputStream stage = new FastByteArrayOutputStream();
+                FilterFactory.INSTANCE.getFilter((COSName) filters.getObject(i)).encode(input,
+                        stage, this);
+                input = stage.getInputStream();
             }
-            return tmpResult;
+            return encode((COSName) filters.getObject(0), input);
         }
         return null;
     }
@@ -450,12 +670,12 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
      */
     public OutputStream createFilteredStream()
     {
+        setDirty(true);
         IOUtils.closeQuietly(existing);
-        unfiltered = null;
+        releaseData();
         existing = null;
-        filtered = null;
-        return new MyByteArrayOutputStream(bytes -> {
-            this.filtered = bytes;
+        return getStreamStorage().newOutputStream(data -> {
+            this.filtered = data;
         });
     }
 
@@ -487,8 +707,8 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         {
             try (InputStream in = getUnfilteredStream())
             {
-                try (MyByteArrayOutputStream out = new MyByteArrayOutputStream(bytes -> {
-                    this.unfiltered = bytes;
+                try (OutputStream out = getStreamStorage().newOutputStream(data -> {
+                    this.unfiltered = data;
                 }))
                 {
                     org.apache.commons.io.IOUtils.copy(in, out);
@@ -500,6 +720,7 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         setItem(COSName.FILTER, filters);
         IOUtils.closeQuietly(existing);
         existing = null;
+        IOUtils.closeQuietly(filtered);
         filtered = null;
     }
 
@@ -532,7 +753,7 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
     /**
      * @return true if we can add compression to the current filters
      */
-    private boolean canCompress()
+    public boolean canCompress()
     {
         if (getDictionaryObject(COSName.DECODE_PARMS, COSName.DP) != null)
         {
@@ -573,12 +794,12 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
      */
     public OutputStream createUnfilteredStream()
     {
-        filtered = null;
+        setDirty(true);
+        releaseData();
         IOUtils.closeQuietly(existing);
         existing = null;
-        unfiltered = null;
-        return new MyByteArrayOutputStream(bytes -> {
-            this.unfiltered = bytes;
+        return getStreamStorage().newOutputStream(data -> {
+            this.unfiltered = data;
         });
     }
 
@@ -588,8 +809,8 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         {
             return existing.get().size() <= 0;
         }
-        return ofNullable(filtered).map(f -> (f.length <= 0)).orElseGet(() -> {
-            return ofNullable(unfiltered).map(u -> (u.length <= 0)).orElse(true);
+        return ofNullable(filtered).map(f -> (f.length() <= 0)).orElseGet(() -> {
+            return ofNullable(unfiltered).map(u -> (u.length() <= 0)).orElse(true);
         });
     }
 
@@ -615,26 +836,45 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
     {
         IOUtils.closeQuietly(existing);
         existing = null;
-        unfiltered = null;
-        filtered = null;
+        releaseData();
     }
 
     /**
-     * offload decoded/unfiltered data leaving the COSStrem in its filtered state and reducing memory footprint
+     * offload decoded/unfiltered data leaving the COSStrem in its filtered state and reducing memory footprint. The
+     * view of the original source, if any, is closed and opened again when the data is required.
      */
     public void unDecode()
     {
         if (nonNull(existing))
         {
-            unfiltered = null;
-            filtered = null;
+            IOUtils.closeQuietly(existing);
+            releaseData();
         }
         if (nonNull(filtered))
         {
+            IOUtils.closeQuietly(unfiltered);
             unfiltered = null;
         }
     }
 
+    private void releaseData()
+    {
+        IOUtils.closeQuietly(unfiltered);
+        IOUtils.closeQuietly(filtered);
+        unfiltered = null;
+        filtered = null;
+    }
+
+    private static InputStream asInputStream(StreamData data) throws IOException
+    {
+        return ofNullable(data).orElse(HeapStreamData.EMPTY).asInputStream();
+    }
+
+    private static long lengthOf(StreamData data)
+    {
+        return ofNullable(data).map(StreamData::length).orElse(0L);
+    }
+
     /**
      * @return true if the writer should write this stream length as indirect
      */
@@ -674,11 +914,75 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
         }
     }
 
-    static class MyByteArrayInputStream extends ByteArrayInputStream
+    /**
+     * Notifies the listener once the decoded stream has been fully read or closed, with the time spent reading it
+     */
+    private static class NotifyingInputStream extends FilterInputStream
     {
-        MyByteArrayInputStream(byte[] bytes)
+        private final COSName filter;
+        private final StreamDecodeListener listener;
+        private long decodedLength;
+        private long nanos;
+        private boolean notified;
+
+        NotifyingInputStream(InputStream in, COSName filter, StreamDecodeListener listener)
         {
-            super(Optional.ofNullable(bytes).orElse(new byte[0]));
+            super(in);
+            this.filter = filter;
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            long start = System.nanoTime();
+            int value = super.read();
+            onRead(value == -1 ? -1 : 1, start);
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            long start = System.nanoTime();
+            int read = super.read(b, off, len);
+            onRead(read, start);
+            return read;
+        }
+
+        private void onRead(int read, long start)
+        {
+            nanos += System.nanoTime() - start;
+            if (read > 0)
+            {
+                decodedLength += read;
+            }
+            else if (read == -1)
+            {
+                notifyListener();
+            }
+        }
+
+        private void notifyListener()
+        {
+            if (!notified)
+            {
+                notified = true;
+                listener.onDecoded(filter, decodedLength, nanos);
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                notifyListener();
+            }
         }
     }
 
@@ -707,6 +1011,16 @@ public class COSStream extends COSDictionary implements Closeable, Encryptable
             this.length = length;
         }
 
+        /**
+         * @return a new view, independent from the one returned by {@link #get()}, the caller is responsible for
+         * closing it
+         * @throws IOException
+         */
+        SeekableSource newView() throws IOException
+        {
+            return supplier.get();
+        }
+
         SeekableSource get() throws IOException
         {
             if (view == null)
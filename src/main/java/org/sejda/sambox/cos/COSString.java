@@ -69,6 +69,7 @@ public final class COSString extends COSBase implements Encryptable
     public void setValue(byte[] value)
     {
         this.bytes = Arrays.copyOf(value, value.length);
+        setDirty(true);
     }
 
     /**
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.cos;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Utility methods dealing with the dirty flag of an object and the direct objects it contains. Values that are
+ * {@link COSDictionary} or {@link COSArray} are considered direct objects, indirect references are not followed.
+ * 
+ * @author Andrea Vacondio
+ * @see COSBase#isDirty()
+ */
+public final class DirtyFlags
+{
+    private DirtyFlags()
+    {
+        // utility
+    }
+
+    /**
+     * @param object
+     * @return true if the given object or any of its direct values has been modified
+     */
+    public static boolean isDirty(COSBase object)
+    {
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<COSBase> toVisit = new ArrayDeque<>();
+        toVisit.add(object);
+        while (!toVisit.isEmpty())
+        {
+            COSBase current = toVisit.poll();
+            if (visited.add(current))
+            {
+                if (current.isDirty())
+                {
+                    return true;
+                }
+                addDirectValues(current, toVisit);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks the given object and all its direct values as not modified
+     * 
+     * @param object
+     */
+    public static void clear(COSBase object)
+    {
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<COSBase> toVisit = new ArrayDeque<>();
+        toVisit.add(object);
+        while (!toVisit.isEmpty())
+        {
+            COSBase current = toVisit.poll();
+            if (visited.add(current))
+            {
+                current.setDirty(false);
+                addDirectValues(current, toVisit);
+            }
+        }
+    }
+
+    private static void addDirectValues(COSBase object, Deque<COSBase> toVisit)
+    {
+        Iterable<COSBase> values = null;
+        if (object instanceof COSDictionary)
+        {
+            values = ((COSDictionary) object).getValues();
+        }
+        else if (object instanceof COSArray)
+        {
+            values = (COSArray) object;
+        }
+        if (values != null)
+        {
+            for (COSBase value : values)
+            {
+                if (value instanceof COSDictionary || value instanceof COSArray
+                        || value instanceof COSString)
+                {
+                    toVisit.add(value);
+                }
+            }
+        }
+    }
+}
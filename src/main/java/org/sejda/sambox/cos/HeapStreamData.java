@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.cos;
+
+import static org.sejda.io.SeekableSources.inMemorySeekableSourceFrom;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import org.sejda.io.SeekableSource;
+
+/**
+ * {@link StreamData} stored in a heap byte array
+ * 
+ * @author Andrea Vacondio
+ */
+class HeapStreamData implements StreamData
+{
+    static final HeapStreamData EMPTY = new HeapStreamData(new byte[0]);
+
+    private final byte[] data;
+
+    HeapStreamData(byte[] data)
+    {
+        this.data = Optional.ofNullable(data).orElse(new byte[0]);
+    }
+
+    @Override
+    public long length()
+    {
+        return data.length;
+    }
+
+    @Override
+    public InputStream asInputStream()
+    {
+        return new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public SeekableSource asSeekableSource()
+    {
+        return inMemorySeekableSourceFrom(data);
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer()
+    {
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    @Override
+    public void close()
+    {
+        // nothing to release
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.cos;
+
+import static java.util.Objects.nonNull;
+import static org.sejda.util.RequireUtils.requireArg;
+import static org.sejda.util.RequireUtils.requireNotBlank;
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+
+import org.sejda.io.SeekableSource;
+
+/**
+ * The source an existing document has been parsed from, with the information required to write an incremental update
+ * of the document, as defined in Chap 7.5.6 of PDF 32000-1:2008.
+ * 
+ * @author Andrea Vacondio
+ */
+public class IncrementalSource
+{
+    private final SeekableSource source;
+    private final String ownerIdentifier;
+    private final long startxref;
+    private final boolean xrefStream;
+    private final long highestObjectNumber;
+
+    /**
+     * @param source the source the document has been parsed from
+     * @param ownerIdentifier the identifier of the document the existing indirect objects belong to
+     * @param startxref offset of the latest xref section of the source
+     * @param xrefStream true if the latest xref section is an xref stream
+     * @param highestObjectNumber the highest object number used in the source
+     */
+    public IncrementalSource(SeekableSource source, String ownerIdentifier, long startxref,
+            boolean xrefStream, long highestObjectNumber)
+    {
+        requireNotNullArg(source, "Source cannot be null");
+        requireNotBlank(ownerIdentifier, "Owning document identifier cannot be blank");
+        requireArg(startxref > 0, "Invalid startxref offset");
+        this.source = source;
+        this.ownerIdentifier = ownerIdentifier;
+        this.startxref = startxref;
+        this.xrefStream = xrefStream;
+        this.highestObjectNumber = highestObjectNumber;
+    }
+
+    /**
+     * @return the source the document has been parsed from
+     */
+    public SeekableSource source()
+    {
+        return source;
+    }
+
+    /**
+     * @return offset of the latest xref section of the source, the value for the /Prev key of the update
+     */
+    public long startxref()
+    {
+        return startxref;
+    }
+
+    /**
+     * @return true if the latest xref section of the source is an xref stream
+     */
+    public boolean isXrefStream()
+    {
+        return xrefStream;
+    }
+
+    /**
+     * @return the highest object number used in the source, new objects are numbered starting after this
+     */
+    public long highestObjectNumber()
+    {
+        return highestObjectNumber;
+    }
+
+    /**
+     * @param item
+     * @return true if the given item is an indirect object of the source, either not yet loaded or already loaded
+     */
+    public boolean owns(COSBase item)
+    {
+        return nonNull(item) && item.hasId() && ownerIdentifier.equals(item.id().ownerIdentifier);
+    }
+}
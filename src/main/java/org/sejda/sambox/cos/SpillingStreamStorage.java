@@ -0,0 +1,556 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.cos;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.sejda.io.SeekableSources.inMemorySeekableSourceFrom;
+import static org.sejda.util.RequireUtils.requireArg;
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.sejda.io.FastByteArrayOutputStream;
+import org.sejda.io.SeekableSource;
+import org.sejda.sambox.util.ByteBufferSeekableSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link StreamStorage} keeping the data on the heap until its size exceeds a threshold, then moving it to a direct
+ * {@link ByteBuffer} or to a temporary file. This allows documents with many large streams to be created with memory
+ * that depends on the streams being worked on rather than on the size of the whole document.
+ * <p>
+ * Temporary files are deleted when the {@link StreamData} is closed, this happens when the owning {@link COSStream} is
+ * closed or its data is replaced, or once the data is no longer reachable. Direct buffers are released when garbage
+ * collected.
+ * </p>
+ * 
+ * @author Andrea Vacondio
+ */
+public final class SpillingStreamStorage implements StreamStorage
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SpillingStreamStorage.class);
+
+    private final long threshold;
+    private final SpillFactory spills;
+
+    private SpillingStreamStorage(long threshold, SpillFactory spills)
+    {
+        requireArg(threshold >= 0, "Threshold cannot be negative");
+        this.threshold = threshold;
+        this.spills = spills;
+    }
+
+    /**
+     * @param threshold size in bytes above which data is moved to a direct buffer
+     * @return a storage moving data larger than the threshold to direct {@link ByteBuffer}s
+     */
+    public static SpillingStreamStorage direct(long threshold)
+    {
+        return new SpillingStreamStorage(threshold, DirectSpill::new);
+    }
+
+    /**
+     * @param threshold size in bytes above which data is moved to a temporary file
+     * @param directory where temporary files are created
+     * @return a storage moving data larger than the threshold to temporary files
+     */
+    public static SpillingStreamStorage file(long threshold, File directory)
+    {
+        requireNotNullArg(directory, "Temporary files directory cannot be null");
+        return new SpillingStreamStorage(threshold, initialSize -> new FileSpill(directory));
+    }
+
+    @Override
+    public OutputStream newOutputStream(Consumer<StreamData> onClose)
+    {
+        return new SpillingOutputStream(onClose);
+    }
+
+    /**
+     * Writes to the heap until the threshold is reached, to the spill afterwards
+     */
+    private class SpillingOutputStream extends OutputStream
+    {
+        private final Consumer<StreamData> onClose;
+        private FastByteArrayOutputStream heap = new FastByteArrayOutputStream();
+        private Spill spill;
+        private boolean closed;
+
+        SpillingOutputStream(Consumer<StreamData> onClose)
+        {
+            this.onClose = onClose;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            destination(1).write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            destination(len).write(b, off, len);
+        }
+
+        private OutputStream destination(int toWrite) throws IOException
+        {
+            if (closed)
+            {
+                throw new IOException("Stream closed");
+            }
+            if (isNull(spill) && heap.size() + (long) toWrite > threshold)
+            {
+                // sized on the data actually buffered, it grows as needed
+                spill = spills.create((int) Math.min(Integer.MAX_VALUE, heap.size() + (long) toWrite));
+                LOG.trace("Moving {} bytes of stream data out of the heap", heap.size());
+                heap.writeTo(spill);
+                heap = null;
+            }
+            if (nonNull(spill))
+            {
+                return spill;
+            }
+            return heap;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (!closed)
+            {
+                closed = true;
+                if (nonNull(spill))
+                {
+                    onClose.accept(spill.toStreamData());
+                }
+                else
+                {
+                    onClose.accept(new HeapStreamData(heap.toByteArray()));
+                    heap = null;
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private static interface SpillFactory
+    {
+        /**
+         * @param initialSize the size in bytes of the data that is about to be written to the spill
+         * @return a new spill
+         * @throws IOException
+         */
+        Spill create(int initialSize) throws IOException;
+    }
+
+    /**
+     * Destination of the data exceeding the threshold
+     */
+    private abstract static class Spill extends OutputStream
+    {
+        /**
+         * @return the written data, no more data can be written once this is called
+         * @throws IOException
+         */
+        abstract StreamData toStreamData() throws IOException;
+    }
+
+    private static class DirectSpill extends Spill
+    {
+        private ByteBuffer buffer;
+
+        DirectSpill(int initialSize)
+        {
+            this.buffer = ByteBuffer.allocateDirect(initialSize);
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            ensureCapacity(1);
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            ensureCapacity(len);
+            buffer.put(b, off, len);
+        }
+
+        private void ensureCapacity(int toWrite) throws IOException
+        {
+            long required = (long) buffer.position() + toWrite;
+            if (required > buffer.capacity())
+            {
+                if (required > Integer.MAX_VALUE)
+                {
+                    throw new IOException("Stream data is too large to be stored in a direct buffer");
+                }
+                ByteBuffer grown = ByteBuffer.allocateDirect(
+                        (int) Math.min(Integer.MAX_VALUE, Math.max(required, buffer.capacity() * 2L)));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        @Override
+        StreamData toStreamData()
+        {
+            buffer.flip();
+            return new ByteBufferStreamData(buffer);
+        }
+    }
+
+    private static class FileSpill extends Spill
+    {
+        private final TempFile file;
+        private final OutputStream out;
+        private long length;
+
+        FileSpill(File directory) throws IOException
+        {
+            this.file = new TempFile(directory);
+            try
+            {
+                this.out = new BufferedOutputStream(new FileOutputStream(file.file), 65536);
+            }
+            catch (IOException e)
+            {
+                file.delete();
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            length++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+            length += len;
+        }
+
+        @Override
+        StreamData toStreamData() throws IOException
+        {
+            try
+            {
+                out.close();
+            }
+            catch (IOException e)
+            {
+                file.delete();
+                throw e;
+            }
+            return new FileStreamData(file, length);
+        }
+    }
+
+    /**
+     * {@link StreamData} stored in a {@link ByteBuffer}, between zero and its limit
+     */
+    private static class ByteBufferStreamData implements StreamData
+    {
+        private final ByteBuffer buffer;
+
+        ByteBufferStreamData(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public long length()
+        {
+            return buffer.limit();
+        }
+
+        @Override
+        public InputStream asInputStream() throws IOException
+        {
+            return asSeekableSource().asInputStream();
+        }
+
+        @Override
+        public SeekableSource asSeekableSource()
+        {
+            return new ByteBufferSeekableSource(getClass().getSimpleName(), buffer);
+        }
+
+        @Override
+        public ByteBuffer asByteBuffer()
+        {
+            ByteBuffer retVal = buffer.asReadOnlyBuffer();
+            retVal.position(0);
+            return retVal;
+        }
+
+        @Override
+        public void close()
+        {
+            // released when garbage collected
+        }
+    }
+
+    /**
+     * {@link StreamData} stored in a temporary file, read through a memory mapping of the file. Input streams and
+     * seekable sources are counted and the mapping is dropped and the file deleted only once the data has been closed
+     * and all of them have been closed too. Buffers returned by {@link #asByteBuffer()} are not counted, they keep the
+     * mapping valid until garbage collected.
+     */
+    private static class FileStreamData implements StreamData
+    {
+        private final TempFile file;
+        private final long length;
+        private ByteBufferStreamData mapped;
+        private int readers;
+        private boolean closed;
+
+        FileStreamData(TempFile file, long length)
+        {
+            this.file = file;
+            this.length = length;
+        }
+
+        @Override
+        public long length()
+        {
+            return length;
+        }
+
+        @Override
+        public InputStream asInputStream() throws IOException
+        {
+            ByteBufferStreamData data = acquire();
+            Runnable release = releaseOnce();
+            return new FilterInputStream(data.asInputStream())
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        release.run();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public SeekableSource asSeekableSource() throws IOException
+        {
+            if (length == 0)
+            {
+                return inMemorySeekableSourceFrom(new byte[0]);
+            }
+            ByteBufferStreamData data = acquire();
+            Runnable release = releaseOnce();
+            return new ByteBufferSeekableSource(getClass().getSimpleName(), data.asByteBuffer())
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        release.run();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public ByteBuffer asByteBuffer() throws IOException
+        {
+            return mapped().asByteBuffer();
+        }
+
+        private synchronized ByteBufferStreamData mapped() throws IOException
+        {
+            if (closed)
+            {
+                throw new IOException("Stream data has been closed");
+            }
+            if (isNull(mapped))
+            {
+                if (length > Integer.MAX_VALUE)
+                {
+                    throw new IOException("Stream data is too large to be mapped");
+                }
+                try (FileChannel channel = FileChannel.open(file.file.toPath(), StandardOpenOption.READ))
+                {
+                    mapped = new ByteBufferStreamData(channel.map(MapMode.READ_ONLY, 0, length));
+                }
+            }
+            return mapped;
+        }
+
+        /**
+         * Maps the file, if not already mapped, and counts a new reader
+         */
+        private synchronized ByteBufferStreamData acquire() throws IOException
+        {
+            ByteBufferStreamData data = mapped();
+            readers++;
+            return data;
+        }
+
+        /**
+         * @return the task to run once an acquired reader is closed, it can safely be run more than once
+         */
+        private Runnable releaseOnce()
+        {
+            AtomicBoolean released = new AtomicBoolean();
+            return () -> {
+                if (released.compareAndSet(false, true))
+                {
+                    release();
+                }
+            };
+        }
+
+        private synchronized void release()
+        {
+            readers--;
+            deleteIfUnused();
+        }
+
+        @Override
+        public synchronized void close()
+        {
+            closed = true;
+            deleteIfUnused();
+        }
+
+        private void deleteIfUnused()
+        {
+            if (closed && readers == 0)
+            {
+                mapped = null;
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * A temporary file deleted when explicitly asked, when no longer reachable or, at the latest, when the JVM exits.
+     * This prevents files from being left behind by streams that are never closed.
+     */
+    private static class TempFile
+    {
+        private static final ReferenceQueue<TempFile> COLLECTED = new ReferenceQueue<>();
+        private static final Set<Deletion> PENDING = ConcurrentHashMap.newKeySet();
+
+        static
+        {
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(() -> PENDING.forEach(Deletion::run), "sambox-stream-files-cleanup"));
+        }
+
+        final File file;
+        private final Deletion deletion;
+
+        TempFile(File directory) throws IOException
+        {
+            purgeCollected();
+            this.file = File.createTempFile("sambox", ".stream", directory);
+            this.deletion = new Deletion(this);
+            PENDING.add(deletion);
+        }
+
+        void delete()
+        {
+            deletion.run();
+        }
+
+        private static void purgeCollected()
+        {
+            Deletion collected;
+            while ((collected = (Deletion) COLLECTED.poll()) != null)
+            {
+                LOG.trace("Deleting temporary file {} of unreachable stream data", collected.file);
+                collected.run();
+            }
+        }
+    }
+
+    private static class Deletion extends PhantomReference<TempFile>
+    {
+        private final File file;
+
+        Deletion(TempFile tempFile)
+        {
+            super(tempFile, TempFile.COLLECTED);
+            this.file = tempFile.file;
+        }
+
+        void run()
+        {
+            if (TempFile.PENDING.remove(this))
+            {
+                delete(file);
+            }
+        }
+    }
+
+    private static void delete(File file)
+    {
+        try
+        {
+            Files.deleteIfExists(file.toPath());
+        }
+        catch (IOException e)
+        {
+            // Ex. on some platforms a mapped file cannot be deleted
+            LOG.debug("Unable to delete temporary file {}, it will be deleted on exit", file);
+            file.deleteOnExit();
+        }
+    }
+}
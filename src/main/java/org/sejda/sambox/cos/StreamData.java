@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.cos;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.sejda.io.SeekableSource;
+
+/**
+ * The data of a {@link COSStream}, filtered or unfiltered, as stored by a {@link StreamStorage}. Closing it releases
+ * the resources used to store it.
+ * 
+ * @author Andrea Vacondio
+ */
+public interface StreamData extends Closeable
+{
+    /**
+     * @return the size in bytes of the data
+     */
+    long length();
+
+    /**
+     * @return a new {@link InputStream} reading the data from the beginning
+     * @throws IOException
+     */
+    InputStream asInputStream() throws IOException;
+
+    /**
+     * @return a {@link SeekableSource} for the data. Closing it is not required but, for data that is not on the heap,
+     * it allows the resources used to store it to be released as soon as the data itself is closed.
+     * @throws IOException
+     */
+    SeekableSource asSeekableSource() throws IOException;
+
+    /**
+     * @return the data as a read only {@link ByteBuffer} with position zero and limit the data length
+     * @throws IOException
+     */
+    ByteBuffer asByteBuffer() throws IOException;
+}
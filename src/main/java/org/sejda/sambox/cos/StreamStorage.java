@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.cos;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+import org.sejda.sambox.SAMBox;
+import org.sejda.sambox.cos.COSStream.MyByteArrayOutputStream;
+
+/**
+ * Storage for the data of a {@link COSStream}. It allows the data of large streams, written when a document is
+ * created or modified or decoded when it's read, to be stored out of the heap.
+ * 
+ * @author Andrea Vacondio
+ * @see SpillingStreamStorage
+ */
+@FunctionalInterface
+public interface StreamStorage
+{
+    /**
+     * Storage keeping the data in heap byte arrays
+     */
+    StreamStorage HEAP = onClose -> new MyByteArrayOutputStream(
+            bytes -> onClose.accept(new HeapStreamData(bytes)));
+
+    /**
+     * @param onClose consumer of the stored data, called once when the returned stream is closed
+     * @return a new {@link OutputStream} where the data to store is written to
+     */
+    OutputStream newOutputStream(Consumer<StreamData> onClose);
+
+    /**
+     * @return the storage configured with the {@link SAMBox#STREAM_STORAGE_THRESHOLD_PROPERTY},
+     * {@link SAMBox#STREAM_STORAGE_PROPERTY} and {@link SAMBox#STREAM_STORAGE_DIRECTORY_PROPERTY} system properties,
+     * {@link #HEAP} if no threshold is set.
+     */
+    static StreamStorage defaultStorage()
+    {
+        long threshold = Long.getLong(SAMBox.STREAM_STORAGE_THRESHOLD_PROPERTY, -1);
+        if (threshold < 0)
+        {
+            return HEAP;
+        }
+        if ("direct".equalsIgnoreCase(System.getProperty(SAMBox.STREAM_STORAGE_PROPERTY)))
+        {
+            return SpillingStreamStorage.direct(threshold);
+        }
+        return SpillingStreamStorage.file(threshold,
+                new File(System.getProperty(SAMBox.STREAM_STORAGE_DIRECTORY_PROPERTY,
+                        System.getProperty("java.io.tmpdir"))));
+    }
+}
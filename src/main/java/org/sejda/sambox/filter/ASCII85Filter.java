@@ -52,6 +52,12 @@ final class ASCII85Filter extends Filter
         return new DecodeResult(parameters);
     }
 
+    @Override
+    public InputStream decoding(InputStream encoded, COSDictionary parameters, int index)
+    {
+        return new ASCII85InputStream(encoded);
+    }
+
     @Override
     public void encode(InputStream input, OutputStream encoded, COSDictionary parameters)
         throws IOException
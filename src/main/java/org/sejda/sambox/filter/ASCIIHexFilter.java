@@ -52,44 +52,67 @@ final class ASCIIHexFilter extends Filter
     public DecodeResult decode(InputStream encoded, OutputStream decoded,
                                          COSDictionary parameters, int index) throws IOException
     {
-        int value, firstByte, secondByte;
-        while ((firstByte = encoded.read()) != -1)
+        InputStream in = decoding(encoded, parameters, index);
+        int value;
+        while ((value = in.read()) != -1)
         {
-            // always after first char
-            while (isWhitespace(firstByte))
-            {
-                firstByte = encoded.read();
-            }
-            if (firstByte == -1 || isEOD(firstByte))
-            {
-                break;
-            }
-       
-            if (REVERSE_HEX[firstByte] == -1)
-            {
-                LOG.error("Invalid hex, int: " + firstByte + " char: " + (char)firstByte);
-            }
-            value = REVERSE_HEX[firstByte] * 16;
-            secondByte = encoded.read();
-       
-            if (secondByte == -1 || isEOD(secondByte)) 
-            {
-                // second value behaves like 0 in case of EOD
-                decoded.write(value);
-                break;
-            }
-            if (secondByte >= 0) 
+            decoded.write(value);
+        }
+        decoded.flush();
+        return new DecodeResult(parameters);
+    }
+
+    @Override
+    public InputStream decoding(InputStream encoded, COSDictionary parameters, int index)
+    {
+        return new InputStream()
+        {
+            private boolean eod;
+
+            @Override
+            public int read() throws IOException
             {
+                if (eod)
+                {
+                    return -1;
+                }
+                int firstByte = encoded.read();
+                // always after first char
+                while (isWhitespace(firstByte))
+                {
+                    firstByte = encoded.read();
+                }
+                if (firstByte == -1 || isEOD(firstByte))
+                {
+                    eod = true;
+                    return -1;
+                }
+                if (REVERSE_HEX[firstByte] == -1)
+                {
+                    LOG.error("Invalid hex, int: " + firstByte + " char: " + (char) firstByte);
+                }
+                int value = REVERSE_HEX[firstByte] * 16;
+                int secondByte = encoded.read();
+                if (secondByte == -1 || isEOD(secondByte))
+                {
+                    // second value behaves like 0 in case of EOD
+                    eod = true;
+                    return value & 0xFF;
+                }
                 if (REVERSE_HEX[secondByte] == -1)
                 {
-                    LOG.error("Invalid hex, int: " + secondByte + " char: " + (char)secondByte);
+                    LOG.error("Invalid hex, int: " + secondByte + " char: " + (char) secondByte);
                 }
                 value += REVERSE_HEX[secondByte];
+                return value & 0xFF;
             }
-            decoded.write(value);
-        }
-        decoded.flush();
-        return new DecodeResult(parameters);
+
+            @Override
+            public void close() throws IOException
+            {
+                encoded.close();
+            }
+        };
     }
 
     // whitespace
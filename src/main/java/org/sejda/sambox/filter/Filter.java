@@ -25,6 +25,7 @@ import java.util.Optional;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 
+import org.sejda.io.FastByteArrayOutputStream;
 import org.sejda.sambox.cos.COSArray;
 import org.sejda.sambox.cos.COSBase;
 import org.sejda.sambox.cos.COSDictionary;
@@ -59,6 +60,24 @@ public abstract class Filter
     public abstract DecodeResult decode(InputStream encoded, OutputStream decoded,
             COSDictionary parameters, int index) throws IOException;
 
+    /**
+     * Returns a stream of the decoded data. Filters that can decode incrementally return a stream decoding the data as
+     * it's read, with memory bounded by their buffers. This default implementation decodes the whole data in memory.
+     * 
+     * @param encoded the encoded byte stream
+     * @param parameters the parameters used for decoding
+     * @param index the index to the filter being decoded
+     * @return a stream of the decoded data
+     * @throws IOException if the stream cannot be decoded
+     */
+    public InputStream decoding(InputStream encoded, COSDictionary parameters, int index)
+            throws IOException
+    {
+        FastByteArrayOutputStream decoded = new FastByteArrayOutputStream();
+        decode(encoded, decoded, parameters, index);
+        return decoded.getInputStream();
+    }
+
     /**
      * Encodes data.
      * 
@@ -0,0 +1,339 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.filter;
+
+import static org.sejda.util.RequireUtils.requireArg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.sejda.io.FastByteArrayOutputStream;
+import org.sejda.sambox.SAMBox;
+
+/**
+ * Zlib/deflate encoder with a given compression level and strategy. {@link Deflater} instances are pooled and reused
+ * across encodings with the same configuration. Inputs larger than {@link SAMBox#DEFLATE_PARALLEL_THRESHOLD_PROPERTY}
+ * are split in blocks that are compressed in parallel, each block using the tail of the previous one as preset
+ * dictionary, and concatenated in a single zlib stream.
+ * 
+ * @author Andrea Vacondio
+ */
+public final class FlateEncoder
+{
+    private static final int BUFFER_SIZE = 16384;
+    private static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int MAX_POOLED = Runtime.getRuntime().availableProcessors() * 2;
+    private static final Map<Long, FlateEncoder> ENCODERS = new ConcurrentHashMap<>();
+
+    private final int level;
+    private final int strategy;
+    private final DeflatersPool zlib = new DeflatersPool(false);
+    private final DeflatersPool raw = new DeflatersPool(true);
+
+    private FlateEncoder(int level, int strategy)
+    {
+        requireArg(level == Deflater.DEFAULT_COMPRESSION
+                || (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION),
+                "Invalid compression level");
+        requireArg(strategy == Deflater.DEFAULT_STRATEGY || strategy == Deflater.FILTERED
+                || strategy == Deflater.HUFFMAN_ONLY, "Invalid compression strategy");
+        this.level = level;
+        this.strategy = strategy;
+    }
+
+    /**
+     * @param level the compression level, see {@link Deflater#setLevel(int)}
+     * @param strategy the compression strategy, see {@link Deflater#setStrategy(int)}
+     * @return the encoder for the given level and strategy
+     */
+    public static FlateEncoder of(int level, int strategy)
+    {
+        return ENCODERS.computeIfAbsent(((long) level << 32) | (strategy & 0xFFFFFFFFL),
+                k -> new FlateEncoder(level, strategy));
+    }
+
+    /**
+     * @return the encoder with the level set with {@link SAMBox#DEFLATE_LEVEL_PROPERTY} and the default strategy
+     */
+    public static FlateEncoder defaultEncoder()
+    {
+        return of(Integer.getInteger(SAMBox.DEFLATE_LEVEL_PROPERTY, Deflater.DEFAULT_COMPRESSION),
+                Deflater.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * @return the encoder trading compression for speed
+     */
+    public static FlateEncoder fastest()
+    {
+        return of(Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * @return the encoder trading speed for compression
+     */
+    public static FlateEncoder smallest()
+    {
+        return of(Deflater.BEST_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * Compresses the given input writing it to the given output, the output is not closed.
+     * 
+     * @param input
+     * @param encoded
+     * @throws IOException
+     */
+    public void encode(InputStream input, OutputStream encoded) throws IOException
+    {
+        int available = input.available();
+        long parallelThreshold = Long.getLong(SAMBox.DEFLATE_PARALLEL_THRESHOLD_PROPERTY, -1);
+        if (parallelThreshold > 0 && available >= parallelThreshold)
+        {
+            FastByteArrayOutputStream data = new FastByteArrayOutputStream(available);
+            copy(input, data);
+            encodeParallel(data.toByteArray(), encoded);
+        }
+        else
+        {
+            try (OutputStream out = compressing(encoded))
+            {
+                copy(input, out);
+            }
+        }
+        encoded.flush();
+    }
+
+    /**
+     * @param encoded
+     * @return an {@link OutputStream} compressing what is written to it and writing the result to the given output.
+     * Closing the returned stream finishes the compression but doesn't close the given output.
+     */
+    public OutputStream compressing(OutputStream encoded)
+    {
+        Deflater deflater = zlib.borrow();
+        return new DeflaterOutputStream(new NonClosingOutputStream(encoded), deflater,
+                BUFFER_SIZE)
+        {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException
+            {
+                if (!closed)
+                {
+                    closed = true;
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        zlib.release(deflater);
+                    }
+                }
+            }
+        };
+    }
+
+    private void encodeParallel(byte[] data, OutputStream encoded) throws IOException
+    {
+        List<CompletableFuture<byte[]>> blocks = new ArrayList<>();
+        for (int offset = 0; offset < data.length; offset += BLOCK_SIZE)
+        {
+            int start = offset;
+            blocks.add(CompletableFuture.supplyAsync(() -> deflateBlock(data, start)));
+        }
+        Adler32 checksum = new Adler32();
+        checksum.update(data, 0, data.length);
+        encoded.write(0x78);
+        encoded.write(headerFlags());
+        try
+        {
+            for (CompletableFuture<byte[]> block : blocks)
+            {
+                encoded.write(block.join());
+            }
+        }
+        catch (CompletionException e)
+        {
+            throw new IOException(e.getCause());
+        }
+        long adler = checksum.getValue();
+        encoded.write((int) (adler >>> 24) & 0xFF);
+        encoded.write((int) (adler >>> 16) & 0xFF);
+        encoded.write((int) (adler >>> 8) & 0xFF);
+        encoded.write((int) adler & 0xFF);
+    }
+
+    /**
+     * Compresses a block of the data as raw deflate, primed with the tail of the previous block. All blocks but the last
+     * one are terminated by a sync flush so they can be concatenated.
+     */
+    private byte[] deflateBlock(byte[] data, int start)
+    {
+        int length = Math.min(BLOCK_SIZE, data.length - start);
+        boolean last = start + length == data.length;
+        Deflater deflater = raw.borrow();
+        try
+        {
+            if (start > 0)
+            {
+                int dictionaryStart = Math.max(0, start - DICTIONARY_SIZE);
+                deflater.setDictionary(data, dictionaryStart, start - dictionaryStart);
+            }
+            deflater.setInput(data, start, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            if (last)
+            {
+                deflater.finish();
+                while (!deflater.finished())
+                {
+                    int count = deflater.deflate(buffer);
+                    out.write(buffer, 0, count);
+                }
+            }
+            else
+            {
+                int count;
+                do
+                {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+            return out.toByteArray();
+        }
+        finally
+        {
+            raw.release(deflater);
+        }
+    }
+
+    /**
+     * @return the FLG byte of the zlib header, see RFC 1950
+     */
+    private int headerFlags()
+    {
+        int compressionLevel = 2;
+        if (level >= 0 && level <= 1)
+        {
+            compressionLevel = 0;
+        }
+        else if (level >= 2 && level <= 5)
+        {
+            compressionLevel = 1;
+        }
+        else if (level >= 7)
+        {
+            compressionLevel = 3;
+        }
+        int flags = compressionLevel << 6;
+        return flags + (31 - ((0x78 << 8 | flags) % 31));
+    }
+
+    private static void copy(InputStream input, OutputStream output) throws IOException
+    {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1)
+        {
+            output.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Pool of {@link Deflater}s with the level and strategy of the encoder
+     */
+    private class DeflatersPool
+    {
+        private final boolean nowrap;
+        private final Queue<Deflater> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        DeflatersPool(boolean nowrap)
+        {
+            this.nowrap = nowrap;
+        }
+
+        Deflater borrow()
+        {
+            Deflater deflater = idle.poll();
+            if (deflater == null)
+            {
+                deflater = new Deflater(level, nowrap);
+                deflater.setStrategy(strategy);
+            }
+            else
+            {
+                size.decrementAndGet();
+            }
+            return deflater;
+        }
+
+        void release(Deflater deflater)
+        {
+            if (size.incrementAndGet() <= MAX_POOLED)
+            {
+                deflater.reset();
+                idle.add(deflater);
+            }
+            else
+            {
+                size.decrementAndGet();
+                deflater.end();
+            }
+        }
+    }
+
+    private static class NonClosingOutputStream extends FilterOutputStream
+    {
+        NonClosingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            flush();
+        }
+    }
+}
@@ -16,17 +16,22 @@
  */
 package org.sejda.sambox.filter;
 
-import java.io.ByteArrayInputStream;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.DataFormatException;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 
-import org.sejda.io.FastByteArrayOutputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,119 +44,255 @@ import org.slf4j.LoggerFactory;
 final class FlateFilter extends Filter
 {
     private static final Logger LOG = LoggerFactory.getLogger(FlateFilter.class);
-    private static final int BUFFER_SIZE = 16348;
+    private static final int BUFFER_SIZE = 65536;
+    private static final int MAX_POOLED = Runtime.getRuntime().availableProcessors() * 2;
+    private static final InflatersPool INFLATERS = new InflatersPool();
 
     @Override
     public DecodeResult decode(InputStream encoded, OutputStream decoded, COSDictionary parameters,
             int index) throws IOException
     {
-        int predictor = -1;
-
         final COSDictionary decodeParams = getDecodeParams(parameters, index);
-        if (decodeParams != null)
+        if (decodeParams != null && decodeParams.getInt(COSName.PREDICTOR) > 1)
         {
-            predictor = decodeParams.getInt(COSName.PREDICTOR);
+            try (InputStream predicted = Predictor.wrapPredictor(
+                    new InflatingInputStream(new CloseShieldInputStream(encoded)), decodeParams))
+            {
+                copy(predicted, decoded);
+            }
         }
+        else
+        {
+            decompress(encoded, decoded);
+        }
+        return new DecodeResult(parameters);
+    }
 
-        try
+    /**
+     * Returns a stream inflating the data as it's read. Data using a predictor is un-predicted one row at a time.
+     */
+    @Override
+    public InputStream decoding(InputStream encoded, COSDictionary parameters, int index)
+            throws IOException
+    {
+        COSDictionary decodeParams = getDecodeParams(parameters, index);
+        if (decodeParams != null)
         {
-            if (predictor > 1)
-            {
-                int colors = Math.min(decodeParams.getInt(COSName.COLORS, 1), 32);
-                int bitsPerPixel = decodeParams.getInt(COSName.BITS_PER_COMPONENT, 8);
-                int columns = decodeParams.getInt(COSName.COLUMNS, 1);
-                FastByteArrayOutputStream baos = new FastByteArrayOutputStream();
-                decompress(encoded, baos);
-                ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-                Predictor.decodePredictor(predictor, colors, bitsPerPixel, columns, bais, decoded);
-                decoded.flush();
-                baos.reset();
-                bais.reset();
-            }
-            else
-            {
-                decompress(encoded, decoded);
-            }
+            return Predictor.wrapPredictor(new InflatingInputStream(encoded), decodeParams);
         }
-        catch (DataFormatException e)
+        return new InflatingInputStream(encoded);
+    }
+
+    private static void decompress(InputStream in, OutputStream out) throws IOException
+    {
+        try (InflatingInputStream inflating = new InflatingInputStream(
+                new CloseShieldInputStream(in)))
         {
-            // if the stream is corrupt a DataFormatException may occur
-            LOG.error("FlateFilter: stop reading corrupt stream due to a DataFormatException");
+            inflating.inflateTo(out);
+        }
+        out.flush();
+    }
 
-            // re-throw the exception
-            throw new IOException(e);
+    private static void copy(InputStream in, OutputStream out) throws IOException
+    {
+        byte[] buffer = new byte[2048];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+        {
+            out.write(buffer, 0, read);
         }
-        return new DecodeResult(parameters);
+        out.flush();
     }
 
-    // Use Inflater instead of InflateInputStream to avoid an EOFException due to a probably
-    // missing Z_STREAM_END, see PDFBOX-1232 for details
-    private void decompress(InputStream in, OutputStream out)
-            throws IOException, DataFormatException
+    /**
+     * Inflates the data as it's read. Uses {@link Inflater} instead of {@link java.util.zip.InflaterInputStream} to
+     * avoid an EOFException due to a probably missing Z_STREAM_END, see PDFBOX-1232 for details. The {@link Inflater}
+     * and the buffers are borrowed from a pool on the first read and given back as soon as the end of the data is
+     * reached or the stream is closed.
+     */
+    private static class InflatingInputStream extends InputStream
     {
-        byte[] buf = new byte[2048];
-        // skip zlib header
-        in.read(buf, 0, 2);
-        int read = in.read(buf);
-        if (read > 0)
+        private final InputStream in;
+        private PooledInflater pooled;
+        private final byte[] single = new byte[1];
+        private boolean dataRead;
+        private boolean eof;
+
+        InflatingInputStream(InputStream in)
         {
-            // use nowrap mode to bypass zlib-header and checksum to avoid a DataFormatException
-            Inflater inflater = new Inflater(true);
-            inflater.setInput(buf, 0, read);
-            byte[] res = new byte[1024];
-            boolean dataWritten = false;
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (read(single, 0, 1) == -1)
+            {
+                return -1;
+            }
+            return single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (eof)
+            {
+                return -1;
+            }
+            if (len == 0)
+            {
+                return 0;
+            }
+            start();
+            Inflater inflater = pooled.inflater;
             while (true)
             {
-                int resRead = 0;
                 try
                 {
-                    resRead = inflater.inflate(res);
+                    int inflated = inflater.inflate(b, off, len);
+                    if (inflated > 0)
+                    {
+                        dataRead = true;
+                        return inflated;
+                    }
                 }
-                catch (DataFormatException exception)
+                catch (DataFormatException e)
                 {
-                    if (dataWritten)
+                    end();
+                    if (dataRead)
                     {
                         // some data could be read -> don't throw an exception
                         LOG.warn(
                                 "FlateFilter: premature end of stream due to a DataFormatException");
-                        break;
+                        return -1;
                     }
-                    // nothing could be read -> re-throw exception
-                    throw exception;
+                    // if the stream is corrupt a DataFormatException may occur
+                    LOG.error(
+                            "FlateFilter: stop reading corrupt stream due to a DataFormatException");
+                    throw new IOException(e);
                 }
-                if (resRead != 0)
+                if (inflater.finished() || inflater.needsDictionary())
                 {
-                    out.write(res, 0, resRead);
-                    dataWritten = true;
-                    continue;
+                    end();
+                    return -1;
                 }
-                if (inflater.finished() || inflater.needsDictionary() || in.available() == 0)
+                int read = in.read(pooled.input);
+                if (read <= 0)
                 {
-                    break;
+                    end();
+                    return -1;
                 }
-                read = in.read(buf);
-                inflater.setInput(buf, 0, read);
+                inflater.setInput(pooled.input, 0, read);
             }
         }
-        out.flush();
+
+        /**
+         * Inflates all the remaining data to the given output using the pooled output buffer
+         */
+        void inflateTo(OutputStream out) throws IOException
+        {
+            if (!eof)
+            {
+                start();
+                // the buffer is given back only once read returns -1 so we don't use it after that
+                byte[] output = pooled.output;
+                int read;
+                while ((read = read(output, 0, output.length)) != -1)
+                {
+                    out.write(output, 0, read);
+                }
+            }
+        }
+
+        private void start() throws IOException
+        {
+            if (isNull(pooled))
+            {
+                // skip zlib header
+                in.read();
+                in.read();
+                // inflater in nowrap mode to bypass zlib-header and checksum to avoid a DataFormatException
+                pooled = INFLATERS.borrow();
+            }
+        }
+
+        private void end()
+        {
+            eof = true;
+            if (nonNull(pooled))
+            {
+                INFLATERS.release(pooled);
+                pooled = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            end();
+            in.close();
+        }
     }
 
+    /**
+     * An {@link Inflater} in nowrap mode with its input and output buffers
+     */
+    private static class PooledInflater
+    {
+        final Inflater inflater = new Inflater(true);
+        final byte[] input = new byte[BUFFER_SIZE];
+        final byte[] output = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Pool of {@link PooledInflater}s. Inflaters are reset when given back and explicitly ended when the pool is full,
+     * so that their native memory is released without waiting for finalization.
+     */
+    private static class InflatersPool
+    {
+        private final Queue<PooledInflater> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        PooledInflater borrow()
+        {
+            PooledInflater pooled = idle.poll();
+            if (pooled == null)
+            {
+                return new PooledInflater();
+            }
+            size.decrementAndGet();
+            return pooled;
+        }
+
+        void release(PooledInflater pooled)
+        {
+            if (size.incrementAndGet() <= MAX_POOLED)
+            {
+                pooled.inflater.reset();
+                idle.add(pooled);
+            }
+            else
+            {
+                size.decrementAndGet();
+                pooled.inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Encodes the input using the {@link FlateEncoder} of the parameters, if they are a {@link COSStream}, or the
+     * default one.
+     */
     @Override
     public void encode(InputStream input, OutputStream encoded, COSDictionary parameters)
             throws IOException
     {
-        DeflaterOutputStream out = new DeflaterOutputStream(encoded);
-        int amountRead;
-        int mayRead = input.available();
-        if (mayRead > 0)
+        FlateEncoder encoder = FlateEncoder.defaultEncoder();
+        if (parameters instanceof COSStream)
         {
-            byte[] buffer = new byte[Math.min(mayRead, BUFFER_SIZE)];
-            while ((amountRead = input.read(buffer, 0, Math.min(mayRead, BUFFER_SIZE))) != -1)
-            {
-                out.write(buffer, 0, amountRead);
-            }
+            encoder = ((COSStream) parameters).getFlateEncoder();
         }
-        out.close();
-        encoded.flush();
+        encoder.encode(input, encoded);
     }
 }
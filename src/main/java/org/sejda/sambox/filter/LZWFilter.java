@@ -15,18 +15,10 @@
  */
 package org.sejda.sambox.filter;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-
-import javax.imageio.stream.MemoryCacheImageInputStream;
-import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSName;
@@ -53,6 +45,9 @@ public class LZWFilter extends Filter
      * The LZW end of data code.
      */
     public static final long EOD = 257;
+
+    private static final int TABLE_SIZE = 4096;
+    private static final int OUTPUT_BUFFER_SIZE = 8192;
     
     //BEWARE: codeTable must be local to each method, because there is only
     // one instance of each filter
@@ -79,17 +74,11 @@ public class LZWFilter extends Filter
         }
         if (predictor > 1)
         {
-            @SuppressWarnings("null")
-            int colors = Math.min(decodeParams.getInt(COSName.COLORS, 1), 32);
-            int bitsPerPixel = decodeParams.getInt(COSName.BITS_PER_COMPONENT, 8);
-            int columns = decodeParams.getInt(COSName.COLUMNS, 1);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            doLZWDecode(encoded, baos, earlyChange);
-            ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-            Predictor.decodePredictor(predictor, colors, bitsPerPixel, columns, bais, decoded);
-            decoded.flush();
-            baos.reset();
-            bais.reset();
+            // un-predicted row by row as the data is decompressed
+            try (OutputStream predicted = Predictor.wrapPredictor(decoded, decodeParams))
+            {
+                doLZWDecode(encoded, predicted, earlyChange);
+            }
         }
         else
         {
@@ -98,74 +87,104 @@ public class LZWFilter extends Filter
         return new DecodeResult(parameters);
     }
 
-    private void doLZWDecode(InputStream encoded, OutputStream decoded, int earlyChange) throws IOException
+    private void doLZWDecode(InputStream encoded, OutputStream decoded, int earlyChange)
+            throws IOException
     {
-        List<byte[]> codeTable = new ArrayList<byte[]>();
+        // each code is its prefix code plus a suffix byte, single byte codes have no prefix
+        int[] prefix = new int[TABLE_SIZE];
+        byte[] suffix = new byte[TABLE_SIZE];
+        byte[] first = new byte[TABLE_SIZE];
+        int[] length = new int[TABLE_SIZE];
+        for (int i = 0; i < 256; i++)
+        {
+            prefix[i] = -1;
+            suffix[i] = (byte) i;
+            first[i] = (byte) i;
+            length[i] = 1;
+        }
+        // the table is empty until the first clear table code
+        int tableSize = 0;
         int chunk = 9;
-        final MemoryCacheImageInputStream in = new MemoryCacheImageInputStream(encoded);
-        long nextCommand;
-        long prevCommand = -1;
+        BitReader in = new BitReader(encoded);
+        byte[] out = new byte[OUTPUT_BUFFER_SIZE];
+        int position = 0;
+        int nextCommand;
+        int prevCommand = -1;
 
-        try
+        while ((nextCommand = in.readBits(chunk)) != EOD)
         {
-            while ((nextCommand = in.readBits(chunk)) != EOD)
+            if (nextCommand == -1)
+            {
+                LOG.warn("Premature EOF in LZW stream, EOD code missing");
+                break;
+            }
+            if (nextCommand == CLEAR_TABLE)
+            {
+                chunk = 9;
+                tableSize = (int) EOD + 1;
+                prevCommand = -1;
+            }
+            else
             {
-                if (nextCommand == CLEAR_TABLE)
+                int code = nextCommand;
+                byte extra = 0;
+                boolean kwkwk = nextCommand >= tableSize;
+                if (kwkwk)
                 {
-                    chunk = 9;
-                    codeTable = createCodeTable();
-                    prevCommand = -1;
+                    // the code is not in the table yet, it's the previous one plus its first byte
+                    checkIndexBounds(prevCommand, tableSize, in);
+                    code = prevCommand;
+                    extra = first[prevCommand];
                 }
-                else
+                int codeLength = length[code];
+                if (position + codeLength + 1 > out.length)
                 {
-                    if (nextCommand < codeTable.size())
-                    {
-                        byte[] data = codeTable.get((int) nextCommand);
-                        byte firstByte = data[0];
-                        decoded.write(data);
-                        if (prevCommand != -1)
-                        {
-                            checkIndexBounds(codeTable, prevCommand, in);
-                            data = codeTable.get((int) prevCommand);
-                            byte[] newData = Arrays.copyOf(data, data.length + 1);
-                            newData[data.length] = firstByte;
-                            codeTable.add(newData);
-                        }
-                    }
-                    else
+                    decoded.write(out, 0, position);
+                    position = 0;
+                }
+                // walk the prefixes writing the code bytes backwards
+                for (int i = position + codeLength - 1, current = code; i >= position; i--)
+                {
+                    out[i] = suffix[current];
+                    current = prefix[current];
+                }
+                position += codeLength;
+                if (kwkwk)
+                {
+                    out[position++] = extra;
+                }
+                if (prevCommand != -1)
+                {
+                    checkIndexBounds(prevCommand, tableSize, in);
+                    if (tableSize < TABLE_SIZE)
                     {
-                        checkIndexBounds(codeTable, prevCommand, in);
-                        byte[] data = codeTable.get((int) prevCommand);
-                        byte[] newData = Arrays.copyOf(data, data.length + 1);
-                        newData[data.length] = data[0];
-                        decoded.write(newData);
-                        codeTable.add(newData);
+                        prefix[tableSize] = prevCommand;
+                        suffix[tableSize] = first[code];
+                        first[tableSize] = first[prevCommand];
+                        length[tableSize] = length[prevCommand] + 1;
+                        tableSize++;
                     }
-                    
-                    chunk = calculateChunk(codeTable.size(), earlyChange);
-                    prevCommand = nextCommand;
                 }
+                chunk = calculateChunk(tableSize, earlyChange);
+                prevCommand = nextCommand;
             }
         }
-        catch (EOFException ex)
-        {
-            LOG.warn("Premature EOF in LZW stream, EOD code missing");
-        }
+        decoded.write(out, 0, position);
         decoded.flush();
     }
 
-    private void checkIndexBounds(List codeTable, long index, MemoryCacheImageInputStream in)
+    private static void checkIndexBounds(int index, int tableSize, BitReader in)
             throws IOException
     {
         if (index < 0)
         {
             throw new IOException(
-                    "negative array index: " + index + " near offset " + in.getStreamPosition());
+                    "negative array index: " + index + " near offset " + in.position());
         }
-        if (index >= codeTable.size())
+        if (index >= tableSize)
         {
-            throw new IOException("array index overflow: " + index + " >= " + codeTable.size()
-                    + " near offset " + in.getStreamPosition());
+            throw new IOException("array index overflow: " + index + " >= " + tableSize
+                    + " near offset " + in.position());
         }
     }
 
@@ -173,48 +192,46 @@ public class LZWFilter extends Filter
     public void encode(InputStream rawData, OutputStream encoded, COSDictionary parameters)
             throws IOException
     {
-        List<byte[]> codeTable = createCodeTable();
+        PatternsTable codeTable = new PatternsTable();
         int chunk = 9;
 
-        byte[] inputPattern = null;
-        final MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(encoded);
-        out.writeBits(CLEAR_TABLE, chunk);
+        BitWriter out = new BitWriter(encoded);
+        out.writeBits((int) CLEAR_TABLE, chunk);
         int foundCode = -1;
-        int r;
-        while ((r = rawData.read()) != -1)
+        byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+        int read;
+        while ((read = rawData.read(buffer)) != -1)
         {
-            byte by = (byte) r;
-            if (inputPattern == null)
-            {
-                inputPattern = new byte[] { by };
-                foundCode = by & 0xff;
-            }
-            else
+            for (int i = 0; i < read; i++)
             {
-                inputPattern = Arrays.copyOf(inputPattern, inputPattern.length + 1);
-                inputPattern[inputPattern.length - 1] = by;
-                int newFoundCode = findPatternCode(codeTable, inputPattern);
-                if (newFoundCode == -1)
+                int by = buffer[i] & 0xff;
+                if (foundCode == -1)
                 {
-                    // use previous
-                    chunk = calculateChunk(codeTable.size() - 1, 1);
-                    out.writeBits(foundCode, chunk);
-                    // create new table entry
-                    codeTable.add(inputPattern);
-
-                    if (codeTable.size() == 4096)
-                    {
-                        // code table is full
-                        out.writeBits(CLEAR_TABLE, chunk);
-                        codeTable = createCodeTable();
-                    }
-
-                    inputPattern = new byte[] { by };
-                    foundCode = by & 0xff;
+                    foundCode = by;
                 }
                 else
                 {
-                    foundCode = newFoundCode;
+                    int newFoundCode = codeTable.find(foundCode, by);
+                    if (newFoundCode == -1)
+                    {
+                        // use previous
+                        chunk = calculateChunk(codeTable.size() - 1, 1);
+                        out.writeBits(foundCode, chunk);
+                        // create new table entry
+                        codeTable.add(foundCode, by);
+
+                        if (codeTable.size() == TABLE_SIZE)
+                        {
+                            // code table is full
+                            out.writeBits((int) CLEAR_TABLE, chunk);
+                            codeTable.clear();
+                        }
+                        foundCode = by;
+                    }
+                    else
+                    {
+                        foundCode = newFoundCode;
+                    }
                 }
             }
         }
@@ -231,92 +248,194 @@ public class LZWFilter extends Filter
         // needed to adjust the chunk, based on an increased table size parameter
         chunk = calculateChunk(codeTable.size(), 1);
 
-        out.writeBits(EOD, chunk);
-        
+        out.writeBits((int) EOD, chunk);
+
         // pad with 0
         out.writeBits(0, 7);
-        
-        // must do or file will be empty :-(
         out.flush();
-        out.close();
     }
 
     /**
-     * Find the longest matching pattern in the code table.
+     * Calculate the appropriate chunk size
+     *
+     * @param tabSize the size of the code table
+     * @param earlyChange 0 or 1 for early chunk increase
      *
-     * @param codeTable The LZW code table.
-     * @param pattern The pattern to be searched for.
-     * @return The index of the longest matching pattern or -1 if nothing is
-     * found.
+     * @return a value between 9 and 12
      */
-    private int findPatternCode(List<byte[]> codeTable, byte[] pattern)
+    private int calculateChunk(int tabSize, int earlyChange)
     {
-        int foundCode = -1;
-        int foundLen = 0;
-        for (int i = codeTable.size() - 1; i >= 0; --i)
+        if (tabSize >= 2048 - earlyChange)
+        {
+            return 12;
+        }
+        if (tabSize >= 1024 - earlyChange)
         {
-            if (i <= EOD)
+            return 11;
+        }
+        if (tabSize >= 512 - earlyChange)
+        {
+            return 10;
+        }
+        return 9;
+    }
+
+    /**
+     * Reads codes of variable bit length, most significant bit first
+     */
+    private static class BitReader
+    {
+        private final InputStream in;
+        private final byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+        private int length;
+        private int index;
+        private long consumed;
+        private int bits;
+        private int bitsCount;
+
+        BitReader(InputStream in)
+        {
+            this.in = in;
+        }
+
+        /**
+         * @param count number of bits to read, at most 24
+         * @return the value or -1 if there aren't enough bits left
+         */
+        int readBits(int count) throws IOException
+        {
+            while (bitsCount < count)
             {
-                // we're in the single byte area
-                if (foundCode != -1)
+                if (index == length)
                 {
-                    // we already found pattern with size > 1
-                    return foundCode; 
-                }
-                else if (pattern.length > 1)
-                {
-                    // we won't find anything here anyway
-                    return -1;
+                    consumed += length;
+                    index = 0;
+                    length = Math.max(0, in.read(buffer));
+                    if (length == 0)
+                    {
+                        return -1;
+                    }
                 }
+                bits = (bits << 8) | (buffer[index++] & 0xff);
+                bitsCount += 8;
             }
-            byte[] tryPattern = codeTable.get(i);
-            if ((foundCode != -1 || tryPattern.length > foundLen) && Arrays.equals(tryPattern, pattern))
-            {
-                foundCode = i;
-                foundLen = tryPattern.length;
-            }
+            bitsCount -= count;
+            return (bits >>> bitsCount) & ((1 << count) - 1);
+        }
+
+        /**
+         * @return the offset of the byte containing the next bit to read
+         */
+        long position()
+        {
+            // less than 8 bits are left after each read, they belong to the last byte read
+            return consumed + index - (bitsCount > 0 ? 1 : 0);
         }
-        return foundCode;
     }
 
     /**
-     * Init the code table with 1 byte entries and the EOD and CLEAR_TABLE
-     * markers.
+     * Writes codes of variable bit length, most significant bit first
      */
-    private List<byte[]> createCodeTable()
+    private static class BitWriter
     {
-        List<byte[]> codeTable = new ArrayList<byte[]>(4096);
-        for (int i = 0; i < 256; ++i)
+        private final OutputStream out;
+        private final byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+        private int position;
+        private int bits;
+        private int bitsCount;
+
+        BitWriter(OutputStream out)
+        {
+            this.out = out;
+        }
+
+        void writeBits(int value, int count) throws IOException
+        {
+            bits = (bits << count) | (value & ((1 << count) - 1));
+            bitsCount += count;
+            while (bitsCount >= 8)
+            {
+                bitsCount -= 8;
+                write(bits >>> bitsCount);
+            }
+        }
+
+        private void write(int value) throws IOException
+        {
+            if (position == buffer.length)
+            {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        /**
+         * Writes the remaining bits, padded with zeros, and flushes the output
+         */
+        void flush() throws IOException
         {
-            codeTable.add(new byte[] { (byte) (i & 0xFF) });
+            if (bitsCount > 0)
+            {
+                write(bits << (8 - bitsCount));
+                bitsCount = 0;
+            }
+            out.write(buffer, 0, position);
+            position = 0;
+            out.flush();
         }
-        codeTable.add(null); // 256 EOD
-        codeTable.add(null); // 257 CLEAR_TABLE
-        return codeTable;
     }
 
     /**
-     * Calculate the appropriate chunk size
-     *
-     * @param tabSize the size of the code table
-     * @param earlyChange 0 or 1 for early chunk increase
-     *
-     * @return a value between 9 and 12
+     * Encoder table mapping a (prefix code, byte) pair to its code, using open addressing on flat arrays
      */
-    private int calculateChunk(int tabSize, int earlyChange)
+    private static class PatternsTable
     {
-        if (tabSize >= 2048 - earlyChange)
+        private static final int HASH_SIZE = 8192;
+        // pattern key plus one, zero means empty slot
+        private final int[] keys = new int[HASH_SIZE];
+        private final int[] codes = new int[HASH_SIZE];
+        private int size = (int) EOD + 1;
+
+        int find(int prefix, int by)
         {
-            return 12;
+            int key = ((prefix << 8) | by) + 1;
+            for (int i = slot(key); keys[i] != 0; i = (i + 1) & (HASH_SIZE - 1))
+            {
+                if (keys[i] == key)
+                {
+                    return codes[i];
+                }
+            }
+            return -1;
         }
-        if (tabSize >= 1024 - earlyChange)
+
+        void add(int prefix, int by)
         {
-            return 11;
+            int key = ((prefix << 8) | by) + 1;
+            int i = slot(key);
+            while (keys[i] != 0)
+            {
+                i = (i + 1) & (HASH_SIZE - 1);
+            }
+            keys[i] = key;
+            codes[i] = size++;
         }
-        if (tabSize >= 512 - earlyChange)
+
+        int size()
         {
-            return 10;
+            return size;
+        }
+
+        void clear()
+        {
+            Arrays.fill(keys, 0);
+            size = (int) EOD + 1;
+        }
+
+        private static int slot(int key)
+        {
+            return (key * 0x9E3779B1) >>> 19;
         }
-        return 9;
     }
 }
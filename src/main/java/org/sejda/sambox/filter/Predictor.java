@@ -15,15 +15,20 @@
  */
 package org.sejda.sambox.filter;
 
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
-import org.apache.commons.io.IOUtils;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
 
 /**
- * Helper class to contain predictor decoding used by Flate and LZW filter. 
- * To see the history, look at the FlateFilter class.
+ * Helper class to contain predictor decoding used by Flate and LZW filter. Data is un-predicted row by row, as it's
+ * read from a {@link #wrapPredictor(InputStream, COSDictionary) wrapped input} or written to a
+ * {@link #wrapPredictor(OutputStream, COSDictionary) wrapped output}, keeping in memory only the current and the
+ * previous row. To see the history, look at the FlateFilter class.
  */
 public final class Predictor
 {
@@ -31,196 +36,430 @@ public final class Predictor
     private Predictor()
     {
     }
-    
-    static void decodePredictor(int predictor, int colors, int bitsPerComponent, int columns, InputStream in, OutputStream out)
-            throws IOException
+
+    /**
+     * @param in the predicted data
+     * @param decodeParams the decode parameters of the filter
+     * @return a stream un-predicting the data read from the given one, or the given one if the parameters don't
+     * specify a predictor
+     */
+    static InputStream wrapPredictor(InputStream in, COSDictionary decodeParams)
     {
-        if (predictor == 1)
+        int predictor = decodeParams.getInt(COSName.PREDICTOR);
+        if (predictor > 1)
         {
-            // no prediction
-            IOUtils.copy(in, out);
+            return new PredictorInputStream(in, rowDecoder(predictor, decodeParams));
         }
-        else
+        return in;
+    }
+
+    /**
+     * @param out where the un-predicted data is written
+     * @param decodeParams the decode parameters of the filter
+     * @return a stream un-predicting the data written to it, or the given one if the parameters don't specify a
+     * predictor. Closing the returned stream writes the last partial row, if any, without closing the given one.
+     */
+    static OutputStream wrapPredictor(OutputStream out, COSDictionary decodeParams)
+    {
+        int predictor = decodeParams.getInt(COSName.PREDICTOR);
+        if (predictor > 1)
         {
+            return new PredictorOutputStream(out, rowDecoder(predictor, decodeParams));
+        }
+        return out;
+    }
+
+    private static RowDecoder rowDecoder(int predictor, COSDictionary decodeParams)
+    {
+        int colors = Math.min(decodeParams.getInt(COSName.COLORS, 1), 32);
+        int bitsPerComponent = decodeParams.getInt(COSName.BITS_PER_COMPONENT, 8);
+        int columns = decodeParams.getInt(COSName.COLUMNS, 1);
+        return new RowDecoder(predictor, colors, bitsPerComponent, columns);
+    }
+
+    /**
+     * Un-predicts one row at a time using the current and the previous row
+     */
+    private static final class RowDecoder
+    {
+        private final int predictor;
+        private final int colors;
+        private final int bitsPerComponent;
+        private final int columns;
+        private final int bytesPerPixel;
+        private final int rowlength;
+        private final byte[] actline;
+        private final byte[] lastline;
+
+        RowDecoder(int predictor, int colors, int bitsPerComponent, int columns)
+        {
+            this.predictor = predictor;
+            this.colors = colors;
+            this.bitsPerComponent = bitsPerComponent;
+            this.columns = columns;
             // calculate sizes
             final int bitsPerPixel = colors * bitsPerComponent;
-            final int bytesPerPixel = (bitsPerPixel + 7) / 8;
-            final int rowlength = (columns * bitsPerPixel + 7) / 8;
-            byte[] actline = new byte[rowlength];
-            byte[] lastline = new byte[rowlength];
+            this.bytesPerPixel = (bitsPerPixel + 7) / 8;
+            this.rowlength = (columns * bitsPerPixel + 7) / 8;
+            this.actline = new byte[rowlength];
+            this.lastline = new byte[rowlength];
+        }
 
-            int linepredictor = predictor;
+        /**
+         * @return true if each row starts with its own predictor byte
+         */
+        boolean isPNG()
+        {
+            // test for PNG predictor; each value >= 10 (not only 15) indicates usage of PNG predictor
+            return predictor >= 10;
+        }
 
-            while (in.available() > 0)
+        /**
+         * Un-predicts the row in {@link #actline} and saves it as the previous row
+         * 
+         * @param rowPredictor the PNG predictor byte of the row, ignored for non PNG predictors
+         */
+        void decode(int rowPredictor)
+        {
+            int linepredictor = predictor;
+            if (isPNG())
             {
-                // test for PNG predictor; each value >= 10 (not only 15) indicates usage of PNG predictor
-                if (predictor >= 10)
+                // add 10 to tread value 0 as 10, 1 as 11, ...
+                linepredictor = rowPredictor + 10;
+            }
+            // do prediction as specified in PNG-Specification 1.2
+            switch (linepredictor)
+            {
+            case 2:
+                // PRED TIFF SUB
+                if (bitsPerComponent == 8)
                 {
-                    // PNG predictor; each row starts with predictor type (0, 1, 2, 3, 4)
-                    // read per line predictor
-                    linepredictor = in.read();
-                    if (linepredictor == -1)
+                    // for 8 bits per component it is the same algorithm as PRED SUB of PNG format
+                    for (int p = bytesPerPixel; p < rowlength; p++)
                     {
-                        return;
+                        int sub = actline[p] & 0xff;
+                        int left = actline[p - bytesPerPixel] & 0xff;
+                        actline[p] = (byte) (sub + left);
                     }
-                    // add 10 to tread value 0 as 10, 1 as 11, ...
-                    linepredictor += 10;
+                    break;
                 }
-
-                // read line
-                int i, offset = 0;
-                while (offset < rowlength && ((i = in.read(actline, offset, rowlength - offset)) != -1))
+                if (bitsPerComponent == 16)
                 {
-                    offset += i;
+                    for (int p = bytesPerPixel; p < rowlength; p += 2)
+                    {
+                        int sub = ((actline[p] & 0xff) << 8) + (actline[p + 1] & 0xff);
+                        int left = (((actline[p - bytesPerPixel] & 0xff) << 8)
+                                + (actline[p - bytesPerPixel + 1] & 0xff));
+                        actline[p] = (byte) (((sub + left) >> 8) & 0xff);
+                        actline[p + 1] = (byte) ((sub + left) & 0xff);
+                    }
+                    break;
                 }
-
-                // do prediction as specified in PNG-Specification 1.2
-                switch (linepredictor)
+                if (bitsPerComponent == 1 && colors == 1)
                 {
-                    case 2:
-                        // PRED TIFF SUB
-                    if (bitsPerComponent == 8)
+                    // bytesPerPixel cannot be used:
+                    // "A row shall occupy a whole number of bytes, rounded up if necessary.
+                    // Samples and their components shall be packed into bytes
+                    // from high-order to low-order bits."
+                    for (int p = 0; p < rowlength; p++)
                     {
-                        // for 8 bits per component it is the same algorithm as PRED SUB of PNG format
-                        for (int p = bytesPerPixel; p < rowlength; p++)
+                        for (int bit = 7; bit >= 0; --bit)
                         {
-                            int sub = actline[p] & 0xff;
-                            int left = actline[p - bytesPerPixel] & 0xff;
-                            actline[p] = (byte) (sub + left);
-                        }
-                        break;
-                    }
-                        if (bitsPerComponent == 16)
-                        {
-                        for (int p = bytesPerPixel; p < rowlength; p += 2)
+                            int sub = (actline[p] >> bit) & 1;
+                            if (p == 0 && bit == 7)
                             {
-                                int sub = ((actline[p] & 0xff) << 8) + (actline[p + 1] & 0xff);
-                            int left = (((actline[p - bytesPerPixel] & 0xff) << 8)
-                                    + (actline[p - bytesPerPixel + 1] & 0xff));
-                                actline[p] = (byte) (((sub + left) >> 8) & 0xff);
-                                actline[p + 1] = (byte) ((sub + left) & 0xff);
+                                continue;
                             }
-                            break;
-                        }
-                    if (bitsPerComponent == 1 && colors == 1)
-                        {
-                        // bytesPerPixel cannot be used:
-                        // "A row shall occupy a whole number of bytes, rounded up if necessary.
-                        // Samples and their components shall be packed into bytes
-                        // from high-order to low-order bits."
-                        for (int p = 0; p < rowlength; p++)
+                            int left;
+                            if (bit == 7)
                             {
-                            for (int bit = 7; bit >= 0; --bit)
-                                {
-                                int sub = (actline[p] >> bit) & 1;
-                                if (p == 0 && bit == 7)
-                                {
-                                    continue;
-                                }
-                                int left;
-                                    if (bit == 7)
-                                    {
-                                        // use bit #0 from previous byte
-                                        left = actline[p - 1] & 1;
-                                    }
-                                    else
-                                    {
-                                        // use "previous" bit
-                                        left = (actline[p] >> (bit + 1)) & 1;
-                                    }
-                                if (((sub + left) & 1) == 0)
-                                {
-                                    // reset bit
-                                    actline[p] = (byte) (actline[p] & ~(1 << bit));
-                                }
-                                else
-                                {
-                                    // set bit
-                                    actline[p] = (byte) (actline[p] | (1 << bit));
-                                }
-                                }
+                                // use bit #0 from previous byte
+                                left = actline[p - 1] & 1;
                             }
-                        break;
-                        }
-                    // everything else, i.e. bpc 2 and 4, but has been tested for bpc 1 and 8 too
-                    int elements = columns * colors;
-                    for (int p = colors; p < elements; ++p)
-                        {
-                        int bytePosSub = p * bitsPerComponent / 8;
-                        int bitPosSub = 8 - p * bitsPerComponent % 8 - bitsPerComponent;
-                        int bytePosLeft = (p - colors) * bitsPerComponent / 8;
-                        int bitPosLeft = 8 - (p - colors) * bitsPerComponent % 8 - bitsPerComponent;
-
-                        int sub = getBitSeq(actline[bytePosSub], bitPosSub, bitsPerComponent);
-                        int left = getBitSeq(actline[bytePosLeft], bitPosLeft, bitsPerComponent);
-                        actline[bytePosSub] = (byte) calcSetBitSeq(actline[bytePosSub], bitPosSub,
-                                bitsPerComponent, sub + left);
-                        }
-                        break;
-                    case 10:
-                        // PRED NONE
-                        // do nothing
-                        break;
-                    case 11:
-                        // PRED SUB
-                    for (int p = bytesPerPixel; p < rowlength; p++)
-                        {
-                            int sub = actline[p];
-                        int left = actline[p - bytesPerPixel];
-                            actline[p] = (byte) (sub + left);
-                        }
-                        break;
-                    case 12:
-                        // PRED UP
-                        for (int p = 0; p < rowlength; p++)
-                        {
-                            int up = actline[p] & 0xff;
-                            int prior = lastline[p] & 0xff;
-                            actline[p] = (byte) ((up + prior) & 0xff);
-                        }
-                        break;
-                    case 13:
-                        // PRED AVG
-                        for (int p = 0; p < rowlength; p++)
-                        {
-                            int avg = actline[p] & 0xff;
-                            int left = p - bytesPerPixel >= 0 ? actline[p - bytesPerPixel] & 0xff : 0;
-                            int up = lastline[p] & 0xff;
-                            actline[p] = (byte) ((avg + (left + up) / 2) & 0xff);
-                        }
-                        break;
-                    case 14:
-                        // PRED PAETH
-                        for (int p = 0; p < rowlength; p++)
-                        {
-                            int paeth = actline[p] & 0xff;
-                            int a = p - bytesPerPixel >= 0 ? actline[p - bytesPerPixel] & 0xff : 0;// left
-                            int b = lastline[p] & 0xff;// upper
-                            int c = p - bytesPerPixel >= 0 ? lastline[p - bytesPerPixel] & 0xff : 0;// upperleft
-                            int value = a + b - c;
-                            int absa = Math.abs(value - a);
-                            int absb = Math.abs(value - b);
-                            int absc = Math.abs(value - c);
-
-                            if (absa <= absb && absa <= absc)
+                            else
                             {
-                                actline[p] = (byte) ((paeth + a) & 0xff);
+                                // use "previous" bit
+                                left = (actline[p] >> (bit + 1)) & 1;
                             }
-                            else if (absb <= absc)
+                            if (((sub + left) & 1) == 0)
                             {
-                                actline[p] = (byte) ((paeth + b) & 0xff);
+                                // reset bit
+                                actline[p] = (byte) (actline[p] & ~(1 << bit));
                             }
                             else
                             {
-                                actline[p] = (byte) ((paeth + c) & 0xff);
+                                // set bit
+                                actline[p] = (byte) (actline[p] | (1 << bit));
                             }
                         }
-                        break;
-                    default:
-                        break;
+                    }
+                    break;
+                }
+                // everything else, i.e. bpc 2 and 4, but has been tested for bpc 1 and 8 too
+                int elements = columns * colors;
+                for (int p = colors; p < elements; ++p)
+                {
+                    int bytePosSub = p * bitsPerComponent / 8;
+                    int bitPosSub = 8 - p * bitsPerComponent % 8 - bitsPerComponent;
+                    int bytePosLeft = (p - colors) * bitsPerComponent / 8;
+                    int bitPosLeft = 8 - (p - colors) * bitsPerComponent % 8 - bitsPerComponent;
+
+                    int sub = getBitSeq(actline[bytePosSub], bitPosSub, bitsPerComponent);
+                    int left = getBitSeq(actline[bytePosLeft], bitPosLeft, bitsPerComponent);
+                    actline[bytePosSub] = (byte) calcSetBitSeq(actline[bytePosSub], bitPosSub,
+                            bitsPerComponent, sub + left);
+                }
+                break;
+            case 10:
+                // PRED NONE
+                // do nothing
+                break;
+            case 11:
+                // PRED SUB
+                for (int p = bytesPerPixel; p < rowlength; p++)
+                {
+                    int sub = actline[p];
+                    int left = actline[p - bytesPerPixel];
+                    actline[p] = (byte) (sub + left);
+                }
+                break;
+            case 12:
+                // PRED UP
+                for (int p = 0; p < rowlength; p++)
+                {
+                    int up = actline[p] & 0xff;
+                    int prior = lastline[p] & 0xff;
+                    actline[p] = (byte) ((up + prior) & 0xff);
+                }
+                break;
+            case 13:
+                // PRED AVG
+                for (int p = 0; p < rowlength; p++)
+                {
+                    int avg = actline[p] & 0xff;
+                    int left = p - bytesPerPixel >= 0 ? actline[p - bytesPerPixel] & 0xff : 0;
+                    int up = lastline[p] & 0xff;
+                    actline[p] = (byte) ((avg + (left + up) / 2) & 0xff);
+                }
+                break;
+            case 14:
+                // PRED PAETH
+                for (int p = 0; p < rowlength; p++)
+                {
+                    int paeth = actline[p] & 0xff;
+                    int a = p - bytesPerPixel >= 0 ? actline[p - bytesPerPixel] & 0xff : 0;// left
+                    int b = lastline[p] & 0xff;// upper
+                    int c = p - bytesPerPixel >= 0 ? lastline[p - bytesPerPixel] & 0xff : 0;// upperleft
+                    int value = a + b - c;
+                    int absa = Math.abs(value - a);
+                    int absb = Math.abs(value - b);
+                    int absc = Math.abs(value - c);
+
+                    if (absa <= absb && absa <= absc)
+                    {
+                        actline[p] = (byte) ((paeth + a) & 0xff);
+                    }
+                    else if (absb <= absc)
+                    {
+                        actline[p] = (byte) ((paeth + b) & 0xff);
+                    }
+                    else
+                    {
+                        actline[p] = (byte) ((paeth + c) & 0xff);
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+            System.arraycopy(actline, 0, lastline, 0, rowlength);
+        }
+    }
+
+    /**
+     * Un-predicts data as it's read, one row at a time
+     */
+    private static final class PredictorInputStream extends FilterInputStream
+    {
+        private final RowDecoder decoder;
+        // position of the next byte to return in the current decoded row
+        private int position;
+        private boolean eof;
+
+        PredictorInputStream(InputStream in, RowDecoder decoder)
+        {
+            super(in);
+            this.decoder = decoder;
+            this.position = decoder.rowlength;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (!fill())
+            {
+                return -1;
+            }
+            return decoder.actline[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            if (!fill())
+            {
+                return -1;
+            }
+            int count = Math.min(len, decoder.rowlength - position);
+            System.arraycopy(decoder.actline, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            long skipped = 0;
+            while (skipped < n && fill())
+            {
+                int count = (int) Math.min(n - skipped, decoder.rowlength - position);
+                position += count;
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available()
+        {
+            return decoder.rowlength - position;
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        /**
+         * Reads and decodes the next row if the current one has been consumed
+         * 
+         * @return false if there's no more data
+         */
+        private boolean fill() throws IOException
+        {
+            while (!eof && position >= decoder.rowlength)
+            {
+                int rowPredictor = 0;
+                if (decoder.isPNG())
+                {
+                    // PNG predictor; each row starts with predictor type (0, 1, 2, 3, 4)
+                    // read per line predictor
+                    rowPredictor = in.read();
+                    if (rowPredictor == -1)
+                    {
+                        eof = true;
+                        return false;
+                    }
+                }
+                // read line
+                int i, offset = 0;
+                while (offset < decoder.rowlength
+                        && ((i = in.read(decoder.actline, offset, decoder.rowlength - offset)) != -1))
+                {
+                    offset += i;
+                }
+                if (offset < decoder.rowlength)
+                {
+                    eof = true;
+                    if (offset == 0 && !decoder.isPNG())
+                    {
+                        return false;
+                    }
+                }
+                decoder.decode(rowPredictor);
+                position = 0;
+                if (decoder.rowlength == 0)
+                {
+                    return false;
+                }
+            }
+            return position < decoder.rowlength;
+        }
+    }
+
+    /**
+     * Un-predicts data as it's written, one row at a time
+     */
+    private static final class PredictorOutputStream extends FilterOutputStream
+    {
+        private final RowDecoder decoder;
+        private int rowPredictor = -1;
+        // bytes of the current row received so far
+        private int offset;
+        private boolean closed;
+
+        PredictorOutputStream(OutputStream out, RowDecoder decoder)
+        {
+            super(out);
+            this.decoder = decoder;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            int current = off;
+            int end = off + len;
+            while (current < end)
+            {
+                if (decoder.isPNG() && rowPredictor == -1)
+                {
+                    rowPredictor = b[current++] & 0xff;
+                    continue;
+                }
+                int count = Math.min(end - current, decoder.rowlength - offset);
+                System.arraycopy(b, current, decoder.actline, offset, count);
+                offset += count;
+                current += count;
+                if (offset == decoder.rowlength)
+                {
+                    writeRow();
+                }
+            }
+        }
+
+        private void writeRow() throws IOException
+        {
+            decoder.decode(rowPredictor);
+            out.write(decoder.actline);
+            offset = 0;
+            rowPredictor = -1;
+        }
+
+        /**
+         * Writes the last partial row, if any, and flushes without closing the wrapped stream
+         */
+        @Override
+        public void close() throws IOException
+        {
+            if (!closed)
+            {
+                closed = true;
+                if (offset > 0 || rowPredictor != -1)
+                {
+                    writeRow();
                 }
-                System.arraycopy(actline, 0, lastline, 0, rowlength);
-                out.write(actline);
+                flush();
             }
         }
     }
@@ -19,6 +19,7 @@ package org.sejda.sambox.filter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 import org.sejda.sambox.cos.COSDictionary;
 import org.slf4j.Logger;
@@ -39,36 +40,146 @@ final class RunLengthDecodeFilter extends Filter
     public DecodeResult decode(InputStream encoded, OutputStream decoded,
                                          COSDictionary parameters, int index) throws IOException
     {
-        int dupAmount;
-        byte[] buffer = new byte[128];
-        while ((dupAmount = encoded.read()) != -1 && dupAmount != RUN_LENGTH_EOD)
+        InputStream in = decoding(encoded, parameters, index);
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1)
         {
-            if (dupAmount <= 127)
+            decoded.write(buffer, 0, read);
+        }
+        return new DecodeResult(parameters);
+    }
+
+    @Override
+    public InputStream decoding(InputStream encoded, COSDictionary parameters, int index)
+    {
+        return new RunLengthDecodingStream(encoded);
+    }
+
+    @Override
+    public void encode(InputStream input, OutputStream encoded, COSDictionary parameters)
+    {
+        LOG.warn("RunLengthDecodeFilter.encode is not implemented yet, skipping this stream.");
+    }
+
+    /**
+     * Decodes the runs as they are read, literal runs are read straight into the destination array and repeated runs
+     * are filled in blocks
+     */
+    private static class RunLengthDecodingStream extends InputStream
+    {
+        private final InputStream encoded;
+        // literal bytes still to copy from the encoded stream
+        private int literal;
+        // times the repeated byte has still to be returned
+        private int repeat;
+        private int repeated;
+        private boolean eod;
+
+        RunLengthDecodingStream(InputStream encoded)
+        {
+            this.encoded = encoded;
+        }
+
+        /**
+         * Reads the length byte of the next run, if the current one is over
+         * 
+         * @return false if the end of the data has been reached
+         */
+        private boolean nextRun() throws IOException
+        {
+            while (literal == 0 && repeat == 0)
+            {
+                if (eod)
+                {
+                    return false;
+                }
+                int dupAmount = encoded.read();
+                if (dupAmount == -1 || dupAmount == RUN_LENGTH_EOD)
+                {
+                    eod = true;
+                    return false;
+                }
+                if (dupAmount <= 127)
+                {
+                    literal = dupAmount + 1;
+                }
+                else
+                {
+                    repeated = encoded.read() & 0xFF;
+                    repeat = 257 - dupAmount;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (!nextRun())
+            {
+                return -1;
+            }
+            if (literal > 0)
             {
-                int amountToCopy = dupAmount + 1;
-                int compressedRead;
-                while(amountToCopy > 0)
+                literal--;
+                int value = encoded.read();
+                if (value == -1)
                 {
-                    compressedRead = encoded.read(buffer, 0, amountToCopy);
-                    decoded.write(buffer, 0, compressedRead);
-                    amountToCopy -= compressedRead;
+                    eod = true;
+                    literal = 0;
                 }
+                return value;
             }
-            else
+            repeat--;
+            return repeated;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (off < 0 || len < 0 || len > b.length - off)
             {
-                int dupByte = encoded.read();
-                for (int i = 0; i < 257 - dupAmount; i++)
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0)
+            {
+                return 0;
+            }
+            int total = 0;
+            while (total < len && nextRun())
+            {
+                if (literal > 0)
+                {
+                    int read = encoded.read(b, off + total, Math.min(literal, len - total));
+                    if (read == -1)
+                    {
+                        eod = true;
+                        literal = 0;
+                        break;
+                    }
+                    literal -= read;
+                    total += read;
+                }
+                else
                 {
-                    decoded.write(dupByte);
+                    int count = Math.min(repeat, len - total);
+                    Arrays.fill(b, off + total, off + total + count, (byte) repeated);
+                    repeat -= count;
+                    total += count;
                 }
             }
+            if (total == 0)
+            {
+                return -1;
+            }
+            return total;
         }
-        return new DecodeResult(parameters);
-    }
 
-    @Override
-    public void encode(InputStream input, OutputStream encoded, COSDictionary parameters)
-    {
-        LOG.warn("RunLengthDecodeFilter.encode is not implemented yet, skipping this stream.");
+        @Override
+        public void close() throws IOException
+        {
+            encoded.close();
+        }
     }
 }
@@ -21,10 +21,12 @@ import static java.util.stream.LongStream.rangeClosed;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.PrimitiveIterator.OfLong;
 import java.util.stream.LongStream;
 import java.util.stream.LongStream.Builder;
 
+import org.apache.commons.io.IOUtils;
 import org.sejda.sambox.cos.COSArray;
 import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSName;
@@ -120,15 +122,18 @@ abstract class AbstractXrefStreamParser
         int w1 = xrefFormat.getInt(1);
         int w2 = xrefFormat.getInt(2);
         int lineSize = w0 + w1 + w2;
+        // entries are consumed as the stream is decoded, there's no need to keep the whole decoded xref in memory
+        xrefStream.setStreamingDecode(true);
         try (InputStream stream = xrefStream.getUnfilteredStream())
         {
             OfLong objectIds = objectNumbers.iterator();
-            while (stream.available() > 0 && objectIds.hasNext())
+            byte[] currLine = new byte[lineSize];
+            int read;
+            while (objectIds.hasNext() && (read = IOUtils.read(stream, currLine)) > 0)
             {
-
+                // a truncated last line is zero padded
+                Arrays.fill(currLine, read, lineSize, (byte) 0);
                 Long objectId = objectIds.next();
-                byte[] currLine = new byte[lineSize];
-                stream.read(currLine);
                 int type = (w0 == 0) ? 1 : 0;
                 int i = 0;
                 /*
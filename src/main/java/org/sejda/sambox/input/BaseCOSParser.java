@@ -36,6 +36,7 @@ import org.sejda.sambox.cos.COSNull;
 import org.sejda.sambox.cos.COSNumber;
 import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.cos.COSString;
+import org.sejda.sambox.input.ParseListener.Recovery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,7 +85,7 @@ abstract class BaseCOSParser extends SourceReader
                         + position());
                 if (!consumeInvalidDictionaryKey())
                 {
-                    return dictionary;
+                    return parsed(dictionary);
                 }
             }
             else
@@ -103,7 +104,16 @@ abstract class BaseCOSParser extends SourceReader
             skipSpaces();
         }
         skipExpected(">>");
-        return dictionary;
+        return parsed(dictionary);
+    }
+
+    /**
+     * @return the given object marked as not modified, what the parser did to build it is not a modification
+     */
+    private static <T extends COSBase> T parsed(T object)
+    {
+        object.setDirty(false);
+        return object;
     }
 
     /**
@@ -159,7 +169,7 @@ abstract class BaseCOSParser extends SourceReader
                     LOG.warn(
                             "Found unexpected 'endobj or 'endstream' at position {}, assuming end of array",
                             position);
-                    return array;
+                    return parsed(array);
                 }
                 // the next token is "obj" and the latest two are two integer. We assume the array wasn't
                 // correctly terminated and we read the object definition as part of the array.
@@ -177,14 +187,14 @@ abstract class BaseCOSParser extends SourceReader
                     LOG.warn(
                             "Found unexpected object definition at position {}, assuming end of array",
                             position);
-                    return array;
+                    return parsed(array);
                 }
                 LOG.warn("Found invalid token while parsing array at {}", position);
             }
             skipSpaces();
         }
         skipExpected(']');
-        return array;
+        return parsed(array);
     }
 
     /**
@@ -230,7 +240,7 @@ abstract class BaseCOSParser extends SourceReader
      */
     public COSName nextName() throws IOException
     {
-        return COSName.getPDFName(readName());
+        return readCOSName();
     }
 
     /**
@@ -321,9 +331,14 @@ abstract class BaseCOSParser extends SourceReader
         {
             stream = new COSStream(streamDictionary);
         }
+        if (listener() != ParseListener.NOOP)
+        {
+            stream.setDecodeListener(listener());
+        }
         source().forward(stream.getFilteredLength());
         if (!skipTokenIfValue(ENDSTREAM))
         {
+            listener().onRecovery(Recovery.MISSING_ENDSTREAM, position());
             if (isNextToken(ENDOBJ))
             {
                 LOG.warn("Expected 'endstream' at " + position() + " but was 'endobj'");
@@ -348,6 +363,7 @@ abstract class BaseCOSParser extends SourceReader
             LOG.info(
                     "Using fallback strategy reading until 'endstream' or 'endobj' is found. Starting at offset "
                             + position());
+            listener().onRecovery(Recovery.STREAM_LENGTH, position());
             length = findStreamLength();
         }
         return length;
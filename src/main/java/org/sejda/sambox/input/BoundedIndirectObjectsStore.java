@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import static java.util.Objects.nonNull;
+import static org.sejda.util.RequireUtils.requireArg;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSBase;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSObjectKey;
+import org.sejda.sambox.cos.COSStream;
+import org.sejda.sambox.cos.COSString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link IndirectObjectsStore} with a memory budget. Objects are kept in least recently used order and, once the
+ * estimated size of the stored objects exceeds the budget, the least recently used ones are evicted. Evicted objects
+ * are still weakly referenced so that, as long as someone else holds them, the same instance is returned. The size of
+ * a {@link COSStream} is estimated using its filtered length plus the length of the decoded data it holds, if any.
+ * Streams are decoded after being stored so they are weighed again every time they are requested, evicted streams are
+ * asked to drop their decoded data.
+ * <p>
+ * Evicted objects that are no longer referenced are parsed again when requested, this means that changes applied to
+ * them are lost. This store is intended for read workloads (Ex. text extraction) of large documents.
+ * </p>
+ *
+ * @author Andrea Vacondio
+ */
+class BoundedIndirectObjectsStore implements IndirectObjectsStore
+{
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedIndirectObjectsStore.class);
+
+    private static final int OBJECT_SIZE = 32;
+    private static final int ENTRY_SIZE = 48;
+
+    private final long budget;
+    private long size;
+    private final LinkedHashMap<COSObjectKey, Stored> store = new LinkedHashMap<>(16, 0.75f,
+            true);
+    private final Map<COSObjectKey, EvictedReference> evicted = new HashMap<>();
+    private final ReferenceQueue<COSBase> collected = new ReferenceQueue<>();
+
+    /**
+     * @param budget the estimated size in bytes the stored objects are allowed to occupy
+     */
+    BoundedIndirectObjectsStore(long budget)
+    {
+        requireArg(budget > 0, "Memory budget must be a positive number");
+        this.budget = budget;
+    }
+
+    @Override
+    public synchronized COSBase get(COSObjectKey key)
+    {
+        Stored stored = store.get(key);
+        if (nonNull(stored))
+        {
+            if (stored.value instanceof COSStream)
+            {
+                // it might have been decoded since it was weighed
+                reweigh(key, stored);
+            }
+            return stored.value;
+        }
+        purgeCollected();
+        EvictedReference reference = evicted.remove(key);
+        if (nonNull(reference))
+        {
+            COSBase value = reference.get();
+            if (nonNull(value))
+            {
+                LOG.trace("Restoring evicted object {}", key);
+                doPut(key, value);
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void put(COSObjectKey key, COSBase value)
+    {
+        purgeCollected();
+        evicted.remove(key);
+        doPut(key, value);
+    }
+
+    private void doPut(COSObjectKey key, COSBase value)
+    {
+        Stored previous = store.put(key, new Stored(value, weigh(value)));
+        if (nonNull(previous))
+        {
+            size -= previous.size;
+        }
+        size += store.get(key).size;
+        evictIfNeeded(key);
+    }
+
+    private void reweigh(COSObjectKey key, Stored stored)
+    {
+        long weight = weigh(stored.value);
+        if (weight != stored.size)
+        {
+            size += weight - stored.size;
+            stored.size = weight;
+            evictIfNeeded(key);
+        }
+    }
+
+    private void evictIfNeeded(COSObjectKey justStored)
+    {
+        Iterator<Map.Entry<COSObjectKey, Stored>> eldest = store.entrySet().iterator();
+        while (size > budget && eldest.hasNext())
+        {
+            Map.Entry<COSObjectKey, Stored> current = eldest.next();
+            if (!current.getKey().equals(justStored))
+            {
+                eldest.remove();
+                size -= current.getValue().size;
+                COSBase value = current.getValue().value;
+                if (value instanceof COSStream)
+                {
+                    ((COSStream) value).unDecode();
+                }
+                evicted.put(current.getKey(),
+                        new EvictedReference(current.getKey(), value, collected));
+                LOG.trace("Evicted object {}", current.getKey());
+            }
+        }
+    }
+
+    @Override
+    public synchronized COSBase remove(COSObjectKey key)
+    {
+        evicted.remove(key);
+        Stored removed = store.remove(key);
+        if (nonNull(removed))
+        {
+            size -= removed.size;
+            return removed.value;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized Collection<COSBase> values()
+    {
+        List<COSBase> values = new ArrayList<>(store.size() + evicted.size());
+        store.values().forEach(s -> values.add(s.value));
+        evicted.values().stream().map(WeakReference::get).filter(v -> nonNull(v))
+                .forEach(values::add);
+        return values;
+    }
+
+    @Override
+    public synchronized void clear()
+    {
+        store.clear();
+        evicted.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the estimated size of the currently stored objects
+     */
+    synchronized long size()
+    {
+        return size;
+    }
+
+    private void purgeCollected()
+    {
+        EvictedReference reference;
+        while ((reference = (EvictedReference) collected.poll()) != null)
+        {
+            evicted.remove(reference.key, reference);
+        }
+    }
+
+    /**
+     * @param value
+     * @return a rough estimation of the memory occupied by the given object and its direct values
+     */
+    static long weigh(COSBase value)
+    {
+        if (value instanceof COSStream)
+        {
+            try
+            {
+                return weighDictionary((COSDictionary) value)
+                        + ((COSStream) value).getFilteredLength()
+                        + ((COSStream) value).getRetainedUnfilteredLength();
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Unable to get the stream length", e);
+            }
+        }
+        if (value instanceof COSDictionary)
+        {
+            return weighDictionary((COSDictionary) value);
+        }
+        if (value instanceof COSArray)
+        {
+            long size = OBJECT_SIZE;
+            for (COSBase item : (COSArray) value)
+            {
+                size += ENTRY_SIZE;
+                if (item instanceof COSDictionary || item instanceof COSArray)
+                {
+                    size += weigh(item);
+                }
+            }
+            return size;
+        }
+        if (value instanceof COSString)
+        {
+            return OBJECT_SIZE + ((COSString) value).getBytes().length;
+        }
+        return OBJECT_SIZE;
+    }
+
+    private static long weighDictionary(COSDictionary dictionary)
+    {
+        long size = OBJECT_SIZE;
+        for (COSBase item : dictionary.getValues())
+        {
+            size += ENTRY_SIZE;
+            if (item instanceof COSDictionary || item instanceof COSArray)
+            {
+                size += weigh(item);
+            }
+        }
+        return size;
+    }
+
+    private static class Stored
+    {
+        final COSBase value;
+        long size;
+
+        Stored(COSBase value, long size)
+        {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    private static class EvictedReference extends WeakReference<COSBase>
+    {
+        final COSObjectKey key;
+
+        EvictedReference(COSObjectKey key, COSBase value, ReferenceQueue<COSBase> queue)
+        {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import static org.sejda.sambox.util.CharUtils.isDigit;
+import static org.sejda.sambox.util.CharUtils.isEOL;
+import static org.sejda.sambox.util.CharUtils.isEndOfName;
+import static org.sejda.sambox.util.CharUtils.isWhitespace;
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sejda.io.SeekableSource;
+import org.sejda.sambox.SAMBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Component scanning the raw bytes of a {@link SeekableSource} looking for markers used to rebuild a broken xref. The
+ * source is read sequentially in chunks and chunks are scanned in parallel by a pool of
+ * {@link SAMBox#FULL_SCAN_THREADS_PROPERTY} threads. Results are returned in offset order.
+ * <p>
+ * Markers (except for {@link MarkerType#XREF_TYPE}) are recognized at the beginning of a line, where the beginning of
+ * a line is the first char that is not a white space after an EOL or the beginning of the source. A line starting with
+ * a comment is ignored.
+ * </p>
+ * 
+ * @author Andrea Vacondio
+ */
+class ChunkedSourceScanner
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ChunkedSourceScanner.class);
+
+    static final int CHUNK_SIZE = 1 << 20;
+    /**
+     * Bytes read past the end of a chunk so that markers starting in a chunk and ending in the next one are matched
+     */
+    private static final int LOOKAHEAD = 64;
+    private static final int MAX_OBJECT_NUMBER_DIGITS = 18;
+    private static final int MAX_GENERATION_DIGITS = 9;
+    private static final byte[] OBJ = "obj".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] XREF = AbstractXrefTableParser.XREF
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRAILER = "trailer".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] XREF_TYPE = "/XRef".getBytes(StandardCharsets.US_ASCII);
+
+    private final SeekableSource source;
+    private final int threads = Math.max(1, Integer.getInteger(SAMBox.FULL_SCAN_THREADS_PROPERTY,
+            Runtime.getRuntime().availableProcessors()));
+
+    ChunkedSourceScanner(SeekableSource source)
+    {
+        requireNotNullArg(source, "Cannot scan a null source");
+        this.source = source;
+    }
+
+    /**
+     * Scans the whole source for the given markers types. The source position is not restored.
+     * 
+     * @param first
+     * @param others
+     * @return the markers found, in offset order
+     * @throws IOException
+     */
+    List<Marker> scan(MarkerType first, MarkerType... others) throws IOException
+    {
+        Set<MarkerType> types = EnumSet.of(first, others);
+        long size = source.size();
+        if (size <= CHUNK_SIZE || threads == 1)
+        {
+            return scanSequentially(types);
+        }
+        AtomicInteger counter = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, target -> {
+            Thread thread = new Thread(null, target,
+                    "full-scan-thread-" + counter.incrementAndGet(), 0);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            List<Marker> markers = new ArrayList<>();
+            Deque<Future<List<Marker>>> pending = new ArrayDeque<>();
+            boolean lineStart = true;
+            for (long start = 0; start < size; start += CHUNK_SIZE)
+            {
+                byte[] chunk = read(start, size);
+                int length = (int) Math.min(CHUNK_SIZE, size - start);
+                final long offset = start;
+                final boolean chunkLineStart = lineStart;
+                pending.add(executor.submit(
+                        () -> scanChunk(chunk, length, offset, chunkLineStart, types)));
+                lineStart = lineStartAfter(chunk, length, lineStart);
+                // we don't want to have the whole source in memory
+                while (pending.size() > threads * 2)
+                {
+                    markers.addAll(pending.poll().get());
+                }
+            }
+            while (!pending.isEmpty())
+            {
+                markers.addAll(pending.poll().get());
+            }
+            return markers;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning the document", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("An error occurred scanning the document", e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Marker> scanSequentially(Set<MarkerType> types) throws IOException
+    {
+        List<Marker> markers = new ArrayList<>();
+        long size = source.size();
+        boolean lineStart = true;
+        for (long start = 0; start < size; start += CHUNK_SIZE)
+        {
+            byte[] chunk = read(start, size);
+            int length = (int) Math.min(CHUNK_SIZE, size - start);
+            markers.addAll(scanChunk(chunk, length, start, lineStart, types));
+            lineStart = lineStartAfter(chunk, length, lineStart);
+        }
+        return markers;
+    }
+
+    /**
+     * @return the chunk starting at the given position, including the lookahead bytes
+     */
+    private byte[] read(long start, long size) throws IOException
+    {
+        byte[] chunk = new byte[(int) Math.min(CHUNK_SIZE + LOOKAHEAD, size - start)];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        source.position(start);
+        while (buffer.hasRemaining() && source.read(buffer) != -1)
+        {
+            // keep reading
+        }
+        if (buffer.hasRemaining())
+        {
+            LOG.warn("Unable to read the expected bytes starting at {}", start);
+            return Arrays.copyOf(chunk, buffer.position());
+        }
+        return chunk;
+    }
+
+    /**
+     * @param chunk
+     * @param length the length of the chunk, excluding the lookahead bytes
+     * @param lineStart true if the chunk starts at the beginning of a line
+     * @return true if what follows the given chunk is at the beginning of a line
+     */
+    static boolean lineStartAfter(byte[] chunk, int length, boolean lineStart)
+    {
+        for (int i = Math.min(length, chunk.length) - 1; i >= 0; i--)
+        {
+            int c = chunk[i] & 0xFF;
+            if (isEOL(c))
+            {
+                return true;
+            }
+            if (!isWhitespace(c))
+            {
+                return false;
+            }
+        }
+        return lineStart;
+    }
+
+    /**
+     * Scans the given chunk for markers
+     * 
+     * @param chunk the data, possibly followed by some bytes of the next chunk
+     * @param length the length of the data to scan, markers starting after this are ignored
+     * @param offset the offset in the source of the first byte of the chunk
+     * @param lineStart true if the first byte of the chunk is at the beginning of a line
+     * @param types the types of marker we are looking for
+     * @return the markers found
+     */
+    static List<Marker> scanChunk(byte[] chunk, int length, long offset, boolean lineStart,
+            Set<MarkerType> types)
+    {
+        List<Marker> markers = new ArrayList<>();
+        boolean objects = types.contains(MarkerType.OBJECT);
+        boolean xrefs = types.contains(MarkerType.XREF);
+        boolean trailers = types.contains(MarkerType.TRAILER);
+        boolean xrefTypes = types.contains(MarkerType.XREF_TYPE);
+        int limit = Math.min(length, chunk.length);
+        for (int i = 0; i < limit; i++)
+        {
+            int c = chunk[i] & 0xFF;
+            if (isEOL(c))
+            {
+                lineStart = true;
+            }
+            else if (lineStart)
+            {
+                if (!isWhitespace(c))
+                {
+                    lineStart = false;
+                    if (objects && isDigit(c))
+                    {
+                        Marker object = objectDefinitionAt(chunk, i, offset);
+                        if (object != null)
+                        {
+                            markers.add(object);
+                        }
+                    }
+                    else if (xrefs && startsWith(chunk, i, XREF))
+                    {
+                        markers.add(new Marker(MarkerType.XREF, offset + i));
+                    }
+                    else if (trailers && startsWith(chunk, i, TRAILER))
+                    {
+                        markers.add(new Marker(MarkerType.TRAILER, offset + i));
+                    }
+                }
+            }
+            if (xrefTypes && c == '/' && startsWith(chunk, i, XREF_TYPE)
+                    && (i + XREF_TYPE.length >= chunk.length
+                            || isEndOfName(chunk[i + XREF_TYPE.length] & 0xFF)))
+            {
+                markers.add(new Marker(MarkerType.XREF_TYPE, offset + i));
+            }
+        }
+        return markers;
+    }
+
+    private static boolean startsWith(byte[] chunk, int index, byte[] value)
+    {
+        if (index + value.length > chunk.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++)
+        {
+            if (chunk[index + i] != value[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matches "objectNumber generationNumber obj" at the given index where the separator is a single white space
+     * 
+     * @return the marker or null if the bytes at the given index are not an object definition
+     */
+    private static Marker objectDefinitionAt(byte[] chunk, int index, long offset)
+    {
+        int i = index;
+        long number = 0;
+        for (; i < chunk.length && isDigit(chunk[i]); i++)
+        {
+            if (i - index >= MAX_OBJECT_NUMBER_DIGITS)
+            {
+                return null;
+            }
+            number = number * 10 + (chunk[i] - '0');
+        }
+        if (!isSeparator(chunk, i++) || i >= chunk.length || !isDigit(chunk[i]))
+        {
+            return null;
+        }
+        int generationStart = i;
+        int generation = 0;
+        for (; i < chunk.length && isDigit(chunk[i]); i++)
+        {
+            if (i - generationStart >= MAX_GENERATION_DIGITS)
+            {
+                return null;
+            }
+            generation = generation * 10 + (chunk[i] - '0');
+        }
+        if (!isSeparator(chunk, i++) || !startsWith(chunk, i, OBJ))
+        {
+            return null;
+        }
+        return new Marker(MarkerType.OBJECT, offset + index, number, generation);
+    }
+
+    /**
+     * @return true if the the byte at the given index is a white space that can be found in a line
+     */
+    private static boolean isSeparator(byte[] chunk, int index)
+    {
+        if (index < chunk.length)
+        {
+            int c = chunk[index];
+            return c == ' ' || c == '\t' || c == '\f' || c == 0x0B;
+        }
+        return false;
+    }
+
+    /**
+     * Types of marker the scanner can look for
+     */
+    static enum MarkerType
+    {
+        /**
+         * An object definition line "objectNumber generationNumber obj"
+         */
+        OBJECT,
+        /**
+         * A line starting with the xref keyword
+         */
+        XREF,
+        /**
+         * A line starting with the trailer keyword
+         */
+        TRAILER,
+        /**
+         * The /XRef name anywhere in the source
+         */
+        XREF_TYPE;
+    }
+
+    /**
+     * A marker found by the scanner
+     */
+    static final class Marker
+    {
+        final MarkerType type;
+        final long offset;
+        final long objectNumber;
+        final int generation;
+
+        Marker(MarkerType type, long offset)
+        {
+            this(type, offset, -1, -1);
+        }
+
+        Marker(MarkerType type, long offset, long objectNumber, int generation)
+        {
+            this.type = type;
+            this.offset = offset;
+            this.objectNumber = objectNumber;
+            this.generation = generation;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s offset=%d", type, offset);
+        }
+    }
+}
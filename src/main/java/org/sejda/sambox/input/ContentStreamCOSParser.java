@@ -46,7 +46,7 @@ class ContentStreamCOSParser extends BaseCOSParser
     @Override
     public COSBase nextParsedToken() throws IOException
     {
-        String token;
+        int length;
         skipSpaces();
         char c = (char) source().peek();
         switch (c)
@@ -69,20 +69,20 @@ class ContentStreamCOSParser extends BaseCOSParser
         case '/':
             return nextName();
         case 'n':
-            token = readToken();
-            if ("null".equals(token))
+            length = readTokenBytes();
+            if (lastTokenEquals("null", length))
             {
                 return COSNull.NULL;
             }
             return null;
         case 't':
         case 'f':
-            token = readToken();
-            if ("true".equals(token))
+            length = readTokenBytes();
+            if (lastTokenEquals("true", length))
             {
                 return COSBoolean.TRUE;
             }
-            if ("false".equals(token))
+            if (lastTokenEquals("false", length))
             {
                 return COSBoolean.FALSE;
             }
@@ -104,8 +104,7 @@ class ContentStreamCOSParser extends BaseCOSParser
         case (char) -1:
             return null;
         default:
-            String badString = readToken();
-            if (badString.length() <= 0)
+            if (readTokenBytes() <= 0)
             {
                 // we are at a zero length end of token, we try to skip it and hopefully recover
                 source().read();
@@ -25,7 +25,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 
 import org.sejda.io.FastByteArrayOutputStream;
 import org.sejda.io.SeekableSource;
@@ -94,16 +93,20 @@ public class ContentStreamParser extends SourceReader
     {
         if ('B' == (char) source().peek())
         {
-            Operator operator = Operator.getOperator(readToken());
+            int length = readTokenBytes();
+            Operator operator = Operator.getOperator(buffer(), 0, length);
             if (BI_OPERATOR.equals(operator.getName()))
             {
                 nextInlineImage(operator);
             }
             return operator;
         }
-        return Optional.ofNullable(readToken()).filter(s -> s.length() > 0)
-                .map(Operator::getOperator).orElse(null);
-
+        int length = readTokenBytes();
+        if (length > 0)
+        {
+            return Operator.getOperator(buffer(), 0, length);
+        }
+        return null;
     }
 
     private void nextInlineImage(Operator operator) throws IOException
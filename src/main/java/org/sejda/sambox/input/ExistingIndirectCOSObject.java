@@ -56,6 +56,17 @@ public class ExistingIndirectCOSObject extends COSBase implements DisposableCOSO
         return baseObject;
     }
 
+    /**
+     * @return the wrapped {@link COSBase} if it has already been loaded, an empty {@link Optional} otherwise. Nothing is
+     * loaded by this method.
+     */
+    public Optional<COSBase> getCOSObjectIfLoaded()
+    {
+        Optional<COSBase> baseObject = Optional.ofNullable(provider.peek(id.objectIdentifier));
+        baseObject.ifPresent(b -> b.idIfAbsent(id));
+        return baseObject;
+    }
+
     @Override
     public void releaseCOSObject()
     {
@@ -17,6 +17,8 @@
 package org.sejda.sambox.input;
 
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 
 import org.sejda.sambox.cos.COSBase;
 import org.sejda.sambox.cos.COSObjectKey;
@@ -42,6 +44,13 @@ interface IndirectObjectsProvider extends Closeable
      */
     public COSBase get(COSObjectKey key);
 
+    /**
+     * @param key
+     * @return the {@link COSBase} corresponding to the given key if it has already been parsed and it's available,
+     * null otherwise. Nothing is parsed.
+     */
+    public COSBase peek(COSObjectKey key);
+
     /**
      * Signals that the object corresponding to the given key is no longer needed and can be released
      * 
@@ -69,6 +78,21 @@ interface IndirectObjectsProvider extends Closeable
      */
     public XrefEntry addEntry(XrefEntry entry);
 
+    /**
+     * Parses the objects with the given keys, in the order they are found in the source, so that they are later
+     * available without seeking back and forth in the source.
+     * 
+     * @param keys keys of the objects to parse. If null all the objects of the xref are parsed.
+     * @param background if true the objects are parsed by a background thread
+     * @return a future completed once all the objects have been parsed
+     */
+    public CompletableFuture<Void> prefetch(Collection<COSObjectKey> keys, boolean background);
+
+    /**
+     * @return the xref entries known by this provider, sorted by object number
+     */
+    public Collection<XrefEntry> entries();
+
     /**
      * Initialize the component with the {@link COSParser} to use to retrieve and parse requested object
      * 
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import static java.util.Optional.ofNullable;
+
+import java.util.Collection;
+
+import org.sejda.sambox.SAMBox;
+import org.sejda.sambox.cos.COSBase;
+import org.sejda.sambox.cos.COSObjectKey;
+
+/**
+ * Component where the {@link LazyIndirectObjectsProvider} stores the parsed {@link COSBase} objects. Implementations
+ * might decide to drop stored objects, the provider is expected to parse them again if they are later requested.
+ *
+ * @author Andrea Vacondio
+ */
+interface IndirectObjectsStore
+{
+    /**
+     * @param key
+     * @return the stored {@link COSBase} for the given key or null if nothing is stored.
+     */
+    COSBase get(COSObjectKey key);
+
+    /**
+     * Stores the given value for the given key
+     *
+     * @param key
+     * @param value
+     */
+    void put(COSObjectKey key, COSBase value);
+
+    /**
+     * Removes the value stored for the given key
+     *
+     * @param key
+     * @return the removed value or null
+     */
+    COSBase remove(COSObjectKey key);
+
+    /**
+     * @return the currently stored values
+     */
+    Collection<COSBase> values();
+
+    /**
+     * Removes all the stored values
+     */
+    void clear();
+
+    /**
+     * @return a new store instance. A memory bounded store is returned if the
+     * {@link SAMBox#OBJECTS_STORE_MEMORY_BUDGET_PROPERTY} is set, an unbounded one otherwise.
+     */
+    static IndirectObjectsStore newInstance()
+    {
+        return ofNullable(Long.getLong(SAMBox.OBJECTS_STORE_MEMORY_BUDGET_PROPERTY))
+                .filter(b -> b > 0).<IndirectObjectsStore> map(BoundedIndirectObjectsStore::new)
+                .orElseGet(UnboundedIndirectObjectsStore::new);
+    }
+}
@@ -28,18 +28,34 @@ import static org.sejda.util.RequireUtils.requireIOCondition;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
 
+import org.sejda.sambox.SAMBox;
 import org.sejda.sambox.cos.COSBase;
 import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSName;
 import org.sejda.sambox.cos.COSNull;
 import org.sejda.sambox.cos.COSObjectKey;
 import org.sejda.sambox.cos.COSStream;
+import org.sejda.sambox.cos.DirtyFlags;
+import org.sejda.sambox.input.ObjectsStreamsCache.DecodedObjectsStream;
+import org.sejda.sambox.input.ParseListener.Recovery;
 import org.sejda.sambox.pdmodel.encryption.SecurityHandler;
+import org.sejda.sambox.util.ByteBufferSeekableSource;
+import org.sejda.sambox.util.IndependentSeekableSource;
 import org.sejda.sambox.xref.CompressedXrefEntry;
 import org.sejda.sambox.xref.Xref;
 import org.sejda.sambox.xref.XrefEntry;
@@ -51,8 +67,16 @@ import org.slf4j.LoggerFactory;
 /**
  * A lazy implementation of the {@link IndirectObjectsProvider} that retrieves {@link COSBase} objects parsing the
  * underlying source on demand (ie. when the {@link IndirectObjectsProvider#get(COSObjectKey)} method is called). Parsed
- * objects are stored in a cache to be reused. If for given a {@link COSObjectKey} no entry is found in the xref, a
- * fallback mechanism is activated performing a full scan of the document to retrieve all the objects defined in it.
+ * objects are stored in an {@link IndirectObjectsStore} to be reused, objects that the store evicts are parsed again
+ * when requested. Only the requested object is parsed from an objects stream, the decoded objects stream is kept in
+ * an {@link ObjectsStreamsCache} to parse the other objects it contains when they are requested. If for given a
+ * {@link COSObjectKey} no entry is found in the xref, a fallback mechanism is activated performing a full scan of the
+ * document to retrieve all the objects defined in it.
+ * <p>
+ * When created in concurrent mode (see {@link SAMBox#CONCURRENT_READERS_PROPERTY}) objects can be requested by
+ * multiple threads, each parsing thread borrows a {@link COSParser} over the same source from a bounded pool of readers
+ * and an object requested by multiple threads at the same time is parsed only once.
+ * </p>
  * 
  * @author Andrea Vacondio
  */
@@ -60,23 +84,187 @@ class LazyIndirectObjectsProvider implements IndirectObjectsProvider
 {
     private static final Logger LOG = LoggerFactory.getLogger(LazyIndirectObjectsProvider.class);
 
-    private Xref xref = new Xref();
+    // lookups don't modify the xref, additions are synchronized on it
+    private final Xref xref = new Xref();
     private ObjectsFullScanner scanner;
-    // TODO references that the GC can claim
-    private Map<COSObjectKey, COSBase> store = new ConcurrentHashMap<>();
+    private IndirectObjectsStore store;
+    private ObjectsStreamsCache objectsStreams = new ObjectsStreamsCache();
     private SecurityHandler securityHandler = null;
     private COSParser parser;
+    private final boolean concurrent;
+    private final BlockingQueue<COSParser> readers = new ArrayBlockingQueue<>(
+            Runtime.getRuntime().availableProcessors());
+    private final ConcurrentMap<COSObjectKey, Parsing> parsing = new ConcurrentHashMap<>();
+    // key of the object each thread is waiting for another thread to parse
+    private final ConcurrentMap<Thread, COSObjectKey> waiting = new ConcurrentHashMap<>();
+    // keys each thread is parsing because they are needed to complete their own parsing
+    private final ThreadLocal<Set<COSObjectKey>> parsingCyclic = ThreadLocal.withInitial(HashSet::new);
+    private volatile boolean closed = false;
+
+    LazyIndirectObjectsProvider()
+    {
+        this(IndirectObjectsStore.newInstance());
+    }
+
+    LazyIndirectObjectsProvider(IndirectObjectsStore store)
+    {
+        this(store, Boolean.getBoolean(SAMBox.CONCURRENT_READERS_PROPERTY));
+    }
+
+    /**
+     * @param store where parsed objects are stored
+     * @param concurrent if true objects can be requested concurrently by multiple threads, each thread parses objects
+     * using a {@link COSParser} borrowed from a pool of parsers reading the same source.
+     */
+    LazyIndirectObjectsProvider(IndirectObjectsStore store, boolean concurrent)
+    {
+        requireNonNull(store);
+        this.store = store;
+        this.concurrent = concurrent;
+    }
 
     @Override
     public COSBase get(COSObjectKey key)
     {
-        if (isNull(store.get(key)))
+        COSBase value = store.get(key);
+        if (isNull(value))
         {
-            parseObject(key);
+            if (concurrent)
+            {
+                return parseObjectOnce(key);
+            }
+            value = parseObject(key);
         }
+        return value;
+    }
+
+    @Override
+    public COSBase peek(COSObjectKey key)
+    {
         return store.get(key);
     }
 
+    /**
+     * Parses the object with the given key making sure that, if multiple threads request the same object at the same
+     * time, only one of them parses it while the others wait for the result. A thread doesn't wait if the object is
+     * needed, directly or through objects other threads are waiting for, to complete its own parsing (Ex. two streams
+     * whose /Length is the other stream), it parses the object instead and, if the object is requested again while
+     * doing so, null is returned.
+     * 
+     * @param key
+     * @return the parsed object or null if nothing was found
+     */
+    private COSBase parseObjectOnce(COSObjectKey key)
+    {
+        Parsing current = new Parsing();
+        Parsing existing = parsing.putIfAbsent(key, current);
+        if (nonNull(existing))
+        {
+            Thread thread = Thread.currentThread();
+            // we register before looking for a cycle so that, of two threads waiting for each other, at least one
+            // finds it
+            waiting.put(thread, key);
+            if (!waitsFor(existing.owner, thread))
+            {
+                try
+                {
+                    return existing.result.join();
+                }
+                finally
+                {
+                    waiting.remove(thread);
+                }
+            }
+            waiting.remove(thread);
+            // the object is needed to complete its own parsing, broken document
+            Set<COSObjectKey> cyclic = parsingCyclic.get();
+            if (!cyclic.add(key))
+            {
+                LOG.warn("Object {} requested while being parsed in a reference cycle", key);
+                return null;
+            }
+            try
+            {
+                LOG.warn("Object {} requested while being parsed", key);
+                return parseObject(key);
+            }
+            finally
+            {
+                cyclic.remove(key);
+            }
+        }
+        try
+        {
+            // someone might have stored it after our store lookup and before we registered
+            COSBase value = ofNullable(store.get(key)).orElseGet(() -> parseObject(key));
+            current.result.complete(value);
+            return value;
+        }
+        catch (RuntimeException e)
+        {
+            current.result.completeExceptionally(e);
+            throw e;
+        }
+        finally
+        {
+            parsing.remove(key, current);
+        }
+    }
+
+    /**
+     * @return true if the given owner thread is, or is waiting for an object being parsed by a thread that is
+     * (transitively), the given thread
+     */
+    private boolean waitsFor(Thread owner, Thread thread)
+    {
+        Set<Thread> visited = new HashSet<>();
+        Thread current = owner;
+        while (nonNull(current) && visited.add(current))
+        {
+            if (current == thread)
+            {
+                return true;
+            }
+            COSObjectKey awaited = waiting.get(current);
+            current = ofNullable(awaited).map(parsing::get).map(p -> p.owner).orElse(null);
+        }
+        return false;
+    }
+
+    /**
+     * @return the parser to use, in concurrent mode a parser borrowed from the pool that has to be given back using
+     * {@link #giveBack(COSParser)} once done
+     * @throws IOException
+     */
+    private COSParser borrow() throws IOException
+    {
+        if (!concurrent)
+        {
+            return parser;
+        }
+        COSParser reader = readers.poll();
+        if (isNull(reader))
+        {
+            reader = new COSParser(new IndependentSeekableSource(parser.source()), this);
+            reader.setListener(parser.listener());
+            LOG.trace("Created reader for thread {}", Thread.currentThread().getName());
+        }
+        return reader;
+    }
+
+    /**
+     * Returns the borrowed parser to the pool, closing it if the pool is full or the provider has been closed
+     * 
+     * @param reader
+     */
+    private void giveBack(COSParser reader)
+    {
+        if (concurrent && (closed || !readers.offer(reader)))
+        {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
     @Override
     public void release(COSObjectKey key)
     {
@@ -86,7 +274,11 @@ class LazyIndirectObjectsProvider implements IndirectObjectsProvider
     @Override
     public XrefEntry addEntryIfAbsent(XrefEntry entry)
     {
-        XrefEntry retVal = xref.addIfAbsent(entry);
+        XrefEntry retVal;
+        synchronized (xref)
+        {
+            retVal = xref.addIfAbsent(entry);
+        }
         if (retVal == null)
         {
             LOG.trace("Added xref entry " + entry);
@@ -98,7 +290,85 @@ class LazyIndirectObjectsProvider implements IndirectObjectsProvider
     public XrefEntry addEntry(XrefEntry entry)
     {
         LOG.trace("Added xref entry " + entry);
-        return xref.add(entry);
+        synchronized (xref)
+        {
+            return xref.add(entry);
+        }
+    }
+
+    /**
+     * {@inheritDoc} Objects in use are parsed in order of offset, compressed objects are parsed in order of offset of
+     * their objects stream and of index in the objects stream. Objects already in the store are skipped. A background
+     * prefetch requires the provider to be in concurrent mode, if it's not the objects are parsed by the calling
+     * thread.
+     */
+    @Override
+    public CompletableFuture<Void> prefetch(Collection<COSObjectKey> keys, boolean background)
+    {
+        List<XrefEntry> entries = prefetchOrder(keys);
+        LOG.debug("Prefetching {} objects", entries.size());
+        if (background && concurrent)
+        {
+            return CompletableFuture.runAsync(() -> doPrefetch(entries), r -> {
+                Thread thread = new Thread(r, "sambox-prefetch");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        }
+        if (background)
+        {
+            LOG.info("Background prefetch requires concurrent mode, prefetching in this thread");
+        }
+        doPrefetch(entries);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private List<XrefEntry> prefetchOrder(Collection<COSObjectKey> keys)
+    {
+        Collection<XrefEntry> candidates = xref.values();
+        if (nonNull(keys))
+        {
+            candidates = keys.stream().map(xref::get).filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
+        return candidates.stream().filter(e -> e.getType() != XrefType.FREE)
+                .sorted(Comparator.comparingLong(this::prefetchOffset)
+                        .thenComparingLong(e -> e.getType() == XrefType.COMPRESSED
+                                ? ((CompressedXrefEntry) e).getIndex() : 0))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param entry
+     * @return the offset of the object or of its containing objects stream
+     */
+    private long prefetchOffset(XrefEntry entry)
+    {
+        if (entry.getType() == XrefType.COMPRESSED)
+        {
+            return ofNullable(xref.get(((CompressedXrefEntry) entry).getObjectStreamNumber()))
+                    .map(XrefEntry::getByteOffset).orElse(Long.MAX_VALUE);
+        }
+        return entry.getByteOffset();
+    }
+
+    private void doPrefetch(List<XrefEntry> entries)
+    {
+        for (XrefEntry entry : entries)
+        {
+            if (closed)
+            {
+                LOG.debug("Provider closed, prefetch interrupted");
+                return;
+            }
+            get(entry.key());
+        }
+    }
+
+    @Override
+    public Collection<XrefEntry> entries()
+    {
+        return xref.values();
     }
 
     @Override
@@ -117,37 +387,45 @@ class LazyIndirectObjectsProvider implements IndirectObjectsProvider
         return this;
     }
 
-    private void parseObject(COSObjectKey key)
+    /**
+     * Parses the object with the given key, storing it.
+     * 
+     * @param key
+     * @return the parsed object or null if nothing was found
+     */
+    private COSBase parseObject(COSObjectKey key)
     {
         XrefEntry xrefEntry = xref.get(key);
         if (nonNull(xrefEntry))
         {
             try
             {
-                doParse(xrefEntry);
+                return doParse(xrefEntry);
             }
             catch (IOException e)
             {
                 LOG.warn("An error occurred while parsing " + xrefEntry, e);
-                doParseFallbackObject(key);
+                return doParseFallbackObject(key);
             }
         }
-        else
-        {
-            LOG.warn("Unable to find xref data for {}", key);
-            doParseFallbackObject(key);
-        }
+        LOG.warn("Unable to find xref data for {}", key);
+        return doParseFallbackObject(key);
     }
 
-    private void doParseFallbackObject(COSObjectKey key)
+    private COSBase doParseFallbackObject(COSObjectKey key)
     {
         LOG.info("Trying fallback strategy for " + key);
-        XrefEntry xrefEntry = scanner.entries().get(key);
+        XrefEntry xrefEntry;
+        // the scanner uses the shared parser
+        synchronized (scanner)
+        {
+            xrefEntry = scanner.entries().get(key);
+        }
         if (nonNull(xrefEntry))
         {
             try
             {
-                doParse(xrefEntry);
+                return doParse(xrefEntry);
             }
             catch (IOException e)
             {
@@ -158,23 +436,44 @@ class LazyIndirectObjectsProvider implements IndirectObjectsProvider
         {
             LOG.warn("Unable to find fallback xref entry for " + key);
         }
+        return null;
     }
 
-    private void doParse(XrefEntry xrefEntry) throws IOException
+    private COSBase doParse(XrefEntry xrefEntry) throws IOException
     {
         LOG.trace("Parsing indirect object " + xrefEntry);
+        long start = System.nanoTime();
+        COSBase found = null;
         if (xrefEntry.getType() == XrefType.IN_USE)
         {
-            parseInUseEntry(xrefEntry);
+            found = parseInUseEntry(xrefEntry);
         }
         if (xrefEntry.getType() == XrefType.COMPRESSED)
         {
-            parseCompressedEntry(xrefEntry);
+            DecodedObjectsStream decoded = objectsStreamOf((CompressedXrefEntry) xrefEntry);
+            // parsing and decoding the objects stream are notified on their own
+            start = System.nanoTime();
+            found = parseCompressedObject(decoded, (CompressedXrefEntry) xrefEntry);
         }
+        parser.listener().onObjectParsed(xrefEntry, System.nanoTime() - start);
         LOG.trace("Parsing done");
+        return found;
+    }
+
+    private COSBase parseInUseEntry(XrefEntry xrefEntry) throws IOException
+    {
+        COSParser parser = borrow();
+        try
+        {
+            return parseInUseEntry(xrefEntry, parser);
+        }
+        finally
+        {
+            giveBack(parser);
+        }
     }
 
-    private void parseInUseEntry(XrefEntry xrefEntry) throws IOException
+    private COSBase parseInUseEntry(XrefEntry xrefEntry, COSParser parser) throws IOException
     {
         parser.position(xrefEntry.getByteOffset());
         parser.skipExpectedIndirectObjectDefinition(xrefEntry.key());
@@ -188,47 +487,89 @@ class LazyIndirectObjectsProvider implements IndirectObjectsProvider
             found = parser.nextStream((COSDictionary) found);
             if (parser.skipTokenIfValue(ENDSTREAM))
             {
+                parser.listener().onRecovery(Recovery.DOUBLE_ENDSTREAM, parser.position());
                 LOG.warn("Found double 'endstream' token for " + xrefEntry);
             }
         }
         if (securityHandler != null)
         {
             LOG.trace("Decrypting entry {}", xrefEntry);
-            securityHandler.decrypt(found, xrefEntry.getObjectNumber(),
-                    xrefEntry.getGenerationNumber());
+            // the security handler is not thread safe
+            synchronized (securityHandler)
+            {
+                securityHandler.decrypt(found, xrefEntry.getObjectNumber(),
+                        xrefEntry.getGenerationNumber());
+            }
+            if (nonNull(found))
+            {
+                // decryption is not a modification
+                DirtyFlags.clear(found);
+            }
         }
         if (!parser.skipTokenIfValue(ENDOBJ))
         {
+            parser.listener().onRecovery(Recovery.MISSING_ENDOBJ, parser.position());
             LOG.warn("Missing 'endobj' token for " + xrefEntry);
         }
-        store.put(xrefEntry.key(), ofNullable(found).orElse(COSNull.NULL));
+        COSBase parsed = ofNullable(found).orElse(COSNull.NULL);
+        store.put(xrefEntry.key(), parsed);
+        return parsed;
     }
 
-    private void parseCompressedEntry(XrefEntry xrefEntry) throws IOException
+    /**
+     * @param xrefEntry
+     * @return the decoded objects stream containing the object of the given entry, parsed and decoded if not already
+     * done
+     * @throws IOException
+     */
+    private DecodedObjectsStream objectsStreamOf(CompressedXrefEntry xrefEntry) throws IOException
     {
-        XrefEntry containingStreamEntry = xref.get(
-                new COSObjectKey(((CompressedXrefEntry) xrefEntry).getObjectStreamNumber(), 0));
+        XrefEntry containingStreamEntry = xref
+                .get(new COSObjectKey(xrefEntry.getObjectStreamNumber(), 0));
 
         requireIOCondition(
                 nonNull(containingStreamEntry)
                         && containingStreamEntry.getType() != XrefType.COMPRESSED,
                 "Expected an uncompressed indirect object reference for the ObjectStream");
 
-        parseObject(containingStreamEntry.key());
-        COSBase stream = store.get(containingStreamEntry.key()).getCOSObject();
-
-        if (!(stream instanceof COSStream))
+        DecodedObjectsStream decoded = objectsStreams.get(containingStreamEntry.key());
+        if (isNull(decoded))
         {
-            throw new IOException(
-                    "Expected an object stream instance for " + containingStreamEntry);
+            // through get so that concurrent requests share the same parsed instance
+            COSBase stream = ofNullable(get(containingStreamEntry.key()))
+                    .map(COSBase::getCOSObject).orElse(null);
+
+            if (!(stream instanceof COSStream))
+            {
+                throw new IOException(
+                        "Expected an object stream instance for " + containingStreamEntry);
+            }
+            long start = System.nanoTime();
+            decoded = decodeObjectStream((COSStream) stream);
+            parser.listener().onObjectsStreamDecoded(containingStreamEntry.key(),
+                    decoded.data().remaining(), System.nanoTime() - start);
+            objectsStreams.put(containingStreamEntry.key(), decoded);
         }
-        parseObjectStream(containingStreamEntry, (COSStream) stream);
+        return decoded;
     }
 
-    private void parseObjectStream(XrefEntry containingStreamEntry, COSStream stream)
-            throws IOException
+    /**
+     * Decodes the given object stream and parses its header. The stream instance is in the store and might be in use
+     * by other threads, it's decoded without changing its state.
+     * 
+     * @param stream
+     * @return the decoded stream and the offsets of the objects it contains
+     * @throws IOException
+     */
+    private DecodedObjectsStream decodeObjectStream(COSStream stream) throws IOException
     {
-        try (COSParser streamParser = new COSParser(stream.getUnfilteredSource(), this))
+        ByteBuffer data;
+        try (InputStream decoded = stream.newUnfilteredStream())
+        {
+            data = ByteBuffer.wrap(IOUtils.toByteArray(decoded));
+        }
+        try (COSParser streamParser = new COSParser(
+                new ByteBufferSeekableSource(parser.source().id(), data), this))
         {
             int numberOfObjects = stream.getInt(COSName.N);
             requireIOCondition(numberOfObjects >= 0,
@@ -236,50 +577,67 @@ class LazyIndirectObjectsProvider implements IndirectObjectsProvider
             long firstOffset = stream.getLong(COSName.FIRST);
             requireIOCondition(firstOffset >= 0,
                     "Missing or negative required bytes offset of the fist object in the objects stream");
-            Map<Long, Long> entries = new TreeMap<>();
+            long[] objectNumbers = new long[numberOfObjects];
+            long[] offsets = new long[numberOfObjects];
             for (int i = 0; i < numberOfObjects; i++)
             {
-                long number = streamParser.readObjectNumber();
-                long offset = firstOffset + streamParser.readLong();
-                entries.put(offset, number);
+                objectNumbers[i] = streamParser.readObjectNumber();
+                offsets[i] = firstOffset + streamParser.readLong();
             }
-            LOG.trace("Found " + entries.size() + " entries in object stream of size "
+            LOG.trace("Found " + numberOfObjects + " entries in object stream of size "
                     + streamParser.source().size());
-            for (Entry<Long, Long> entry : entries.entrySet())
+            return new DecodedObjectsStream(data, objectNumbers, offsets);
+        }
+    }
+
+    /**
+     * Parses only the requested object from the given decoded object stream
+     * 
+     * @param decoded
+     * @param xrefEntry entry of the object we are interested in
+     * @return the requested object or null if it's not found in the objects stream
+     * @throws IOException
+     */
+    private COSBase parseCompressedObject(DecodedObjectsStream decoded,
+            CompressedXrefEntry xrefEntry) throws IOException
+    {
+        long offset = decoded.offsetOf(xrefEntry.getObjectNumber(), xrefEntry.getIndex());
+        if (offset < 0)
+        {
+            LOG.warn("Unable to find {} in the containing objects stream", xrefEntry);
+            return null;
+        }
+        try (COSParser streamParser = new COSParser(
+                new ByteBufferSeekableSource(parser.source().id(), decoded.data()), this))
+        {
+            LOG.trace("Parsing compressed object " + xrefEntry + " at offset " + offset);
+            streamParser.position(offset);
+            if (streamParser.skipTokenIfValue(OBJ))
             {
-                LOG.trace("Parsing compressed object " + entry.getValue() + " at offset "
-                        + entry.getKey());
-                streamParser.position(entry.getKey());
-                if (streamParser.skipTokenIfValue(OBJ))
-                {
-                    LOG.warn("Unexptected 'obj' token in objects stream");
-                }
-                COSBase object = streamParser.nextParsedToken();
-                if (object != null)
-                {
-                    COSObjectKey key = new COSObjectKey(entry.getValue(), 0);
-                    // make sure the xref points to this copy of the object and not one in another more recent stream
-                    if (containingStreamEntry.owns(xref.get(key)))
-                    {
-                        LOG.trace("Parsed compressed object " + key + " " + object.getClass());
-                        store.put(key, object);
-                    }
-                }
-                if (streamParser.skipTokenIfValue(ENDOBJ))
-                {
-                    LOG.warn("Unexptected 'endobj' token in objects stream");
-                }
+                LOG.warn("Unexptected 'obj' token in objects stream");
+            }
+            COSBase object = streamParser.nextParsedToken();
+            if (object != null)
+            {
+                store.put(xrefEntry.key(), object);
             }
+            return object;
         }
-        IOUtils.close(stream);
     }
 
     @Override
     public void close()
     {
+        closed = true;
+        COSParser reader;
+        while ((reader = readers.poll()) != null)
+        {
+            IOUtils.closeQuietly(reader);
+        }
         store.values().stream().filter(o -> o instanceof Closeable).map(o -> (Closeable) o)
                 .forEach(IOUtils::closeQuietly);
         store.clear();
+        objectsStreams.clear();
     }
 
     @Override
@@ -287,4 +645,13 @@ class LazyIndirectObjectsProvider implements IndirectObjectsProvider
     {
         return parser.source().id();
     }
+
+    /**
+     * The parsing of an object, in progress by the owner thread
+     */
+    private static class Parsing
+    {
+        final Thread owner = Thread.currentThread();
+        final CompletableFuture<COSBase> result = new CompletableFuture<>();
+    }
 }
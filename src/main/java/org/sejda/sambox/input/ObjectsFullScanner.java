@@ -19,9 +19,10 @@ package org.sejda.sambox.input;
 import static org.sejda.util.RequireUtils.requireNotNullArg;
 
 import java.io.IOException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
 
+import org.sejda.sambox.input.ChunkedSourceScanner.Marker;
+import org.sejda.sambox.input.ChunkedSourceScanner.MarkerType;
 import org.sejda.sambox.xref.Xref;
 import org.sejda.sambox.xref.XrefEntry;
 import org.slf4j.Logger;
@@ -32,11 +33,11 @@ import org.slf4j.LoggerFactory;
  * implementation is lazy and the full scan is performed the first time the entries are accessed.
  * 
  * @author Andrea Vacondio
+ * @see ChunkedSourceScanner
  */
 class ObjectsFullScanner
 {
     private static final Logger LOG = LoggerFactory.getLogger(ObjectsFullScanner.class);
-    private static final Pattern OBJECT_DEF_PATTERN = Pattern.compile("^(\\d+)[\\s](\\d+)[\\s]obj");
 
     private Xref xref = new Xref();
     private SourceReader reader;
@@ -51,16 +52,23 @@ class ObjectsFullScanner
     private void scan()
     {
         LOG.info("Performing full scan to retrieve objects");
+        reader.listener().onObjectsFullScan();
         try
         {
             long savedPos = reader.position();
-            reader.position(0);
-            reader.skipSpaces();
-            while (reader.source().peek() != -1)
+            List<Marker> markers = new ChunkedSourceScanner(reader.source())
+                    .scan(MarkerType.OBJECT, MarkerType.TRAILER);
+            for (Marker marker : markers)
             {
-                long offset = reader.position();
-                addEntryIfObjectDefinition(offset, reader.readLine());
-                reader.skipSpaces();
+                if (marker.type == MarkerType.OBJECT)
+                {
+                    xref.add(XrefEntry.inUseEntry(marker.objectNumber, marker.offset,
+                            marker.generation));
+                }
+                else
+                {
+                    onTrailer(marker.offset);
+                }
             }
             reader.position(savedPos);
         }
@@ -70,28 +78,13 @@ class ObjectsFullScanner
         }
     }
 
-    private void addEntryIfObjectDefinition(long offset, String line) throws IOException
-    {
-        Matcher matcher = OBJECT_DEF_PATTERN.matcher(line);
-        if (matcher.find())
-        {
-            xref.add(XrefEntry.inUseEntry(Long.parseUnsignedLong(matcher.group(1)), offset,
-                    Integer.parseUnsignedInt(matcher.group(2))));
-        }
-        else
-        {
-            onNonObjectDefinitionLine(offset, line);
-        }
-    }
-
     /**
-     * Called when the the scanner has read a line which is not an object definition
+     * Called when the the scanner has found a line starting with the trailer keyword
      * 
-     * @param originalOffset offset from where the line was read
-     * @param line
+     * @param offset offset of the trailer keyword
      * @throws IOException
      */
-    protected void onNonObjectDefinitionLine(long originalOffset, String line) throws IOException
+    protected void onTrailer(long offset) throws IOException
     {
         // nothing
     }
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import static org.sejda.util.RequireUtils.requireArg;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.sejda.sambox.SAMBox;
+import org.sejda.sambox.cos.COSObjectKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A memory bounded cache of decoded objects streams, together with the objects offsets found in their header, so that
+ * objects can be parsed on demand without decoding the stream again. The least recently used streams are dropped once
+ * the budget ({@link SAMBox#OBJECTS_STREAMS_CACHE_MEMORY_BUDGET_PROPERTY}) is exceeded. A stream bigger than the whole
+ * budget is not counted against it, the most recently cached one is kept on its own so that its members can be parsed
+ * one after the other without decoding it again for each of them.
+ *
+ * @author Andrea Vacondio
+ */
+class ObjectsStreamsCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ObjectsStreamsCache.class);
+
+    private final long budget;
+    private long size;
+    private final LinkedHashMap<COSObjectKey, DecodedObjectsStream> cache = new LinkedHashMap<>(16,
+            0.75f, true);
+    private COSObjectKey oversizedKey;
+    private DecodedObjectsStream oversized;
+
+    ObjectsStreamsCache()
+    {
+        this(Long.getLong(SAMBox.OBJECTS_STREAMS_CACHE_MEMORY_BUDGET_PROPERTY, 1 << 23));
+    }
+
+    /**
+     * @param budget the size in bytes the cached decoded streams are allowed to occupy
+     */
+    ObjectsStreamsCache(long budget)
+    {
+        requireArg(budget >= 0, "Memory budget cannot be a negative number");
+        this.budget = budget;
+    }
+
+    /**
+     * @param key the key of the objects stream
+     * @return the cached decoded objects stream or null
+     */
+    synchronized DecodedObjectsStream get(COSObjectKey key)
+    {
+        if (key.equals(oversizedKey))
+        {
+            return oversized;
+        }
+        return cache.get(key);
+    }
+
+    /**
+     * Caches the given decoded stream. If its size exceeds the budget it replaces the previous stream exceeding the
+     * budget, if any.
+     * 
+     * @param key the key of the objects stream
+     * @param stream
+     */
+    synchronized void put(COSObjectKey key, DecodedObjectsStream stream)
+    {
+        if (stream.size() > budget)
+        {
+            LOG.trace("Decoded objects stream {} exceeds the budget", key);
+            oversizedKey = key;
+            oversized = stream;
+        }
+        else
+        {
+            DecodedObjectsStream previous = cache.put(key, stream);
+            if (previous != null)
+            {
+                size -= previous.size();
+            }
+            size += stream.size();
+            Iterator<Map.Entry<COSObjectKey, DecodedObjectsStream>> eldest = cache.entrySet()
+                    .iterator();
+            while (size > budget && eldest.hasNext())
+            {
+                Map.Entry<COSObjectKey, DecodedObjectsStream> current = eldest.next();
+                eldest.remove();
+                size -= current.getValue().size();
+                LOG.trace("Dropped decoded objects stream {}", current.getKey());
+            }
+        }
+    }
+
+    synchronized void clear()
+    {
+        cache.clear();
+        size = 0;
+        oversizedKey = null;
+        oversized = null;
+    }
+
+    /**
+     * @return the size of the currently cached streams, not including a stream exceeding the budget
+     */
+    synchronized long size()
+    {
+        return size;
+    }
+
+    /**
+     * The decoded data of an objects stream and the offsets of the objects it contains, as defined in its header.
+     */
+    static class DecodedObjectsStream
+    {
+        private final ByteBuffer data;
+        private final long[] objectNumbers;
+        private final long[] offsets;
+
+        /**
+         * @param data the decoded stream
+         * @param objectNumbers numbers of the objects in the stream
+         * @param offsets offsets of the objects in the decoded stream, in the same order of the object numbers
+         */
+        DecodedObjectsStream(ByteBuffer data, long[] objectNumbers, long[] offsets)
+        {
+            requireArg(objectNumbers.length == offsets.length,
+                    "Object numbers and offsets must have the same length");
+            this.data = data;
+            this.objectNumbers = objectNumbers;
+            this.offsets = offsets;
+        }
+
+        /**
+         * @return a read only view of the decoded stream
+         */
+        ByteBuffer data()
+        {
+            return data.asReadOnlyBuffer();
+        }
+
+        /**
+         * @param objectNumber
+         * @param index the expected index of the object in the stream
+         * @return the offset of the given object in the decoded stream or -1 if the object is not in the stream
+         */
+        long offsetOf(long objectNumber, long index)
+        {
+            if (index >= 0 && index < objectNumbers.length
+                    && objectNumbers[(int) index] == objectNumber)
+            {
+                return offsets[(int) index];
+            }
+            // wrong index, if the object is defined more than once the last one in the stream wins
+            long offset = -1;
+            for (int i = 0; i < objectNumbers.length; i++)
+            {
+                if (objectNumbers[i] == objectNumber)
+                {
+                    offset = Math.max(offset, offsets[i]);
+                }
+            }
+            return offset;
+        }
+
+        /**
+         * @return the number of objects in the stream
+         */
+        int objects()
+        {
+            return objectNumbers.length;
+        }
+
+        long size()
+        {
+            return data.capacity() + 16L * objectNumbers.length;
+        }
+    }
+}
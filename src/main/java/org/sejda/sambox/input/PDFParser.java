@@ -25,18 +25,24 @@ import java.util.Optional;
 
 import org.sejda.io.SeekableSource;
 import org.sejda.sambox.cos.COSDocument;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.IncrementalSource;
 import org.sejda.sambox.pdmodel.PDDocument;
 import org.sejda.sambox.pdmodel.encryption.DecryptionMaterial;
 import org.sejda.sambox.pdmodel.encryption.PDEncryption;
 import org.sejda.sambox.pdmodel.encryption.SecurityHandler;
 import org.sejda.sambox.pdmodel.encryption.StandardDecryptionMaterial;
+import org.sejda.sambox.util.MappedFileSeekableSource;
 import org.sejda.sambox.util.SpecVersionUtils;
+import org.sejda.sambox.xref.XrefEntry;
 import org.sejda.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Provides public entry point to parse a {@link SeekableSource} and obtain a {@link PDDocument}.
+ * Provides public entry point to parse a {@link SeekableSource} and obtain a {@link PDDocument}. Large files on local
+ * disk can be parsed using a {@link MappedFileSeekableSource}, in which case large streams are read straight from the
+ * mapped file.
  * 
  * @author Andrea Vacondio
  */
@@ -82,10 +88,46 @@ public class PDFParser
      */
     public static PDDocument parse(SeekableSource source, DecryptionMaterial decryptionMaterial)
             throws IOException
+    {
+        return parse(source, decryptionMaterial, ParseListener.NOOP);
+    }
+
+    /**
+     * Parses the given {@link SeekableSource} returning the corresponding {@link PDDocument} and notifying the given
+     * listener of the parsing events.
+     * 
+     * @param source {@link SeekableSource} to parse
+     * @param listener notified of the parsing events, until the document is closed
+     * @return the parsed document
+     * @throws IOException
+     * @see ParseStatistics
+     */
+    public static PDDocument parse(SeekableSource source, ParseListener listener)
+            throws IOException
+    {
+        return parse(source, null, listener);
+    }
+
+    /**
+     * Parses the given {@link SeekableSource} using the given {@link DecryptionMaterial} and returning the
+     * corresponding decrypted {@link PDDocument}. The given listener is notified of the parsing events.
+     * 
+     * @param source {@link SeekableSource} to parse
+     * @param decryptionMaterial to be used for decryption. Optional.
+     * @param listener notified of the parsing events, until the document is closed
+     * @return the parsed document
+     * @throws IOException
+     * @see ParseStatistics
+     */
+    public static PDDocument parse(SeekableSource source, DecryptionMaterial decryptionMaterial,
+            ParseListener listener) throws IOException
     {
         requireNonNull(source);
+        requireNonNull(listener);
         COSParser parser = new COSParser(source);
+        parser.setListener(listener);
         PDDocument document = doParse(decryptionMaterial, parser);
+        document.setObjectsPrefetcher(parser.provider()::prefetch);
         document.setOnCloseAction(() -> {
             IOUtils.close(parser.provider());
             IOUtils.close(parser);
@@ -102,6 +144,15 @@ public class PDFParser
         xrefParser.parse();
 
         COSDocument document = new COSDocument(xrefParser.trailer(), headerVersion);
+        if (xrefParser.startxref() > 0 && !document.isEncrypted())
+        {
+            long highestObjectNumber = parser.provider().entries().stream()
+                    .mapToLong(XrefEntry::getObjectNumber)
+                    .reduce(document.getTrailer().getLong(COSName.SIZE) - 1, Math::max);
+            document.setIncrementalSource(new IncrementalSource(parser.source(),
+                    parser.provider().id(), xrefParser.startxref(), xrefParser.isXrefStream(),
+                    highestObjectNumber));
+        }
         if (document.isEncrypted())
         {
             LOG.debug("Preparing for document decryption");
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSObjectKey;
+import org.sejda.sambox.cos.StreamDecodeListener;
+import org.sejda.sambox.xref.XrefEntry;
+
+/**
+ * Listener notified of relevant events happening while a document is parsed and its objects are retrieved. It can be
+ * registered when the document is parsed using {@link PDFParser} and it's notified until the document is closed.
+ * Implementations must be thread safe since objects of a document can be retrieved by multiple threads.
+ * 
+ * @author Andrea Vacondio
+ * @see ParseStatistics
+ */
+public interface ParseListener extends StreamDecodeListener
+{
+    /**
+     * A listener that does nothing
+     */
+    ParseListener NOOP = new ParseListener()
+    {
+        // nothing
+    };
+
+    /**
+     * Recoveries performed by the parser when it finds a malformed document
+     */
+    enum Recovery
+    {
+        /**
+         * An object is not terminated by the 'endobj' keyword
+         */
+        MISSING_ENDOBJ,
+        /**
+         * A stream is not terminated by the 'endstream' keyword
+         */
+        MISSING_ENDSTREAM,
+        /**
+         * A stream is terminated by two 'endstream' keywords
+         */
+        DOUBLE_ENDSTREAM,
+        /**
+         * A stream length is missing or wrong and it's found searching for the 'endstream' or 'endobj' keywords
+         */
+        STREAM_LENGTH
+    }
+
+    /**
+     * Called once the xref of the document has been parsed
+     * 
+     * @param nanos time spent parsing the xref, including any fallback full scan
+     */
+    default void onXrefParsed(long nanos)
+    {
+        // nothing
+    }
+
+    /**
+     * Called when the xref is broken and a full scan of the document is performed looking for xrefs
+     */
+    default void onXrefFullScan()
+    {
+        // nothing
+    }
+
+    /**
+     * Called when a full scan of the document is performed looking for objects
+     */
+    default void onObjectsFullScan()
+    {
+        // nothing
+    }
+
+    /**
+     * Called when an indirect object has been parsed
+     * 
+     * @param entry the xref entry of the object
+     * @param nanos time spent parsing the object. For compressed objects it doesn't include parsing and decoding the
+     * containing objects stream, see {@link #onObjectsStreamDecoded(COSObjectKey, long, long)}.
+     */
+    default void onObjectParsed(XrefEntry entry, long nanos)
+    {
+        // nothing
+    }
+
+    /**
+     * Called when an objects stream has been decoded to retrieve the objects it contains
+     * 
+     * @param key the key of the objects stream
+     * @param decodedLength the length of the decoded stream
+     * @param nanos time spent decoding the stream and reading its header. Parsing the stream object itself is notified
+     * with {@link #onObjectParsed(XrefEntry, long)}
+     */
+    default void onObjectsStreamDecoded(COSObjectKey key, long decodedLength, long nanos)
+    {
+        // nothing
+    }
+
+    /**
+     * Called when the parser recovers from a malformed document
+     * 
+     * @param recovery what has been recovered
+     * @param offset where the recovery happened
+     */
+    default void onRecovery(Recovery recovery, long offset)
+    {
+        // nothing
+    }
+
+    @Override
+    default void onDecoded(COSName filter, long decodedLength, long nanos)
+    {
+        // nothing
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSObjectKey;
+import org.sejda.sambox.xref.XrefEntry;
+import org.sejda.sambox.xref.XrefType;
+
+/**
+ * A {@link ParseListener} collecting counters and timers of the parsing of a document.
+ * 
+ * @author Andrea Vacondio
+ */
+public class ParseStatistics implements ParseListener
+{
+    private final LongAdder xrefNanos = new LongAdder();
+    private volatile boolean xrefFullScan = false;
+    private volatile boolean objectsFullScan = false;
+    private final LongAdder objects = new LongAdder();
+    private final LongAdder compressedObjects = new LongAdder();
+    private final LongAdder objectsNanos = new LongAdder();
+    private final LongAdder objectsStreams = new LongAdder();
+    private final LongAdder objectsStreamsBytes = new LongAdder();
+    private final LongAdder objectsStreamsNanos = new LongAdder();
+    private final ConcurrentMap<COSName, LongAdder> decodedBytes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<COSName, LongAdder> decodeNanos = new ConcurrentHashMap<>();
+    private final Map<Recovery, LongAdder> recoveries = new EnumMap<>(Recovery.class);
+
+    public ParseStatistics()
+    {
+        for (Recovery recovery : Recovery.values())
+        {
+            recoveries.put(recovery, new LongAdder());
+        }
+    }
+
+    @Override
+    public void onXrefParsed(long nanos)
+    {
+        xrefNanos.add(nanos);
+    }
+
+    @Override
+    public void onXrefFullScan()
+    {
+        xrefFullScan = true;
+    }
+
+    @Override
+    public void onObjectsFullScan()
+    {
+        objectsFullScan = true;
+    }
+
+    @Override
+    public void onObjectParsed(XrefEntry entry, long nanos)
+    {
+        objects.increment();
+        if (entry.getType() == XrefType.COMPRESSED)
+        {
+            compressedObjects.increment();
+        }
+        objectsNanos.add(nanos);
+    }
+
+    @Override
+    public void onObjectsStreamDecoded(COSObjectKey key, long decodedLength, long nanos)
+    {
+        objectsStreams.increment();
+        objectsStreamsBytes.add(decodedLength);
+        objectsStreamsNanos.add(nanos);
+    }
+
+    @Override
+    public void onRecovery(Recovery recovery, long offset)
+    {
+        recoveries.get(recovery).increment();
+    }
+
+    @Override
+    public void onDecoded(COSName filter, long decodedLength, long nanos)
+    {
+        decodedBytes.computeIfAbsent(filter, k -> new LongAdder()).add(decodedLength);
+        decodeNanos.computeIfAbsent(filter, k -> new LongAdder()).add(nanos);
+    }
+
+    /**
+     * @return time spent parsing the xref in nanoseconds
+     */
+    public long xrefNanos()
+    {
+        return xrefNanos.sum();
+    }
+
+    /**
+     * @return true if the xref was broken and a full scan looking for xrefs was performed
+     */
+    public boolean isXrefFullScan()
+    {
+        return xrefFullScan;
+    }
+
+    /**
+     * @return true if a full scan looking for objects was performed
+     */
+    public boolean isObjectsFullScan()
+    {
+        return objectsFullScan;
+    }
+
+    /**
+     * @return the number of parsed indirect objects, including the compressed ones
+     */
+    public long objects()
+    {
+        return objects.sum();
+    }
+
+    /**
+     * @return the number of parsed indirect objects that were in an objects stream
+     */
+    public long compressedObjects()
+    {
+        return compressedObjects.sum();
+    }
+
+    /**
+     * @return time spent parsing indirect objects in nanoseconds, not including decoding the objects streams
+     */
+    public long objectsNanos()
+    {
+        return objectsNanos.sum();
+    }
+
+    /**
+     * @return the number of objects streams decoded
+     */
+    public long objectsStreams()
+    {
+        return objectsStreams.sum();
+    }
+
+    /**
+     * @return the number of bytes of the decoded objects streams
+     */
+    public long objectsStreamsBytes()
+    {
+        return objectsStreamsBytes.sum();
+    }
+
+    /**
+     * @return time spent decoding objects streams in nanoseconds
+     */
+    public long objectsStreamsNanos()
+    {
+        return objectsStreamsNanos.sum();
+    }
+
+    /**
+     * @return the number of bytes decoded by each filter
+     */
+    public Map<COSName, Long> decodedBytes()
+    {
+        return snapshot(decodedBytes);
+    }
+
+    /**
+     * @return the time in nanoseconds spent decoding by each filter
+     */
+    public Map<COSName, Long> decodeNanos()
+    {
+        return snapshot(decodeNanos);
+    }
+
+    /**
+     * @param recovery
+     * @return the number of times the given recovery was performed
+     */
+    public long recoveries(Recovery recovery)
+    {
+        return recoveries.get(recovery).sum();
+    }
+
+    private static Map<COSName, Long> snapshot(Map<COSName, LongAdder> values)
+    {
+        Map<COSName, Long> snapshot = new HashMap<>();
+        values.forEach((k, v) -> snapshot.put(k, v.sum()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("ParseStatistics[xrefNanos=").append(xrefNanos())
+                .append(", xrefFullScan=").append(xrefFullScan).append(", objectsFullScan=")
+                .append(objectsFullScan).append(", objects=").append(objects())
+                .append(", compressedObjects=").append(compressedObjects())
+                .append(", objectsNanos=").append(objectsNanos()).append(", objectsStreams=")
+                .append(objectsStreams()).append(", objectsStreamsBytes=")
+                .append(objectsStreamsBytes()).append(", decodedBytes=").append(decodedBytes());
+        for (Recovery recovery : Recovery.values())
+        {
+            builder.append(", ").append(recovery).append('=').append(recoveries(recovery));
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -16,7 +16,6 @@
  */
 package org.sejda.sambox.input;
 
-import static java.util.Arrays.asList;
 import static org.sejda.sambox.util.CharUtils.ASCII_BACKSPACE;
 import static org.sejda.sambox.util.CharUtils.ASCII_CARRIAGE_RETURN;
 import static org.sejda.sambox.util.CharUtils.ASCII_FORM_FEED;
@@ -30,15 +29,18 @@ import static org.sejda.sambox.util.CharUtils.isHexDigit;
 import static org.sejda.sambox.util.CharUtils.isLineFeed;
 import static org.sejda.sambox.util.CharUtils.isOctalDigit;
 import static org.sejda.sambox.util.CharUtils.isWhitespace;
+import static org.sejda.sambox.util.CharUtils.matches;
 import static org.sejda.util.RequireUtils.requireIOCondition;
 import static org.sejda.util.RequireUtils.requireNotNullArg;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import org.sejda.io.SeekableSource;
 import org.sejda.sambox.SAMBox;
+import org.sejda.sambox.cos.COSName;
 import org.sejda.sambox.cos.COSObjectKey;
 import org.sejda.sambox.util.CharUtils;
 import org.sejda.sambox.util.Pool;
@@ -48,8 +50,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Component responsible for reading a {@link SeekableSource}. Methods to read expected kind of tokens are available as
- * well as methods to skip them. This implementation uses a pool of {@link StringBuilder}s to minimize garbage
- * collection.
+ * well as methods to skip them. Tokens, names, lines and integers are read in a reusable byte buffer so that keywords
+ * can be matched and names resolved without creating intermediate Strings. Other tokens use a pool of
+ * {@link StringBuilder}s to minimize garbage collection. This class is not thread safe.
  * 
  * @author Andrea Vacondio
  */
@@ -68,6 +71,8 @@ class SourceReader implements Closeable
                 b.trimToSize();
             });
     private SeekableSource source;
+    private byte[] buffer = new byte[128];
+    private ParseListener listener = ParseListener.NOOP;
 
     public SourceReader(SeekableSource source)
     {
@@ -75,6 +80,23 @@ class SourceReader implements Closeable
         this.source = source;
     }
 
+    /**
+     * @return the listener notified of parsing events
+     */
+    ParseListener listener()
+    {
+        return listener;
+    }
+
+    /**
+     * @param listener the listener to notify of parsing events
+     */
+    void setListener(ParseListener listener)
+    {
+        requireNotNullArg(listener, "Listener cannot be null");
+        this.listener = listener;
+    }
+
     /**
      * @return the source for this reader
      */
@@ -144,6 +166,25 @@ class SourceReader implements Closeable
         }
     }
 
+    /**
+     * Skips the next token if it's value is the given one
+     *
+     * @param value the value to skip
+     * @return true if the token is found and skipped, false otherwise.
+     * @throws IOException if there is an error reading from the stream
+     */
+    public boolean skipTokenIfValue(String value) throws IOException
+    {
+        long pos = position();
+        int length = readTokenBytes();
+        if (!matches(value, buffer, 0, length))
+        {
+            source.position(pos);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Skips the next token if it's value is one of the given ones
      *
@@ -154,8 +195,7 @@ class SourceReader implements Closeable
     public boolean skipTokenIfValue(String... values) throws IOException
     {
         long pos = position();
-        String token = readToken();
-        if (!asList(values).contains(token))
+        if (!tokenMatchesAny(readTokenBytes(), values))
         {
             source.position(pos);
             return false;
@@ -163,6 +203,18 @@ class SourceReader implements Closeable
         return true;
     }
 
+    private boolean tokenMatchesAny(int length, String... values)
+    {
+        for (String value : values)
+        {
+            if (matches(value, buffer, 0, length))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Skips an indirect object definition open tag (Ex. "12 0 obj") as defined in the chap 7.3.10 PDF 32000-1:2008.
      * 
@@ -212,23 +264,62 @@ class SourceReader implements Closeable
      * @see CharUtils#isEndOfName(int)
      */
     public String readToken() throws IOException
+    {
+        int length = readTokenBytes();
+        return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Reads the next token in the reader buffer. The token is available through {@link #buffer()} until the next read.
+     * 
+     * @return the length of the token that was read from the stream.
+     * @throws IOException If there is an error reading from the stream.
+     * @see CharUtils#isEndOfName(int)
+     */
+    int readTokenBytes() throws IOException
     {
         skipSpaces();
-        StringBuilder builder = pool.borrow();
-        try
+        int length = 0;
+        int c;
+        while (((c = source.read()) != -1) && !isEndOfName(c))
         {
-            int c;
-            while (((c = source.read()) != -1) && !isEndOfName(c))
-            {
-                builder.append((char) c);
-            }
-            unreadIfValid(c);
-            return builder.toString();
+            length = append(length, c);
         }
-        finally
+        unreadIfValid(c);
+        return length;
+    }
+
+    /**
+     * @return the reader buffer containing the last token read with {@link #readTokenBytes()}
+     */
+    byte[] buffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * @param value
+     * @param length the length of the token read with {@link #readTokenBytes()}
+     * @return true if the last token read with {@link #readTokenBytes()} is equal to the given value
+     */
+    boolean lastTokenEquals(String value, int length)
+    {
+        return matches(value, buffer, 0, length);
+    }
+
+    /**
+     * Appends the given byte to the buffer at the given position, growing the buffer if necessary
+     * 
+     * @return the new length of the data in the buffer
+     */
+    private int append(int position, int c)
+    {
+        if (position == buffer.length)
         {
-            pool.give(builder);
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
         }
+        buffer[position] = (byte) c;
+        return position + 1;
     }
 
     /**
@@ -267,9 +358,22 @@ class SourceReader implements Closeable
     public boolean isNextToken(String... values) throws IOException
     {
         long pos = position();
-        String token = readToken();
+        int length = readTokenBytes();
+        position(pos);
+        return tokenMatchesAny(length, values);
+    }
+
+    /**
+     * @param value valid value for the next token.
+     * @return true if the next token is the given value. false otherwise.
+     * @throws IOException if there is an error reading from the stream
+     */
+    public boolean isNextToken(String value) throws IOException
+    {
+        long pos = position();
+        int length = readTokenBytes();
         position(pos);
-        return asList(values).contains(token);
+        return matches(value, buffer, 0, length);
     }
 
     /**
@@ -282,25 +386,17 @@ class SourceReader implements Closeable
     public String readLine() throws IOException
     {
         requireIOCondition(source.peek() != -1, "Expected line but was end of file");
-
-        StringBuilder builder = pool.borrow();
-        try
+        int length = 0;
+        int c;
+        while ((c = source.read()) != -1 && !isEOL(c))
         {
-            int c;
-            while ((c = source.read()) != -1 && !isEOL(c))
-            {
-                builder.append((char) c);
-            }
-            if (isCarriageReturn(c) && isLineFeed(source.peek()))
-            {
-                source.read();
-            }
-            return builder.toString();
+            length = append(length, c);
         }
-        finally
+        if (isCarriageReturn(c) && isLineFeed(source.peek()))
         {
-            pool.give(builder);
+            source.read();
         }
+        return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
     }
 
     /**
@@ -345,51 +441,61 @@ class SourceReader implements Closeable
      * @throws IOException if an I/O error occurs
      */
     public String readName() throws IOException
+    {
+        int length = readNameBytes();
+        return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Reads a token conforming with PDF Name Objects chap 7.3.5 PDF 32000-1:2008 and resolves it to the corresponding
+     * {@link COSName} without creating intermediate Strings when the name has been already met.
+     * 
+     * @return the name being read.
+     * @throws IOException if an I/O error occurs
+     */
+    public COSName readCOSName() throws IOException
+    {
+        int length = readNameBytes();
+        return COSName.getPDFName(buffer, 0, length);
+    }
+
+    private int readNameBytes() throws IOException
     {
         skipExpected('/');
-        StringBuilder builder = pool.borrow();
-        try
+        int length = 0;
+        int c;
+        while (((c = source.read()) != -1) && !isEndOfName(c))
         {
-            int i;
-            while (((i = source.read()) != -1) && !isEndOfName(i))
+            if (c == '#')
             {
-                char c = (char) i;
-                if (c == '#')
+                int ch1 = source.read();
+                int ch2 = source.read();
+                requireIOCondition(ch2 != -1 && ch1 != -1,
+                        "Expected 2-digit hexadecimal code but was end of file");
+
+                // Prior to PDF v1.2, the # was not a special character. Also,
+                // it has been observed that various PDF tools do not follow the
+                // spec with respect to the # escape, even though they report
+                // PDF versions of 1.2 or later. The solution here is that we
+                // interpret the # as an escape only when it is followed by two
+                // valid hex digits.
+                //
+                if (isHexDigit((char) ch1) && isHexDigit((char) ch2))
                 {
-                    int ch1 = source.read();
-                    int ch2 = source.read();
-                    requireIOCondition(ch2 != -1 && ch1 != -1,
-                            "Expected 2-digit hexadecimal code but was end of file");
-
-                    // Prior to PDF v1.2, the # was not a special character. Also,
-                    // it has been observed that various PDF tools do not follow the
-                    // spec with respect to the # escape, even though they report
-                    // PDF versions of 1.2 or later. The solution here is that we
-                    // interpret the # as an escape only when it is followed by two
-                    // valid hex digits.
-                    //
-                    if (isHexDigit((char) ch1) && isHexDigit((char) ch2))
-                    {
-                        String hex = "" + (char) ch1 + (char) ch2;
-                        c = (char) Integer.parseInt(hex, 16);
-                    }
-                    else
-                    {
-                        source.back(2);
-                        LOG.warn(
-                                "Found NUMBER SIGN (#) not used as escaping char while reading name at "
-                                        + position());
-                    }
+                    c = (Character.digit(ch1, 16) << 4) + Character.digit(ch2, 16);
+                }
+                else
+                {
+                    source.back(2);
+                    LOG.warn(
+                            "Found NUMBER SIGN (#) not used as escaping char while reading name at "
+                                    + position());
                 }
-                builder.append(c);
             }
-            unreadIfValid(i);
-            return builder.toString();
-        }
-        finally
-        {
-            pool.give(builder);
+            length = append(length, c);
         }
+        unreadIfValid(c);
+        return length;
     }
 
     /**
@@ -398,19 +504,24 @@ class SourceReader implements Closeable
      */
     public int readInt() throws IOException
     {
-        String intBuffer = readIntegerNumber();
-        try
-        {
-            return Integer.parseInt(intBuffer);
-        }
-        catch (NumberFormatException e)
+        int length = readIntegerNumberBytes();
+        long value = parseLong(length);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE || length == 0)
         {
-            source.back(intBuffer.getBytes(StandardCharsets.ISO_8859_1).length);
-            throw new IOException(
-                    String.format("Expected an integer type at offset %d but was '%s'", position(),
-                            intBuffer),
-                    e);
+            String intBuffer = new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+            try
+            {
+                return Integer.parseInt(intBuffer);
+            }
+            catch (NumberFormatException e)
+            {
+                source.back(length);
+                throw new IOException(String.format(
+                        "Expected an integer type at offset %d but was '%s'", position(),
+                        intBuffer), e);
+            }
         }
+        return (int) value;
     }
 
     /**
@@ -419,17 +530,57 @@ class SourceReader implements Closeable
      */
     public long readLong() throws IOException
     {
-        String longBuffer = readIntegerNumber();
-        try
+        int length = readIntegerNumberBytes();
+        long value = parseLong(length);
+        if (value == Long.MIN_VALUE || length == 0)
+        {
+            String longBuffer = new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+            try
+            {
+                return Long.parseLong(longBuffer);
+            }
+            catch (NumberFormatException e)
+            {
+                source.back(length);
+                throw new IOException(
+                        String.format("Expected a long type at offset %d but was '%s'",
+                                position(), longBuffer),
+                        e);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Parses the integer number in the buffer
+     * 
+     * @param length
+     * @return the parsed value or {@link Long#MIN_VALUE} if the buffer doesn't contain a valid long or the value is
+     * {@link Long#MIN_VALUE}, in which case parsing has to be done the slow way.
+     */
+    private long parseLong(int length)
+    {
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (buffer[0] == '-' || buffer[0] == '+'))
+        {
+            negative = buffer[0] == '-';
+            i++;
+        }
+        if (i == length)
         {
-            return Long.parseLong(longBuffer);
+            return Long.MIN_VALUE;
         }
-        catch (NumberFormatException e)
+        long value = 0;
+        for (; i < length; i++)
         {
-            source.back(longBuffer.getBytes(StandardCharsets.ISO_8859_1).length);
-            throw new IOException(String.format("Expected a long type at offset %d but was '%s'",
-                    position(), longBuffer), e);
+            if (value > (Long.MAX_VALUE - 9) / 10)
+            {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + (buffer[i] - '0');
         }
+        return negative ? -value : value;
     }
 
     /**
@@ -439,27 +590,26 @@ class SourceReader implements Closeable
      * @throws IOException If there is an error reading from the stream.
      */
     public final String readIntegerNumber() throws IOException
+    {
+        int length = readIntegerNumberBytes();
+        return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private int readIntegerNumberBytes() throws IOException
     {
         skipSpaces();
-        StringBuilder builder = pool.borrow();
-        try
+        int length = 0;
+        int c = source.read();
+        if (c != -1 && (isDigit(c) || c == '+' || c == '-'))
         {
-            int c = source.read();
-            if (c != -1 && (isDigit(c) || c == '+' || c == '-'))
+            length = append(length, c);
+            while ((c = source.read()) != -1 && isDigit(c))
             {
-                builder.append((char) c);
-                while ((c = source.read()) != -1 && isDigit(c))
-                {
-                    builder.append((char) c);
-                }
+                length = append(length, c);
             }
-            unreadIfValid(c);
-            return builder.toString();
-        }
-        finally
-        {
-            pool.give(builder);
         }
+        unreadIfValid(c);
+        return length;
     }
 
     /**
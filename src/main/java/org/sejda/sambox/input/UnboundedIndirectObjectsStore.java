@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.sejda.sambox.cos.COSBase;
+import org.sejda.sambox.cos.COSObjectKey;
+
+/**
+ * An {@link IndirectObjectsStore} that keeps everything until explicitly removed.
+ *
+ * @author Andrea Vacondio
+ */
+class UnboundedIndirectObjectsStore implements IndirectObjectsStore
+{
+    private Map<COSObjectKey, COSBase> store = new ConcurrentHashMap<>();
+
+    @Override
+    public COSBase get(COSObjectKey key)
+    {
+        return store.get(key);
+    }
+
+    @Override
+    public void put(COSObjectKey key, COSBase value)
+    {
+        store.put(key, value);
+    }
+
+    @Override
+    public COSBase remove(COSObjectKey key)
+    {
+        return store.remove(key);
+    }
+
+    @Override
+    public Collection<COSBase> values()
+    {
+        return store.values();
+    }
+
+    @Override
+    public void clear()
+    {
+        store.clear();
+    }
+}
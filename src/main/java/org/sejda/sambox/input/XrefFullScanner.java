@@ -16,15 +16,16 @@
  */
 package org.sejda.sambox.input;
 
-import static org.sejda.sambox.input.AbstractXrefTableParser.XREF;
-
 import java.io.IOException;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.sejda.sambox.cos.COSBase;
 import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSName;
 import org.sejda.sambox.cos.COSStream;
+import org.sejda.sambox.input.ChunkedSourceScanner.Marker;
+import org.sejda.sambox.input.ChunkedSourceScanner.MarkerType;
 import org.sejda.sambox.xref.XrefEntry;
 import org.sejda.sambox.xref.XrefType;
 import org.slf4j.Logger;
@@ -32,9 +33,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Component scanning for xref tables/streams. It scans top to bottom parsing any xref table/stream found with the
- * assumption that xrefs found later in the file are more recent.
+ * assumption that xrefs found later in the file are more recent. Only objects containing the /XRef name are parsed as
+ * potential xref streams.
  * 
  * @author Andrea Vacondio
+ * @see ChunkedSourceScanner
  */
 class XrefFullScanner
 {
@@ -44,7 +47,6 @@ class XrefFullScanner
     private AbstractXrefStreamParser xrefStreamParser;
     private AbstractXrefTableParser xrefTableParser;
     private COSParser parser;
-    private Pattern objectDefPatter = Pattern.compile("^(\\d+)[\\s](\\d+)[\\s]obj");
     private XrefScanOutcome outcome = XrefScanOutcome.NOT_FOUND;
 
     XrefFullScanner(COSParser parser)
@@ -114,25 +116,60 @@ class XrefFullScanner
     private void doScan() throws IOException
     {
         LOG.info("Performing full scan looking for xrefs");
+        parser.listener().onXrefFullScan();
         long savedPos = parser.position();
-        parser.position(0);
-        parser.skipSpaces();
-        while (parser.source().peek() != -1)
+        List<Marker> markers = new ChunkedSourceScanner(parser.source()).scan(MarkerType.XREF,
+                MarkerType.OBJECT, MarkerType.XREF_TYPE);
+        long resumeFrom = 0;
+        for (Marker marker : candidates(markers))
         {
-            long offset = parser.position();
-            String line = parser.readLine();
-            if (line.startsWith(XREF))
+            // what was parsed in the previous step is not scanned again
+            if (marker.offset >= resumeFrom)
             {
-                outcome = outcome.moveTo(XrefScanOutcome.FOUND);
-                parseFoundXrefTable(offset);
+                if (marker.type == MarkerType.XREF)
+                {
+                    outcome = outcome.moveTo(XrefScanOutcome.FOUND);
+                    parseFoundXrefTable(marker.offset);
+                }
+                else
+                {
+                    parseFoundObject(marker.offset);
+                }
+                resumeFrom = parser.position();
             }
-            if (objectDefPatter.matcher(line).find())
+        }
+        parser.position(savedPos);
+    }
+
+    /**
+     * @param markers
+     * @return the xref tables and the objects that might be xref streams, the ones with an /XRef name before the next
+     * marker
+     */
+    private static List<Marker> candidates(List<Marker> markers)
+    {
+        List<Marker> candidates = new ArrayList<>();
+        Marker lastObject = null;
+        for (Marker marker : markers)
+        {
+            switch (marker.type)
             {
-                parseFoundObject(offset);
+            case XREF:
+                candidates.add(marker);
+                lastObject = null;
+                break;
+            case OBJECT:
+                lastObject = marker;
+                break;
+            default:
+                if (lastObject != null)
+                {
+                    candidates.add(lastObject);
+                    lastObject = null;
+                }
             }
-            parser.skipSpaces();
         }
-        parser.position(savedPos);
+        return candidates;
     }
 
     private void parseFoundXrefTable(long offset) throws IOException
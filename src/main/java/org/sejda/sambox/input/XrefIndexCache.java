@@ -0,0 +1,462 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.sejda.util.RequireUtils.requireIOCondition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.sejda.io.SeekableSource;
+import org.sejda.sambox.SAMBox;
+import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSBase;
+import org.sejda.sambox.cos.COSBoolean;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSFloat;
+import org.sejda.sambox.cos.COSInteger;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSNull;
+import org.sejda.sambox.cos.COSObjectKey;
+import org.sejda.sambox.cos.COSStream;
+import org.sejda.sambox.cos.COSString;
+import org.sejda.sambox.xref.CompressedXrefEntry;
+import org.sejda.sambox.xref.XrefEntry;
+import org.sejda.sambox.xref.XrefType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An on disk cache of the resolved xref entries and trailer of parsed files. When a file is parsed again, and it didn't
+ * change in the meantime, the xref chain (or the full scan in case of broken files) is not parsed again and the cached
+ * index is used instead. A file is considered unchanged if its size, last modified time and the digest of its tail
+ * match the ones stored in the index. Only sources whose id is the path of a regular file are cached.
+ * <p>
+ * The cache is enabled setting the {@link SAMBox#XREF_INDEX_CACHE_DIRECTORY_PROPERTY}. Failures reading or writing the
+ * cache are logged and never prevent the parsing of the document.
+ * </p>
+ *
+ * @author Andrea Vacondio
+ */
+class XrefIndexCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(XrefIndexCache.class);
+
+    private static final int MAGIC = 0x53584944;
+    private static final int VERSION = 1;
+    private static final int TAIL_SIZE = 4096;
+    private static final String EXTENSION = ".xrefidx";
+    private static final int MAX_VALUE_LENGTH = 1 << 20;
+
+    private static final byte DICTIONARY = 1;
+    private static final byte ARRAY = 2;
+    private static final byte NAME = 3;
+    private static final byte INTEGER = 4;
+    private static final byte FLOAT = 5;
+    private static final byte STRING = 6;
+    private static final byte HEX_STRING = 7;
+    private static final byte BOOLEAN = 8;
+    private static final byte NULL = 9;
+    private static final byte REFERENCE = 10;
+
+    private final File directory;
+
+    XrefIndexCache()
+    {
+        this(ofNullableDirectory(System.getProperty(SAMBox.XREF_INDEX_CACHE_DIRECTORY_PROPERTY)));
+    }
+
+    /**
+     * @param directory where the index files are stored. If null the cache is disabled.
+     */
+    XrefIndexCache(File directory)
+    {
+        this.directory = directory;
+    }
+
+    private static File ofNullableDirectory(String path)
+    {
+        if (nonNull(path) && !path.trim().isEmpty())
+        {
+            return new File(path);
+        }
+        return null;
+    }
+
+    /**
+     * Loads the cached index for the source of the given parser, if any. Entries are added to the parser provider.
+     * 
+     * @param parser
+     * @return the cached trailer or null if no valid index is found for the source
+     */
+    COSDictionary load(COSParser parser)
+    {
+        if (isNull(directory))
+        {
+            return null;
+        }
+        File file = sourceFile(parser.source());
+        if (isNull(file))
+        {
+            return null;
+        }
+        File index = indexFile(file);
+        if (!index.isFile())
+        {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(index.toPath()))))
+        {
+            requireIOCondition(in.readInt() == MAGIC && in.readInt() == VERSION,
+                    "Unknown index format");
+            if (in.readLong() != file.length() || in.readLong() != file.lastModified())
+            {
+                LOG.debug("Stale xref index for {}", file);
+                return null;
+            }
+            byte[] digest = new byte[in.readUnsignedByte()];
+            in.readFully(digest);
+            if (!Arrays.equals(digest, tailDigest(parser.source())))
+            {
+                LOG.debug("Stale xref index for {}", file);
+                return null;
+            }
+            int size = in.readInt();
+            requireIOCondition(size >= 0, "Invalid entries count");
+            List<XrefEntry> entries = new ArrayList<>(Math.min(size, 1 << 16));
+            for (int i = 0; i < size; i++)
+            {
+                entries.add(readEntry(in));
+            }
+            COSBase trailer = readObject(in, parser.provider());
+            requireIOCondition(trailer instanceof COSDictionary, "Invalid trailer");
+            entries.forEach(parser.provider()::addEntry);
+            LOG.debug("Loaded {} xref entries from index {}", size, index);
+            return (COSDictionary) trailer;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOG.warn("Unable to load the xref index " + index, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the index for the source of the given parser with the entries of the parser provider and the given trailer
+     * 
+     * @param parser
+     * @param trailer
+     */
+    void store(COSParser parser, COSDictionary trailer)
+    {
+        if (isNull(directory))
+        {
+            return;
+        }
+        File file = sourceFile(parser.source());
+        if (isNull(file))
+        {
+            return;
+        }
+        File index = indexFile(file);
+        Path tmp = null;
+        try
+        {
+            Files.createDirectories(directory.toPath());
+            tmp = Files.createTempFile(directory.toPath(), "sambox", EXTENSION);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(file.length());
+                out.writeLong(file.lastModified());
+                byte[] digest = tailDigest(parser.source());
+                out.writeByte(digest.length);
+                out.write(digest);
+                Collection<XrefEntry> entries = parser.provider().entries();
+                out.writeInt(entries.size());
+                for (XrefEntry entry : entries)
+                {
+                    writeEntry(entry, out);
+                }
+                writeObject(trailer, out);
+            }
+            move(tmp, index.toPath());
+            LOG.debug("Stored xref index {} for {}", index, file);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOG.warn("Unable to store the xref index for " + file, e);
+        }
+        finally
+        {
+            if (nonNull(tmp))
+            {
+                tmp.toFile().delete();
+            }
+        }
+    }
+
+    private static void move(Path source, Path destination) throws IOException
+    {
+        try
+        {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static File sourceFile(SeekableSource source)
+    {
+        File file = new File(source.id());
+        if (file.isFile() && file.length() == source.size())
+        {
+            return file;
+        }
+        return null;
+    }
+
+    File indexFile(File file)
+    {
+        byte[] digest = digest("SHA-1")
+                .digest(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder(digest.length * 2 + EXTENSION.length());
+        for (byte current : digest)
+        {
+            name.append(String.format("%02x", current));
+        }
+        return new File(directory, name.append(EXTENSION).toString());
+    }
+
+    private static byte[] tailDigest(SeekableSource source) throws IOException
+    {
+        int size = (int) Math.min(source.size(), TAIL_SIZE);
+        ByteBuffer tail = ByteBuffer.allocate(size);
+        source.position(source.size() - size);
+        while (tail.hasRemaining() && source.read(tail) > 0)
+        {
+            // read until full
+        }
+        tail.flip();
+        MessageDigest digest = digest("SHA-256");
+        digest.update(tail);
+        return digest.digest();
+    }
+
+    private static MessageDigest digest(String algorithm)
+    {
+        try
+        {
+            return MessageDigest.getInstance(algorithm);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeEntry(XrefEntry entry, DataOutputStream out) throws IOException
+    {
+        out.writeByte(entry.getType().ordinal());
+        out.writeLong(entry.getObjectNumber());
+        out.writeInt(entry.getGenerationNumber());
+        if (entry.getType() == XrefType.COMPRESSED)
+        {
+            out.writeLong(((CompressedXrefEntry) entry).getObjectStreamNumber());
+            out.writeLong(((CompressedXrefEntry) entry).getIndex());
+        }
+        else
+        {
+            out.writeLong(entry.getByteOffset());
+        }
+    }
+
+    private static XrefEntry readEntry(DataInputStream in) throws IOException
+    {
+        int type = in.readUnsignedByte();
+        requireIOCondition(type < XrefType.values().length, "Invalid xref entry type");
+        long objectNumber = in.readLong();
+        int generation = in.readInt();
+        switch (XrefType.values()[type])
+        {
+        case COMPRESSED:
+            return CompressedXrefEntry.compressedEntry(objectNumber, in.readLong(), in.readLong());
+        case IN_USE:
+            return XrefEntry.inUseEntry(objectNumber, in.readLong(), generation);
+        default:
+            in.readLong();
+            return XrefEntry.freeEntry(objectNumber, generation);
+        }
+    }
+
+    private static void writeObject(COSBase value, DataOutputStream out) throws IOException
+    {
+        if (value instanceof ExistingIndirectCOSObject)
+        {
+            COSObjectKey key = ((ExistingIndirectCOSObject) value).id().objectIdentifier;
+            out.writeByte(REFERENCE);
+            out.writeLong(key.objectNumber());
+            out.writeInt(key.generation());
+        }
+        else if (value instanceof COSDictionary)
+        {
+            requireIOCondition(!(value instanceof COSStream),
+                    "Streams are not supported");
+            COSDictionary dictionary = (COSDictionary) value;
+            out.writeByte(DICTIONARY);
+            out.writeInt(dictionary.size());
+            for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet())
+            {
+                writeBytes(entry.getKey().getName().getBytes(StandardCharsets.UTF_8), out);
+                writeObject(entry.getValue(), out);
+            }
+        }
+        else if (value instanceof COSArray)
+        {
+            COSArray array = (COSArray) value;
+            out.writeByte(ARRAY);
+            out.writeInt(array.size());
+            for (COSBase item : array)
+            {
+                writeObject(item, out);
+            }
+        }
+        else if (value instanceof COSName)
+        {
+            out.writeByte(NAME);
+            writeBytes(((COSName) value).getName().getBytes(StandardCharsets.UTF_8), out);
+        }
+        else if (value instanceof COSInteger)
+        {
+            out.writeByte(INTEGER);
+            out.writeLong(((COSInteger) value).longValue());
+        }
+        else if (value instanceof COSFloat)
+        {
+            out.writeByte(FLOAT);
+            writeBytes(value.toString().getBytes(StandardCharsets.US_ASCII), out);
+        }
+        else if (value instanceof COSString)
+        {
+            out.writeByte(((COSString) value).isForceHexForm() ? HEX_STRING : STRING);
+            writeBytes(((COSString) value).getBytes(), out);
+        }
+        else if (value instanceof COSBoolean)
+        {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(((COSBoolean) value).getValue());
+        }
+        else if (isNull(value) || value instanceof COSNull)
+        {
+            out.writeByte(NULL);
+        }
+        else
+        {
+            throw new IOException("Unsupported trailer value " + value.getClass());
+        }
+    }
+
+    private static COSBase readObject(DataInputStream in, IndirectObjectsProvider provider)
+            throws IOException
+    {
+        byte type = in.readByte();
+        switch (type)
+        {
+        case REFERENCE:
+            return new ExistingIndirectCOSObject(in.readLong(), in.readInt(), provider);
+        case DICTIONARY:
+        {
+            COSDictionary dictionary = new COSDictionary();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++)
+            {
+                COSName key = COSName.getPDFName(new String(readBytes(in), StandardCharsets.UTF_8));
+                dictionary.setItem(key, readObject(in, provider));
+            }
+            return dictionary;
+        }
+        case ARRAY:
+        {
+            COSArray array = new COSArray();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++)
+            {
+                array.add(readObject(in, provider));
+            }
+            return array;
+        }
+        case NAME:
+            return COSName.getPDFName(new String(readBytes(in), StandardCharsets.UTF_8));
+        case INTEGER:
+            return COSInteger.get(in.readLong());
+        case FLOAT:
+            return new COSFloat(new String(readBytes(in), StandardCharsets.US_ASCII));
+        case STRING:
+        case HEX_STRING:
+        {
+            COSString string = COSString.newInstance(readBytes(in));
+            string.setForceHexForm(type == HEX_STRING);
+            return string;
+        }
+        case BOOLEAN:
+            return COSBoolean.valueOf(in.readBoolean());
+        case NULL:
+            return COSNull.NULL;
+        default:
+            throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    private static void writeBytes(byte[] bytes, DataOutputStream out) throws IOException
+    {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        requireIOCondition(length >= 0 && length <= MAX_VALUE_LENGTH, "Invalid value length");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -55,10 +55,19 @@ class XrefParser
     private AbstractXrefStreamParser xrefStreamParser;
     private AbstractXrefTableParser xrefTableParser;
     private COSParser parser;
+    private XrefIndexCache indexCache;
+    private long startxref = -1;
+    private boolean xrefStream;
 
     public XrefParser(COSParser parser)
+    {
+        this(parser, new XrefIndexCache());
+    }
+
+    XrefParser(COSParser parser, XrefIndexCache indexCache)
     {
         this.parser = parser;
+        this.indexCache = indexCache;
         this.xrefStreamParser = new AbstractXrefStreamParser(parser)
         {
             @Override
@@ -91,14 +100,41 @@ class XrefParser
     }
 
     /**
-     * parse the xref using the given parser.
+     * parse the xref using the given parser. If a valid cached index is available for the source, entries and trailer
+     * are loaded from it and the xref is not parsed.
      * 
      * @throws IOException
+     * @see XrefIndexCache
      */
     public void parse() throws IOException
+    {
+        long start = System.nanoTime();
+        COSDictionary cachedTrailer = indexCache.load(parser);
+        if (cachedTrailer != null)
+        {
+            this.trailer = cachedTrailer;
+            long xrefOffset = findXrefOffset();
+            if (xrefOffset > 0 && isValidXrefOffset(xrefOffset))
+            {
+                onXrefFound(xrefOffset);
+            }
+        }
+        else
+        {
+            doParse();
+            indexCache.store(parser, trailer);
+        }
+        parser.listener().onXrefParsed(System.nanoTime() - start);
+    }
+
+    private void doParse() throws IOException
     {
         long xrefOffset = findXrefOffset();
-        if (xrefOffset <= 0 || !parseXref(xrefOffset))
+        if (xrefOffset > 0 && parseXref(xrefOffset))
+        {
+            onXrefFound(xrefOffset);
+        }
+        else
         {
             XrefFullScanner fallbackFullScanner = new XrefFullScanner(parser);
             XrefScanOutcome xrefScanStatus = fallbackFullScanner.scan();
@@ -115,18 +151,13 @@ class XrefParser
                 ObjectsFullScanner objectsFullScanner = new ObjectsFullScanner(parser)
                 {
                     @Override
-                    protected void onNonObjectDefinitionLine(long offset, String line)
-                            throws IOException
+                    protected void onTrailer(long offset) throws IOException
                     {
-                        if (line != null && line.startsWith(TRAILER))
-                        {
-                            LOG.debug("Parsing trailer at " + offset);
-                            parser.position(offset);
-                            parser.skipExpected(TRAILER);
-                            parser.skipSpaces();
-                            trailer.merge(parser.nextDictionary());
-                            parser.skipSpaces();
-                        }
+                        LOG.debug("Parsing trailer at " + offset);
+                        parser.position(offset);
+                        parser.skipExpected(TRAILER);
+                        parser.skipSpaces();
+                        trailer.merge(parser.nextDictionary());
                     }
                 };
                 // and we consider it scan more reliable compared to what was found in the somehow broken xrefs
@@ -135,6 +166,29 @@ class XrefParser
         }
     }
 
+    private void onXrefFound(long xrefOffset) throws IOException
+    {
+        this.startxref = xrefOffset;
+        this.xrefStream = isValidXrefStreamOffset(xrefOffset);
+    }
+
+    /**
+     * @return the offset of the latest xref section, as found after the startxref keyword, or -1 if the xref was
+     * broken and it has been rebuilt scanning the document.
+     */
+    public long startxref()
+    {
+        return startxref;
+    }
+
+    /**
+     * @return true if the latest xref section is an xref stream
+     */
+    public boolean isXrefStream()
+    {
+        return xrefStream;
+    }
+
     /**
      * Looks for the startxref keyword within the latest {@link #DEFAULT_TRAIL_BYTECOUNT} bytes of the source. If found
      * it returns the Long read after the keyword, if not it returns -1.
@@ -142,16 +142,28 @@ abstract class AbstractPDFBodyWriter implements COSVisitor, Closeable
     {
         for (COSName key : value.keySet())
         {
-            COSBase item = ofNullable(value.getItem(key)).orElse(COSNull.NULL);
-            if (item instanceof ExistingIndirectCOSObject || item instanceof COSDictionary
-                    || COSName.THREADS.equals(key))
-            {
-                createIndirectReferenceIfNeededFor(item);
-            }
-            else
-            {
-                item.accept(this);
-            }
+            visitDictionaryItem(key, value.getItem(key));
+        }
+    }
+
+    /**
+     * Visits the value of the given dictionary key, creating an indirect reference for it if needed
+     * 
+     * @param key
+     * @param value
+     * @throws IOException
+     */
+    void visitDictionaryItem(COSName key, COSBase value) throws IOException
+    {
+        COSBase item = ofNullable(value).orElse(COSNull.NULL);
+        if (item instanceof ExistingIndirectCOSObject || item instanceof COSDictionary
+                || COSName.THREADS.equals(key))
+        {
+            createIndirectReferenceIfNeededFor(item);
+        }
+        else
+        {
+            item.accept(this);
         }
     }
 
@@ -159,6 +171,7 @@ abstract class AbstractPDFBodyWriter implements COSVisitor, Closeable
     public void visit(COSStream value) throws IOException
     {
         value.removeItem(COSName.LENGTH);
+        context.flateEncoder().ifPresent(value::setFlateEncoder);
         if (context.hasWriteOption(WriteOption.COMPRESS_STREAMS))
         {
             value.addCompression();
@@ -180,10 +193,27 @@ abstract class AbstractPDFBodyWriter implements COSVisitor, Closeable
     {
         if (!context.hasIndirectReferenceFor(item))
         {
-            stack.add(context.getOrCreateIndirectReferenceFor(item));
+            if (context.hasWriteOption(WriteOption.DEDUPLICATE))
+            {
+                context.createIndirectReferenceUnlessDuplicate(item).ifPresent(stack::add);
+            }
+            else
+            {
+                stack.add(context.getOrCreateIndirectReferenceFor(item));
+            }
         }
     }
 
+    /**
+     * Adds the given reference to the ones to visit and write
+     * 
+     * @param ref
+     */
+    void addToWrite(IndirectCOSObjectReference ref)
+    {
+        stack.add(ref);
+    }
+
     @Override
     public void close() throws IOException
     {
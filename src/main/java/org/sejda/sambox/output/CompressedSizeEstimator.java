@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.sejda.sambox.filter.FlateEncoder;
+
+/**
+ * Component estimating the size some data will have once compressed by a {@link FlateEncoder}. Small data is
+ * compressed as a whole and the exact compressed size is returned, for larger data only some evenly spaced windows are
+ * compressed and the resulting compression ratio is applied to the whole length.
+ * 
+ * @author Andrea Vacondio
+ */
+class CompressedSizeEstimator
+{
+    static final int SAMPLE_SIZE = 64 * 1024;
+    private static final int WINDOWS = 4;
+    private static final int WINDOW_SIZE = SAMPLE_SIZE / WINDOWS;
+
+    private final FlateEncoder encoder;
+
+    CompressedSizeEstimator(FlateEncoder encoder)
+    {
+        requireNotNullArg(encoder, "Encoder cannot be null");
+        this.encoder = encoder;
+    }
+
+    /**
+     * @param data the data to estimate, it's read sequentially and it's not closed
+     * @param length the length of the data
+     * @return the estimated size of the given data once compressed
+     * @throws IOException
+     */
+    long estimate(InputStream data, long length) throws IOException
+    {
+        CountingOutputStream compressed = new CountingOutputStream(
+                NullOutputStream.NULL_OUTPUT_STREAM);
+        if (length <= 2 * SAMPLE_SIZE)
+        {
+            try (OutputStream out = encoder.compressing(compressed))
+            {
+                IOUtils.copy(data, out);
+            }
+            return compressed.getByteCount();
+        }
+        long position = 0;
+        long sampled = 0;
+        try (OutputStream out = encoder.compressing(compressed))
+        {
+            for (int i = 0; i < WINDOWS; i++)
+            {
+                long start = i * ((length - WINDOW_SIZE) / (WINDOWS - 1));
+                position += skip(data, start - position);
+                long copied = IOUtils.copyLarge(data, out, 0, WINDOW_SIZE);
+                position += copied;
+                sampled += copied;
+            }
+        }
+        if (sampled == 0)
+        {
+            return compressed.getByteCount();
+        }
+        return (long) Math.ceil(length * ((double) compressed.getByteCount() / sampled));
+    }
+
+    private static long skip(InputStream data, long count) throws IOException
+    {
+        long remaining = count;
+        while (remaining > 0)
+        {
+            long skipped = data.skip(remaining);
+            if (skipped <= 0)
+            {
+                if (data.read() < 0)
+                {
+                    break;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+        return count - remaining;
+    }
+}
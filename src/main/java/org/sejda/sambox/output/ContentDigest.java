@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Optional;
+
+import org.sejda.io.CountingWritableByteChannel;
+import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSBase;
+import org.sejda.sambox.cos.COSBoolean;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSNull;
+import org.sejda.sambox.cos.COSNumber;
+import org.sejda.sambox.cos.COSStream;
+import org.sejda.sambox.cos.COSString;
+import org.sejda.sambox.cos.DirectCOSObject;
+import org.sejda.sambox.encryption.MessageDigests;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Calculates a digest of the content of pdf objects, used to find identical objects when writing a document. Only
+ * {@link COSStream}s and {@link COSDictionary}s whose values are all direct objects (names, numbers, strings, booleans,
+ * null or direct arrays and dictionaries of those) are considered, the content of objects referencing other indirect
+ * objects depends on the identity of those and they are not considered. The /Length of streams is not part of the
+ * digest and it can be indirect.
+ * 
+ * @author Andrea Vacondio
+ */
+final class ContentDigest
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ContentDigest.class);
+    private static final int BUFFER_SIZE = 8192;
+
+    private ContentDigest()
+    {
+        // utility
+    }
+
+    /**
+     * @param item
+     * @return the SHA-256 digest of the content of the given item or an empty {@link Optional} if the item is not
+     * suitable for deduplication or its content couldn't be read.
+     */
+    static Optional<ByteBuffer> digestOf(COSBase item)
+    {
+        COSBase object = item.getCOSObject();
+        if (object instanceof COSDictionary && hasDirectValuesOnly((COSDictionary) object))
+        {
+            try
+            {
+                return Optional.of(digest((COSDictionary) object));
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Unable to calculate the content digest of " + item, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static ByteBuffer digest(COSDictionary object) throws IOException
+    {
+        MessageDigest digest = MessageDigests.sha256();
+        COSDictionary dictionary = object;
+        if (object instanceof COSStream)
+        {
+            dictionary = new COSDictionary(object);
+            dictionary.removeItem(COSName.LENGTH);
+        }
+        try (DefaultCOSWriter writer = new DefaultCOSWriter(
+                CountingWritableByteChannel.from(new DigestChannel(digest))))
+        {
+            dictionary.accept(writer);
+        }
+        if (object instanceof COSStream)
+        {
+            try (InputStream data = ((COSStream) object).getFilteredStream())
+            {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = data.read(buffer)) != -1)
+                {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        return ByteBuffer.wrap(digest.digest());
+    }
+
+    private static boolean hasDirectValuesOnly(COSDictionary dictionary)
+    {
+        boolean stream = dictionary instanceof COSStream;
+        for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet())
+        {
+            // the /Length of parsed streams is often indirect but it's not part of the digest
+            if (!(stream && COSName.LENGTH.equals(entry.getKey())) && !isDirect(entry.getValue()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDirect(COSBase value)
+    {
+        if (value instanceof COSName || value instanceof COSNumber || value instanceof COSString
+                || value instanceof COSBoolean || value instanceof COSNull)
+        {
+            return true;
+        }
+        if (value instanceof COSArray)
+        {
+            for (COSBase item : (COSArray) value)
+            {
+                if (!isDirect(item))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (value instanceof DirectCOSObject)
+        {
+            COSBase wrapped = value.getCOSObject();
+            if (wrapped instanceof COSDictionary && !(wrapped instanceof COSStream))
+            {
+                return hasDirectValuesOnly((COSDictionary) wrapped);
+            }
+            return isDirect(wrapped);
+        }
+        return false;
+    }
+
+    /**
+     * A channel feeding a {@link MessageDigest}
+     */
+    private static class DigestChannel implements WritableByteChannel
+    {
+        private final MessageDigest digest;
+        private boolean open = true;
+
+        DigestChannel(MessageDigest digest)
+        {
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer src)
+        {
+            int count = src.remaining();
+            digest.update(src);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return open;
+        }
+
+        @Override
+        public void close()
+        {
+            open = false;
+        }
+    }
+}
@@ -17,11 +17,11 @@
 package org.sejda.sambox.output;
 
 import static java.util.Objects.isNull;
-import static org.sejda.sambox.util.CharUtils.isDigit;
-import static org.sejda.sambox.util.CharUtils.isLetter;
+import static java.util.Objects.nonNull;
 import static org.sejda.util.RequireUtils.requireNotNullArg;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Map;
@@ -29,6 +29,7 @@ import java.util.Optional;
 
 import org.sejda.io.BufferedCountingChannelWriter;
 import org.sejda.io.CountingWritableByteChannel;
+import org.sejda.io.SeekableSource;
 import org.sejda.sambox.cos.COSArray;
 import org.sejda.sambox.cos.COSBase;
 import org.sejda.sambox.cos.COSBoolean;
@@ -40,11 +41,14 @@ import org.sejda.sambox.cos.COSNull;
 import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.cos.COSString;
 import org.sejda.sambox.cos.IndirectCOSObjectReference;
+import org.sejda.sambox.util.ByteBufferSeekableSource;
 import org.sejda.util.IOUtils;
 
 /**
  * Default implementation of a {@link COSWriter} that writes COS objects to the given
- * {@link CountingWritableByteChannel} or {@link BufferedCountingChannelWriter}
+ * {@link CountingWritableByteChannel} or {@link BufferedCountingChannelWriter}. When created on a
+ * {@link CountingWritableByteChannel}, the data of unchanged streams of an existing document is copied from the
+ * original source straight to the channel, without going through the buffered writer.
  * 
  * @author Andrea Vacondio
  */
@@ -54,7 +58,6 @@ class DefaultCOSWriter implements COSWriter
     private static final byte[] CRLF = { '\r', '\n' };
     private static final byte SOLIDUS = 0x2F;
     private static final byte REVERSE_SOLIDUS = 0x5C;
-    private static final byte NUMBER_SIGN = 0x23;
     private static final byte LESS_THEN = 0x3C;
     private static final byte GREATER_THEN = 0x3E;
     private static final byte LEFT_PARENTHESIS = 0x28;
@@ -63,12 +66,25 @@ class DefaultCOSWriter implements COSWriter
     private static final byte RIGHT_SQUARE_BRACKET = 0x5D;
     private static final byte[] STREAM = "stream".getBytes(StandardCharsets.US_ASCII);
     private static final byte[] ENDSTREAM = "endstream".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REFERENCE = " R".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE)
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
     private BufferedCountingChannelWriter writer;
+    private CountingWritableByteChannel channel;
+    private ByteBuffer transferBuffer;
 
     public DefaultCOSWriter(CountingWritableByteChannel channel)
     {
         requireNotNullArg(channel, "Cannot write to a null channel");
         this.writer = new BufferedCountingChannelWriter(channel);
+        this.channel = channel;
     }
 
     public DefaultCOSWriter(BufferedCountingChannelWriter writer)
@@ -97,7 +113,7 @@ class DefaultCOSWriter implements COSWriter
     @Override
     public void visit(COSBoolean value) throws IOException
     {
-        writer.write(value.toString());
+        writer.write(value.getValue() ? TRUE : FALSE);
     }
 
     @Override
@@ -131,33 +147,19 @@ class DefaultCOSWriter implements COSWriter
     @Override
     public void visit(COSInteger value) throws IOException
     {
-        writer.write(value.toString());
+        writeNumber(writer, value.longValue());
     }
 
     @Override
     public void visit(COSName value) throws IOException
     {
-        writer.write(SOLIDUS);
-        byte[] bytes = value.getName().getBytes(StandardCharsets.US_ASCII);
-        for (int i = 0; i < bytes.length; i++)
-        {
-            int current = bytes[i] & 0xFF;
-            if (isLetter(current) || isDigit(current))
-            {
-                writer.write(bytes[i]);
-            }
-            else
-            {
-                writer.write(NUMBER_SIGN);
-                writer.write(String.format("%02X", current).getBytes(StandardCharsets.US_ASCII));
-            }
-        }
+        writer.write(value.getWrittenBytes());
     }
 
     @Override
     public void visit(COSNull value) throws IOException
     {
-        writer.write("null".getBytes(StandardCharsets.US_ASCII));
+        writer.write(NULL);
     }
 
     @Override
@@ -174,7 +176,10 @@ class DefaultCOSWriter implements COSWriter
             writer.write(STREAM);
             writer.write(CRLF);
             long streamStartingPosition = writer.offset();
-            writer.write(value.getFilteredStream());
+            if (!writeUnchanged(value))
+            {
+                writer.write(value.getFilteredStream());
+            }
             if (length instanceof IndirectCOSObjectReference)
             {
                 ((IndirectCOSObjectReference) length)
@@ -186,7 +191,78 @@ class DefaultCOSWriter implements COSWriter
         }
         finally
         {
-            IOUtils.closeQuietly(value);
+            release(value);
+        }
+    }
+
+    /**
+     * Releases the given stream once it has been written
+     * 
+     * @param value
+     */
+    void release(COSStream value)
+    {
+        IOUtils.closeQuietly(value);
+    }
+
+    /**
+     * Copies the data of the given stream straight from its original source to the channel, if possible.
+     * 
+     * @param value
+     * @return true if the data has been copied
+     * @throws IOException
+     */
+    private boolean writeUnchanged(COSStream value) throws IOException
+    {
+        if (nonNull(channel))
+        {
+            Optional<SeekableSource> source = unchangedFilteredSource(value);
+            if (source.isPresent())
+            {
+                writer.flush();
+                transfer(source.get());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param value
+     * @return the unchanged filtered data of the given stream, see {@link COSStream#getUnchangedFilteredSource()}
+     * @throws IOException
+     */
+    Optional<SeekableSource> unchangedFilteredSource(COSStream value) throws IOException
+    {
+        return value.getUnchangedFilteredSource();
+    }
+
+    private void transfer(SeekableSource source) throws IOException
+    {
+        if (source instanceof ByteBufferSeekableSource)
+        {
+            // possibly a mapped region of the original file, no copy to user space buffers
+            writeFully(((ByteBufferSeekableSource) source).asByteBuffer());
+            return;
+        }
+        if (isNull(transferBuffer))
+        {
+            transferBuffer = ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE);
+        }
+        transferBuffer.clear();
+        while (source.read(transferBuffer) != -1)
+        {
+            transferBuffer.flip();
+            writeFully(transferBuffer);
+            transferBuffer.clear();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
         }
     }
 
@@ -196,7 +272,11 @@ class DefaultCOSWriter implements COSWriter
         if (value.isForceHexForm())
         {
             writer.write(LESS_THEN);
-            writer.write(value.toHexString());
+            for (byte b : value.getBytes())
+            {
+                writer.write(HEX_DIGITS[(b >> 4) & 0x0F]);
+                writer.write(HEX_DIGITS[b & 0x0F]);
+            }
             writer.write(GREATER_THEN);
         }
         else
@@ -222,7 +302,43 @@ class DefaultCOSWriter implements COSWriter
     @Override
     public void visit(IndirectCOSObjectReference value) throws IOException
     {
-        writer.write(value.toString());
+        writeNumber(writer, value.xrefEntry().getObjectNumber());
+        writer.write(SPACE);
+        writeNumber(writer, value.xrefEntry().getGenerationNumber());
+        writer.write(REFERENCE);
+    }
+
+    /**
+     * Writes the decimal representation of the given number as ASCII digits, without creating intermediate Strings or
+     * arrays.
+     * 
+     * @param writer
+     * @param number
+     * @throws IOException
+     */
+    static void writeNumber(BufferedCountingChannelWriter writer, long number) throws IOException
+    {
+        if (number == Long.MIN_VALUE)
+        {
+            writer.write(LONG_MIN_VALUE);
+            return;
+        }
+        long value = number;
+        if (value < 0)
+        {
+            writer.write((byte) '-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10)
+        {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10)
+        {
+            writer.write((byte) ('0' + (value / divisor)));
+            value %= divisor;
+        }
     }
 
     /**
@@ -21,11 +21,14 @@ import static org.sejda.util.RequireUtils.requireNotNullArg;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Optional;
 
 import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.IncrementalSource;
 import org.sejda.sambox.cos.IndirectCOSObjectReference;
 import org.sejda.sambox.xref.XrefEntry;
 import org.sejda.util.IOUtils;
@@ -62,6 +65,23 @@ class DefaultPDFWriter implements Closeable
         writer().writeEOL();
     }
 
+    /**
+     * Copies the original document the incremental update is written for
+     * 
+     * @param source
+     * @throws IOException
+     */
+    public void writeOriginal(IncrementalSource source) throws IOException
+    {
+        LOG.debug("Copying {} bytes of the original document", source.source().size());
+        try (InputStream original = source.source().view(0, source.source().size())
+                .asInputStream())
+        {
+            writer().write(original);
+        }
+        writer().writeEOL();
+    }
+
     /**
      * writes the xref table
      * 
@@ -80,11 +100,38 @@ class DefaultPDFWriter implements Closeable
         writer().writeEOL();
         writer().write("0 " + writer.context().written());
         writer().writeEOL();
+        byte[] row = new byte[XrefEntry.XREF_TABLE_ENTRY_LENGTH];
         for (long key = 0; key <= writer.context().highestWritten().getObjectNumber(); key++)
         {
-            writer().write(
-                    Optional.ofNullable(writer.context().getWritten(key))
-                            .orElse(XrefEntry.DEFAULT_FREE_ENTRY).toXrefTableEntry());
+            Optional.ofNullable(writer.context().getWritten(key))
+                    .orElse(XrefEntry.DEFAULT_FREE_ENTRY).toXrefTableEntry(row);
+            writer().write(row);
+        }
+        return startxref;
+    }
+
+    /**
+     * writes the xref table of an incremental update, containing only the subsections of the written objects
+     * 
+     * @return the startxref value
+     * @throws IOException
+     */
+    public long writeIncrementalXrefTable() throws IOException
+    {
+        long startxref = writer().offset();
+        LOG.debug("Writing incremental update xref table at offset " + startxref);
+        writer().write("xref");
+        writer().writeEOL();
+        byte[] row = new byte[XrefEntry.XREF_TABLE_ENTRY_LENGTH];
+        for (List<XrefEntry> subsection : writer.context().writtenSubsections())
+        {
+            writer().write(subsection.get(0).getObjectNumber() + " " + subsection.size());
+            writer().writeEOL();
+            for (XrefEntry entry : subsection)
+            {
+                entry.toXrefTableEntry(row);
+                writer().write(row);
+            }
         }
         return startxref;
     }
@@ -93,13 +140,35 @@ class DefaultPDFWriter implements Closeable
     {
         LOG.trace("Writing trailer");
         trailer.removeItem(COSName.PREV);
+        trailer.setLong(COSName.SIZE, writer.context().highestWritten().getObjectNumber() + 1);
+        doWriteTrailer(trailer, startxref);
+    }
+
+    /**
+     * Writes the trailer of an incremental update, pointing to the latest xref section of the original document
+     * 
+     * @param trailer
+     * @param startxref
+     * @param source
+     * @throws IOException
+     */
+    public void writeIncrementalTrailer(COSDictionary trailer, long startxref,
+            IncrementalSource source) throws IOException
+    {
+        LOG.trace("Writing incremental update trailer");
+        trailer.setLong(COSName.PREV, source.startxref());
+        trailer.setLong(COSName.SIZE, nextObjectNumber(source));
+        doWriteTrailer(trailer, startxref);
+    }
+
+    private void doWriteTrailer(COSDictionary trailer, long startxref) throws IOException
+    {
         trailer.removeItem(COSName.XREF_STM);
         trailer.removeItem(COSName.DOC_CHECKSUM);
         trailer.removeItem(COSName.DECODE_PARMS);
         trailer.removeItem(COSName.F_DECODE_PARMS);
         trailer.removeItem(COSName.F_FILTER);
         trailer.removeItem(COSName.F);
-        trailer.setLong(COSName.SIZE, writer.context().highestWritten().getObjectNumber() + 1);
         writer.write("trailer".getBytes(StandardCharsets.US_ASCII));
         writer.writeEOL();
         trailer.getCOSObject().accept(writer.writer());
@@ -118,6 +187,33 @@ class DefaultPDFWriter implements Closeable
         writeXrefFooter(startxref);
     }
 
+    /**
+     * Writes the xref stream of an incremental update, containing only the subsections of the written objects and
+     * pointing to the latest xref section of the original document
+     * 
+     * @param trailer
+     * @param source
+     * @throws IOException
+     */
+    public void writeIncrementalXrefStream(COSDictionary trailer, IncrementalSource source)
+            throws IOException
+    {
+        long startxref = writer().offset();
+        LOG.debug("Writing incremental update xref stream at offset " + startxref);
+        XrefEntry entry = XrefEntry.inUseEntry(nextObjectNumber(source), startxref, 0);
+        writer.context().putWritten(entry);
+        writer.writeObject(new IndirectCOSObjectReference(entry.getObjectNumber(),
+                entry.getGenerationNumber(), new XrefStream(trailer, writer.context(), source)));
+        writeXrefFooter(startxref);
+    }
+
+    private long nextObjectNumber(IncrementalSource source)
+    {
+        return Optional.ofNullable(writer.context().highestWritten())
+                .map(XrefEntry::getObjectNumber).filter(n -> n > source.highestObjectNumber())
+                .orElse(source.highestObjectNumber()) + 1;
+    }
+
     private void writeXrefFooter(long startxref) throws IOException
     {
         writer.write("startxref".getBytes(StandardCharsets.US_ASCII));
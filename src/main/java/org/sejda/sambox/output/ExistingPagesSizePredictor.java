@@ -16,18 +16,34 @@
  */
 package org.sejda.sambox.output;
 
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import org.sejda.io.CountingWritableByteChannel;
 import org.sejda.io.DevNullWritableByteChannel;
+import org.sejda.io.FastByteArrayOutputStream;
+import org.sejda.sambox.SAMBox;
 import org.sejda.sambox.cos.COSArray;
 import org.sejda.sambox.cos.COSBase;
 import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSInteger;
 import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSNull;
 import org.sejda.sambox.cos.COSObjectable;
 import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.cos.IndirectCOSObjectReference;
+import org.sejda.sambox.cos.NonStorableInObjectStreams;
+import org.sejda.sambox.filter.FlateEncoder;
 import org.sejda.sambox.pdmodel.PDPage;
+import org.sejda.sambox.xref.CompressedXrefEntry;
+import org.sejda.sambox.xref.XrefEntry;
 import org.sejda.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +52,12 @@ import org.slf4j.LoggerFactory;
  * Component that tries to predict the size of a resulting document if {@link PDPage}s and {@link COSObjectable}s are
  * added to it. The component does its best to return exact predicted values and it does that by simulating an actual
  * write, despite that, the predicted values should be considered rough estimations and not a byte precision ones.
+ * <p>
+ * The simulation honors the {@link WriteOption}s: objects are packed in objects streams and the xref is predicted as a
+ * stream when requested. Streams data is never written, its length is taken from the existing stream or, when the
+ * stream is going to be compressed, it's estimated compressing a sample of it. Added pages and streams are not
+ * modified.
+ * </p>
  * 
  * @author Andrea Vacondio
  */
@@ -43,19 +65,34 @@ public class ExistingPagesSizePredictor extends AbstractPDFBodyWriter
 {
     private static final Logger LOG = LoggerFactory.getLogger(ExistingPagesSizePredictor.class);
 
-    // stream, endstream and 2x CRLF
-    private static final int STREAM_WRAPPING_SIZE = 19;
+    // stream, endstream, 2x CRLF and the separator
+    private static final int STREAM_WRAPPING_SIZE = 20;
+    // xref keyword and subsection header, excluding the entries count
+    private static final int XREF_TABLE_HEADER_SIZE = 8;
+    // an objects stream dictionary, its wrapping and its length object, excluding the stream data
+    private static final int OBJECTS_STREAM_OVERHEAD = 120;
+    // an xref stream dictionary and its wrapping, excluding the stream data and the trailer values
+    private static final int XREF_STREAM_OVERHEAD = 110;
+    // number of xref stream entries compressed to estimate the xref stream compression ratio
+    private static final int XREF_STREAM_SAMPLE_ENTRIES = 4096;
+    private static final byte[] DICTIONARY_START = "<<".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DICTIONARY_END = ">>".getBytes(StandardCharsets.US_ASCII);
 
     private IndirectObjectsWriter writer;
     private CountingWritableByteChannel channel = CountingWritableByteChannel
             .from(new DevNullWritableByteChannel());
+    private CompressedSizeEstimator estimator;
+    private PredictedObjectsStream objectsStream;
     private long streamsSize;
     private long pages;
+    private long xrefSampledEntries;
+    private double xrefCompressionRatio;
 
     public ExistingPagesSizePredictor(WriteOption... opts)
     {
         super(new PDFWriteContext(null, opts));
-        this.writer = new IndirectObjectsWriter(channel, context())
+        this.writer = new IndirectObjectsWriter(new PredictingCOSWriter(channel, context()),
+                context())
         {
             @Override
             protected void onWritten(IndirectCOSObjectReference ref)
@@ -63,11 +100,19 @@ public class ExistingPagesSizePredictor extends AbstractPDFBodyWriter
                 // don't release
             }
         };
+        this.estimator = new CompressedSizeEstimator(
+                context().flateEncoder().orElseGet(FlateEncoder::defaultEncoder));
+        if (context().hasWriteOption(WriteOption.OBJECT_STREAMS))
+        {
+            this.objectsStream = new PredictedObjectsStream();
+        }
     }
 
     /**
      * Adds a {@link PDPage} to the predicted size. This component simulates the page write to a
-     * {@link DevNullWritableByteChannel} and does not release the page objects once written.
+     * {@link DevNullWritableByteChannel} and does not release the page objects once written. The page is not copied,
+     * unless it has been already added, and its parent is written as a reference to an object that is not part of the
+     * predicted size.
      * 
      * @param page
      * @throws IOException
@@ -77,12 +122,19 @@ public class ExistingPagesSizePredictor extends AbstractPDFBodyWriter
         if (page != null)
         {
             pages++;
-            COSDictionary pageCopy = page.getCOSObject().duplicate();
-            pageCopy.removeItem(COSName.PARENT);
-            createIndirectReferenceIfNeededFor(pageCopy);
+            COSDictionary pageDictionary = page.getCOSObject();
+            if (context().hasIndirectReferenceFor(pageDictionary))
+            {
+                // the same page added twice results in two pages
+                pageDictionary = pageDictionary.duplicate();
+            }
+            createIndirectReferenceIfNeededFor(pageDictionary);
             startWriting();
-            LOG.debug("Page {} addition simulated, now at {} body bytes and {} xref bytes", page,
-                    predictedPagesSize(), predictedXrefTableSize());
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Page {} addition simulated, now at {} body bytes and {} xref bytes",
+                        page, predictedPagesSize(), predictedXrefTableSize());
+            }
         }
     }
 
@@ -100,8 +152,11 @@ public class ExistingPagesSizePredictor extends AbstractPDFBodyWriter
         {
             createIndirectReferenceIfNeededFor(value.getCOSObject());
             startWriting();
-            LOG.debug("{} addition simulated, now at {} body bytes and {} xref bytes",
-                    value.getCOSObject(), predictedPagesSize(), predictedXrefTableSize());
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("{} addition simulated, now at {} body bytes and {} xref bytes",
+                        value.getCOSObject(), predictedPagesSize(), predictedXrefTableSize());
+            }
         }
     }
 
@@ -112,17 +167,96 @@ public class ExistingPagesSizePredictor extends AbstractPDFBodyWriter
     public long predictedPagesSize() throws IOException
     {
         writer.writer().writer().flush();
-        return streamsSize + channel.count();
+        long size = streamsSize + channel.count();
+        if (nonNull(objectsStream))
+        {
+            size += objectsStream.predictedPendingSize();
+        }
+        return size;
     }
 
     /**
-     * @return the current predicted xref size
+     * @return the current predicted xref size. When an xref stream is going to be written, this is the predicted size
+     * of the compressed stream.
      * @throws IOException
      */
-    public long predictedXrefTableSize()
+    public long predictedXrefTableSize() throws IOException
+    {
+        // written entries, pending objects stream and its length, the free entry
+        long entries = context().written() + 1;
+        if (nonNull(objectsStream) && objectsStream.hasItems())
+        {
+            entries += 2;
+        }
+        if (context().hasWriteOption(WriteOption.XREF_STREAM)
+                || context().hasWriteOption(WriteOption.OBJECT_STREAMS))
+        {
+            return XREF_STREAM_OVERHEAD + predictedXrefStreamEntriesSize(entries);
+        }
+        return XREF_TABLE_HEADER_SIZE + Long.toString(entries).length()
+                + (XrefEntry.XREF_TABLE_ENTRY_LENGTH * entries);
+    }
+
+    private long predictedXrefStreamEntriesSize(long entries) throws IOException
     {
-        // each entry is 21 bytes plus the xref keyword and section header
-        return (21 * (context().written() + 1)) + 10;
+        int entryLength = 1 + XrefStream.sizeOf(predictedPagesSize()) + 2;
+        if (xrefSampledEntries < XREF_STREAM_SAMPLE_ENTRIES
+                && xrefSampledEntries != context().written())
+        {
+            sampleXrefCompressionRatio(entryLength);
+        }
+        return (long) Math.ceil(entries * entryLength * xrefCompressionRatio);
+    }
+
+    /**
+     * Compresses up to {@link #XREF_STREAM_SAMPLE_ENTRIES} of the written entries to estimate the xref stream
+     * compression ratio
+     */
+    private void sampleXrefCompressionRatio(int entryLength) throws IOException
+    {
+        FastByteArrayOutputStream entries = new FastByteArrayOutputStream();
+        byte[] entry = new byte[entryLength];
+        long lowest = context().lowestWritten().getObjectNumber();
+        long highest = Math.min(context().highestWritten().getObjectNumber(),
+                lowest + XREF_STREAM_SAMPLE_ENTRIES);
+        for (long key = lowest; key <= highest; key++)
+        {
+            ofNullable(context().getWritten(key)).orElse(XrefEntry.freeEntry(key, 0))
+                    .toXrefStreamEntry(entryLength - 3, 2, entry);
+            entries.write(entry);
+        }
+        try (InputStream data = entries.getInputStream())
+        {
+            xrefCompressionRatio = (double) estimator.estimate(data, entries.size())
+                    / entries.size();
+        }
+        xrefSampledEntries = context().written();
+    }
+
+    @Override
+    public void visit(COSDictionary value) throws IOException
+    {
+        if (COSName.PAGE.equals(value.getCOSName(COSName.TYPE)))
+        {
+            // we don't want to write the pages tree, the parent is written as a reference to an object that is never
+            // written
+            ofNullable(value.getItem(COSName.PARENT)).filter(p -> !context().hasIndirectReferenceFor(p))
+                    .ifPresent(context()::getOrCreateIndirectReferenceFor);
+        }
+        super.visit(value);
+    }
+
+    @Override
+    public void visit(COSStream value) throws IOException
+    {
+        // we don't modify the stream, the length is written by the writer
+        for (COSName key : value.keySet())
+        {
+            if (!COSName.LENGTH.equals(key))
+            {
+                visitDictionaryItem(key, value.getItem(key));
+            }
+        }
     }
 
     @Override
@@ -130,18 +264,16 @@ public class ExistingPagesSizePredictor extends AbstractPDFBodyWriter
     {
         if (!context().hasWritten(ref.xrefEntry()))
         {
-            COSBase wrapped = ref.getCOSObject().getCOSObject();
-            if (wrapped instanceof COSStream)
+            if (nonNull(objectsStream) && !(ref instanceof NonStorableInObjectStreams)
+                    && !(ref.getCOSObject().getCOSObject() instanceof COSStream))
+            {
+                objectsStream.addItem(ref);
+            }
+            else
             {
-                COSStream stream = (COSStream) wrapped;
-                // we don't simulate the write of the whole stream, we just save the expected size and simulate the
-                // dictionary write
-                streamsSize += stream.getFilteredLength();
-                streamsSize += STREAM_WRAPPING_SIZE;
-                ref.setValue(stream.duplicate());
+                writer.writeObject(ref);
             }
         }
-        writer.writeObject(ref);
     }
 
     @Override
@@ -172,4 +304,198 @@ public class ExistingPagesSizePredictor extends AbstractPDFBodyWriter
         super.close();
         IOUtils.close(writer);
     }
+
+    /**
+     * {@link COSWriter} that doesn't write streams data, the stream dictionary is written as it would be by the actual
+     * writer and the predicted data length is added to the streams size.
+     */
+    private class PredictingCOSWriter extends IndirectReferencesAwareCOSWriter
+    {
+        PredictingCOSWriter(CountingWritableByteChannel channel, PDFWriteContext context)
+        {
+            super(channel, context);
+        }
+
+        @Override
+        public void visit(COSStream value) throws IOException
+        {
+            boolean compress = context.hasWriteOption(WriteOption.COMPRESS_STREAMS)
+                    && value.canCompress();
+            long length = value.getFilteredLength();
+            if (compress)
+            {
+                try (InputStream data = value.getFilteredStream())
+                {
+                    length = estimator.estimate(data, length);
+                }
+            }
+            writer().write(DICTIONARY_START);
+            writeDictionaryItemsSeparator();
+            for (Map.Entry<COSName, COSBase> entry : value.entrySet())
+            {
+                if (nonNull(entry.getValue()) && !COSName.LENGTH.equals(entry.getKey())
+                        && !(compress && COSName.FILTER.equals(entry.getKey())))
+                {
+                    writeEntry(entry.getKey(), entry.getValue());
+                }
+            }
+            if (compress)
+            {
+                writeEntry(COSName.FILTER, compressedFilters(value));
+            }
+            writeEntry(COSName.LENGTH, COSInteger.get(length));
+            writer().write(DICTIONARY_END);
+            writeComplexObjectSeparator();
+            streamsSize += length + STREAM_WRAPPING_SIZE;
+        }
+
+        private void writeEntry(COSName key, COSBase value) throws IOException
+        {
+            key.accept(this);
+            writer().write(SPACE);
+            writeValue(value);
+            writeDictionaryItemsSeparator();
+        }
+
+        /**
+         * @return the filters the stream is going to have once compression is added, see
+         * {@link COSStream#addCompression()}
+         */
+        private COSBase compressedFilters(COSStream value)
+        {
+            COSBase filters = value.getFilters();
+            if (filters instanceof COSName)
+            {
+                return new COSArray(COSName.FLATE_DECODE, filters);
+            }
+            if (filters instanceof COSArray)
+            {
+                COSArray compressed = new COSArray(COSName.FLATE_DECODE);
+                compressed.addAll((COSArray) filters);
+                return compressed;
+            }
+            return COSName.FLATE_DECODE;
+        }
+    }
+
+    /**
+     * Packs objects the way {@link ObjectsStreamPDFBodyWriter} does. Once full, the objects stream data is compressed
+     * to get its size and the stream is written as a dictionary.
+     */
+    private class PredictedObjectsStream
+    {
+        private FastByteArrayOutputStream header;
+        private FastByteArrayOutputStream data;
+        private DefaultCOSWriter dataWriter;
+        private IndirectCOSObjectReference streamRef;
+        private int counter;
+        private long pendingSize;
+
+        PredictedObjectsStream()
+        {
+            reset();
+        }
+
+        private void reset()
+        {
+            header = new FastByteArrayOutputStream();
+            data = new FastByteArrayOutputStream();
+            dataWriter = new IndirectReferencesAwareCOSWriter(CountingWritableByteChannel.from(data),
+                    context())
+            {
+                @Override
+                public void writeComplexObjectSeparator()
+                {
+                    // nothing
+                }
+
+                @Override
+                public void writeDictionaryItemsSeparator()
+                {
+                    // nothing
+                }
+            };
+            counter = 0;
+            streamRef = null;
+            pendingSize = -1;
+        }
+
+        boolean hasItems()
+        {
+            return counter > 0;
+        }
+
+        void addItem(IndirectCOSObjectReference ref) throws IOException
+        {
+            if (isNull(streamRef))
+            {
+                streamRef = context().createNonStorableInObjectStreamIndirectReferenceFor(
+                        new COSDictionary());
+            }
+            context().putWritten(
+                    CompressedXrefEntry.compressedEntry(ref.xrefEntry().getObjectNumber(),
+                            streamRef.xrefEntry().getObjectNumber(), counter));
+            counter++;
+            header.write(Long.toUnsignedString(ref.xrefEntry().getObjectNumber())
+                    .getBytes(StandardCharsets.US_ASCII));
+            header.write(DefaultCOSWriter.SPACE);
+            header.write(Long.toUnsignedString(dataWriter.writer().offset())
+                    .getBytes(StandardCharsets.US_ASCII));
+            header.write(DefaultCOSWriter.SPACE);
+            ref.getCOSObject().accept(dataWriter);
+            dataWriter.writer().write(DefaultCOSWriter.SPACE);
+            pendingSize = -1;
+            if (counter >= Integer.getInteger(SAMBox.OBJECTS_STREAM_SIZE_PROPERTY, 100))
+            {
+                write();
+            }
+        }
+
+        private long compressedLength() throws IOException
+        {
+            dataWriter.writer().flush();
+            try (InputStream content = new SequenceInputStream(header.getInputStream(),
+                    data.getInputStream()))
+            {
+                return estimator.estimate(content, header.size() + data.size());
+            }
+        }
+
+        /**
+         * @return the predicted size of the objects stream currently being filled
+         * @throws IOException
+         */
+        long predictedPendingSize() throws IOException
+        {
+            if (!hasItems())
+            {
+                return 0;
+            }
+            if (pendingSize < 0)
+            {
+                pendingSize = OBJECTS_STREAM_OVERHEAD + compressedLength();
+            }
+            return pendingSize;
+        }
+
+        private void write() throws IOException
+        {
+            long length = compressedLength();
+            COSDictionary dictionary = new COSDictionary();
+            dictionary.setName(COSName.TYPE, COSName.OBJ_STM.getName());
+            dictionary.setInt(COSName.N, counter);
+            dictionary.setInt(COSName.FIRST, header.size());
+            dictionary.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+            IndirectCOSObjectReference lengthRef = context()
+                    .createNonStorableInObjectStreamIndirectReferenceFor(COSNull.NULL);
+            dictionary.setItem(COSName.LENGTH, lengthRef);
+            streamRef.setValue(dictionary);
+            writer.writeObject(streamRef);
+            lengthRef.setValue(COSInteger.get(length));
+            writer.writeObject(lengthRef);
+            streamsSize += length + STREAM_WRAPPING_SIZE;
+            IOUtils.close(dataWriter);
+            reset();
+        }
+    }
 }
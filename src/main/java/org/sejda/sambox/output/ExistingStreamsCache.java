@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static org.sejda.util.RequireUtils.requireArg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.sejda.io.SeekableSource;
+import org.sejda.sambox.SAMBox;
+import org.sejda.sambox.cos.COSStream;
+import org.sejda.sambox.cos.IndirectCOSObjectIdentifier;
+import org.sejda.sambox.util.ByteBufferSeekableSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A memory bounded cache of the filtered data of unchanged streams of existing documents. It can be shared by the
+ * writes of multiple documents created from the same source (Ex. when splitting a document) so that the data of shared
+ * resources like fonts and images is read from the source only once. The least recently used data is dropped once the
+ * budget ({@link SAMBox#EXISTING_STREAMS_CACHE_MEMORY_BUDGET_PROPERTY}) is exceeded.
+ *
+ * @author Andrea Vacondio
+ */
+public class ExistingStreamsCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ExistingStreamsCache.class);
+
+    private final long budget;
+    private long size;
+    private final LinkedHashMap<IndirectCOSObjectIdentifier, byte[]> cache = new LinkedHashMap<>(16,
+            0.75f, true);
+
+    public ExistingStreamsCache()
+    {
+        this(Long.getLong(SAMBox.EXISTING_STREAMS_CACHE_MEMORY_BUDGET_PROPERTY, 1 << 25));
+    }
+
+    /**
+     * @param budget the size in bytes the cached streams data is allowed to occupy
+     */
+    public ExistingStreamsCache(long budget)
+    {
+        requireArg(budget >= 0, "Memory budget cannot be a negative number");
+        this.budget = budget;
+    }
+
+    /**
+     * @param stream
+     * @return the unchanged filtered data of the given stream as found in the original document, see
+     * {@link COSStream#getUnchangedFilteredSource()}. If the stream has been read already the data is served from
+     * memory.
+     * @throws IOException
+     */
+    Optional<SeekableSource> getUnchangedFilteredSource(COSStream stream) throws IOException
+    {
+        Optional<SeekableSource> source = stream.getUnchangedFilteredSource();
+        if (!source.isPresent() || !stream.hasId())
+        {
+            return source;
+        }
+        IndirectCOSObjectIdentifier id = stream.id();
+        byte[] data = get(id);
+        if (data == null)
+        {
+            if (source.get().size() > budget)
+            {
+                return source;
+            }
+            data = readFully(source.get());
+            put(id, data);
+        }
+        else
+        {
+            LOG.trace("Stream data for {} served from cache", id);
+        }
+        return Optional.of(new ByteBufferSeekableSource(id.toString(), ByteBuffer.wrap(data)));
+    }
+
+    private static byte[] readFully(SeekableSource source) throws IOException
+    {
+        ByteBuffer data = ByteBuffer.allocate((int) source.size());
+        while (data.hasRemaining() && source.read(data) != -1)
+        {
+            // keep reading
+        }
+        return data.array();
+    }
+
+    private synchronized byte[] get(IndirectCOSObjectIdentifier id)
+    {
+        return cache.get(id);
+    }
+
+    private synchronized void put(IndirectCOSObjectIdentifier id, byte[] data)
+    {
+        byte[] previous = cache.put(id, data);
+        if (previous != null)
+        {
+            size -= previous.length;
+        }
+        size += data.length;
+        Iterator<Map.Entry<IndirectCOSObjectIdentifier, byte[]>> eldest = cache.entrySet()
+                .iterator();
+        while (size > budget && eldest.hasNext())
+        {
+            Map.Entry<IndirectCOSObjectIdentifier, byte[]> current = eldest.next();
+            eldest.remove();
+            size -= current.getValue().length;
+            LOG.trace("Dropped stream data for {}", current.getKey());
+        }
+    }
+
+    public synchronized void clear()
+    {
+        cache.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the size of the currently cached data
+     */
+    public synchronized long size()
+    {
+        return size;
+    }
+}
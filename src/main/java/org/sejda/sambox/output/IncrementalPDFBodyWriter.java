@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static java.util.Optional.ofNullable;
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+
+import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSBase;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSDocument;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.DirtyFlags;
+import org.sejda.sambox.cos.IncrementalSource;
+import org.sejda.sambox.cos.IndirectCOSObjectReference;
+import org.sejda.sambox.input.ExistingIndirectCOSObject;
+import org.sejda.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AbstractPDFBodyWriter} writing the body of an incremental update using the wrapped
+ * {@link AbstractPDFBodyWriter}. Indirect objects of the original document keep their object number and generation and
+ * they are written only if they, or any of their direct values, have been modified. Objects of the original document
+ * that have not been loaded cannot have been modified and they are not visited. New objects are written with object
+ * numbers following the ones of the original document.
+ * 
+ * @author Andrea Vacondio
+ */
+class IncrementalPDFBodyWriter extends AbstractPDFBodyWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(IncrementalPDFBodyWriter.class);
+
+    private AbstractPDFBodyWriter wrapped;
+    private IncrementalSource source;
+    private Deque<COSBase> toExplore = new ArrayDeque<>();
+    private boolean exploring;
+
+    public IncrementalPDFBodyWriter(AbstractPDFBodyWriter wrapped, IncrementalSource source)
+    {
+        super(ofNullable(wrapped).map(AbstractPDFBodyWriter::context)
+                .orElseThrow(() -> new IllegalArgumentException("Wrapped writer cannot be null")));
+        requireNotNullArg(source, "Incremental source cannot be null");
+        this.wrapped = wrapped;
+        this.source = source;
+    }
+
+    @Override
+    public void visit(COSDocument document) throws IOException
+    {
+        for (COSName k : new COSName[] { COSName.ROOT, COSName.INFO })
+        {
+            COSBase item = document.getTrailer().getItem(k);
+            if (source.owns(item))
+            {
+                createIndirectReferenceIfNeededFor(item);
+            }
+            else if (COSName.ROOT.equals(k))
+            {
+                addToWrite(context().createNonStorableInObjectStreamIndirectReferenceFor(item));
+            }
+            else if (item != null)
+            {
+                super.createIndirectReferenceIfNeededFor(item);
+            }
+        }
+        startWriting();
+    }
+
+    @Override
+    void createIndirectReferenceIfNeededFor(COSBase item)
+    {
+        if (source.owns(item))
+        {
+            if (!context().hasIndirectReferenceFor(item))
+            {
+                onExisting(item);
+            }
+        }
+        else
+        {
+            super.createIndirectReferenceIfNeededFor(item);
+        }
+        if (!exploring)
+        {
+            exploring = true;
+            try
+            {
+                COSBase current;
+                while ((current = toExplore.poll()) != null)
+                {
+                    explore(current);
+                }
+            }
+            finally
+            {
+                exploring = false;
+            }
+        }
+    }
+
+    private void onExisting(COSBase item)
+    {
+        IndirectCOSObjectReference ref = context().createExistingIndirectReferenceFor(item);
+        loaded(item).ifPresent(object -> {
+            if (DirtyFlags.isDirty(object))
+            {
+                LOG.trace("Existing object {} has been modified", ref);
+                addToWrite(ref);
+            }
+            else
+            {
+                toExplore.add(object);
+            }
+        });
+    }
+
+    private static Optional<COSBase> loaded(COSBase item)
+    {
+        if (item instanceof ExistingIndirectCOSObject)
+        {
+            return ((ExistingIndirectCOSObject) item).getCOSObjectIfLoaded();
+        }
+        return Optional.of(item);
+    }
+
+    /**
+     * Looks for indirect objects of the original document in the direct values of the given unchanged object, they
+     * might have been modified.
+     */
+    private void explore(COSBase object)
+    {
+        Iterable<COSBase> values = null;
+        if (object instanceof COSDictionary)
+        {
+            values = ((COSDictionary) object).getValues();
+        }
+        else if (object instanceof COSArray)
+        {
+            values = (COSArray) object;
+        }
+        if (values != null)
+        {
+            for (COSBase value : values)
+            {
+                if (source.owns(value))
+                {
+                    createIndirectReferenceIfNeededFor(value);
+                }
+                else if (value instanceof COSDictionary || value instanceof COSArray)
+                {
+                    toExplore.add(value);
+                }
+            }
+        }
+    }
+
+    @Override
+    void writeObject(IndirectCOSObjectReference ref) throws IOException
+    {
+        wrapped.writeObject(ref);
+    }
+
+    @Override
+    void onCompletion() throws IOException
+    {
+        wrapped.onCompletion();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        IOUtils.close(wrapped);
+        super.close();
+        toExplore.clear();
+    }
+}
@@ -17,10 +17,12 @@
 package org.sejda.sambox.output;
 
 import static org.sejda.sambox.output.DefaultCOSWriter.SPACE;
+import static org.sejda.sambox.output.DefaultCOSWriter.writeNumber;
 import static org.sejda.util.RequireUtils.requireNotNullArg;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
 import org.sejda.io.BufferedCountingChannelWriter;
@@ -47,7 +49,11 @@ class IndirectObjectsWriter implements Closeable
 
     IndirectObjectsWriter(CountingWritableByteChannel channel, PDFWriteContext context)
     {
-        this(new BufferedCountingChannelWriter(channel), context);
+        requireNotNullArg(channel, "Channel cannot be null");
+        requireNotNullArg(context, "Write context cannot be null");
+        // created on the channel so that unchanged existing streams can be copied straight to it
+        this.writer = new EncryptingIndirectReferencesAwareCOSWriter(channel, context);
+        this.context = context;
     }
 
     IndirectObjectsWriter(BufferedCountingChannelWriter writer, PDFWriteContext context)
@@ -58,6 +64,14 @@ class IndirectObjectsWriter implements Closeable
         this.context = context;
     }
 
+    IndirectObjectsWriter(COSWriter writer, PDFWriteContext context)
+    {
+        requireNotNullArg(writer, "Writer cannot be null");
+        requireNotNullArg(context, "Write context cannot be null");
+        this.writer = writer;
+        this.context = context;
+    }
+
     PDFWriteContext context()
     {
         return context;
@@ -92,6 +106,23 @@ class IndirectObjectsWriter implements Closeable
         onWritten(object);
     }
 
+    /**
+     * Writes the given {@link IndirectCOSObjectReference} using the given bytes as the already serialized form of its
+     * COS object, updating its offset and releasing it once written.
+     * 
+     * @param object
+     * @param serialized the object serialized using an {@link IndirectReferencesAwareCOSWriter} on this same context
+     * @throws IOException
+     */
+    void writeObject(IndirectCOSObjectReference object, byte[] serialized) throws IOException
+    {
+        writeObjectHeader(object);
+        writer.writer().write(serialized);
+        writeObjectFooter(object);
+        context.putWritten(object.xrefEntry());
+        onWritten(object);
+    }
+
     /**
      * Called when the input indirect references has just been written
      * 
@@ -99,20 +130,30 @@ class IndirectObjectsWriter implements Closeable
      */
     protected void onWritten(IndirectCOSObjectReference ref)
     {
-        ref.releaseCOSObject();
+        context.release(ref);
         LOG.trace("Released " + ref);
     }
 
     private void doWriteObject(IndirectCOSObjectReference object) throws IOException
+    {
+        writeObjectHeader(object);
+        object.getCOSObject().accept(writer);
+        writeObjectFooter(object);
+    }
+
+    private void writeObjectHeader(IndirectCOSObjectReference object) throws IOException
     {
         object.xrefEntry().setByteOffset(writer.writer().offset());
-        writer.writer().write(Long.toString(object.xrefEntry().getObjectNumber()));
+        writeNumber(writer.writer(), object.xrefEntry().getObjectNumber());
         writer.writer().write(SPACE);
-        writer.writer().write(Integer.toString(object.xrefEntry().getGenerationNumber()));
+        writeNumber(writer.writer(), object.xrefEntry().getGenerationNumber());
         writer.writer().write(SPACE);
         writer.writer().write(OBJ);
         writer.writer().writeEOL();
-        object.getCOSObject().accept(writer);
+    }
+
+    private void writeObjectFooter(IndirectCOSObjectReference object) throws IOException
+    {
         writer.writer().writeEOL();
         writer.writer().write(ENDOBJ);
         writer.writer().writeEOL();
@@ -156,6 +197,16 @@ class IndirectObjectsWriter implements Closeable
         writer.writer().write(string);
     }
 
+    /**
+     * @see BufferedCountingChannelWriter#write(InputStream)
+     * @param stream
+     * @throws IOException
+     */
+    public void write(InputStream stream) throws IOException
+    {
+        writer.writer().write(stream);
+    }
+
     /**
      * @see BufferedCountingChannelWriter#write(byte)
      * @param b
@@ -30,7 +30,20 @@ import org.sejda.sambox.cos.NonStorableInObjectStreams;
  */
 class IndirectReferenceProvider
 {
-    private AtomicLong referencesCounter = new AtomicLong(0);
+    private AtomicLong referencesCounter;
+
+    IndirectReferenceProvider()
+    {
+        this(0);
+    }
+
+    /**
+     * @param highestObjectNumber the created references are numbered starting after this
+     */
+    IndirectReferenceProvider(long highestObjectNumber)
+    {
+        this.referencesCounter = new AtomicLong(highestObjectNumber);
+    }
 
     IndirectCOSObjectReference nextReferenceFor(COSBase baseObject)
     {
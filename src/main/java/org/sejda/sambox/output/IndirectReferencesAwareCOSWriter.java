@@ -17,10 +17,13 @@
 package org.sejda.sambox.output;
 
 import java.io.IOException;
+import java.util.Optional;
 
 import org.sejda.io.BufferedCountingChannelWriter;
 import org.sejda.io.CountingWritableByteChannel;
+import org.sejda.io.SeekableSource;
 import org.sejda.sambox.cos.COSBase;
+import org.sejda.sambox.cos.COSStream;
 
 /**
  * {@link COSWriter} implementation that writes dictionary and array values as indirect references if they have been
@@ -36,7 +39,8 @@ class IndirectReferencesAwareCOSWriter extends DefaultCOSWriter
 
     IndirectReferencesAwareCOSWriter(CountingWritableByteChannel channel, PDFWriteContext context)
     {
-        this(new BufferedCountingChannelWriter(channel), context);
+        super(channel);
+        this.context = context;
     }
 
     IndirectReferencesAwareCOSWriter(BufferedCountingChannelWriter writer, PDFWriteContext context)
@@ -63,6 +67,31 @@ class IndirectReferencesAwareCOSWriter extends DefaultCOSWriter
         }
     }
 
+    @Override
+    Optional<SeekableSource> unchangedFilteredSource(COSStream value) throws IOException
+    {
+        Optional<ExistingStreamsCache> cache = context.existingStreamsCache();
+        if (cache.isPresent())
+        {
+            return cache.get().getUnchangedFilteredSource(value);
+        }
+        return super.unchangedFilteredSource(value);
+    }
+
+    @Override
+    void release(COSStream value)
+    {
+        if (context.hasWriteOption(WriteOption.KEEP_EXISTING_OBJECTS))
+        {
+            // it might be written again, we only offload its data
+            value.unDecode();
+        }
+        else
+        {
+            super.release(value);
+        }
+    }
+
     @Override
     public void close() throws IOException
     {
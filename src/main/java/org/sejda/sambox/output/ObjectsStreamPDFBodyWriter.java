@@ -16,16 +16,23 @@
  */
 package org.sejda.sambox.output;
 
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
 import static org.sejda.sambox.util.CharUtils.ASCII_SPACE;
 import static org.sejda.util.RequireUtils.requireNotNullArg;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.SequenceInputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.DeflaterInputStream;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.sejda.io.CountingWritableByteChannel;
 import org.sejda.io.FastByteArrayOutputStream;
@@ -36,6 +43,7 @@ import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.cos.DisposableCOSObject;
 import org.sejda.sambox.cos.IndirectCOSObjectReference;
 import org.sejda.sambox.cos.NonStorableInObjectStreams;
+import org.sejda.sambox.filter.FlateEncoder;
 import org.sejda.sambox.xref.CompressedXrefEntry;
 import org.sejda.util.IOUtils;
 import org.slf4j.Logger;
@@ -43,7 +51,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * {@link AbstractPDFBodyWriter} implementation where objects are written to an Object Stream and later the stream is
- * written as COSStream using the wrapped {@link AbstractPDFBodyWriter}
+ * written as COSStream using the wrapped {@link AbstractPDFBodyWriter}. Unless {@link WriteOption#SYNC_BODY_WRITE} is
+ * selected, full Object Streams are compressed by a pool of {@link SAMBox#BODY_WRITER_THREADS_PROPERTY} threads while
+ * the next one is filled, and they are written once compressed.
  * 
  * @author Andrea Vacondio
  *
@@ -54,6 +64,9 @@ class ObjectsStreamPDFBodyWriter extends AbstractPDFBodyWriter
 
     private AbstractPDFBodyWriter wrapped;
     private ObjectsStream currentStream;
+    private ExecutorService compressors;
+    private int maxPending;
+    private Queue<CompletableFuture<ObjectsStream>> pending = new LinkedList<>();
 
     public ObjectsStreamPDFBodyWriter(AbstractPDFBodyWriter wrapped)
     {
@@ -61,8 +74,15 @@ class ObjectsStreamPDFBodyWriter extends AbstractPDFBodyWriter
                 .orElseThrow(() -> new IllegalArgumentException("Wrapped writer cannot be null")));
         requireNotNullArg(wrapped, "Wrapped writer cannot be null");
         this.wrapped = wrapped;
-        currentStream = new ObjectsStream(context());
-        context().createIndirectReferenceFor(currentStream);
+        if (!context().hasWriteOption(WriteOption.SYNC_BODY_WRITE))
+        {
+            int threads = Math.max(1, Integer.getInteger(SAMBox.BODY_WRITER_THREADS_PROPERTY,
+                    Runtime.getRuntime().availableProcessors()));
+            AtomicInteger counter = new AtomicInteger();
+            this.compressors = Executors.newFixedThreadPool(threads, target -> new Thread(null,
+                    target, "objects-stream-compressor-" + counter.incrementAndGet(), 0));
+            this.maxPending = threads * 2;
+        }
     }
 
     @Override
@@ -75,6 +95,11 @@ class ObjectsStreamPDFBodyWriter extends AbstractPDFBodyWriter
         }
         else
         {
+            if (isNull(currentStream))
+            {
+                currentStream = new ObjectsStream(context());
+                context().createIndirectReferenceFor(currentStream);
+            }
             IndirectCOSObjectReference streamRef = context().getIndirectReferenceFor(currentStream);
             context().putWritten(
                     CompressedXrefEntry.compressedEntry(ref.xrefEntry().getObjectNumber(),
@@ -82,22 +107,78 @@ class ObjectsStreamPDFBodyWriter extends AbstractPDFBodyWriter
             currentStream.addItem(ref);
             LOG.trace("Added ref {} to object stream {}", ref, streamRef);
         }
-        if (currentStream.isFull())
+        if (nonNull(currentStream) && currentStream.isFull())
         {
             doWriteObjectsStream();
-            currentStream = new ObjectsStream(context());
-            context().createIndirectReferenceFor(currentStream);
+            currentStream = null;
         }
     }
 
     private void doWriteObjectsStream() throws IOException
     {
-        IndirectCOSObjectReference ref = context().getIndirectReferenceFor(currentStream);
+        if (isNull(compressors))
+        {
+            currentStream.prepareForWriting();
+            writeObjectsStream(currentStream);
+        }
+        else
+        {
+            ObjectsStream stream = currentStream;
+            CompletableFuture<ObjectsStream> compressed = new CompletableFuture<>();
+            compressors.execute(() -> {
+                try
+                {
+                    stream.prepareForWriting();
+                    compressed.complete(stream);
+                }
+                catch (Exception e)
+                {
+                    compressed.completeExceptionally(e);
+                }
+            });
+            pending.add(compressed);
+            writeCompressed(maxPending);
+        }
+    }
+
+    /**
+     * Writes the compressed Object Streams, in the order they have been filled, waiting for the compression to complete
+     * as long as more than the given number of streams are pending
+     * 
+     * @param allowedPending
+     * @throws IOException
+     */
+    private void writeCompressed(int allowedPending) throws IOException
+    {
+        while (!pending.isEmpty()
+                && (pending.size() > allowedPending || pending.peek().isDone()))
+        {
+            try
+            {
+                writeObjectsStream(pending.poll().get());
+            }
+            catch (InterruptedException e)
+            {
+                throw new IOException(e);
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof IOException)
+                {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private void writeObjectsStream(ObjectsStream stream) throws IOException
+    {
+        IndirectCOSObjectReference ref = context().getIndirectReferenceFor(stream);
         LOG.debug("Writing object stream {}", ref);
-        currentStream.prepareForWriting();
         IndirectCOSObjectReference length = context()
                 .createNonStorableInObjectStreamIndirectReferenceFor(COSNull.NULL);
-        currentStream.setItem(COSName.LENGTH, length);
+        stream.setItem(COSName.LENGTH, length);
         wrapped.writeObject(ref);
         LOG.trace("Writing object stream length {}", length);
         wrapped.writeObject(length);
@@ -106,10 +187,13 @@ class ObjectsStreamPDFBodyWriter extends AbstractPDFBodyWriter
     @Override
     void onCompletion() throws IOException
     {
-        if (currentStream.hasItems())
+        // the body can be written in more than one go (Ex. merge), next objects go in a new stream
+        if (nonNull(currentStream) && currentStream.hasItems())
         {
             doWriteObjectsStream();
         }
+        currentStream = null;
+        writeCompressed(0);
         // complete writing
         wrapped.onCompletion();
     }
@@ -120,6 +204,10 @@ class ObjectsStreamPDFBodyWriter extends AbstractPDFBodyWriter
         IOUtils.close(wrapped);
         super.close();
         currentStream = null;
+        if (nonNull(compressors))
+        {
+            compressors.shutdownNow();
+        }
     }
 
     static class ObjectsStream extends COSStream implements DisposableCOSObject
@@ -129,10 +217,14 @@ class ObjectsStreamPDFBodyWriter extends AbstractPDFBodyWriter
         private FastByteArrayOutputStream data = new FastByteArrayOutputStream();
         private DefaultCOSWriter dataWriter;
         private InputStream filtered;
+        private FlateEncoder encoder;
+        private PDFWriteContext context;
 
         public ObjectsStream(PDFWriteContext context)
         {
+            this.context = context;
             setName(COSName.TYPE, COSName.OBJ_STM.getName());
+            this.encoder = context.flateEncoder().orElseGet(FlateEncoder::defaultEncoder);
             dataWriter = new IndirectReferencesAwareCOSWriter(
                     CountingWritableByteChannel.from(data), context)
             {
@@ -166,7 +258,7 @@ class ObjectsStreamPDFBodyWriter extends AbstractPDFBodyWriter
             header.write(ASCII_SPACE);
             ref.getCOSObject().accept(dataWriter);
             dataWriter.writer().write(ASCII_SPACE);
-            ref.releaseCOSObject();
+            context.release(ref);
         }
 
         boolean isFull()
@@ -180,15 +272,25 @@ class ObjectsStreamPDFBodyWriter extends AbstractPDFBodyWriter
             return this.filtered;
         }
 
-        void prepareForWriting()
+        /**
+         * Compresses the stream content, once called no more items can be added.
+         * 
+         * @throws IOException
+         */
+        void prepareForWriting() throws IOException
         {
-            IOUtils.closeQuietly(dataWriter);
+            IOUtils.close(dataWriter);
             setInt(COSName.N, counter);
             setInt(COSName.FIRST, header.size());
             setItem(COSName.FILTER, COSName.FLATE_DECODE);
-            this.filtered = new DeflaterInputStream(
-                    new SequenceInputStream(new ByteArrayInputStream(header.toByteArray()),
-                            new ByteArrayInputStream(data.toByteArray())));
+            FastByteArrayOutputStream compressed = new FastByteArrayOutputStream(
+                    Math.max(256, (header.size() + data.size()) / 2));
+            try (OutputStream out = encoder.compressing(compressed))
+            {
+                header.writeTo(out);
+                data.writeTo(out);
+            }
+            this.filtered = compressed.getInputStream();
             this.header = null;
             this.data = null;
         }
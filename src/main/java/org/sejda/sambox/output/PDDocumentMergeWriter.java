@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static org.sejda.sambox.cos.DirectCOSObject.asDirectObject;
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+import static org.sejda.util.RequireUtils.requireState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.sejda.io.CountingWritableByteChannel;
+import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSDocument;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSString;
+import org.sejda.sambox.cos.IndirectCOSObjectReference;
+import org.sejda.sambox.encryption.MessageDigests;
+import org.sejda.sambox.pdmodel.PDDocument;
+import org.sejda.sambox.pdmodel.PDDocumentInformation;
+import org.sejda.sambox.pdmodel.PDPage;
+import org.sejda.sambox.util.SpecVersionUtils;
+import org.sejda.sambox.util.Version;
+import org.sejda.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Component that merges multiple documents into a single output, writing them as a stream. The pages of each appended
+ * document and the objects they reference are written to the output as soon as the document is appended, then the
+ * document is closed and released. The pages tree, the catalog and the xref are written once the writer is closed.
+ * This way only one source document at a time has to be open and the memory required depends on the largest source,
+ * not on the total number of sources.
+ * <p>
+ * Pages are copied using a {@link PageCopier}. Document level structures (Ex. outline, forms, structure tree) of the
+ * sources are not merged.
+ * </p>
+ * 
+ * @author Andrea Vacondio
+ */
+public class PDDocumentMergeWriter implements Closeable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(PDDocumentMergeWriter.class);
+
+    private final CountingWritableByteChannel channel;
+    private final PDFWriteContext context;
+    private final DefaultPDFWriter writer;
+    private final AbstractPDFBodyWriter bodyWriter;
+    private final COSDictionary pages = new COSDictionary();
+    private final IndirectCOSObjectReference pagesReference;
+    private final List<IndirectCOSObjectReference> kids = new ArrayList<>();
+    private String headerVersion = SpecVersionUtils.V1_4;
+    private String version = SpecVersionUtils.V1_4;
+    private boolean open = true;
+
+    /**
+     * Creates a writer merging documents to the given channel. The header is written right away.
+     * 
+     * @param channel
+     * @param options
+     * @throws IOException
+     */
+    public PDDocumentMergeWriter(CountingWritableByteChannel channel, WriteOption... options)
+            throws IOException
+    {
+        requireNotNullArg(channel, "Cannot write to a null channel");
+        this.channel = channel;
+        this.context = new PDFWriteContext(null, options);
+        this.writer = new DefaultPDFWriter(new IndirectObjectsWriter(channel, context));
+        this.bodyWriter = PDDocumentWriter.bodyWriter(writer.writer(), context);
+        this.pagesReference = context.getOrCreateIndirectReferenceFor(pages);
+        if (xrefStream())
+        {
+            headerVersion = SpecVersionUtils.V1_5;
+            version = SpecVersionUtils.V1_5;
+        }
+        writer.writeHeader(headerVersion);
+    }
+
+    /**
+     * Writes the pages of the given document, and the objects they reference, to the output. The document is closed
+     * once written.
+     * 
+     * @param document
+     * @throws IOException
+     */
+    public void append(PDDocument document) throws IOException
+    {
+        requireNotNullArg(document, "Cannot merge a null document");
+        requireState(open, "The writer is closed");
+        try
+        {
+            if (document.getVersion().compareTo(version) > 0)
+            {
+                version = document.getVersion();
+            }
+            PageCopier copier = new PageCopier();
+            List<COSDictionary> copies = new ArrayList<>(document.getNumberOfPages());
+            for (PDPage page : document.getPages())
+            {
+                COSDictionary copy = copier.copy(page);
+                copy.setItem(COSName.PARENT, pages);
+                copies.add(copy);
+            }
+            copier.copyAnnotations();
+            for (COSDictionary copy : copies)
+            {
+                bodyWriter.createIndirectReferenceIfNeededFor(copy);
+                kids.add(context.getIndirectReferenceFor(copy));
+            }
+            bodyWriter.startWriting();
+            // objects of the document are not going to be met again
+            context.forgetExistingIndirectReferences();
+            LOG.debug("Merged {} pages, now at {} written objects", copies.size(),
+                    context.written());
+        }
+        finally
+        {
+            IOUtils.close(document);
+        }
+    }
+
+    /**
+     * @return the number of pages merged so far
+     */
+    public int pages()
+    {
+        return kids.size();
+    }
+
+    private boolean xrefStream()
+    {
+        return context.hasWriteOption(WriteOption.XREF_STREAM)
+                || context.hasWriteOption(WriteOption.OBJECT_STREAMS);
+    }
+
+    /**
+     * Writes the pages tree, the document catalog and the xref of the merged document and closes the output
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (open)
+        {
+            open = false;
+            try
+            {
+                pages.setItem(COSName.TYPE, COSName.PAGES);
+                COSArray kidsArray = new COSArray();
+                kids.forEach(kidsArray::add);
+                pages.setItem(COSName.KIDS, kidsArray);
+                pages.setInt(COSName.COUNT, kids.size());
+                COSDictionary catalog = new COSDictionary();
+                catalog.setItem(COSName.TYPE, COSName.CATALOG);
+                catalog.setItem(COSName.PAGES, pages);
+                if (version.compareTo(headerVersion) > 0)
+                {
+                    catalog.setName(COSName.VERSION, version);
+                }
+                PDDocumentInformation info = new PDDocumentInformation();
+                info.setProducer("SAMBox " + Version.getVersion() + " (www.sejda.org)");
+                info.setCreationDate(Calendar.getInstance());
+                COSDocument document = new COSDocument();
+                document.getTrailer().setItem(COSName.ROOT, catalog);
+                document.getTrailer().setItem(COSName.INFO, info.getCOSObject());
+                document.getTrailer().setItem(COSName.ID, fileIdentifier());
+                bodyWriter.addToWrite(pagesReference);
+                bodyWriter.write(document);
+                if (xrefStream())
+                {
+                    writer.writeXrefStream(document.getTrailer());
+                }
+                else
+                {
+                    long startxref = writer.writeXrefTable();
+                    writer.writeTrailer(document.getTrailer(), startxref);
+                }
+                LOG.debug("Merged document of {} pages written", kids.size());
+            }
+            finally
+            {
+                IOUtils.close(bodyWriter);
+                IOUtils.close(writer);
+            }
+        }
+    }
+
+    private COSArray fileIdentifier()
+    {
+        MessageDigest md5 = MessageDigests.md5();
+        md5.update(Long.toString(System.currentTimeMillis()).getBytes(StandardCharsets.ISO_8859_1));
+        md5.update(channel.toString().getBytes(StandardCharsets.ISO_8859_1));
+        md5.update(Integer.toString(kids.size()).getBytes(StandardCharsets.ISO_8859_1));
+        COSString id = COSString.newInstance(md5.digest());
+        id.setForceHexForm(true);
+        id.encryptable(false);
+        return new COSArray(asDirectObject(id), asDirectObject(id));
+    }
+}
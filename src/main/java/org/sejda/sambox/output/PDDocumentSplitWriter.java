@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static java.util.Objects.nonNull;
+import static org.sejda.io.CountingWritableByteChannel.from;
+import static org.sejda.util.RequireUtils.requireArg;
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sejda.io.CountingWritableByteChannel;
+import org.sejda.sambox.pdmodel.PDDocument;
+import org.sejda.sambox.pdmodel.PDPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Component that splits a {@link PDDocument} writing multiple documents, each one made of the given pages of the
+ * source. The pages tree of the source is traversed only once and each output is fully written with its own
+ * {@link PDFWriteContext}. Objects of the source written by an output are kept (see
+ * {@link WriteOption#KEEP_EXISTING_OBJECTS}) until the last output is written, so that resources shared by pages of
+ * different outputs (Ex. fonts and images dictionaries) are parsed only once, and all the outputs read the data of the
+ * existing streams through the same {@link ExistingStreamsCache}, so that it's read from the source only once, as long
+ * as it fits the cache budget.
+ * <p>
+ * Pages are copied using a {@link PageCopier}, annotations relations and link destinations pointing to pages that are
+ * not part of the same output are removed. A page can be part of an output multiple times, each occurrence gets its
+ * own annotations. Document level structures (Ex. outline, forms, structure tree) are not copied.
+ * </p>
+ * 
+ * @author Andrea Vacondio
+ */
+public class PDDocumentSplitWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(PDDocumentSplitWriter.class);
+
+    private final PDDocument document;
+    private final ExistingStreamsCache cache;
+    private final WriteOption[] options;
+    private final List<Output> outputs = new ArrayList<>();
+
+    public PDDocumentSplitWriter(PDDocument document, WriteOption... options)
+    {
+        this(document, new ExistingStreamsCache(), options);
+    }
+
+    /**
+     * @param document the document to split
+     * @param cache the cache the data of the existing streams is read through
+     * @param options write options used for every output
+     */
+    public PDDocumentSplitWriter(PDDocument document, ExistingStreamsCache cache,
+            WriteOption... options)
+    {
+        requireNotNullArg(document, "Cannot split a null document");
+        requireNotNullArg(cache, "Streams cache cannot be null");
+        this.document = document;
+        this.cache = cache;
+        this.options = options;
+    }
+
+    /**
+     * Adds an output made of the given pages of the source document
+     * 
+     * @param pages 1 based page numbers of the source, in the order they are added to the output
+     * @param file the file to write the output to
+     */
+    public void addOutput(Collection<Integer> pages, File file)
+    {
+        requireNotNullArg(file, "Output file cannot be null");
+        addOutput(pages, () -> from(file));
+    }
+
+    /**
+     * Adds an output made of the given pages of the source document
+     * 
+     * @param pages 1 based page numbers of the source, in the order they are added to the output
+     * @param channel the channel to write the output to
+     */
+    public void addOutput(Collection<Integer> pages, WritableByteChannel channel)
+    {
+        requireNotNullArg(channel, "Output channel cannot be null");
+        addOutput(pages, () -> from(channel));
+    }
+
+    /**
+     * Adds an output made of the given pages of the source document
+     * 
+     * @param pages 1 based page numbers of the source, in the order they are added to the output
+     * @param out the stream to write the output to
+     */
+    public void addOutput(Collection<Integer> pages, OutputStream out)
+    {
+        requireNotNullArg(out, "Output stream cannot be null");
+        addOutput(pages, () -> from(out));
+    }
+
+    private void addOutput(Collection<Integer> pages, ChannelSupplier channel)
+    {
+        requireArg(nonNull(pages) && !pages.isEmpty(), "Output pages cannot be empty");
+        int numberOfPages = document.getNumberOfPages();
+        for (Integer page : pages)
+        {
+            requireArg(nonNull(page) && page > 0 && page <= numberOfPages,
+                    "Invalid page number " + page);
+        }
+        outputs.add(new Output(new ArrayList<>(pages), channel));
+    }
+
+    /**
+     * Writes all the outputs, in the order they have been added. The source document is not closed.
+     * 
+     * @throws IOException
+     */
+    public void write() throws IOException
+    {
+        List<Map<Integer, PDPage>> pages = collectPages();
+        for (int i = 0; i < outputs.size(); i++)
+        {
+            Output output = outputs.get(i);
+            PDDocument destination = new PDDocument();
+            destination.setVersion(document.getVersion());
+            PageCopier copier = new PageCopier();
+            for (Integer page : output.pages)
+            {
+                destination.addPage(new PDPage(copier.copy(pages.get(i).get(page))));
+            }
+            copier.copyAnnotations();
+            destination.setExistingStreamsCache(cache);
+            destination.writeTo(output.channel.get(), optionsFor(i));
+            // we don't need them anymore
+            pages.set(i, null);
+            LOG.debug("Written output {} of {} pages", i + 1, output.pages.size());
+        }
+    }
+
+    /**
+     * @return the write options for the output at the given index, objects of the source are kept for the outputs
+     * written next
+     */
+    private WriteOption[] optionsFor(int index)
+    {
+        if (index == outputs.size() - 1)
+        {
+            return options;
+        }
+        WriteOption[] keeping = Arrays.copyOf(options, options.length + 1);
+        keeping[options.length] = WriteOption.KEEP_EXISTING_OBJECTS;
+        return keeping;
+    }
+
+    /**
+     * Traverses the source pages tree once, collecting the pages required by each output
+     */
+    private List<Map<Integer, PDPage>> collectPages()
+    {
+        Map<Integer, List<Integer>> outputsByPage = new HashMap<>();
+        List<Map<Integer, PDPage>> pages = new ArrayList<>(outputs.size());
+        for (int i = 0; i < outputs.size(); i++)
+        {
+            pages.add(new HashMap<>());
+            for (Integer page : outputs.get(i).pages)
+            {
+                outputsByPage.computeIfAbsent(page, k -> new ArrayList<>()).add(i);
+            }
+        }
+        int pageNumber = 0;
+        for (PDPage page : document.getPages())
+        {
+            pageNumber++;
+            for (Integer output : outputsByPage.getOrDefault(pageNumber, new ArrayList<>()))
+            {
+                pages.get(output).put(pageNumber, page);
+            }
+        }
+        return pages;
+    }
+
+    @FunctionalInterface
+    private static interface ChannelSupplier
+    {
+        CountingWritableByteChannel get() throws IOException;
+    }
+
+    private static class Output
+    {
+        final List<Integer> pages;
+        final ChannelSupplier channel;
+
+        Output(List<Integer> pages, ChannelSupplier channel)
+        {
+            this.pages = pages;
+            this.channel = channel;
+        }
+    }
+}
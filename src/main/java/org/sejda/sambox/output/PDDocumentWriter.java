@@ -25,8 +25,10 @@ import java.nio.channels.WritableByteChannel;
 import java.util.Optional;
 
 import org.sejda.io.CountingWritableByteChannel;
+import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSDocument;
 import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.IncrementalSource;
 import org.sejda.sambox.encryption.EncryptionContext;
 import org.sejda.sambox.pdmodel.PDDocument;
 import org.sejda.sambox.util.SpecVersionUtils;
@@ -49,12 +51,26 @@ public class PDDocumentWriter implements Closeable
 
     public PDDocumentWriter(CountingWritableByteChannel channel,
             Optional<EncryptionContext> encryptionContext, WriteOption... options)
+    {
+        this(channel, encryptionContext, null, options);
+    }
+
+    /**
+     * @param channel
+     * @param encryptionContext
+     * @param cache the cache the unchanged data of streams of existing documents is read through, or null
+     * @param options
+     */
+    public PDDocumentWriter(CountingWritableByteChannel channel,
+            Optional<EncryptionContext> encryptionContext, ExistingStreamsCache cache,
+            WriteOption... options)
     {
         requireNotNullArg(channel, "Cannot write to a null channel");
         this.encryptionContext = ofNullable(encryptionContext).orElseGet(Optional::empty);
         context = new PDFWriteContext(
                 this.encryptionContext.map(EncryptionContext::encryptionAlgorithm).orElse(null),
                 options);
+        context.existingStreamsCache(cache);
         this.writer = new DefaultPDFWriter(new IndirectObjectsWriter(channel, context));
     }
 
@@ -68,6 +84,12 @@ public class PDDocumentWriter implements Closeable
     public void write(PDDocument document) throws IOException
     {
         requireNotNullArg(document, "PDDocument cannot be null");
+        Optional<IncrementalSource> incremental = incrementalSource(document);
+        if (incremental.isPresent())
+        {
+            writeIncremental(document, incremental.get());
+            return;
+        }
         if (context.hasWriteOption(WriteOption.XREF_STREAM)
                 || context.hasWriteOption(WriteOption.OBJECT_STREAMS))
         {
@@ -89,31 +111,96 @@ public class PDDocumentWriter implements Closeable
         writeXref(document);
     }
 
-    private void writeBody(COSDocument document) throws IOException
+    /**
+     * @param document
+     * @return the source to write an incremental update for, if an incremental update has been requested and it's
+     * possible for the given document.
+     */
+    private Optional<IncrementalSource> incrementalSource(PDDocument document)
     {
-        try (AbstractPDFBodyWriter bodyWriter = objectStreamWriter(bodyWriter()))
+        if (!context.hasWriteOption(WriteOption.INCREMENTAL))
+        {
+            return Optional.empty();
+        }
+        Optional<IncrementalSource> source = document.getDocument().incrementalSource();
+        if (!source.isPresent())
+        {
+            LOG.warn("Incremental update is not possible for the document, writing it in full");
+            return Optional.empty();
+        }
+        if (encryptionContext.isPresent())
+        {
+            LOG.warn("Incremental update is not supported when encrypting, writing the document in full");
+            return Optional.empty();
+        }
+        return source;
+    }
+
+    private void writeIncremental(PDDocument document, IncrementalSource source)
+            throws IOException
+    {
+        LOG.debug("Writing incremental update");
+        boolean xrefStream = source.isXrefStream()
+                || context.hasWriteOption(WriteOption.XREF_STREAM)
+                || context.hasWriteOption(WriteOption.OBJECT_STREAMS);
+        if (xrefStream)
+        {
+            document.requireMinVersion(SpecVersionUtils.V1_5);
+        }
+        context.startObjectNumbersAfter(source.highestObjectNumber());
+        writer.writeOriginal(source);
+        try (AbstractPDFBodyWriter bodyWriter = new IncrementalPDFBodyWriter(
+                bodyWriter(writer.writer(), context), source))
         {
             LOG.debug("Writing body using " + bodyWriter.getClass());
-            bodyWriter.write(document);
+            bodyWriter.write(document.getDocument());
+        }
+        COSDictionary trailer = document.getDocument().getTrailer();
+        if (xrefStream)
+        {
+            writer.writeIncrementalXrefStream(trailer, source);
+        }
+        else
+        {
+            long startxref = writer.writeIncrementalXrefTable();
+            writer.writeIncrementalTrailer(trailer, startxref, source);
         }
     }
 
-    private AbstractPDFBodyWriter bodyWriter()
+    private void writeBody(COSDocument document) throws IOException
     {
-        if (context.hasWriteOption(WriteOption.SYNC_BODY_WRITE))
+        try (AbstractPDFBodyWriter bodyWriter = bodyWriter(writer.writer(), context))
         {
-            return new SyncPDFBodyWriter(writer.writer(), context);
+            LOG.debug("Writing body using " + bodyWriter.getClass());
+            bodyWriter.write(document);
         }
-        return new AsyncPDFBodyWriter(writer.writer(), context);
     }
 
-    private AbstractPDFBodyWriter objectStreamWriter(AbstractPDFBodyWriter wrapped)
+    /**
+     * @param writer
+     * @param context
+     * @return the body writer to use with the given context, based on its write options
+     */
+    static AbstractPDFBodyWriter bodyWriter(IndirectObjectsWriter writer, PDFWriteContext context)
     {
+        AbstractPDFBodyWriter bodyWriter;
+        if (context.hasWriteOption(WriteOption.SYNC_BODY_WRITE))
+        {
+            bodyWriter = new SyncPDFBodyWriter(writer, context);
+        }
+        else if (context.hasWriteOption(WriteOption.PARALLEL_BODY_WRITE))
+        {
+            bodyWriter = new ParallelPDFBodyWriter(writer, context);
+        }
+        else
+        {
+            bodyWriter = new AsyncPDFBodyWriter(writer, context);
+        }
         if (context.hasWriteOption(WriteOption.OBJECT_STREAMS))
         {
-            return new ObjectsStreamPDFBodyWriter(wrapped);
+            return new ObjectsStreamPDFBodyWriter(bodyWriter);
         }
-        return wrapped;
+        return bodyWriter;
     }
 
     private void writeXref(PDDocument document) throws IOException
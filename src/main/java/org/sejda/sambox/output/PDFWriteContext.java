@@ -16,16 +16,19 @@
  */
 package org.sejda.sambox.output;
 
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.SortedMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.Function;
 
 import org.sejda.sambox.cos.COSBase;
@@ -34,7 +37,9 @@ import org.sejda.sambox.cos.IndirectCOSObjectIdentifier;
 import org.sejda.sambox.cos.IndirectCOSObjectReference;
 import org.sejda.sambox.cos.NonStorableInObjectStreams;
 import org.sejda.sambox.encryption.GeneralEncryptionAlgorithm;
+import org.sejda.sambox.filter.FlateEncoder;
 import org.sejda.sambox.input.ExistingIndirectCOSObject;
+import org.sejda.sambox.xref.Xref;
 import org.sejda.sambox.xref.XrefEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,9 +59,11 @@ class PDFWriteContext
     private String contextId = UUID.randomUUID().toString();
     private IndirectReferenceProvider referencesProvider = new IndirectReferenceProvider();
     private Map<IndirectCOSObjectIdentifier, IndirectCOSObjectReference> lookupNewRef = new ConcurrentHashMap<>();
+    private Map<ByteBuffer, IndirectCOSObjectReference> lookupSameContentRef = new ConcurrentHashMap<>();
     private List<WriteOption> opts;
-    private SortedMap<Long, XrefEntry> written = new ConcurrentSkipListMap<>();
+    private Xref written = new Xref();
     public final Optional<GeneralEncryptionAlgorithm> encryptor;
+    private ExistingStreamsCache existingStreamsCache;
 
     PDFWriteContext(GeneralEncryptionAlgorithm encryptor, WriteOption... options)
     {
@@ -110,6 +117,72 @@ class PDFWriteContext
         return newRef;
     }
 
+    /**
+     * Creates a new {@link IndirectCOSObjectReference} for the given item unless a reference has been already created
+     * for an item with the same content, in that case the given item is associated to the existing reference. Only
+     * items whose values are all direct objects are compared, see {@link ContentDigest}.
+     * 
+     * @param item
+     * @return the created reference or an empty {@link Optional} if the item has been associated to the reference of an
+     * identical item
+     */
+    Optional<IndirectCOSObjectReference> createIndirectReferenceUnlessDuplicate(COSBase item)
+    {
+        Optional<ByteBuffer> digest = ContentDigest.digestOf(item);
+        if (digest.isPresent())
+        {
+            IndirectCOSObjectReference existing = lookupSameContentRef.get(digest.get());
+            if (nonNull(existing))
+            {
+                LOG.trace("Reusing indirect reference {} for an identical object", existing);
+                item.idIfAbsent(
+                        new IndirectCOSObjectIdentifier(existing.xrefEntry().key(), contextId));
+                lookupNewRef.put(item.id(), existing);
+                return Optional.empty();
+            }
+            IndirectCOSObjectReference ref = createIndirectReferenceFor(item);
+            lookupSameContentRef.put(digest.get(), ref);
+            return Optional.of(ref);
+        }
+        return Optional.of(createIndirectReferenceFor(item));
+    }
+
+    /**
+     * Creates a {@link IndirectCOSObjectReference} for the given existing item keeping its original object number and
+     * generation. Used when writing an incremental update, where modified objects replace the original ones. Objects
+     * with a generation number other than zero cannot be stored in object streams.
+     * 
+     * @param item
+     * @return the created reference
+     */
+    IndirectCOSObjectReference createExistingIndirectReferenceFor(COSBase item)
+    {
+        COSObjectKey key = item.id().objectIdentifier;
+        IndirectCOSObjectReference ref;
+        if (key.generation() == 0)
+        {
+            ref = new IndirectCOSObjectReference(key.objectNumber(), key.generation(), item);
+        }
+        else
+        {
+            ref = new NonStorableInObjectStreams(key.objectNumber(), key.generation(), item);
+        }
+        LOG.trace("Created indirect reference {} keeping the existing key", ref);
+        lookupNewRef.put(item.id(), ref);
+        return ref;
+    }
+
+    /**
+     * New references created by this context are numbered starting after the given object number. Must be called
+     * before any reference is created.
+     * 
+     * @param highestObjectNumber
+     */
+    void startObjectNumbersAfter(long highestObjectNumber)
+    {
+        this.referencesProvider = new IndirectReferenceProvider(highestObjectNumber);
+    }
+
     /**
      * Creates a new {@link IndirectCOSObjectReference} for the given item if it has not been created before, it returns
      * the already existing reference otherwise.
@@ -146,6 +219,16 @@ class PDFWriteContext
         return item.hasId() && lookupNewRef.containsKey(item.id());
     }
 
+    /**
+     * Forgets the indirect references created for items of existing documents, keeping the ones created for new items.
+     * Used when writing documents whose objects are not going to be met again (Ex. when merging) to release the
+     * associated memory. The xref entries of the written objects are not affected.
+     */
+    void forgetExistingIndirectReferences()
+    {
+        lookupNewRef.keySet().removeIf(id -> !contextId.equals(id.ownerIdentifier));
+    }
+
     /**
      * @param opt
      * @return true if the context has the given write option
@@ -155,10 +238,63 @@ class PDFWriteContext
         return opts.contains(opt);
     }
 
+    /**
+     * Releases the object of the given reference once it has been written. Objects of existing documents are not
+     * released from their document when {@link WriteOption#KEEP_EXISTING_OBJECTS} is selected, the reference only drops
+     * them.
+     * 
+     * @param ref
+     */
+    void release(IndirectCOSObjectReference ref)
+    {
+        if (hasWriteOption(WriteOption.KEEP_EXISTING_OBJECTS)
+                && ref.getCOSObject() instanceof ExistingIndirectCOSObject)
+        {
+            ref.setValue(null);
+        }
+        else
+        {
+            ref.releaseCOSObject();
+        }
+    }
+
+    /**
+     * @return the encoder to use for streams compressed during the write if a compression level has been selected with
+     * the write options, an empty {@link Optional} otherwise.
+     */
+    Optional<FlateEncoder> flateEncoder()
+    {
+        if (hasWriteOption(WriteOption.FAST_COMPRESSION))
+        {
+            return Optional.of(FlateEncoder.fastest());
+        }
+        if (hasWriteOption(WriteOption.BEST_COMPRESSION))
+        {
+            return Optional.of(FlateEncoder.smallest());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param cache the cache the unchanged data of existing streams is read through
+     */
+    void existingStreamsCache(ExistingStreamsCache cache)
+    {
+        this.existingStreamsCache = cache;
+    }
+
+    /**
+     * @return the cache the unchanged data of existing streams is read through, if any
+     */
+    Optional<ExistingStreamsCache> existingStreamsCache()
+    {
+        return ofNullable(existingStreamsCache);
+    }
+
     /**
      * @return number of written objects so far.
      */
-    int written()
+    synchronized int written()
     {
         return written.size();
     }
@@ -168,9 +304,9 @@ class PDFWriteContext
      * @param entry
      * @return true if the given entry has been already written
      */
-    boolean hasWritten(XrefEntry entry)
+    synchronized boolean hasWritten(XrefEntry entry)
     {
-        return written.containsKey(entry.getObjectNumber());
+        return written.contains(entry.getObjectNumber());
     }
 
     /**
@@ -179,32 +315,61 @@ class PDFWriteContext
      * @param entry
      * @return the previous value if an entry with the same object number has been already written, null otherwise.
      */
-    XrefEntry putWritten(XrefEntry entry)
+    synchronized XrefEntry putWritten(XrefEntry entry)
     {
-        return written.put(entry.getObjectNumber(), entry);
+        // written entries are keyed by object number, a new generation replaces the written one
+        XrefEntry previous = written.get(entry.getObjectNumber());
+        if (nonNull(previous))
+        {
+            written.remove(previous.key());
+        }
+        written.add(entry);
+        return previous;
     }
 
     /**
      * @return the written entry with the highest object number
      */
-    XrefEntry highestWritten()
+    synchronized XrefEntry highestWritten()
     {
-        return written.get(written.lastKey());
+        return written.highest();
     }
 
     /**
      * @return the written entry with the lowest object number
      */
-    XrefEntry lowestWritten()
+    synchronized XrefEntry lowestWritten()
+    {
+        return written.lowest();
+    }
+
+    /**
+     * @return the written entries sorted by object number and grouped in subsections of consecutive object numbers
+     */
+    synchronized List<List<XrefEntry>> writtenSubsections()
     {
-        return written.get(written.firstKey());
+        List<XrefEntry> entries = new ArrayList<>(written.values());
+        entries.sort(Comparator.comparingLong(XrefEntry::getObjectNumber));
+        List<List<XrefEntry>> subsections = new ArrayList<>();
+        List<XrefEntry> current = null;
+        for (XrefEntry entry : entries)
+        {
+            if (isNull(current) || current.get(current.size() - 1).getObjectNumber()
+                    + 1 != entry.getObjectNumber())
+            {
+                current = new ArrayList<>();
+                subsections.add(current);
+            }
+            current.add(entry);
+        }
+        return subsections;
     }
 
     /**
      * @param objectNumber
      * @return the written entry with the given object number if any, null otherwise.
      */
-    XrefEntry getWritten(Long objectNumber)
+    synchronized XrefEntry getWritten(Long objectNumber)
     {
         return written.get(objectNumber);
     }
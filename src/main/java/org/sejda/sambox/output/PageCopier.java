@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSBase;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.pdmodel.PDPage;
+import org.sejda.sambox.pdmodel.PDPageTree;
+import org.sejda.sambox.pdmodel.interactive.action.PDActionGoTo;
+import org.sejda.sambox.pdmodel.interactive.annotation.PDAnnotationPopup;
+
+/**
+ * Component copying pages of an existing document to be added to a new one. Pages are copied together with their
+ * inherited attributes and annotations. Annotations relations and link destinations are relinked to the copied pages
+ * and annotations, the ones pointing to pages that have not been copied are removed so that a copied page doesn't
+ * bring along the whole pages tree of the source. A page can be copied multiple times, each copy gets its own copy of the
+ * annotations and links to the page point to its first copy. Widget annotations are detached from the source form
+ * fields tree, they get the field attributes they inherit and no parent.
+ * 
+ * @author Andrea Vacondio
+ */
+class PageCopier
+{
+    private static final COSName[] INHERITABLE = { COSName.RESOURCES, COSName.MEDIA_BOX,
+            COSName.CROP_BOX, COSName.ROTATE };
+    private static final COSName POPUP = COSName.getPDFName(PDAnnotationPopup.SUB_TYPE);
+    private static final COSName IRT = COSName.getPDFName("IRT");
+    private static final COSName GOTO = COSName.getPDFName(PDActionGoTo.SUB_TYPE);
+    private static final COSName[] INHERITABLE_FIELD = { COSName.FT, COSName.T, COSName.FF,
+            COSName.V, COSName.DV, COSName.DA, COSName.Q, COSName.OPT };
+
+    private final Map<Object, COSDictionary> copies = new HashMap<>();
+    // copied pages and their source, in the order they have been copied
+    private final Map<COSDictionary, COSDictionary> copied = new LinkedHashMap<>();
+
+    /**
+     * @param page
+     * @return a copy of the given page with its inherited attributes, without parent and annotations
+     */
+    COSDictionary copy(PDPage page)
+    {
+        COSDictionary copy = page.getCOSObject().duplicate();
+        for (COSName key : INHERITABLE)
+        {
+            if (!copy.containsKey(key))
+            {
+                COSBase inherited = PDPageTree.getInheritableAttribute(page.getCOSObject(), key);
+                if (nonNull(inherited))
+                {
+                    copy.setItem(key, inherited);
+                }
+            }
+        }
+        copy.removeItem(COSName.PARENT);
+        copy.removeItem(COSName.ANNOTS);
+        copies.putIfAbsent(keyOf(page.getCOSObject()), copy);
+        copied.put(copy, page.getCOSObject());
+        return copy;
+    }
+
+    /**
+     * Copies the annotations of the pages copied so far to the corresponding copies. To be called once all the pages
+     * have been copied so that relations between annotations and pages can be relinked.
+     */
+    void copyAnnotations()
+    {
+        copied.forEach((copy, page) -> copyAnnotations(page, copy));
+        copied.clear();
+    }
+
+    private void copyAnnotations(COSDictionary page, COSDictionary pageCopy)
+    {
+        COSArray annotations = page.getDictionaryObject(COSName.ANNOTS, COSArray.class);
+        if (nonNull(annotations))
+        {
+            // relations between the annotations of this copy of the page are relinked first
+            Map<Object, COSDictionary> local = new HashMap<>();
+            local.put(keyOf(page), pageCopy);
+            List<COSDictionary> copiedAnnotations = new ArrayList<>(annotations.size());
+            for (COSBase item : annotations)
+            {
+                COSBase annotation = ofNullable(item).map(COSBase::getCOSObject).orElse(null);
+                if (annotation instanceof COSDictionary)
+                {
+                    COSDictionary copy = ((COSDictionary) annotation).duplicate();
+                    local.put(keyOf(annotation), copy);
+                    copies.putIfAbsent(keyOf(annotation), copy);
+                    copiedAnnotations.add(copy);
+                }
+            }
+            for (COSDictionary annotation : copiedAnnotations)
+            {
+                relink(annotation, COSName.P, local);
+                relink(annotation, POPUP, local);
+                relink(annotation, IRT, local);
+                COSName subtype = annotation.getCOSName(COSName.SUBTYPE);
+                if (POPUP.equals(subtype))
+                {
+                    relink(annotation, COSName.PARENT, local);
+                }
+                else if (COSName.WIDGET.equals(subtype))
+                {
+                    detachFromFields(annotation);
+                }
+                relinkDestination(annotation);
+            }
+            COSArray copiedArray = new COSArray();
+            copiedAnnotations.forEach(copiedArray::add);
+            pageCopy.setItem(COSName.ANNOTS, copiedArray);
+        }
+    }
+
+    private void relink(COSDictionary annotation, COSName key, Map<Object, COSDictionary> local)
+    {
+        COSBase value = annotation.getDictionaryObject(key);
+        if (value instanceof COSDictionary)
+        {
+            Object valueKey = keyOf(value);
+            COSDictionary copy = ofNullable(local.get(valueKey))
+                    .orElseGet(() -> copies.get(valueKey));
+            if (nonNull(copy))
+            {
+                annotation.setItem(key, copy);
+            }
+            else
+            {
+                annotation.removeItem(key);
+            }
+        }
+    }
+
+    /**
+     * Removes the parent field of the given widget, copying the field attributes it inherits, so that the widget doesn't
+     * bring along the source fields tree and, through the fields widgets, the source pages.
+     */
+    private static void detachFromFields(COSDictionary widget)
+    {
+        Set<Object> visited = new HashSet<>();
+        COSDictionary parent = widget.getDictionaryObject(COSName.PARENT, COSDictionary.class);
+        while (nonNull(parent) && visited.add(keyOf(parent)))
+        {
+            for (COSName key : INHERITABLE_FIELD)
+            {
+                if (!widget.containsKey(key) && parent.containsKey(key))
+                {
+                    widget.setItem(key, parent.getItem(key));
+                }
+            }
+            parent = parent.getDictionaryObject(COSName.PARENT, COSDictionary.class);
+        }
+        widget.removeItem(COSName.PARENT);
+    }
+
+    private void relinkDestination(COSDictionary annotation)
+    {
+        COSBase dest = annotation.getDictionaryObject(COSName.DEST);
+        if (dest instanceof COSArray)
+        {
+            COSArray relinked = relinkDestination((COSArray) dest);
+            if (isNull(relinked))
+            {
+                annotation.removeItem(COSName.DEST);
+            }
+            else
+            {
+                annotation.setItem(COSName.DEST, relinked);
+            }
+        }
+        COSDictionary action = annotation.getDictionaryObject(COSName.A, COSDictionary.class);
+        if (nonNull(action) && GOTO.equals(action.getCOSName(COSName.S)))
+        {
+            COSBase actionDest = action.getDictionaryObject(COSName.D);
+            if (actionDest instanceof COSArray)
+            {
+                COSArray relinked = relinkDestination((COSArray) actionDest);
+                if (isNull(relinked))
+                {
+                    annotation.removeItem(COSName.A);
+                }
+                else
+                {
+                    COSDictionary relinkedAction = action.duplicate();
+                    relinkedAction.setItem(COSName.D, relinked);
+                    annotation.setItem(COSName.A, relinkedAction);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the given explicit destination pointing to the copied page or null if the page has not been
+     * copied
+     */
+    private COSArray relinkDestination(COSArray destination)
+    {
+        if (destination.size() > 0)
+        {
+            COSBase page = destination.getObject(0);
+            if (page instanceof COSDictionary)
+            {
+                COSDictionary copy = copies.get(keyOf(page));
+                if (isNull(copy))
+                {
+                    return null;
+                }
+                COSArray relinked = new COSArray();
+                relinked.add(copy);
+                for (int i = 1; i < destination.size(); i++)
+                {
+                    relinked.add(destination.get(i));
+                }
+                return relinked;
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * @return the id of objects of the existing document, so that copies are found even if the object has been parsed
+     * again, the object itself otherwise.
+     */
+    private static Object keyOf(COSBase value)
+    {
+        if (value.hasId())
+        {
+            return value.id();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static org.sejda.util.RequireUtils.requireArg;
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.sejda.io.CountingWritableByteChannel;
+import org.sejda.sambox.SAMBox;
+import org.sejda.sambox.cos.COSBase;
+import org.sejda.sambox.cos.IndirectCOSObjectReference;
+import org.sejda.sambox.cos.NonStorableInObjectStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parallel implementation of an {@link AbstractPDFBodyWriter}. Objects are serialized to in memory buffers by a pool of
+ * {@link SAMBox#BODY_WRITER_THREADS_PROPERTY} threads, this is where most of the work is done when streams are
+ * compressed. A single thread then writes the buffers to the {@link IndirectObjectsWriter} in the same order the
+ * objects have been submitted, assigning the offsets of the xref entries. The number of objects serialized but not
+ * written yet is bounded to limit the memory used by the buffers.
+ * <p>
+ * {@link NonStorableInObjectStreams} (Ex. the indirect length of a stream, whose value is known only once the stream is
+ * serialized) are serialized by the writing thread, once the previously submitted objects have been written. When the
+ * document is encrypted every object is serialized by the writing thread, since the encryption algorithm holds the
+ * key of the object currently written.
+ * </p>
+ * 
+ * @author Andrea Vacondio
+ */
+class ParallelPDFBodyWriter extends AbstractPDFBodyWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelPDFBodyWriter.class);
+
+    private ExecutorService executor = Executors.newSingleThreadExecutor(
+            target -> new Thread(null, target, "pdf-writer-thread", 0));
+    private ExecutorService serializers;
+    private Semaphore inFlight;
+    private AtomicReference<IOException> executionException = new AtomicReference<>();
+    private ThreadLocal<ObjectSerializer> serializer;
+    private IndirectObjectsWriter writer;
+
+    ParallelPDFBodyWriter(IndirectObjectsWriter writer, PDFWriteContext context)
+    {
+        this(writer, context, Integer.getInteger(SAMBox.BODY_WRITER_THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param writer
+     * @param context
+     * @param threads number of threads serializing objects
+     */
+    ParallelPDFBodyWriter(IndirectObjectsWriter writer, PDFWriteContext context, int threads)
+    {
+        super(context);
+        requireNotNullArg(writer, "Cannot write to a null writer");
+        requireArg(threads > 0, "Number of threads must be a positive number");
+        this.writer = writer;
+        this.inFlight = new Semaphore(threads * 8);
+        AtomicInteger counter = new AtomicInteger();
+        this.serializers = Executors.newFixedThreadPool(threads, target -> new Thread(null,
+                target, "pdf-serializer-thread-" + counter.incrementAndGet(), 0));
+        this.serializer = ThreadLocal.withInitial(() -> new ObjectSerializer(context));
+    }
+
+    @Override
+    void onCompletion() throws IOException
+    {
+        assertCanSubmitAsyncTask();
+        try
+        {
+            executor.submit(() -> {
+                IOException previous = executionException.get();
+                if (previous != null)
+                {
+                    throw previous;
+                }
+                LOG.debug("Written document body");
+                return null;
+            }).get();
+        }
+        catch (InterruptedException e)
+        {
+            throw new IOException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    void writeObject(IndirectCOSObjectReference ref) throws IOException
+    {
+        assertCanSubmitAsyncTask();
+        if (ref instanceof NonStorableInObjectStreams || context().encryptor.isPresent())
+        {
+            executor.execute(() -> write(() -> writer.writeObjectIfNotWritten(ref)));
+        }
+        else
+        {
+            try
+            {
+                inFlight.acquire();
+            }
+            catch (InterruptedException e)
+            {
+                throw new IOException(e);
+            }
+            // resolved by the calling thread, serializers only deal with loaded objects
+            COSBase object = ref.getCOSObject().getCOSObject();
+            PDFWriteContext context = context();
+            Future<byte[]> serialized = serializers
+                    .submit(() -> serializer.get().serialize(object));
+            executor.execute(() -> {
+                try
+                {
+                    write(() -> {
+                        byte[] bytes = get(serialized);
+                        if (!context.hasWritten(ref.xrefEntry()))
+                        {
+                            writer.writeObject(ref, bytes);
+                        }
+                    });
+                }
+                finally
+                {
+                    inFlight.release();
+                }
+            });
+        }
+    }
+
+    private void write(IOTask task)
+    {
+        try
+        {
+            if (executionException.get() == null)
+            {
+                task.execute();
+            }
+        }
+        catch (IOException e)
+        {
+            executionException.set(e);
+        }
+        catch (Exception e)
+        {
+            executionException.set(new IOException(e));
+        }
+    }
+
+    private static byte[] get(Future<byte[]> serialized) throws IOException
+    {
+        try
+        {
+            return serialized.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw new IOException(e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void assertCanSubmitAsyncTask() throws IOException
+    {
+        IOException previous = executionException.get();
+        if (previous != null)
+        {
+            executor.shutdownNow();
+            serializers.shutdownNow();
+            throw previous;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        super.close();
+        executor.shutdown();
+        serializers.shutdown();
+    }
+
+    @FunctionalInterface
+    private static interface IOTask
+    {
+        void execute() throws IOException;
+    }
+
+    /**
+     * Serializes objects to a reusable in memory buffer, one instance per serializing thread
+     */
+    private static class ObjectSerializer
+    {
+        private final SerializationBuffer buffer = new SerializationBuffer();
+        private final COSWriter writer;
+
+        ObjectSerializer(PDFWriteContext context)
+        {
+            this.writer = new IndirectReferencesAwareCOSWriter(
+                    CountingWritableByteChannel.from(buffer), context);
+        }
+
+        byte[] serialize(COSBase object) throws IOException
+        {
+            try
+            {
+                object.accept(writer);
+                writer.writer().flush();
+                return buffer.toByteArrayWithoutTrailingEOL();
+            }
+            finally
+            {
+                buffer.reset();
+            }
+        }
+    }
+
+    /**
+     * The EOL written after a complex object is dropped, the {@link IndirectObjectsWriter} writes one right before the
+     * endobj keyword, same as it does when serializing the object itself.
+     */
+    private static class SerializationBuffer extends ByteArrayOutputStream
+    {
+        byte[] toByteArrayWithoutTrailingEOL()
+        {
+            if (count > 0 && buf[count - 1] == '\n')
+            {
+                return Arrays.copyOf(buf, count - 1);
+            }
+            return toByteArray();
+        }
+    }
+}
@@ -31,6 +31,12 @@ public enum WriteOption
      * Writes the document using the synchronous writer as opposed to the default async one
      */
     SYNC_BODY_WRITE,
+    /**
+     * Writes the document serializing pdf objects in parallel using a pool of threads, serialized objects are then
+     * written in order by a single thread. See org.sejda.sambox.SAMBox#BODY_WRITER_THREADS_PROPERTY. Ignored if
+     * {@link #SYNC_BODY_WRITE} is selected.
+     */
+    PARALLEL_BODY_WRITE,
     /**
      * Writes pdf objects using objects stream
      */
@@ -38,5 +44,34 @@ public enum WriteOption
     /**
      * Adds a Flate filter to the streams if not already there
      */
-    COMPRESS_STREAMS;
+    COMPRESS_STREAMS,
+    /**
+     * Streams compressed during the write use the fastest Flate compression level, trading size for speed
+     */
+    FAST_COMPRESSION,
+    /**
+     * Streams compressed during the write use the best Flate compression level, trading speed for size. Ignored if
+     * {@link #FAST_COMPRESSION} is selected.
+     */
+    BEST_COMPRESSION,
+    /**
+     * Writes identical streams and dictionaries only once, references to the duplicates point to the written one. Only
+     * objects whose values are all direct objects are compared, by a digest of their content. Useful for documents
+     * assembled from multiple sources, where the same fonts, color profiles or images are often repeated.
+     */
+    DEDUPLICATE,
+    /**
+     * Writes the document as an incremental update, as defined in Chap 7.5.6 of PDF 32000-1:2008. The original bytes
+     * are copied to the output, followed by the modified and the new objects only. The document must have been parsed
+     * from a source that is still available and the output must not be the source itself. Ignored, and the document is
+     * fully written, if the document cannot be incrementally updated (Ex. it's a new or encrypted document) or
+     * encryption is requested.
+     */
+    INCREMENTAL,
+    /**
+     * Objects of existing documents are not released once written, so that writing them again, as part of another
+     * document, doesn't parse them again. Useful when multiple documents are written from the same source (Ex. split),
+     * at the cost of keeping the written objects in memory until the source is closed.
+     */
+    KEEP_EXISTING_OBJECTS;
 }
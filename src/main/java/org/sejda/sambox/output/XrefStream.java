@@ -22,6 +22,7 @@ import static org.sejda.sambox.xref.XrefEntry.freeEntry;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
 
@@ -31,6 +32,8 @@ import org.sejda.sambox.cos.COSInteger;
 import org.sejda.sambox.cos.COSName;
 import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.cos.DirectCOSObject;
+import org.sejda.sambox.cos.IncrementalSource;
+import org.sejda.sambox.xref.XrefEntry;
 
 /**
  * A {@link COSStream} that represent and xref stream as defined in Chap 7.5.8 of PDF 32000-1:2008
@@ -52,15 +55,7 @@ class XrefStream extends COSStream
     {
         super(dictionary);
         removeItem(COSName.PREV);
-        removeItem(COSName.XREF_STM);
-        removeItem(COSName.DOC_CHECKSUM);
-        removeItem(COSName.DECODE_PARMS);
-        removeItem(COSName.FILTER);
-        removeItem(COSName.F_DECODE_PARMS);
-        removeItem(COSName.F_FILTER);
-        removeItem(COSName.F);
-        removeItem(COSName.LENGTH);
-        setName(COSName.TYPE, COSName.XREF.getName());
+        sanitize();
         setItem(COSName.SIZE, asDirect(context.highestWritten().getObjectNumber() + 1));
         setItem(COSName.INDEX,
                 new COSArray(asDirect(context.lowestWritten().getObjectNumber()),
@@ -68,19 +63,84 @@ class XrefStream extends COSStream
                                 - context.lowestWritten().getObjectNumber() + 1)));
         int secondFieldLength = sizeOf(context.highestWritten().getByteOffset());
         setItem(COSName.W, new COSArray(asDirect(1), asDirect(secondFieldLength), asDirect(2)));
+        byte[] entry = new byte[1 + secondFieldLength + 2];
         try (OutputStream out = createUnfilteredStream())
         {
             for (long key = context.lowestWritten().getObjectNumber(); key <= context
                     .highestWritten().getObjectNumber(); key++)
             {
-                out.write(Optional.ofNullable(context.getWritten(key)).orElse(freeEntry(key, 0))
-                        .toXrefStreamEntry(secondFieldLength, 2));
+                Optional.ofNullable(context.getWritten(key)).orElse(freeEntry(key, 0))
+                        .toXrefStreamEntry(secondFieldLength, 2, entry);
+                out.write(entry);
             }
         }
         setItem(COSName.DL, asDirect(getUnfilteredLength()));
         addCompression();
     }
 
+    /**
+     * Creates the xref stream of an incremental update from the given dictionary. The stream will contain only the
+     * entries that have been written using the given context, in subsections of consecutive object numbers, and it
+     * points to the latest xref section of the given source.
+     * 
+     * @param dictionary
+     * @param context
+     * @param source
+     * @throws IOException
+     */
+    XrefStream(COSDictionary dictionary, PDFWriteContext context, IncrementalSource source)
+            throws IOException
+    {
+        super(dictionary);
+        sanitize();
+        setItem(COSName.PREV, asDirect(source.startxref()));
+        setItem(COSName.SIZE, asDirect(
+                Math.max(context.highestWritten().getObjectNumber(), source.highestObjectNumber())
+                        + 1));
+        List<List<XrefEntry>> subsections = context.writtenSubsections();
+        COSArray index = new COSArray();
+        long highestOffset = 0;
+        for (List<XrefEntry> subsection : subsections)
+        {
+            index.add(asDirect(subsection.get(0).getObjectNumber()));
+            index.add(asDirect(subsection.size()));
+            for (XrefEntry entry : subsection)
+            {
+                highestOffset = Math.max(highestOffset, entry.getByteOffset());
+            }
+        }
+        setItem(COSName.INDEX, index);
+        int secondFieldLength = sizeOf(highestOffset);
+        setItem(COSName.W, new COSArray(asDirect(1), asDirect(secondFieldLength), asDirect(2)));
+        byte[] row = new byte[1 + secondFieldLength + 2];
+        try (OutputStream out = createUnfilteredStream())
+        {
+            for (List<XrefEntry> subsection : subsections)
+            {
+                for (XrefEntry entry : subsection)
+                {
+                    entry.toXrefStreamEntry(secondFieldLength, 2, row);
+                    out.write(row);
+                }
+            }
+        }
+        setItem(COSName.DL, asDirect(getUnfilteredLength()));
+        addCompression();
+    }
+
+    private void sanitize()
+    {
+        removeItem(COSName.XREF_STM);
+        removeItem(COSName.DOC_CHECKSUM);
+        removeItem(COSName.DECODE_PARMS);
+        removeItem(COSName.FILTER);
+        removeItem(COSName.F_DECODE_PARMS);
+        removeItem(COSName.F_FILTER);
+        removeItem(COSName.F);
+        removeItem(COSName.LENGTH);
+        setName(COSName.TYPE, COSName.XREF.getName());
+    }
+
     private static DirectCOSObject asDirect(long num)
     {
         return asDirectObject(COSInteger.get(num));
@@ -104,7 +164,11 @@ class XrefStream extends COSStream
         // do nothing
     }
 
-    private static int sizeOf(long number)
+    /**
+     * @param number
+     * @return the number of bytes needed to write the given number in an xref stream entry field
+     */
+    static int sizeOf(long number)
     {
         int size = 0;
         while (number > 0)
@@ -31,10 +31,13 @@ import java.io.OutputStream;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.sejda.io.CountingWritableByteChannel;
 import org.sejda.sambox.cos.COSArray;
@@ -43,11 +46,13 @@ import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSDocument;
 import org.sejda.sambox.cos.COSInteger;
 import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSObjectKey;
 import org.sejda.sambox.cos.COSString;
 import org.sejda.sambox.cos.DirectCOSObject;
 import org.sejda.sambox.encryption.EncryptionContext;
 import org.sejda.sambox.encryption.MessageDigests;
 import org.sejda.sambox.encryption.StandardSecurity;
+import org.sejda.sambox.output.ExistingStreamsCache;
 import org.sejda.sambox.output.PDDocumentWriter;
 import org.sejda.sambox.output.WriteOption;
 import org.sejda.sambox.pdmodel.common.PDStream;
@@ -73,6 +78,8 @@ public class PDDocument implements Closeable
     private AccessPermission permission;
     private boolean open = true;
     private OnClose onClose;
+    private ObjectsPrefetcher prefetcher;
+    private ExistingStreamsCache existingStreamsCache;
     private ResourceCache resourceCache = new DefaultResourceCache();
 
     // fonts to subset before saving
@@ -363,6 +370,63 @@ public class PDDocument implements Closeable
         this.onClose = onClose;
     }
 
+    /**
+     * Sets the cache the unchanged data of streams of existing documents is read through when this document is
+     * written. Documents sharing resources (Ex. created from pages of the same source) can share the cache so that the
+     * data of the shared streams is read from the source only once.
+     * 
+     * @param cache
+     */
+    public void setExistingStreamsCache(ExistingStreamsCache cache)
+    {
+        requireOpen();
+        this.existingStreamsCache = cache;
+    }
+
+    /**
+     * Sets the component used to prefetch the indirect objects of a document parsed from an existing source.
+     * 
+     * @param prefetcher
+     */
+    public void setObjectsPrefetcher(ObjectsPrefetcher prefetcher)
+    {
+        requireOpen();
+        this.prefetcher = prefetcher;
+    }
+
+    /**
+     * Parses all the indirect objects of this document in a single sequential sweep of the source. This is useful
+     * before processing the whole document (Ex. writing it or extracting its text), when the objects would otherwise
+     * be parsed in the order they are referenced, seeking back and forth in the source.
+     * 
+     * @param background if true objects are parsed by a background thread, ahead of the consumers. Requires the
+     * document to be parsed in concurrent mode (see {@link org.sejda.sambox.SAMBox#CONCURRENT_READERS_PROPERTY}),
+     * otherwise objects are parsed by the calling thread.
+     * @return a future completed once all the objects have been parsed
+     */
+    public CompletableFuture<Void> prefetch(boolean background)
+    {
+        return prefetch(null, background);
+    }
+
+    /**
+     * Parses the indirect objects with the given keys in a single sequential sweep of the source.
+     * 
+     * @param keys keys of the objects to parse. If null all the objects are parsed.
+     * @param background if true objects are parsed by a background thread, ahead of the consumers.
+     * @return a future completed once all the objects have been parsed
+     * @see #prefetch(boolean)
+     */
+    public CompletableFuture<Void> prefetch(Collection<COSObjectKey> keys, boolean background)
+    {
+        requireOpen();
+        if (prefetcher != null)
+        {
+            return prefetcher.prefetch(keys, background);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
     private void requireOpen() throws IllegalStateException
     {
         if (!isOpen())
@@ -373,12 +437,14 @@ public class PDDocument implements Closeable
 
     /**
      * Generates file identifier as defined in the chap 14.4 PDF 32000-1:2008 and sets it as ID value of the document
-     * trailer.
+     * trailer. When writing an incremental update the first identifier of the existing document, if any, is kept.
      * 
      * @param md5Update
      * @param encContext
+     * @param incremental
      */
-    private void generateFileIdentifier(byte[] md5Update, Optional<EncryptionContext> encContext)
+    private void generateFileIdentifier(byte[] md5Update, Optional<EncryptionContext> encContext,
+            boolean incremental)
     {
         MessageDigest md5 = MessageDigests.md5();
         md5.update(Long.toString(System.currentTimeMillis()).getBytes(StandardCharsets.ISO_8859_1));
@@ -397,7 +463,14 @@ public class PDDocument implements Closeable
         retVal.setForceHexForm(true);
         retVal.encryptable(false);
         DirectCOSObject id = asDirectObject(retVal);
-        getDocument().getTrailer().setItem(COSName.ID, asDirectObject(new COSArray(id, id)));
+        COSBase first = id;
+        if (incremental)
+        {
+            first = ofNullable(getDocument().getDocumentID()).filter(a -> a.size() > 0)
+                    .map(a -> a.getObject(0)).filter(COSString.class::isInstance)
+                    .<COSBase> map(DirectCOSObject::asDirectObject).orElse(id);
+        }
+        getDocument().getTrailer().setItem(COSName.ID, asDirectObject(new COSArray(first, id)));
     }
 
     /**
@@ -530,8 +603,10 @@ public class PDDocument implements Closeable
         Optional<EncryptionContext> encryptionContext = ofNullable(
                 ofNullable(security).map(EncryptionContext::new).orElse(null));
         generateFileIdentifier(output.toString().getBytes(StandardCharsets.ISO_8859_1),
-                encryptionContext);
-        try (PDDocumentWriter writer = new PDDocumentWriter(output, encryptionContext, options))
+                encryptionContext, !encryptionContext.isPresent()
+                        && Arrays.asList(options).contains(WriteOption.INCREMENTAL));
+        try (PDDocumentWriter writer = new PDDocumentWriter(output, encryptionContext,
+                existingStreamsCache, options))
         {
             writer.write(this);
         }
@@ -582,6 +657,22 @@ public class PDDocument implements Closeable
         void onClose() throws IOException;
     }
 
+    /**
+     * Component capable of parsing the indirect objects of a document in a single sequential sweep of the source
+     * 
+     * @author Andrea Vacondio
+     */
+    @FunctionalInterface
+    public static interface ObjectsPrefetcher
+    {
+        /**
+         * @param keys keys of the objects to parse. If null all the objects are parsed.
+         * @param background if true objects are parsed by a background thread
+         * @return a future completed once all the objects have been parsed
+         */
+        CompletableFuture<Void> prefetch(Collection<COSObjectKey> keys, boolean background);
+    }
+
     /**
      * Returns the resource cache associated with this document, or null if there is none.
      */
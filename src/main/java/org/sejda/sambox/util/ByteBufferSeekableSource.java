@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.util;
+
+import static org.sejda.util.RequireUtils.requireArg;
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.sejda.io.BaseSeekableSource;
+import org.sejda.io.SeekableSource;
+
+/**
+ * A {@link SeekableSource} reading from a {@link ByteBuffer}, possibly a mapped one. Views are slices of the same
+ * buffer, no data is copied when a view is created.
+ *
+ * @author Andrea Vacondio
+ */
+public class ByteBufferSeekableSource extends BaseSeekableSource
+{
+    private ByteBuffer buffer;
+
+    /**
+     * @param id the id of the source
+     * @param buffer the buffer to read from. Data between 0 and the buffer limit is exposed by this source.
+     */
+    public ByteBufferSeekableSource(String id, ByteBuffer buffer)
+    {
+        super(id);
+        requireNotNullArg(buffer, "Input buffer cannot be null");
+        this.buffer = buffer.duplicate();
+        this.buffer.position(0);
+    }
+
+    @Override
+    public long position()
+    {
+        return buffer.position();
+    }
+
+    @Override
+    public SeekableSource position(long position)
+    {
+        requireArg(position >= 0, "Cannot set position to a negative value");
+        buffer.position((int) Math.min(position, size()));
+        return this;
+    }
+
+    @Override
+    public long size()
+    {
+        return buffer.limit();
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException
+    {
+        requireOpen();
+        if (!buffer.hasRemaining())
+        {
+            return -1;
+        }
+        int count = Math.min(dst.remaining(), buffer.remaining());
+        ByteBuffer chunk = buffer.duplicate();
+        chunk.limit(chunk.position() + count);
+        dst.put(chunk);
+        buffer.position(buffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        requireOpen();
+        if (buffer.hasRemaining())
+        {
+            return buffer.get() & 0xFF;
+        }
+        return -1;
+    }
+
+    @Override
+    public SeekableSource view(long startingPosition, long length) throws IOException
+    {
+        requireOpen();
+        requireArg(startingPosition >= 0 && length >= 0 && startingPosition + length <= size(),
+                "Invalid view boundaries");
+        ByteBuffer view = buffer.duplicate();
+        view.limit((int) (startingPosition + length));
+        view.position((int) startingPosition);
+        return new ByteBufferSeekableSource(id(), view.slice());
+    }
+
+    /**
+     * @return a read only {@link ByteBuffer} sharing the content of this source. The returned buffer position is zero
+     * and the limit is the source size.
+     * @throws IOException if the source is closed
+     */
+    public ByteBuffer asByteBuffer() throws IOException
+    {
+        requireOpen();
+        ByteBuffer retVal = buffer.asReadOnlyBuffer();
+        retVal.position(0);
+        return retVal;
+    }
+}
@@ -57,6 +57,29 @@ public final class CharUtils
                 || ch == ')' || ch == '(' || ch == '%';
     }
 
+    /**
+     * @param value
+     * @param bytes
+     * @param offset
+     * @param length
+     * @return true if the given value is made of the given bytes, where each byte is an ISO-8859-1 char
+     */
+    public static boolean matches(String value, byte[] bytes, int offset, int length)
+    {
+        if (value.length() != length)
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            if (value.charAt(i) != (bytes[offset + i] & 0xFF))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @param c
      * @return true if the char is end of file
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.util;
+
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.sejda.io.BaseSeekableSource;
+import org.sejda.io.BufferedSeekableSource;
+import org.sejda.io.SeekableSource;
+import org.sejda.util.IOUtils;
+
+/**
+ * A {@link SeekableSource} reading the content of another source with its own independent position. Reads go through
+ * a buffered view of the whole shared source while views are requested to the shared source itself, this allows
+ * multiple instances, each used by a single thread, to read the same shared source concurrently.
+ *
+ * @author Andrea Vacondio
+ */
+public class IndependentSeekableSource extends BaseSeekableSource
+{
+    private SeekableSource shared;
+    private SeekableSource reader;
+
+    /**
+     * @param shared the source to read from. It's not closed when this source is closed.
+     * @throws IOException
+     */
+    public IndependentSeekableSource(SeekableSource shared) throws IOException
+    {
+        super(requireSource(shared).id());
+        this.shared = shared;
+        this.reader = new BufferedSeekableSource(shared.view(0, shared.size()));
+    }
+
+    private static SeekableSource requireSource(SeekableSource source)
+    {
+        requireNotNullArg(source, "Shared source cannot be null");
+        return source;
+    }
+
+    @Override
+    public long position() throws IOException
+    {
+        return reader.position();
+    }
+
+    @Override
+    public SeekableSource position(long position) throws IOException
+    {
+        requireOpen();
+        reader.position(position);
+        return this;
+    }
+
+    @Override
+    public long size()
+    {
+        return reader.size();
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException
+    {
+        requireOpen();
+        return reader.read(dst);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        requireOpen();
+        return reader.read();
+    }
+
+    @Override
+    public SeekableSource view(long startingPosition, long length) throws IOException
+    {
+        requireOpen();
+        return shared.view(startingPosition, length);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        super.close();
+        IOUtils.close(reader);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.util;
+
+import static org.sejda.util.RequireUtils.requireArg;
+import static org.sejda.util.RequireUtils.requireNotNullArg;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.sejda.io.BaseSeekableSource;
+import org.sejda.io.SeekableSource;
+import org.sejda.sambox.SAMBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SeekableSource} for a memory mapped file. The file is mapped once, in pages of
+ * {@link SAMBox#MAPPED_PAGE_SIZE_PROPERTY} bytes, and views share the mapping: a view within a page is a
+ * {@link ByteBufferSeekableSource} over a slice of the page, a view spanning multiple pages is a source over the same
+ * pages. This allows streams of an existing document to be read straight from the mapping, without copying them to
+ * heap buffers. The mapping is released once this source and its views are closed and no longer referenced.
+ *
+ * @author Andrea Vacondio
+ */
+public class MappedFileSeekableSource extends BaseSeekableSource
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MappedFileSeekableSource.class);
+
+    private List<ByteBuffer> pages;
+    private final long pageSize;
+    private final long start;
+    private final long size;
+    private long position;
+
+    public MappedFileSeekableSource(File file) throws IOException
+    {
+        super(requireFile(file).getAbsolutePath());
+        this.pageSize = Long.getLong(SAMBox.MAPPED_PAGE_SIZE_PROPERTY, 1 << 28);
+        requireArg(pageSize > 0 && pageSize <= Integer.MAX_VALUE, "Invalid mapped page size");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            this.size = channel.size();
+            List<ByteBuffer> pages = new ArrayList<>();
+            for (long offset = 0; offset < size; offset += pageSize)
+            {
+                pages.add(channel.map(MapMode.READ_ONLY, offset, Math.min(pageSize, size - offset)));
+            }
+            this.pages = Collections.unmodifiableList(pages);
+        }
+        this.start = 0;
+        LOG.debug("Mapped {} in {} pages", id(), pages.size());
+    }
+
+    /**
+     * A view of the given pages. Pages are shared and never modified, reads are performed on duplicates.
+     */
+    private MappedFileSeekableSource(String id, List<ByteBuffer> pages, long pageSize, long start,
+            long size)
+    {
+        super(id);
+        this.pages = pages;
+        this.pageSize = pageSize;
+        this.start = start;
+        this.size = size;
+    }
+
+    private static File requireFile(File file)
+    {
+        requireNotNullArg(file, "Input file cannot be null");
+        return file;
+    }
+
+    @Override
+    public long position()
+    {
+        return position;
+    }
+
+    @Override
+    public SeekableSource position(long position) throws IOException
+    {
+        requireOpen();
+        requireArg(position >= 0, "Cannot set position to a negative value");
+        this.position = Math.min(position, size);
+        return this;
+    }
+
+    @Override
+    public long size()
+    {
+        return size;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException
+    {
+        requireOpen();
+        if (position >= size)
+        {
+            return -1;
+        }
+        int read = 0;
+        while (dst.hasRemaining() && position < size)
+        {
+            long offset = start + position;
+            ByteBuffer page = pages.get((int) (offset / pageSize)).duplicate();
+            page.position((int) (offset % pageSize));
+            int count = (int) Math.min(Math.min(dst.remaining(), page.remaining()), size - position);
+            page.limit(page.position() + count);
+            dst.put(page);
+            position += count;
+            read += count;
+        }
+        return read;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        requireOpen();
+        if (position >= size)
+        {
+            return -1;
+        }
+        long offset = start + position++;
+        return pages.get((int) (offset / pageSize)).get((int) (offset % pageSize)) & 0xFF;
+    }
+
+    @Override
+    public SeekableSource view(long startingPosition, long length) throws IOException
+    {
+        requireOpen();
+        requireArg(startingPosition >= 0 && length >= 0 && startingPosition + length <= size(),
+                "Invalid view boundaries");
+        long offset = start + startingPosition;
+        int page = (int) (offset / pageSize);
+        if (length == 0 || (offset + length - 1) / pageSize == page)
+        {
+            ByteBuffer view = pages.get(page).duplicate();
+            view.position((int) (offset % pageSize));
+            view.limit(view.position() + (int) length);
+            return new ByteBufferSeekableSource(id(), view.slice());
+        }
+        return new MappedFileSeekableSource(id(), pages, pageSize, offset, length);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        super.close();
+        pages = null;
+    }
+}
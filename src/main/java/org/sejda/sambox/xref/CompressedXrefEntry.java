@@ -18,6 +18,8 @@ package org.sejda.sambox.xref;
 
 import static org.sejda.util.RequireUtils.requireArg;
 
+import java.util.Objects;
+
 /**
  * An xref entry for a cross reference stream which represent a compressed objects (i.e. an object part of an object
  * stream). See table 18 PDF32000:2008-1
@@ -47,14 +49,37 @@ public final class CompressedXrefEntry extends XrefEntry
         return objectStreamNumber;
     }
 
+    /**
+     * @return The index of this object within the object stream.
+     */
+    public long getIndex()
+    {
+        return index;
+    }
+
+    @Override
+    public void toXrefStreamEntry(int secondFieldLength, int thirdFieldLength, byte[] destination)
+    {
+        destination[0] = 0b00000010;
+        copyBytesTo(getObjectStreamNumber(), secondFieldLength, destination, 1);
+        copyBytesTo(index, thirdFieldLength, destination, 1 + secondFieldLength);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (!super.equals(obj))
+        {
+            return false;
+        }
+        CompressedXrefEntry other = (CompressedXrefEntry) obj;
+        return objectStreamNumber == other.objectStreamNumber && index == other.index;
+    }
+
     @Override
-    public byte[] toXrefStreamEntry(int secondFieldLength, int thirdFieldLength)
+    public int hashCode()
     {
-        byte[] retVal = new byte[1 + secondFieldLength + thirdFieldLength];
-        retVal[0] = 0b00000010;
-        copyBytesTo(getObjectStreamNumber(), secondFieldLength, retVal, 1);
-        copyBytesTo(index, thirdFieldLength, retVal, 1 + secondFieldLength);
-        return retVal;
+        return Objects.hash(super.hashCode(), objectStreamNumber, index);
     }
 
     @Override
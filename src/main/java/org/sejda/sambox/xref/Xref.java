@@ -16,21 +16,48 @@
  */
 package org.sejda.sambox.xref;
 
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.sejda.sambox.cos.COSObjectKey;
 
 /**
- * Xref table/stream entries.
+ * Xref table/stream entries. Entries are stored in primitive arrays indexed by object number, with type, generation
+ * and offset inlined, so that a huge xref doesn't cost an entry and a key instance per object and a lookup is a plain
+ * array access. {@link XrefEntry} instances for the entries in the arrays are created on each lookup and not retained.
+ * <p>
+ * Entries that don't fit the arrays (Ex. a different generation for an object number that is already present or an
+ * object number way too far from the ones we have) are kept in a sorted map. Lookups don't modify the xref so they can
+ * be performed concurrently, additions and removals must not happen at the same time as other operations.
+ * </p>
  * 
  * @author Andrea Vacondio
  *
  */
 public class Xref
 {
-    private HashMap<COSObjectKey, XrefEntry> data = new HashMap<>();
+    private static final byte EMPTY = 0;
+    private static final XrefType[] TYPES = XrefType.values();
+    /**
+     * Object numbers below this are always stored in the arrays
+     */
+    private static final int DENSE_THRESHOLD = 1 << 16;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private byte[] types = new byte[0];
+    private int[] generations = new int[0];
+    private long[] offsets = new long[0];
+    private int dense;
+    private int lowestDense = -1;
+    private int highestDense = -1;
+    private final TreeMap<COSObjectKey, XrefEntry> sparse = new TreeMap<>();
 
     /**
      * Adds the given entry to the {@link Xref} if an entry with the given object number and generation is not already
@@ -42,7 +69,7 @@ public class Xref
      */
     public XrefEntry addIfAbsent(XrefEntry entry)
     {
-        return data.putIfAbsent(entry.key(), entry);
+        return put(entry, false);
     }
 
     /**
@@ -55,7 +82,51 @@ public class Xref
      */
     public XrefEntry add(XrefEntry entry)
     {
-        return data.put(entry.key(), entry);
+        return put(entry, true);
+    }
+
+    private XrefEntry put(XrefEntry entry, boolean replace)
+    {
+        int slot = slot(entry.getObjectNumber());
+        if (slot >= 0 && types[slot] != EMPTY && generationAt(slot) == entry.getGenerationNumber())
+        {
+            XrefEntry previous = entryAt(slot);
+            if (replace)
+            {
+                if (fits(entry))
+                {
+                    store(slot, entry);
+                }
+                else
+                {
+                    clear(slot);
+                    sparse.put(entry.key(), entry);
+                }
+            }
+            return previous;
+        }
+        XrefEntry previous = sparse.isEmpty() ? null : sparse.get(entry.key());
+        if (nonNull(previous))
+        {
+            if (replace)
+            {
+                sparse.put(entry.key(), entry);
+            }
+            return previous;
+        }
+        if (slot < 0 && fits(entry) && ensureCapacity(entry.getObjectNumber()))
+        {
+            slot = (int) entry.getObjectNumber();
+        }
+        if (slot >= 0 && types[slot] == EMPTY && fits(entry))
+        {
+            store(slot, entry);
+        }
+        else
+        {
+            sparse.put(entry.key(), entry);
+        }
+        return null;
     }
 
     /**
@@ -64,15 +135,111 @@ public class Xref
      */
     public XrefEntry get(COSObjectKey objectKey)
     {
-        return data.get(objectKey);
+        int slot = slot(objectKey.objectNumber());
+        if (slot >= 0 && types[slot] != EMPTY && generationAt(slot) == objectKey.generation())
+        {
+            return entryAt(slot);
+        }
+        if (sparse.isEmpty())
+        {
+            return null;
+        }
+        return sparse.get(objectKey);
+    }
+
+    /**
+     * @param objectNumber
+     * @return the {@link XrefEntry} for with the given object number or null if nothing is found. If entries with
+     * different generation numbers are present for the given object number, the one with the lowest generation is
+     * returned.
+     */
+    public XrefEntry get(long objectNumber)
+    {
+        if (objectNumber < 0)
+        {
+            return null;
+        }
+        int slot = slot(objectNumber);
+        XrefEntry retVal = null;
+        if (slot >= 0 && types[slot] != EMPTY)
+        {
+            retVal = entryAt(slot);
+        }
+        if (!sparse.isEmpty())
+        {
+            Map.Entry<COSObjectKey, XrefEntry> candidate = sparse
+                    .ceilingEntry(new COSObjectKey(objectNumber, 0));
+            if (nonNull(candidate) && candidate.getKey().objectNumber() == objectNumber
+                    && (retVal == null
+                            || candidate.getKey().generation() < retVal.getGenerationNumber()))
+            {
+                retVal = candidate.getValue();
+            }
+        }
+        return retVal;
     }
 
     /**
-     * @return and unmodifiable view of the entries in this xref
+     * @return a snapshot of the entries in this xref, sorted by object number and generation. Entries are created for
+     * the snapshot so this should be used with care on huge xrefs.
      */
     public Collection<XrefEntry> values()
     {
-        return Collections.unmodifiableCollection(data.values());
+        List<XrefEntry> values = new ArrayList<>(size());
+        for (int i = Math.max(0, lowestDense); i <= highestDense; i++)
+        {
+            if (types[i] != EMPTY)
+            {
+                values.add(entryAt(i));
+            }
+        }
+        if (!sparse.isEmpty())
+        {
+            values.addAll(sparse.values());
+            values.sort((a, b) -> a.key().compareTo(b.key()));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * @param objectNumber
+     * @return true if a value for the given object number, whatever its generation, is registered to this xref
+     */
+    public boolean contains(long objectNumber)
+    {
+        int slot = slot(objectNumber);
+        if (slot >= 0 && types[slot] != EMPTY)
+        {
+            return true;
+        }
+        if (objectNumber < 0 || sparse.isEmpty())
+        {
+            return false;
+        }
+        COSObjectKey candidate = sparse.ceilingKey(new COSObjectKey(objectNumber, 0));
+        return nonNull(candidate) && candidate.objectNumber() == objectNumber;
+    }
+
+    /**
+     * Removes the entry with the given object number and generation
+     * 
+     * @param objectKey
+     * @return the removed entry or null if no entry was associated to the given key
+     */
+    public XrefEntry remove(COSObjectKey objectKey)
+    {
+        int slot = slot(objectKey.objectNumber());
+        if (slot >= 0 && types[slot] != EMPTY && generationAt(slot) == objectKey.generation())
+        {
+            XrefEntry previous = entryAt(slot);
+            clear(slot);
+            return previous;
+        }
+        if (sparse.isEmpty())
+        {
+            return null;
+        }
+        return sparse.remove(objectKey);
     }
 
     /**
@@ -81,6 +248,197 @@ public class Xref
      */
     public boolean contains(COSObjectKey objectKey)
     {
-        return data.containsKey(objectKey);
+        int slot = slot(objectKey.objectNumber());
+        if (slot >= 0 && types[slot] != EMPTY && generationAt(slot) == objectKey.generation())
+        {
+            return true;
+        }
+        return !sparse.isEmpty() && sparse.containsKey(objectKey);
+    }
+
+    /**
+     * @return the number of entries in this xref
+     */
+    public int size()
+    {
+        return dense + sparse.size();
+    }
+
+    /**
+     * @return the entry with the highest object number or null if the xref is empty
+     */
+    public XrefEntry highest()
+    {
+        if (!sparse.isEmpty() && sparse.lastKey().objectNumber() > highestDense)
+        {
+            return sparse.lastEntry().getValue();
+        }
+        if (highestDense >= 0)
+        {
+            return entryAt(highestDense);
+        }
+        return null;
+    }
+
+    /**
+     * @return the entry with the lowest object number or null if the xref is empty
+     */
+    public XrefEntry lowest()
+    {
+        if (!sparse.isEmpty()
+                && (lowestDense < 0 || sparse.firstKey().objectNumber() <= lowestDense))
+        {
+            return sparse.firstEntry().getValue();
+        }
+        if (lowestDense >= 0)
+        {
+            return entryAt(lowestDense);
+        }
+        return null;
+    }
+
+    private int slot(long objectNumber)
+    {
+        if (objectNumber < types.length)
+        {
+            return (int) objectNumber;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the given entry can be stored in the arrays
+     */
+    private static boolean fits(XrefEntry entry)
+    {
+        if (entry instanceof CompressedXrefEntry)
+        {
+            long index = ((CompressedXrefEntry) entry).getIndex();
+            return entry.getGenerationNumber() == 0 && entry.isUnknownOffset() && index >= 0
+                    && index <= Integer.MAX_VALUE;
+        }
+        return true;
+    }
+
+    /**
+     * Grows the arrays, if reasonable, to hold the given object number. We don't want a corrupted or unusual object
+     * number to make us allocate arrays way bigger than the number of entries.
+     * 
+     * @return true if the arrays can hold the given object number
+     */
+    private boolean ensureCapacity(long objectNumber)
+    {
+        if (objectNumber < types.length)
+        {
+            return true;
+        }
+        if (objectNumber >= MAX_CAPACITY
+                || objectNumber >= Math.max(DENSE_THRESHOLD, 4L * (size() + 1)))
+        {
+            return false;
+        }
+        int previousCapacity = types.length;
+        int capacity = (int) Math.min(MAX_CAPACITY, Math.max(objectNumber + 1,
+                Math.max(16, previousCapacity + (previousCapacity >> 1))));
+        types = Arrays.copyOf(types, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        moveSparseToDense(previousCapacity);
+        return true;
+    }
+
+    /**
+     * Entries that didn't fit the previous arrays might fit now
+     */
+    private void moveSparseToDense(int previousCapacity)
+    {
+        if (!sparse.isEmpty())
+        {
+            COSObjectKey from = new COSObjectKey(previousCapacity, 0);
+            COSObjectKey to = new COSObjectKey(types.length, 0);
+            Collection<XrefEntry> candidates = new ArrayList<>(
+                    sparse.subMap(from, to).values());
+            for (XrefEntry current : candidates)
+            {
+                int slot = (int) current.getObjectNumber();
+                if (types[slot] == EMPTY && fits(current))
+                {
+                    sparse.remove(current.key());
+                    store(slot, current);
+                }
+            }
+        }
+    }
+
+    private void store(int slot, XrefEntry entry)
+    {
+        if (types[slot] == EMPTY)
+        {
+            dense++;
+            if (lowestDense < 0 || slot < lowestDense)
+            {
+                lowestDense = slot;
+            }
+            if (slot > highestDense)
+            {
+                highestDense = slot;
+            }
+        }
+        types[slot] = (byte) (entry.getType().ordinal() + 1);
+        if (entry instanceof CompressedXrefEntry)
+        {
+            // compressed entries have generation zero and unknown offset so we use the slots for stream and index
+            generations[slot] = (int) ((CompressedXrefEntry) entry).getIndex();
+            offsets[slot] = ((CompressedXrefEntry) entry).getObjectStreamNumber();
+        }
+        else
+        {
+            generations[slot] = entry.getGenerationNumber();
+            offsets[slot] = entry.getByteOffset();
+        }
+    }
+
+    private void clear(int slot)
+    {
+        types[slot] = EMPTY;
+        dense--;
+        if (dense == 0)
+        {
+            lowestDense = -1;
+            highestDense = -1;
+        }
+        else
+        {
+            while (types[lowestDense] == EMPTY)
+            {
+                lowestDense++;
+            }
+            while (types[highestDense] == EMPTY)
+            {
+                highestDense--;
+            }
+        }
+    }
+
+    private int generationAt(int slot)
+    {
+        if (TYPES[types[slot] - 1] == XrefType.COMPRESSED)
+        {
+            return 0;
+        }
+        return generations[slot];
+    }
+
+    /**
+     * @return a new entry for the values stored in the given slot
+     */
+    private XrefEntry entryAt(int slot)
+    {
+        XrefType type = TYPES[types[slot] - 1];
+        if (type == XrefType.COMPRESSED)
+        {
+            return CompressedXrefEntry.compressedEntry(slot, offsets[slot], generations[slot]);
+        }
+        return new XrefEntry(type, slot, offsets[slot], generations[slot]);
     }
 }
@@ -18,6 +18,9 @@ package org.sejda.sambox.xref;
 
 import static org.sejda.util.RequireUtils.requireArg;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
 import org.sejda.sambox.cos.COSObjectKey;
 
 /**
@@ -27,7 +30,11 @@ import org.sejda.sambox.cos.COSObjectKey;
  */
 public class XrefEntry
 {
-    private static final String XREFTABLE_ENTRY_FORMAT = "%010d %05d %c\r\n";
+    /**
+     * Length in bytes of a xref table entry, see Chap 7.5.4 of PDF32000-1:2008
+     */
+    public static final int XREF_TABLE_ENTRY_LENGTH = 20;
+    private static final long MAX_XREF_TABLE_OFFSET = 9_999_999_999L;
 
     public static final XrefEntry DEFAULT_FREE_ENTRY = freeEntry(0, 65535);
     public static final long UNKNOWN_OFFSET = -1;
@@ -91,6 +98,27 @@ public class XrefEntry
                 && key.objectNumber() == ((CompressedXrefEntry) entry).getObjectStreamNumber();
     }
 
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+        XrefEntry other = (XrefEntry) obj;
+        return type == other.type && byteOffset == other.byteOffset && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(type, key, byteOffset);
+    }
+
     @Override
     public String toString()
     {
@@ -102,21 +130,59 @@ public class XrefEntry
      * @throws IllegalArgumentException if the entry is a compressed one
      */
     public String toXrefTableEntry()
+    {
+        byte[] retVal = new byte[XREF_TABLE_ENTRY_LENGTH];
+        toXrefTableEntry(retVal);
+        return new String(retVal, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the xref table line corresponding to this entry to the first {@link #XREF_TABLE_ENTRY_LENGTH} bytes of
+     * the given destination. This allows a single buffer to be reused when writing the whole table.
+     * 
+     * @param destination
+     * @throws IllegalArgumentException if the entry is a compressed one or if the offset doesn't fit the 10 digits of
+     * a xref table entry
+     */
+    public void toXrefTableEntry(byte[] destination)
     {
         switch (type)
         {
         case IN_USE:
-            return String.format(XREFTABLE_ENTRY_FORMAT, getByteOffset(), getGenerationNumber(),
-                    'n');
+            requireArg(byteOffset <= MAX_XREF_TABLE_OFFSET,
+                    "Offset is too big to be written to an xref table");
+            writeXrefTableEntry(byteOffset, 'n', destination);
+            break;
         case FREE:
-            return String.format(XREFTABLE_ENTRY_FORMAT, getObjectNumber(), getGenerationNumber(),
-                    'f');
+            writeXrefTableEntry(key.objectNumber(), 'f', destination);
+            break;
         default:
             throw new IllegalArgumentException(
                     "Only in_use and free entries can be written to an xref table");
         }
     }
 
+    private void writeXrefTableEntry(long first, char type, byte[] destination)
+    {
+        copyDigitsTo(first, 10, destination, 0);
+        destination[10] = ' ';
+        copyDigitsTo(key.generation(), 5, destination, 11);
+        destination[16] = ' ';
+        destination[17] = (byte) type;
+        destination[18] = '\r';
+        destination[19] = '\n';
+    }
+
+    private static void copyDigitsTo(long data, int length, byte[] destination,
+            int destinationIndex)
+    {
+        for (int i = destinationIndex + length - 1; i >= destinationIndex; i--)
+        {
+            destination[i] = (byte) ('0' + data % 10);
+            data /= 10;
+        }
+    }
+
     /**
      * Creates Cross-reference stream data for this entry as defined in Chap 7.5.8.3 of PDF32000-1:2008, table 18.
      * 
@@ -127,17 +193,32 @@ public class XrefEntry
     public byte[] toXrefStreamEntry(int secondFieldLength, int thirdFieldLength)
     {
         byte[] retVal = new byte[1 + secondFieldLength + thirdFieldLength];
+        toXrefStreamEntry(secondFieldLength, thirdFieldLength, retVal);
+        return retVal;
+    }
+
+    /**
+     * Writes the Cross-reference stream data for this entry to the first {@code 1 + secondFieldLength +
+     * thirdFieldLength} bytes of the given destination. This allows a single buffer to be reused when writing the
+     * whole stream.
+     * 
+     * @param secondFieldLength length of the second field
+     * @param thirdFieldLength length of the second field
+     * @param destination
+     * @see #toXrefStreamEntry(int, int)
+     */
+    public void toXrefStreamEntry(int secondFieldLength, int thirdFieldLength, byte[] destination)
+    {
         if (type == XrefType.FREE)
         {
-            retVal[0] = 0b00000000;
-            copyBytesTo(key.objectNumber(), secondFieldLength, retVal, 1);
-            copyBytesTo(key.generation(), thirdFieldLength, retVal, 1 + secondFieldLength);
-            return retVal;
+            destination[0] = 0b00000000;
+            copyBytesTo(key.objectNumber(), secondFieldLength, destination, 1);
+            copyBytesTo(key.generation(), thirdFieldLength, destination, 1 + secondFieldLength);
+            return;
         }
-        retVal[0] = 0b00000001;
-        copyBytesTo(byteOffset, secondFieldLength, retVal, 1);
-        copyBytesTo(key.generation(), thirdFieldLength, retVal, 1 + secondFieldLength);
-        return retVal;
+        destination[0] = 0b00000001;
+        copyBytesTo(byteOffset, secondFieldLength, destination, 1);
+        copyBytesTo(key.generation(), thirdFieldLength, destination, 1 + secondFieldLength);
     }
 
     protected void copyBytesTo(long data, int length, byte[] destination, int destinationIndex)
@@ -104,6 +104,22 @@ public class ShakeDownTest
         doTestEncrypted(WriteOption.SYNC_BODY_WRITE);
     }
 
+    @Test
+    public void writeParallel() throws IOException
+    {
+        doTest(WriteOption.PARALLEL_BODY_WRITE);
+        doTestEncrypted(WriteOption.PARALLEL_BODY_WRITE);
+    }
+
+    @Test
+    public void writeParallelObjectStreamCompressed() throws IOException
+    {
+        doTest(WriteOption.PARALLEL_BODY_WRITE, WriteOption.OBJECT_STREAMS,
+                WriteOption.COMPRESS_STREAMS);
+        doTestEncrypted(WriteOption.PARALLEL_BODY_WRITE, WriteOption.OBJECT_STREAMS,
+                WriteOption.COMPRESS_STREAMS);
+    }
+
     @Test
     public void writeXrefStream() throws IOException
     {
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.cos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class COSNameTest
+{
+
+    @Test
+    public void getPDFNameFromBytes()
+    {
+        byte[] bytes = "/Type/ChuckNorris".getBytes(StandardCharsets.ISO_8859_1);
+        assertSame(COSName.TYPE, COSName.getPDFName(bytes, 1, 4));
+        assertSame(COSName.TYPE, COSName.getPDFName(bytes, 1, 4));
+        assertSame(COSName.getPDFName("ChuckNorris"), COSName.getPDFName(bytes, 6, 11));
+    }
+
+    @Test
+    public void getPDFNameFromBytesHighByte()
+    {
+        byte[] bytes = new byte[] { 'A', (byte) 0xE9 };
+        assertEquals("A\u00e9", COSName.getPDFName(bytes, 0, 2).getName());
+        assertSame(COSName.getPDFName("A\u00e9"), COSName.getPDFName(bytes, 0, 2));
+    }
+
+    @Test
+    public void getPDFNameFromBytesEmpty()
+    {
+        assertSame(COSName.getPDFName(""), COSName.getPDFName(new byte[0], 0, 0));
+    }
+
+    @Test
+    public void getWrittenBytes()
+    {
+        assertEquals("/Type", new String(COSName.TYPE.getWrittenBytes(), StandardCharsets.US_ASCII));
+        assertEquals("/a#28#29#2F7", new String(COSName.getPDFName("a()/7").getWrittenBytes(),
+                StandardCharsets.US_ASCII));
+        assertSame(COSName.TYPE.getWrittenBytes(), COSName.TYPE.getWrittenBytes());
+    }
+}
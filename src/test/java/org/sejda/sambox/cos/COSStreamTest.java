@@ -16,22 +16,36 @@
  */
 package org.sejda.sambox.cos;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sejda.io.SeekableSource;
+import org.sejda.io.SeekableSources;
 import org.sejda.sambox.filter.Filter;
 import org.sejda.sambox.filter.FilterFactory;
+import org.sejda.sambox.filter.FlateEncoder;
 import org.sejda.util.IOUtils;
 
 public class COSStreamTest
 {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
 
     /**
      * Tests encoding of a stream without any filter applied.
@@ -108,6 +122,116 @@ public class COSStreamTest
         validateDecoded(stream, testString);
     }
 
+    @Test
+    public void retainedUnfilteredLength() throws IOException
+    {
+        byte[] testString = "This is a test string to be used as input for TestCOSStream"
+                .getBytes("ASCII");
+        COSStream stream = new COSStream();
+        try (OutputStream output = stream.createFilteredStream())
+        {
+            output.write(encodeData(testString, COSName.FLATE_DECODE));
+        }
+        stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        assertEquals(0, stream.getRetainedUnfilteredLength());
+        assertEquals(testString.length, stream.getUnfilteredLength());
+        assertEquals(testString.length, stream.getRetainedUnfilteredLength());
+        stream.unDecode();
+        assertEquals(0, stream.getRetainedUnfilteredLength());
+    }
+
+    @Test
+    public void decodeListener() throws IOException
+    {
+        byte[] testString = "This is a test string to be used as input for TestCOSStream"
+                .getBytes("ASCII");
+        byte[] testStringEncoded = encodeData(testString, COSName.FLATE_DECODE);
+        COSStream stream = new COSStream();
+        try (OutputStream output = stream.createFilteredStream())
+        {
+            output.write(testStringEncoded);
+        }
+        stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        List<COSName> filters = new ArrayList<>();
+        List<Long> lengths = new ArrayList<>();
+        stream.setDecodeListener((filter, decodedLength, nanos) -> {
+            filters.add(filter);
+            lengths.add(decodedLength);
+        });
+        validateDecoded(stream, testString);
+        assertEquals(Arrays.asList(COSName.FLATE_DECODE), filters);
+        assertEquals(Arrays.asList((long) testString.length), lengths);
+    }
+
+    @Test
+    public void streamingDecode() throws IOException
+    {
+        byte[] testString = "This is a test string to be used as input for TestCOSStream"
+                .getBytes("ASCII");
+        byte[] testStringEncoded = encodeData(testString, COSName.FLATE_DECODE);
+        testStringEncoded = encodeData(testStringEncoded, COSName.ASCII_HEX_DECODE);
+        COSStream stream = new COSStream();
+        stream.setItem(COSName.FILTER,
+                new COSArray(COSName.ASCII_HEX_DECODE, COSName.FLATE_DECODE));
+        try (OutputStream output = stream.createFilteredStream())
+        {
+            output.write(testStringEncoded);
+        }
+        List<COSName> filters = new ArrayList<>();
+        List<Long> lengths = new ArrayList<>();
+        stream.setDecodeListener((filter, decodedLength, nanos) -> {
+            filters.add(filter);
+            lengths.add(decodedLength);
+        });
+        stream.setStreamingDecode(true);
+        try (InputStream decoding = stream.getUnfilteredStream())
+        {
+            assertTrue(Arrays.equals(testString, IOUtils.toByteArray(decoding)));
+        }
+        // the ASCIIHex stage is notified once closed, after the Flate one has completed
+        assertEquals(Arrays.asList(COSName.FLATE_DECODE, COSName.ASCII_HEX_DECODE), filters);
+        assertEquals(Arrays.asList((long) testString.length, (long) testStringEncoded.length / 2),
+                lengths);
+        // not retained, decoded again
+        try (InputStream decoding = stream.getUnfilteredStream())
+        {
+            assertTrue(Arrays.equals(testString, IOUtils.toByteArray(decoding)));
+        }
+        assertEquals(4, filters.size());
+        // retained once the whole data is requested
+        assertEquals(testString.length, stream.getUnfilteredLength());
+        assertEquals(6, filters.size());
+        assertTrue(Arrays.equals(testString, IOUtils.toByteArray(stream.getUnfilteredStream())));
+        assertEquals(6, filters.size());
+        stream.close();
+    }
+
+    @Test
+    public void streamingDecodeExisting() throws IOException
+    {
+        byte[] testString = "This is a test string to be used as input for TestCOSStream"
+                .getBytes("ASCII");
+        byte[] testStringEncoded = encodeData(testString, COSName.FLATE_DECODE);
+        try (SeekableSource source = SeekableSources
+                .inMemorySeekableSourceFrom(testStringEncoded))
+        {
+            COSDictionary dictionary = new COSDictionary();
+            dictionary.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+            COSStream stream = new COSStream(dictionary, source, 0, testStringEncoded.length);
+            stream.setStreamingDecode(true);
+            try (InputStream first = stream.getUnfilteredStream();
+                    InputStream second = stream.getUnfilteredStream())
+            {
+                // independent reads of the same stream
+                assertEquals(testString[0], first.read());
+                assertTrue(Arrays.equals(testString, IOUtils.toByteArray(second)));
+                assertEquals(testString[1], first.read());
+            }
+            assertTrue(
+                    Arrays.equals(testStringEncoded, IOUtils.toByteArray(stream.getFilteredStream())));
+        }
+    }
+
     /**
      * Tests encoding of a stream with 2 filters applied.
      *
@@ -196,6 +320,45 @@ public class COSStreamTest
         }
     }
 
+    @Test
+    public void unchangedFilteredSource() throws IOException
+    {
+        byte[] data = "ABCDEF".getBytes(StandardCharsets.US_ASCII);
+        try (SeekableSource source = SeekableSources.inMemorySeekableSourceFrom(data))
+        {
+            COSStream stream = new COSStream(new COSDictionary(), source, 1, 3);
+            assertTrue(stream.getUnchangedFilteredSource().isPresent());
+            assertEquals(3, stream.getUnchangedFilteredSource().get().size());
+            stream.setEncryptor(i -> i);
+            assertFalse(stream.getUnchangedFilteredSource().isPresent());
+            stream.setEncryptor(null);
+            stream.addCompression();
+            assertFalse(stream.getUnchangedFilteredSource().isPresent());
+        }
+        assertFalse(new COSStream().getUnchangedFilteredSource().isPresent());
+    }
+
+    @Test
+    public void flateEncoder() throws IOException
+    {
+        byte[] testString = "This is a test string to be used as input for TestCOSStream"
+                .getBytes("ASCII");
+        COSStream stream = new COSStream();
+        assertEquals(FlateEncoder.defaultEncoder(), stream.getFlateEncoder());
+        try (OutputStream output = stream.createUnfilteredStream())
+        {
+            output.write(testString);
+        }
+        stream.setFlateEncoder(FlateEncoder.smallest());
+        stream.setFilters(new COSArray(COSName.FLATE_DECODE, COSName.ASCII_HEX_DECODE));
+        ByteArrayOutputStream hex = new ByteArrayOutputStream();
+        FilterFactory.INSTANCE.getFilter(COSName.ASCII_HEX_DECODE)
+                .encode(new ByteArrayInputStream(testString), hex, new COSDictionary());
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        FlateEncoder.smallest().encode(new ByteArrayInputStream(hex.toByteArray()), expected);
+        validateEncoded(stream, expected.toByteArray());
+    }
+
     private static byte[] encodeData(byte[] original, COSName filter) throws IOException
     {
         Filter encodingFilter = FilterFactory.INSTANCE.getFilter(filter);
@@ -204,6 +367,63 @@ public class COSStreamTest
         return encoded.toByteArray();
     }
 
+    @Test
+    public void spillingStorage() throws IOException
+    {
+        File directory = folder.newFolder();
+        byte[] data = new byte[100 * 1024];
+        Arrays.fill(data, (byte) 'a');
+        COSStream stream = new COSStream();
+        stream.setStreamStorage(SpillingStreamStorage.file(1024, directory));
+        try (OutputStream output = stream.createFilteredStream(COSName.FLATE_DECODE))
+        {
+            output.write(data);
+        }
+        assertEquals(1, directory.list().length);
+        assertTrue(stream.getFilteredLength() < data.length);
+        // the small encoded data is stored on the heap
+        assertEquals(1, directory.list().length);
+        stream.unDecode();
+        assertEquals(0, directory.list().length);
+        assertEquals(data.length, stream.getUnfilteredLength());
+        assertEquals(1, directory.list().length);
+        try (InputStream unfiltered = stream.getUnfilteredStream())
+        {
+            assertArrayEquals(data, IOUtils.toByteArray(unfiltered));
+        }
+        assertEquals(data.length, stream.getUnfilteredByteBuffer().remaining());
+        try (SeekableSource source = stream.getUnfilteredSource())
+        {
+            assertEquals(data.length, source.size());
+        }
+        stream.close();
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void replacedDataIsReleased() throws IOException
+    {
+        File directory = folder.newFolder();
+        COSStream stream = new COSStream();
+        stream.setStreamStorage(SpillingStreamStorage.file(0, directory));
+        try (OutputStream output = stream.createUnfilteredStream())
+        {
+            output.write(new byte[] { 1, 2, 3 });
+        }
+        assertEquals(1, directory.list().length);
+        try (OutputStream output = stream.createUnfilteredStream())
+        {
+            output.write(new byte[] { 4, 5 });
+        }
+        assertEquals(1, directory.list().length);
+        try (InputStream filtered = stream.getFilteredStream())
+        {
+            assertArrayEquals(new byte[] { 4, 5 }, IOUtils.toByteArray(filtered));
+        }
+        stream.close();
+        assertEquals(0, directory.list().length);
+    }
+
     private static COSStream createStream(byte[] testString, COSBase filters) throws IOException
     {
         COSStream stream = new COSStream();
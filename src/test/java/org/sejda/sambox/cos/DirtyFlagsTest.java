@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.cos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class DirtyFlagsTest
+{
+
+    @Test
+    public void modifiedDictionary()
+    {
+        COSDictionary victim = new COSDictionary();
+        DirtyFlags.clear(victim);
+        assertFalse(DirtyFlags.isDirty(victim));
+        victim.setInt(COSName.A, 1);
+        assertTrue(DirtyFlags.isDirty(victim));
+    }
+
+    @Test
+    public void sameValue()
+    {
+        COSDictionary victim = new COSDictionary();
+        victim.setItem(COSName.TYPE, COSName.PAGES);
+        DirtyFlags.clear(victim);
+        victim.setItem(COSName.TYPE, COSName.PAGES);
+        assertFalse(DirtyFlags.isDirty(victim));
+    }
+
+    @Test
+    public void modifiedDirectValue()
+    {
+        COSArray array = new COSArray(COSInteger.ONE);
+        COSDictionary nested = new COSDictionary();
+        COSDictionary victim = new COSDictionary();
+        victim.setItem(COSName.A, array);
+        victim.setItem(COSName.B, nested);
+        DirtyFlags.clear(victim);
+        assertFalse(DirtyFlags.isDirty(victim));
+        array.add(COSInteger.TWO);
+        assertTrue(DirtyFlags.isDirty(victim));
+        DirtyFlags.clear(victim);
+        nested.removeItem(COSName.C);
+        assertFalse(DirtyFlags.isDirty(victim));
+        nested.setString(COSName.C, "chuck");
+        assertTrue(DirtyFlags.isDirty(victim));
+        DirtyFlags.clear(victim);
+        ((COSString) nested.getItem(COSName.C)).setValue(new byte[] { 1 });
+        assertTrue(DirtyFlags.isDirty(victim));
+    }
+
+    @Test
+    public void indirectValuesAreNotFollowed()
+    {
+        COSDictionary indirect = new COSDictionary();
+        COSDictionary victim = new COSDictionary();
+        victim.setItem(COSName.A, new IndirectCOSObjectReference(1, 0, indirect));
+        DirtyFlags.clear(victim);
+        indirect.setInt(COSName.A, 1);
+        assertFalse(DirtyFlags.isDirty(victim));
+    }
+
+    @Test
+    public void circular()
+    {
+        COSDictionary victim = new COSDictionary();
+        COSArray array = new COSArray(victim);
+        victim.setItem(COSName.A, array);
+        DirtyFlags.clear(victim);
+        assertFalse(DirtyFlags.isDirty(victim));
+        array.remove(0);
+        assertTrue(DirtyFlags.isDirty(victim));
+    }
+
+    @Test
+    public void notModifiedIfNothingRemoved()
+    {
+        COSArray victim = new COSArray(COSInteger.ONE, COSInteger.TWO);
+        DirtyFlags.clear(victim);
+        assertFalse(victim.remove(COSInteger.THREE));
+        assertFalse(victim.removeAll(Arrays.asList(COSInteger.THREE)));
+        assertFalse(victim.retainAll(Arrays.asList(COSInteger.ONE, COSInteger.TWO)));
+        assertFalse(victim.addAll(Collections.emptyList()));
+        assertFalse(DirtyFlags.isDirty(victim));
+        assertTrue(victim.retainAll(Arrays.asList(COSInteger.ONE)));
+        assertTrue(DirtyFlags.isDirty(victim));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void dictionaryKeySetIsUnmodifiable()
+    {
+        COSDictionary victim = new COSDictionary();
+        victim.setInt(COSName.A, 1);
+        victim.keySet().remove(COSName.A);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void dictionaryEntrySetIsUnmodifiable()
+    {
+        COSDictionary victim = new COSDictionary();
+        victim.setInt(COSName.A, 1);
+        victim.entrySet().iterator().next().setValue(COSInteger.TWO);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void dictionaryValuesAreUnmodifiable()
+    {
+        COSDictionary victim = new COSDictionary();
+        victim.setInt(COSName.A, 1);
+        victim.getValues().clear();
+    }
+
+    @Test
+    public void removedItems()
+    {
+        COSDictionary victim = new COSDictionary();
+        victim.setInt(COSName.A, 1);
+        DirtyFlags.clear(victim);
+        victim.removeItems(COSName.B);
+        assertFalse(DirtyFlags.isDirty(victim));
+        victim.removeItems(COSName.A, COSName.B);
+        assertTrue(DirtyFlags.isDirty(victim));
+    }
+
+    @Test
+    public void modifiedThroughViews()
+    {
+        COSArray victim = new COSArray(COSInteger.ONE, COSInteger.TWO, COSInteger.THREE);
+        DirtyFlags.clear(victim);
+        Iterator<COSBase> iterator = victim.iterator();
+        while (iterator.hasNext())
+        {
+            iterator.next();
+        }
+        assertFalse(DirtyFlags.isDirty(victim));
+        iterator.remove();
+        assertTrue(DirtyFlags.isDirty(victim));
+
+        DirtyFlags.clear(victim);
+        ListIterator<COSBase> listIterator = victim.listIterator();
+        listIterator.next();
+        listIterator.set(COSInteger.ZERO);
+        assertTrue(DirtyFlags.isDirty(victim));
+
+        DirtyFlags.clear(victim);
+        victim.listIterator(1).add(COSInteger.THREE);
+        assertTrue(DirtyFlags.isDirty(victim));
+
+        DirtyFlags.clear(victim);
+        List<COSBase> subList = victim.subList(0, 2);
+        assertFalse(DirtyFlags.isDirty(victim));
+        subList.clear();
+        assertTrue(DirtyFlags.isDirty(victim));
+        assertEquals(1, victim.size());
+
+        DirtyFlags.clear(victim);
+        victim.subList(0, 1).subList(0, 1).set(0, COSInteger.ONE);
+        assertTrue(DirtyFlags.isDirty(victim));
+
+        DirtyFlags.clear(victim);
+        victim.removeIf(COSInteger.ONE::equals);
+        assertTrue(DirtyFlags.isDirty(victim));
+        assertTrue(victim.isEmpty());
+    }
+}
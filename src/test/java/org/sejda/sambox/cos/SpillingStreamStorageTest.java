@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.cos;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sejda.io.SeekableSource;
+import org.sejda.util.IOUtils;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class SpillingStreamStorageTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeThreshold()
+    {
+        SpillingStreamStorage.direct(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullDirectory()
+    {
+        SpillingStreamStorage.file(10, null);
+    }
+
+    @Test
+    public void belowThresholdIsOnHeap() throws IOException
+    {
+        File directory = folder.newFolder();
+        StreamData data = store(SpillingStreamStorage.file(100, directory), data(100));
+        assertTrue(data instanceof HeapStreamData);
+        assertEquals(0, directory.list().length);
+        assertContent(data(100), data);
+    }
+
+    @Test
+    public void file() throws IOException
+    {
+        File directory = folder.newFolder();
+        byte[] content = data(100 * 1024);
+        StreamData data = store(SpillingStreamStorage.file(100, directory), content);
+        assertEquals(1, directory.list().length);
+        assertContent(content, data);
+        data.close();
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void fileIsDeletedOnceReadersAreClosed() throws IOException
+    {
+        File directory = folder.newFolder();
+        byte[] content = data(100 * 1024);
+        StreamData data = store(SpillingStreamStorage.file(100, directory), content);
+        InputStream stream = data.asInputStream();
+        SeekableSource source = data.asSeekableSource();
+        data.close();
+        assertEquals(1, directory.list().length);
+        assertArrayEquals(content, IOUtils.toByteArray(stream));
+        stream.close();
+        stream.close();
+        assertEquals(1, directory.list().length);
+        assertEquals(content.length, source.size());
+        source.close();
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test(expected = IOException.class)
+    public void readAfterClose() throws IOException
+    {
+        StreamData data = store(SpillingStreamStorage.file(100, folder.newFolder()), data(200));
+        data.close();
+        data.asInputStream();
+    }
+
+    @Test(expected = IOException.class)
+    public void unableToCreateFile() throws IOException
+    {
+        File missing = new File(folder.getRoot(), "missing");
+        store(SpillingStreamStorage.file(100, missing), data(200));
+    }
+
+    @Test
+    public void emptyFile() throws IOException
+    {
+        File directory = folder.newFolder();
+        StreamData data = store(SpillingStreamStorage.file(0, directory), new byte[0]);
+        assertContent(new byte[0], data);
+        data.close();
+    }
+
+    @Test
+    public void direct() throws IOException
+    {
+        // larger than the initial direct buffer
+        byte[] content = data(100 * 1024);
+        StreamData data = store(SpillingStreamStorage.direct(10), content);
+        assertContent(content, data);
+        data.close();
+    }
+
+    @Test
+    public void singleBytesWrites() throws IOException
+    {
+        byte[] content = data(20000);
+        List<StreamData> stored = new ArrayList<>();
+        try (OutputStream out = SpillingStreamStorage.direct(100).newOutputStream(stored::add))
+        {
+            for (byte current : content)
+            {
+                out.write(current);
+            }
+        }
+        assertEquals(1, stored.size());
+        assertContent(content, stored.get(0));
+    }
+
+    @Test
+    public void onCloseIsCalledOnce() throws IOException
+    {
+        List<StreamData> stored = new ArrayList<>();
+        OutputStream out = SpillingStreamStorage.direct(100).newOutputStream(stored::add);
+        out.write(data(200));
+        out.close();
+        out.close();
+        assertEquals(1, stored.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void writeAfterClose() throws IOException
+    {
+        OutputStream out = SpillingStreamStorage.direct(100).newOutputStream(d -> {
+            // nothing
+        });
+        out.close();
+        out.write(1);
+    }
+
+    @Test
+    public void heap() throws IOException
+    {
+        byte[] content = data(1000);
+        StreamData data = store(StreamStorage.HEAP, content);
+        assertTrue(data instanceof HeapStreamData);
+        assertContent(content, data);
+    }
+
+    private static StreamData store(StreamStorage storage, byte[] content) throws IOException
+    {
+        StreamData[] stored = new StreamData[1];
+        try (OutputStream out = storage.newOutputStream(d -> stored[0] = d))
+        {
+            assertNull(stored[0]);
+            out.write(content);
+        }
+        return stored[0];
+    }
+
+    private static void assertContent(byte[] expected, StreamData data) throws IOException
+    {
+        assertEquals(expected.length, data.length());
+        try (InputStream stream = data.asInputStream())
+        {
+            assertArrayEquals(expected, IOUtils.toByteArray(stream));
+        }
+        ByteBuffer buffer = data.asByteBuffer();
+        assertTrue(buffer.isReadOnly());
+        byte[] fromBuffer = new byte[buffer.remaining()];
+        buffer.get(fromBuffer);
+        assertArrayEquals(expected, fromBuffer);
+        try (SeekableSource source = data.asSeekableSource())
+        {
+            assertEquals(expected.length, source.size());
+            assertArrayEquals(expected, IOUtils.toByteArray(source.asInputStream()));
+        }
+    }
+
+    private static byte[] data(int size)
+    {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            data[i] = (byte) (i % 251);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.cos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+import org.sejda.sambox.SAMBox;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class StreamStorageTest
+{
+    @After
+    public void tearDown()
+    {
+        System.getProperties().remove(SAMBox.STREAM_STORAGE_THRESHOLD_PROPERTY);
+        System.getProperties().remove(SAMBox.STREAM_STORAGE_PROPERTY);
+    }
+
+    @Test
+    public void heapByDefault()
+    {
+        assertSame(StreamStorage.HEAP, StreamStorage.defaultStorage());
+    }
+
+    @Test
+    public void fileWithThreshold()
+    {
+        System.setProperty(SAMBox.STREAM_STORAGE_THRESHOLD_PROPERTY, "1024");
+        assertTrue(StreamStorage.defaultStorage() instanceof SpillingStreamStorage);
+    }
+
+    @Test
+    public void direct() throws IOException
+    {
+        System.setProperty(SAMBox.STREAM_STORAGE_THRESHOLD_PROPERTY, "0");
+        System.setProperty(SAMBox.STREAM_STORAGE_PROPERTY, "direct");
+        StreamData[] stored = new StreamData[1];
+        try (OutputStream out = StreamStorage.defaultStorage()
+                .newOutputStream(d -> stored[0] = d))
+        {
+            out.write(new byte[] { 1, 2, 3 });
+        }
+        assertEquals(3, stored[0].length());
+        assertTrue(stored[0].asByteBuffer().isReadOnly());
+    }
+}
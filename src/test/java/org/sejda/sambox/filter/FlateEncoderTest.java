@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.sejda.sambox.SAMBox;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class FlateEncoderTest
+{
+
+    @After
+    public void tearDown()
+    {
+        System.getProperties().remove(SAMBox.DEFLATE_PARALLEL_THRESHOLD_PROPERTY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLevel()
+    {
+        FlateEncoder.of(12, Deflater.DEFAULT_STRATEGY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidStrategy()
+    {
+        FlateEncoder.of(Deflater.BEST_SPEED, 5);
+    }
+
+    @Test
+    public void sameConfigurationSameEncoder()
+    {
+        assertSame(FlateEncoder.fastest(), FlateEncoder.of(1, Deflater.DEFAULT_STRATEGY));
+    }
+
+    @Test
+    public void roundTrip() throws IOException
+    {
+        byte[] data = data(200 * 1024);
+        assertArrayEquals(data, inflate(encode(FlateEncoder.defaultEncoder(), data)));
+        // pooled deflaters are reset
+        assertArrayEquals(data, inflate(encode(FlateEncoder.defaultEncoder(), data)));
+    }
+
+    @Test
+    public void levels() throws IOException
+    {
+        byte[] data = data(200 * 1024);
+        byte[] fastest = encode(FlateEncoder.fastest(), data);
+        byte[] smallest = encode(FlateEncoder.smallest(), data);
+        assertArrayEquals(data, inflate(fastest));
+        assertArrayEquals(data, inflate(smallest));
+        assertTrue(smallest.length < fastest.length);
+    }
+
+    @Test
+    public void parallel() throws IOException
+    {
+        System.setProperty(SAMBox.DEFLATE_PARALLEL_THRESHOLD_PROPERTY, "1024");
+        byte[] data = data(1024 * 1024 + 17);
+        assertArrayEquals(data, inflate(encode(FlateEncoder.defaultEncoder(), data)));
+        assertArrayEquals(data, inflate(encode(FlateEncoder.smallest(), data)));
+        byte[] small = data(1000);
+        assertArrayEquals(small, inflate(encode(FlateEncoder.defaultEncoder(), small)));
+    }
+
+    @Test
+    public void empty() throws IOException
+    {
+        assertArrayEquals(new byte[0], inflate(encode(FlateEncoder.defaultEncoder(), new byte[0])));
+    }
+
+    @Test
+    public void compressingDoesntCloseOutput() throws IOException
+    {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream()
+        {
+            @Override
+            public void close()
+            {
+                throw new IllegalStateException("Should not be closed");
+            }
+        };
+        try (OutputStream out = FlateEncoder.defaultEncoder().compressing(encoded))
+        {
+            out.write(new byte[] { 1, 2, 3 });
+        }
+        assertArrayEquals(new byte[] { 1, 2, 3 }, inflate(encoded.toByteArray()));
+    }
+
+    private static byte[] encode(FlateEncoder encoder, byte[] data) throws IOException
+    {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        encoder.encode(new ByteArrayInputStream(data), encoded);
+        return encoded.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] encoded) throws IOException
+    {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(encoded)))
+        {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static byte[] data(int size)
+    {
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            data[i] = (byte) ("BT /F1 12 Tf ET ".charAt(i % 16) + random.nextInt(3));
+        }
+        return data;
+    }
+}
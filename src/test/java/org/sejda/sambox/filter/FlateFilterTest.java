@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class FlateFilterTest
+{
+    private Filter victim = new FlateFilter();
+
+    @Test
+    public void decodeLargerThanBuffers() throws IOException
+    {
+        byte[] data = data(300 * 1024);
+        byte[] encoded = encode(data);
+        assertArrayEquals(data, decode(encoded));
+        // pooled inflaters are reset
+        assertArrayEquals(data, decode(encoded));
+    }
+
+    @Test
+    public void decoding() throws IOException
+    {
+        byte[] data = data(300 * 1024);
+        try (InputStream decoding = victim.decoding(new ByteArrayInputStream(encode(data)),
+                new COSDictionary(), 0))
+        {
+            assertArrayEquals(data, IOUtils.toByteArray(decoding));
+            assertEquals(-1, decoding.read());
+        }
+    }
+
+    @Test
+    public void closedBeforeTheEnd() throws IOException
+    {
+        byte[] data = data(300 * 1024);
+        byte[] encoded = encode(data);
+        InputStream decoding = victim.decoding(new ByteArrayInputStream(encoded),
+                new COSDictionary(), 0);
+        byte[] start = new byte[100];
+        IOUtils.readFully(decoding, start);
+        decoding.close();
+        assertEquals(-1, decoding.read());
+        assertArrayEquals(Arrays.copyOf(data, 100), start);
+        assertArrayEquals(data, decode(encoded));
+    }
+
+    @Test
+    public void truncated() throws IOException
+    {
+        byte[] data = data(300 * 1024);
+        byte[] encoded = encode(data);
+        byte[] decoded = decode(Arrays.copyOf(encoded, encoded.length / 2));
+        assertTrue(decoded.length > 0);
+        assertTrue(decoded.length < data.length);
+        assertArrayEquals(Arrays.copyOf(data, decoded.length), decoded);
+    }
+
+    @Test
+    public void corruptDoesNotAffectFollowingDecodes() throws IOException
+    {
+        try
+        {
+            decode(new byte[] { 0x78, (byte) 0x9C, (byte) 0xFF, (byte) 0xFF, 0x00, 0x01 });
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        byte[] data = data(1024);
+        assertArrayEquals(data, decode(encode(data)));
+    }
+
+    @Test(expected = IOException.class)
+    public void corrupt() throws IOException
+    {
+        decode(new byte[] { 0x78, (byte) 0x9C, (byte) 0xFF, (byte) 0xFF, 0x00, 0x01 });
+    }
+
+    private byte[] decode(byte[] encoded) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        victim.decode(new ByteArrayInputStream(encoded), out, new COSDictionary(), 0);
+        return out.toByteArray();
+    }
+
+    private byte[] encode(byte[] data) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        COSDictionary parameters = new COSDictionary();
+        parameters.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        victim.encode(new ByteArrayInputStream(data), out, parameters);
+        return out.toByteArray();
+    }
+
+    private static byte[] data(int size)
+    {
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            // compressible but not trivially
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+}
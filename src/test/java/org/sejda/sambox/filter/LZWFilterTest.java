@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.sejda.sambox.cos.COSDictionary;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class LZWFilterTest
+{
+    // example from the PDF specification, 7.4.4.2 Details of LZW Encoding
+    private static final byte[] SPEC_DECODED = new byte[] { 45, 45, 45, 45, 45, 65, 45, 45, 45,
+            66 };
+    private static final byte[] SPEC_ENCODED = new byte[] { (byte) 0x80, 0x0B, 0x60, 0x50, 0x22,
+            0x0C, 0x0C, (byte) 0x85, 0x01 };
+
+    private LZWFilter victim = new LZWFilter();
+
+    @Test
+    public void specificationExampleDecode() throws IOException
+    {
+        assertArrayEquals(SPEC_DECODED, decode(SPEC_ENCODED));
+    }
+
+    @Test
+    public void specificationExampleEncode() throws IOException
+    {
+        // the encoder pads the EOD code with zeros
+        assertArrayEquals(SPEC_ENCODED, Arrays.copyOf(encode(SPEC_DECODED), SPEC_ENCODED.length));
+    }
+
+    @Test
+    public void roundTripWithTableResets() throws IOException
+    {
+        Random random = new Random(42);
+        byte[] data = new byte[200 * 1024];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = (byte) random.nextInt(16);
+        }
+        assertArrayEquals(data, decode(encode(data)));
+    }
+
+    @Test
+    public void repeatedByte() throws IOException
+    {
+        // every code but the first is a code not yet in the table
+        byte[] data = new byte[10000];
+        Arrays.fill(data, (byte) 7);
+        assertArrayEquals(data, decode(encode(data)));
+    }
+
+    @Test
+    public void missingEOD() throws IOException
+    {
+        byte[] encoded = encode(SPEC_DECODED);
+        assertArrayEquals(SPEC_DECODED, decode(Arrays.copyOf(encoded, encoded.length - 2)));
+    }
+
+    @Test(expected = IOException.class)
+    public void missingClearTable() throws IOException
+    {
+        decode(new byte[] { 0x16, 0x45, 0x00 });
+    }
+
+    private byte[] decode(byte[] encoded) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        victim.decode(new ByteArrayInputStream(encoded), out, new COSDictionary(), 0);
+        return out.toByteArray();
+    }
+
+    private byte[] encode(byte[] data) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        victim.encode(new ByteArrayInputStream(data), out, new COSDictionary());
+        return out.toByteArray();
+    }
+}
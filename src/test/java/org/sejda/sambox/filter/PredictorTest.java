@@ -17,8 +17,18 @@ package org.sejda.sambox.filter;
 import static org.sejda.sambox.filter.Predictor.calcSetBitSeq;
 import static org.sejda.sambox.filter.Predictor.getBitSeq;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Test;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
 /**
  *
  * @author Tilman Hausherr
@@ -125,4 +135,113 @@ public class PredictorTest
         Assert.assertEquals(Integer.parseInt("00000010", 2),
                 calcSetBitSeq(Integer.parseInt("00000000", 2), 1, 1, 3));
     }
+
+    @Test
+    public void noPredictor()
+    {
+        InputStream in = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+        Assert.assertSame(in, Predictor.wrapPredictor(in, params(1, 3)));
+        OutputStream out = new ByteArrayOutputStream();
+        Assert.assertSame(out, Predictor.wrapPredictor(out, params(1, 3)));
+    }
+
+    @Test
+    public void pngInputStream() throws IOException
+    {
+        Assert.assertArrayEquals(PNG_DECODED, IOUtils.toByteArray(
+                Predictor.wrapPredictor(new ByteArrayInputStream(PNG_ENCODED), params(15, 3))));
+    }
+
+    @Test
+    public void pngSingleByteReads() throws IOException
+    {
+        InputStream in = Predictor.wrapPredictor(new ByteArrayInputStream(PNG_ENCODED),
+                params(15, 3));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int current;
+        while ((current = in.read()) != -1)
+        {
+            out.write(current);
+        }
+        Assert.assertArrayEquals(PNG_DECODED, out.toByteArray());
+    }
+
+    @Test
+    public void pngOutputStream() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream predicted = Predictor.wrapPredictor(out, params(15, 3)))
+        {
+            for (byte current : PNG_ENCODED)
+            {
+                predicted.write(current);
+            }
+        }
+        Assert.assertArrayEquals(PNG_DECODED, out.toByteArray());
+    }
+
+    @Test
+    public void tiffInputStream() throws IOException
+    {
+        Assert.assertArrayEquals(TIFF_DECODED, IOUtils.toByteArray(
+                Predictor.wrapPredictor(new ByteArrayInputStream(TIFF_ENCODED), params(2, 3))));
+    }
+
+    @Test
+    public void tiffOutputStream() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream predicted = Predictor.wrapPredictor(out, params(2, 3)))
+        {
+            predicted.write(TIFF_ENCODED);
+        }
+        Assert.assertArrayEquals(TIFF_DECODED, out.toByteArray());
+    }
+
+    @Test
+    public void flateWithPredictor() throws IOException
+    {
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(deflated))
+        {
+            out.write(PNG_ENCODED);
+        }
+        COSDictionary parameters = new COSDictionary();
+        parameters.setItem(COSName.DECODE_PARMS, params(15, 3));
+        Filter flate = FilterFactory.INSTANCE.getFilter(COSName.FLATE_DECODE);
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        flate.decode(new ByteArrayInputStream(deflated.toByteArray()), decoded, parameters, 0);
+        Assert.assertArrayEquals(PNG_DECODED, decoded.toByteArray());
+        Assert.assertArrayEquals(PNG_DECODED, IOUtils.toByteArray(
+                flate.decoding(new ByteArrayInputStream(deflated.toByteArray()), parameters, 0)));
+    }
+
+    @Test
+    public void lzwWithPredictor() throws IOException
+    {
+        Filter lzw = FilterFactory.INSTANCE.getFilter(COSName.LZW_DECODE);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        lzw.encode(new ByteArrayInputStream(PNG_ENCODED), encoded, new COSDictionary());
+        COSDictionary parameters = new COSDictionary();
+        parameters.setItem(COSName.DECODE_PARMS, params(15, 3));
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        lzw.decode(new ByteArrayInputStream(encoded.toByteArray()), decoded, parameters, 0);
+        Assert.assertArrayEquals(PNG_DECODED, decoded.toByteArray());
+    }
+
+    // rows using none, sub, up, average and paeth PNG predictors
+    private static final byte[] PNG_ENCODED = new byte[] { 0, 1, 2, 3, 1, 4, 1, 1, 2, 1, 1, 1, 3,
+            2, 1, 2, 4, 1, 1, 1 };
+    private static final byte[] PNG_DECODED = new byte[] { 1, 2, 3, 4, 5, 6, 5, 6, 7, 4, 6, 8, 5,
+            7, 9 };
+    private static final byte[] TIFF_ENCODED = new byte[] { 1, 1, 1, 5, 0, 0 };
+    private static final byte[] TIFF_DECODED = new byte[] { 1, 2, 3, 5, 5, 5 };
+
+    private static COSDictionary params(int predictor, int columns)
+    {
+        COSDictionary params = new COSDictionary();
+        params.setInt(COSName.PREDICTOR, predictor);
+        params.setInt(COSName.COLUMNS, columns);
+        return params;
+    }
 }
@@ -25,6 +25,7 @@ import java.util.Random;
 
 import junit.framework.TestCase;
 
+import org.apache.commons.io.IOUtils;
 import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSName;
 
@@ -150,5 +151,41 @@ public class TestFilters extends TestCase
                 "Data that is encoded and then decoded through "
                 + filter.getClass() + " does not match the original data",
                 Arrays.equals(original, decoded.toByteArray()));
+        try (InputStream decoding = filter.decoding(
+                new ByteArrayInputStream(encoded.toByteArray()), new COSDictionary(), 0))
+        {
+            assertTrue(
+                    "Data that is encoded and then decoded as a stream through "
+                            + filter.getClass() + " does not match the original data",
+                    Arrays.equals(original, IOUtils.toByteArray(decoding)));
+        }
+    }
+
+    public void testRunLengthDecoding() throws IOException
+    {
+        // 3 literal bytes, 'x' repeated 5 times, EOD
+        byte[] encoded = { 2, 'a', 'b', 'c', (byte) 252, 'x', (byte) 128, 'z' };
+        Filter filter = FilterFactory.INSTANCE.getFilter(COSName.RUN_LENGTH_DECODE);
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        filter.decode(new ByteArrayInputStream(encoded), decoded, new COSDictionary(), 0);
+        assertEquals("abcxxxxx", new String(decoded.toByteArray(), "ASCII"));
+        try (InputStream decoding = filter.decoding(new ByteArrayInputStream(encoded),
+                new COSDictionary(), 0))
+        {
+            assertEquals("abcxxxxx", new String(IOUtils.toByteArray(decoding), "ASCII"));
+        }
+        // blocks spanning multiple runs and single bytes reads
+        try (InputStream decoding = filter.decoding(new ByteArrayInputStream(encoded),
+                new COSDictionary(), 0))
+        {
+            byte[] block = new byte[4];
+            assertEquals(4, decoding.read(block));
+            assertEquals("abcx", new String(block, "ASCII"));
+            assertEquals('x', decoding.read());
+            assertEquals(3, decoding.read(block, 1, 3));
+            assertEquals("xxx", new String(block, 1, 3, "ASCII"));
+            assertEquals(-1, decoding.read(block));
+            assertEquals(-1, decoding.read());
+        }
     }
 }
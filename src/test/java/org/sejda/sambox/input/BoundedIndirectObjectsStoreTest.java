@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSInteger;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSObjectKey;
+import org.sejda.sambox.cos.COSStream;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class BoundedIndirectObjectsStoreTest
+{
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeBudget()
+    {
+        new BoundedIndirectObjectsStore(-1);
+    }
+
+    @Test
+    public void putAndGet()
+    {
+        BoundedIndirectObjectsStore victim = new BoundedIndirectObjectsStore(1000);
+        COSDictionary value = new COSDictionary();
+        victim.put(new COSObjectKey(1, 0), value);
+        assertSame(value, victim.get(new COSObjectKey(1, 0)));
+        assertEquals(BoundedIndirectObjectsStore.weigh(value), victim.size());
+    }
+
+    @Test
+    public void evictsWhenOverBudget()
+    {
+        COSDictionary first = new COSDictionary();
+        long budget = BoundedIndirectObjectsStore.weigh(first) * 2;
+        BoundedIndirectObjectsStore victim = new BoundedIndirectObjectsStore(budget);
+        victim.put(new COSObjectKey(1, 0), first);
+        victim.put(new COSObjectKey(2, 0), new COSDictionary());
+        assertEquals(budget, victim.size());
+        victim.put(new COSObjectKey(3, 0), new COSDictionary());
+        assertEquals(budget, victim.size());
+        // still strongly referenced here so we get back the same instance
+        assertSame(first, victim.get(new COSObjectKey(1, 0)));
+        assertEquals(budget, victim.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed()
+    {
+        COSDictionary first = new COSDictionary();
+        COSDictionary second = new COSDictionary();
+        BoundedIndirectObjectsStore victim = new BoundedIndirectObjectsStore(
+                BoundedIndirectObjectsStore.weigh(first) * 2);
+        victim.put(new COSObjectKey(1, 0), first);
+        victim.put(new COSObjectKey(2, 0), second);
+        victim.get(new COSObjectKey(1, 0));
+        victim.put(new COSObjectKey(3, 0), new COSDictionary());
+        assertEquals(3, victim.values().size());
+        assertTrue(victim.values().contains(second));
+    }
+
+    @Test
+    public void alwaysKeepsLatest()
+    {
+        BoundedIndirectObjectsStore victim = new BoundedIndirectObjectsStore(1);
+        COSDictionary value = new COSDictionary();
+        victim.put(new COSObjectKey(1, 0), value);
+        assertSame(value, victim.get(new COSObjectKey(1, 0)));
+    }
+
+    @Test
+    public void evictedStreamsAreUndecoded() throws IOException
+    {
+        COSStream stream = mock(COSStream.class);
+        when(stream.getFilteredLength()).thenReturn(100L);
+        BoundedIndirectObjectsStore victim = new BoundedIndirectObjectsStore(10);
+        victim.put(new COSObjectKey(1, 0), stream);
+        victim.put(new COSObjectKey(2, 0), new COSDictionary());
+        verify(stream).unDecode();
+    }
+
+    @Test
+    public void decodedStreamsAreWeighedAgain() throws IOException
+    {
+        COSStream stream = mock(COSStream.class);
+        when(stream.getFilteredLength()).thenReturn(10L);
+        BoundedIndirectObjectsStore victim = new BoundedIndirectObjectsStore(1000);
+        victim.put(new COSObjectKey(1, 0), stream);
+        COSDictionary dictionary = new COSDictionary();
+        victim.put(new COSObjectKey(2, 0), dictionary);
+        long size = victim.size();
+        when(stream.getRetainedUnfilteredLength()).thenReturn(100L);
+        assertSame(stream, victim.get(new COSObjectKey(1, 0)));
+        assertEquals(size + 100, victim.size());
+        when(stream.getRetainedUnfilteredLength()).thenReturn(2000L);
+        victim.get(new COSObjectKey(1, 0));
+        // the decoded stream exceeds the budget, everything else is evicted
+        assertEquals(BoundedIndirectObjectsStore.weigh(stream), victim.size());
+    }
+
+    @Test
+    public void remove()
+    {
+        BoundedIndirectObjectsStore victim = new BoundedIndirectObjectsStore(1000);
+        COSDictionary value = new COSDictionary();
+        victim.put(new COSObjectKey(1, 0), value);
+        assertSame(value, victim.remove(new COSObjectKey(1, 0)));
+        assertNull(victim.get(new COSObjectKey(1, 0)));
+        assertEquals(0, victim.size());
+    }
+
+    @Test
+    public void clear()
+    {
+        BoundedIndirectObjectsStore victim = new BoundedIndirectObjectsStore(1000);
+        victim.put(new COSObjectKey(1, 0), new COSDictionary());
+        victim.clear();
+        assertTrue(victim.values().isEmpty());
+        assertEquals(0, victim.size());
+    }
+
+    @Test
+    public void weigh()
+    {
+        COSDictionary dictionary = new COSDictionary();
+        dictionary.setItem(COSName.A, new COSArray(COSInteger.ONE, COSInteger.TWO));
+        assertTrue(BoundedIndirectObjectsStore.weigh(dictionary) > BoundedIndirectObjectsStore
+                .weigh(new COSDictionary()));
+    }
+}
@@ -19,6 +19,7 @@ package org.sejda.sambox.input;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.sejda.io.SeekableSources.inMemorySeekableSourceFrom;
@@ -38,6 +39,7 @@ import org.sejda.sambox.cos.COSName;
 import org.sejda.sambox.cos.COSNull;
 import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.cos.COSString;
+import org.sejda.sambox.cos.DirtyFlags;
 import org.sejda.util.IOUtils;
 
 /**
@@ -246,6 +248,15 @@ public class COSParserTest
         assertEquals(10, result.getInt(COSName.R));
     }
 
+    @Test
+    public void parsedIsNotDirty() throws IOException
+    {
+        victim = new COSParser(
+                inMemorySeekableSourceFrom("<</R 10 /A [1 [2] <</B (s)>>]>>".getBytes()));
+        COSBase result = victim.nextParsedToken();
+        assertFalse(DirtyFlags.isDirty(result));
+    }
+
     @Test
     public void nextDictionarySpaces() throws IOException
     {
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.sejda.io.SeekableSources;
+import org.sejda.sambox.SAMBox;
+import org.sejda.sambox.input.ChunkedSourceScanner.Marker;
+import org.sejda.sambox.input.ChunkedSourceScanner.MarkerType;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class ChunkedSourceScannerTest
+{
+
+    @After
+    public void tearDown()
+    {
+        System.getProperties().remove(SAMBox.FULL_SCAN_THREADS_PROPERTY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullSource()
+    {
+        new ChunkedSourceScanner(null);
+    }
+
+    @Test
+    public void objectDefinitions()
+    {
+        List<Marker> markers = scan("1 0 obj\n<<>>\nendobj\n  12 3 obj <<>> endobj 4 0 obj\r\n",
+                MarkerType.OBJECT);
+        assertEquals(2, markers.size());
+        assertEquals(0, markers.get(0).offset);
+        assertEquals(1, markers.get(0).objectNumber);
+        assertEquals(0, markers.get(0).generation);
+        assertEquals(22, markers.get(1).offset);
+        assertEquals(12, markers.get(1).objectNumber);
+        assertEquals(3, markers.get(1).generation);
+    }
+
+    @Test
+    public void notObjectDefinitions()
+    {
+        assertTrue(scan("1  0 obj\n1 0\nobj\n1 a obj\n1 0 ob\n12345678901234567890 0 obj\n",
+                MarkerType.OBJECT).isEmpty());
+    }
+
+    @Test
+    public void comments()
+    {
+        List<Marker> markers = scan("%1 0 obj\n  % 2 0 obj\n3 0 obj", MarkerType.OBJECT);
+        assertEquals(1, markers.size());
+        assertEquals(3, markers.get(0).objectNumber);
+    }
+
+    @Test
+    public void keywords()
+    {
+        List<Marker> markers = scan("xref\n0 1\nstartxref\n trailer\n<</Type /XRef/Size 2>>",
+                MarkerType.XREF, MarkerType.TRAILER, MarkerType.XREF_TYPE);
+        assertEquals(3, markers.size());
+        assertEquals(MarkerType.XREF, markers.get(0).type);
+        assertEquals(0, markers.get(0).offset);
+        assertEquals(MarkerType.TRAILER, markers.get(1).type);
+        assertEquals(20, markers.get(1).offset);
+        assertEquals(MarkerType.XREF_TYPE, markers.get(2).type);
+        assertEquals(36, markers.get(2).offset);
+    }
+
+    @Test
+    public void xrefTypeIsAName()
+    {
+        assertTrue(scan("<</Type /XRefs>>", MarkerType.XREF_TYPE).isEmpty());
+        assertEquals(1, scan("<</Type /XRef>>", MarkerType.XREF_TYPE).size());
+        assertEquals(1, scan("<</Type /XRef", MarkerType.XREF_TYPE).size());
+    }
+
+    @Test
+    public void onlyRequestedTypes()
+    {
+        List<Marker> markers = scan("1 0 obj\nxref\ntrailer\n", MarkerType.TRAILER);
+        assertEquals(1, markers.size());
+        assertEquals(MarkerType.TRAILER, markers.get(0).type);
+    }
+
+    @Test
+    public void markerAcrossChunks()
+    {
+        byte[] chunk = "abc\n10 0 obj".getBytes(StandardCharsets.US_ASCII);
+        List<Marker> markers = ChunkedSourceScanner.scanChunk(chunk, 6, 100, false,
+                EnumSet.of(MarkerType.OBJECT));
+        assertEquals(1, markers.size());
+        assertEquals(104, markers.get(0).offset);
+        assertTrue(ChunkedSourceScanner.scanChunk(chunk, 4, 100, false,
+                EnumSet.of(MarkerType.OBJECT)).isEmpty());
+    }
+
+    @Test
+    public void lineStartAfter()
+    {
+        assertTrue(ChunkedSourceScanner.lineStartAfter(bytes("abc\n  "), 6, false));
+        assertFalse(ChunkedSourceScanner.lineStartAfter(bytes("abc\n a "), 7, true));
+        assertTrue(ChunkedSourceScanner.lineStartAfter(bytes("   "), 3, true));
+        assertFalse(ChunkedSourceScanner.lineStartAfter(bytes("   "), 3, false));
+        assertFalse(ChunkedSourceScanner.lineStartAfter(bytes("\n a"), 3, true));
+    }
+
+    @Test
+    public void parallelSameAsSequential() throws IOException
+    {
+        StringBuilder content = new StringBuilder();
+        int objects = 0;
+        while (content.length() < ChunkedSourceScanner.CHUNK_SIZE * 3)
+        {
+            content.append(++objects).append(" 0 obj\n<</Filler (");
+            // variable length so that object definitions end up across chunks boundaries
+            for (int i = 0; i < objects % 97; i++)
+            {
+                content.append("a");
+            }
+            content.append(")>>\nendobj\n");
+        }
+        byte[] data = bytes(content.toString());
+        System.setProperty(SAMBox.FULL_SCAN_THREADS_PROPERTY, "1");
+        List<Marker> sequential = new ChunkedSourceScanner(
+                SeekableSources.inMemorySeekableSourceFrom(data)).scan(MarkerType.OBJECT);
+        System.setProperty(SAMBox.FULL_SCAN_THREADS_PROPERTY, "4");
+        List<Marker> parallel = new ChunkedSourceScanner(
+                SeekableSources.inMemorySeekableSourceFrom(data)).scan(MarkerType.OBJECT);
+        assertEquals(objects, sequential.size());
+        assertEquals(objects, parallel.size());
+        for (int i = 0; i < objects; i++)
+        {
+            assertEquals(i + 1, parallel.get(i).objectNumber);
+            assertEquals(sequential.get(i).offset, parallel.get(i).offset);
+        }
+    }
+
+    private static List<Marker> scan(String content, MarkerType first, MarkerType... others)
+    {
+        byte[] data = bytes(content);
+        return ChunkedSourceScanner.scanChunk(data, data.length, 0, true,
+                EnumSet.of(first, others));
+    }
+
+    private static byte[] bytes(String content)
+    {
+        return content.getBytes(StandardCharsets.US_ASCII);
+    }
+}
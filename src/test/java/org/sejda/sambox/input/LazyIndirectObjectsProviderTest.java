@@ -22,20 +22,35 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.sejda.io.SeekableSources;
-import org.sejda.sambox.TestUtils;
+import org.sejda.sambox.SAMBox;
 import org.sejda.sambox.cos.COSBase;
 import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSName;
@@ -44,6 +59,7 @@ import org.sejda.sambox.cos.COSObjectKey;
 import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.xref.CompressedXrefEntry;
 import org.sejda.sambox.xref.XrefEntry;
+import org.sejda.sambox.xref.XrefType;
 
 /**
  * @author Andrea Vacondio
@@ -98,6 +114,24 @@ public class LazyIndirectObjectsProviderTest
         assertNotNull(victim.get(new COSObjectKey(6, 0)));
     }
 
+    @Test
+    public void getCompressedAfterRelease() throws IOException
+    {
+        victim = new LazyIndirectObjectsProvider();
+        parser = new COSParser(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_objstm.pdf")), victim);
+        victim.initializeWith(parser);
+        XrefParser xrefParser = new XrefParser(parser);
+        xrefParser.parse();
+        COSObjectKey key = new COSObjectKey(6, 0);
+        COSBase object = victim.get(key);
+        assertNotNull(object);
+        victim.release(key);
+        COSBase reparsed = victim.get(key);
+        assertNotNull(reparsed);
+        assertNotEquals(object, reparsed);
+    }
+
     @Test
     public void getCompressedWrongOwningStream() throws IOException
     {
@@ -172,6 +206,250 @@ public class LazyIndirectObjectsProviderTest
         assertNotEquals(dictionary, victim.get(key));
     }
 
+    @Test
+    public void getWithEvictingStore() throws IOException
+    {
+        victim = new LazyIndirectObjectsProvider(new BoundedIndirectObjectsStore(1));
+        parser = new COSParser(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_objstm.pdf")), victim);
+        victim.initializeWith(parser);
+        XrefParser xrefParser = new XrefParser(parser);
+        xrefParser.parse();
+        assertNotNull(victim.get(new COSObjectKey(6, 0)));
+        assertNotNull(victim.get(new COSObjectKey(3, 0)));
+        assertNotNull(victim.get(new COSObjectKey(6, 0)));
+    }
+
+    @Test
+    public void getConcurrently() throws Exception
+    {
+        victim = new LazyIndirectObjectsProvider(new UnboundedIndirectObjectsStore(), true);
+        parser = new COSParser(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_objstm.pdf")), victim);
+        victim.initializeWith(parser);
+        XrefParser xrefParser = new XrefParser(parser);
+        xrefParser.parse();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<List<COSBase>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+            {
+                results.add(executor.submit(() -> {
+                    List<COSBase> objects = new ArrayList<>();
+                    for (long number = 1; number <= 8; number++)
+                    {
+                        objects.add(victim.get(new COSObjectKey(number, 0)));
+                    }
+                    return objects;
+                }));
+            }
+            List<COSBase> expected = results.get(0).get();
+            assertNotNull(expected.get(5));
+            for (Future<List<COSBase>> result : results)
+            {
+                List<COSBase> current = result.get();
+                for (int i = 0; i < expected.size(); i++)
+                {
+                    assertSame(expected.get(i), current.get(i));
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void crossReferencingLengthsConcurrently() throws Exception
+    {
+        String first = "1 0 obj\n<</Length 2 0 R>>\nstream\nabc\nendstream\nendobj\n";
+        String second = "2 0 obj\n<</Length 1 0 R>>\nstream\nabc\nendstream\nendobj\n";
+        String header = "%PDF-1.4\n";
+        byte[] bytes = (header + first + second).getBytes(StandardCharsets.US_ASCII);
+        // each thread waits for the other to start parsing its stream before reading the /Length
+        CyclicBarrier started = new CyclicBarrier(2);
+        Map<COSObjectKey, AtomicInteger> lookups = new ConcurrentHashMap<>();
+        victim = new LazyIndirectObjectsProvider(new UnboundedIndirectObjectsStore()
+        {
+            @Override
+            public COSBase get(COSObjectKey key)
+            {
+                if (lookups.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet() == 2)
+                {
+                    try
+                    {
+                        started.await(5, TimeUnit.SECONDS);
+                    }
+                    catch (Exception e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return super.get(key);
+            }
+        }, true);
+        parser = new COSParser(SeekableSources.inMemorySeekableSourceFrom(bytes), victim);
+        victim.initializeWith(parser);
+        victim.addEntry(XrefEntry.inUseEntry(1, header.length(), 0));
+        victim.addEntry(XrefEntry.inUseEntry(2, header.length() + first.length(), 0));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            Future<COSBase> one = executor.submit(() -> victim.get(new COSObjectKey(1, 0)));
+            Future<COSBase> two = executor.submit(() -> victim.get(new COSObjectKey(2, 0)));
+            // broken document, what matters is that the threads don't wait for each other forever
+            one.get(5, TimeUnit.SECONDS);
+            two.get(5, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void objectsStreamParsedOnceConcurrently() throws Exception
+    {
+        List<COSObjectKey> stored = Collections.synchronizedList(new ArrayList<>());
+        victim = new LazyIndirectObjectsProvider(new UnboundedIndirectObjectsStore()
+        {
+            @Override
+            public void put(COSObjectKey key, COSBase value)
+            {
+                stored.add(key);
+                super.put(key, value);
+            }
+        }, true);
+        parser = new COSParser(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_objstm.pdf")), victim);
+        victim.initializeWith(parser);
+        new XrefParser(parser).parse();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<COSBase>> results = new ArrayList<>();
+            for (XrefEntry entry : victim.entries())
+            {
+                if (entry.getType() == XrefType.COMPRESSED)
+                {
+                    for (int i = 0; i < 4; i++)
+                    {
+                        results.add(executor.submit(() -> victim.get(entry.key())));
+                    }
+                }
+            }
+            for (Future<COSBase> result : results)
+            {
+                assertNotNull(result.get());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertEquals(new HashSet<>(stored).size(), stored.size());
+        COSObjectKey streamKey = victim.entries().stream()
+                .filter(e -> e.getType() == XrefType.COMPRESSED)
+                .map(e -> new COSObjectKey(((CompressedXrefEntry) e).getObjectStreamNumber(), 0))
+                .findFirst().get();
+        // the shared instance is not decoded nor closed
+        COSStream stream = (COSStream) victim.get(streamKey);
+        assertTrue(stream.getUnchangedFilteredSource().isPresent());
+        assertTrue(stream.getUnfilteredLength() > 0);
+    }
+
+    @Test
+    public void objectsStreamBiggerThanBudgetDecodedOnce() throws IOException
+    {
+        ParseStatistics statistics = new ParseStatistics();
+        System.setProperty(SAMBox.OBJECTS_STREAMS_CACHE_MEMORY_BUDGET_PROPERTY, "1");
+        try
+        {
+            victim = new LazyIndirectObjectsProvider();
+        }
+        finally
+        {
+            System.clearProperty(SAMBox.OBJECTS_STREAMS_CACHE_MEMORY_BUDGET_PROPERTY);
+        }
+        parser = new COSParser(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_objstm.pdf")), victim);
+        parser.setListener(statistics);
+        victim.initializeWith(parser);
+        new XrefParser(parser).parse();
+        List<XrefEntry> compressed = victim.entries().stream()
+                .filter(e -> e.getType() == XrefType.COMPRESSED).collect(Collectors.toList());
+        assertTrue(compressed.size() > 1);
+        for (XrefEntry entry : compressed)
+        {
+            assertNotNull(victim.get(entry.key()));
+        }
+        assertEquals(1, statistics.objectsStreams());
+    }
+
+    @Test
+    public void prefetchAll() throws IOException
+    {
+        List<COSObjectKey> stored = new ArrayList<>();
+        victim = new LazyIndirectObjectsProvider(new UnboundedIndirectObjectsStore()
+        {
+            @Override
+            public void put(COSObjectKey key, COSBase value)
+            {
+                stored.add(key);
+                super.put(key, value);
+            }
+        });
+        parser = new COSParser(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_objstm.pdf")), victim);
+        victim.initializeWith(parser);
+        new XrefParser(parser).parse();
+        assertTrue(victim.prefetch(null, false).isDone());
+        long inUse = victim.entries().stream().filter(e -> e.getType() != XrefType.FREE)
+                .count();
+        assertEquals(inUse, stored.size());
+        long previous = -1;
+        for (COSObjectKey key : stored)
+        {
+            XrefEntry entry = victim.entries().stream().filter(e -> e.key().equals(key))
+                    .findFirst().get();
+            if (entry.getType() == XrefType.IN_USE)
+            {
+                assertTrue(entry.getByteOffset() > previous);
+                previous = entry.getByteOffset();
+            }
+        }
+    }
+
+    @Test
+    public void prefetchKeys() throws IOException
+    {
+        IndirectObjectsStore store = new UnboundedIndirectObjectsStore();
+        victim = new LazyIndirectObjectsProvider(store);
+        parser = new COSParser(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_objstm.pdf")), victim);
+        victim.initializeWith(parser);
+        new XrefParser(parser).parse();
+        victim.prefetch(Arrays.asList(new COSObjectKey(6, 0), new COSObjectKey(30, 0)), false);
+        assertNotNull(store.get(new COSObjectKey(6, 0)));
+        assertNull(store.get(new COSObjectKey(1, 0)));
+    }
+
+    @Test
+    public void prefetchInBackground() throws Exception
+    {
+        IndirectObjectsStore store = new UnboundedIndirectObjectsStore();
+        victim = new LazyIndirectObjectsProvider(store, true);
+        parser = new COSParser(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_objstm.pdf")), victim);
+        victim.initializeWith(parser);
+        new XrefParser(parser).parse();
+        victim.prefetch(null, true).get();
+        assertNotNull(store.get(new COSObjectKey(6, 0)));
+        assertNotNull(store.get(new COSObjectKey(1, 0)));
+    }
+
     @Test
     public void addIfAbsent()
     {
@@ -199,11 +477,11 @@ public class LazyIndirectObjectsProviderTest
     @Test
     public void close()
     {
-        Map<COSObjectKey, COSBase> store = new ConcurrentHashMap<>();
+        IndirectObjectsStore store = new UnboundedIndirectObjectsStore();
         COSStream item = mock(COSStream.class);
         COSObjectKey key = new COSObjectKey(1, 0);
         store.put(key, item);
-        TestUtils.setProperty(victim, "store", store);
+        victim = new LazyIndirectObjectsProvider(store);
         victim.close();
         verify(item).close();
     }
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.sejda.sambox.cos.COSObjectKey;
+import org.sejda.sambox.input.ObjectsStreamsCache.DecodedObjectsStream;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class ObjectsStreamsCacheTest
+{
+
+    private static DecodedObjectsStream stream(int size)
+    {
+        return new DecodedObjectsStream(ByteBuffer.allocate(size), new long[] { 10, 11 },
+                new long[] { 0, 5 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeBudget()
+    {
+        new ObjectsStreamsCache(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mismatchingOffsets()
+    {
+        new DecodedObjectsStream(ByteBuffer.allocate(10), new long[] { 10, 11 },
+                new long[] { 0 });
+    }
+
+    @Test
+    public void putAndGet()
+    {
+        ObjectsStreamsCache victim = new ObjectsStreamsCache(1000);
+        DecodedObjectsStream stream = stream(100);
+        victim.put(new COSObjectKey(1, 0), stream);
+        assertSame(stream, victim.get(new COSObjectKey(1, 0)));
+        assertEquals(stream.size(), victim.size());
+    }
+
+    @Test
+    public void lastBiggerThanBudgetIsKept()
+    {
+        ObjectsStreamsCache victim = new ObjectsStreamsCache(10);
+        DecodedObjectsStream first = stream(100);
+        victim.put(new COSObjectKey(1, 0), first);
+        assertSame(first, victim.get(new COSObjectKey(1, 0)));
+        assertEquals(0, victim.size());
+        DecodedObjectsStream second = stream(100);
+        victim.put(new COSObjectKey(2, 0), second);
+        assertNull(victim.get(new COSObjectKey(1, 0)));
+        assertSame(second, victim.get(new COSObjectKey(2, 0)));
+        victim.clear();
+        assertNull(victim.get(new COSObjectKey(2, 0)));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed()
+    {
+        ObjectsStreamsCache victim = new ObjectsStreamsCache(stream(100).size() * 2);
+        victim.put(new COSObjectKey(1, 0), stream(100));
+        victim.put(new COSObjectKey(2, 0), stream(100));
+        victim.get(new COSObjectKey(1, 0));
+        victim.put(new COSObjectKey(3, 0), stream(100));
+        assertNotNull(victim.get(new COSObjectKey(1, 0)));
+        assertNull(victim.get(new COSObjectKey(2, 0)));
+        assertNotNull(victim.get(new COSObjectKey(3, 0)));
+        assertEquals(stream(100).size() * 2, victim.size());
+    }
+
+    @Test
+    public void clear()
+    {
+        ObjectsStreamsCache victim = new ObjectsStreamsCache(1000);
+        victim.put(new COSObjectKey(1, 0), stream(100));
+        victim.clear();
+        assertNull(victim.get(new COSObjectKey(1, 0)));
+        assertEquals(0, victim.size());
+    }
+
+    @Test
+    public void offsetOf()
+    {
+        DecodedObjectsStream victim = stream(10);
+        assertEquals(2, victim.objects());
+        assertEquals(5, victim.offsetOf(11, 1));
+        assertEquals(5, victim.offsetOf(11, 0));
+        assertEquals(0, victim.offsetOf(10, 5));
+        assertEquals(-1, victim.offsetOf(12, 1));
+    }
+
+    @Test
+    public void offsetOfDuplicateLastWins()
+    {
+        DecodedObjectsStream victim = new DecodedObjectsStream(ByteBuffer.allocate(10),
+                new long[] { 10, 11, 10 }, new long[] { 0, 3, 6 });
+        assertEquals(6, victim.offsetOf(10, 1));
+        assertEquals(0, victim.offsetOf(10, 0));
+    }
+
+    @Test
+    public void dataIsReadOnly()
+    {
+        assertTrue(stream(10).data().isReadOnly());
+    }
+}
@@ -167,4 +167,51 @@ public class PDFParserTest
         }
     }
 
+    @Test
+    public void parseStatistics() throws IOException
+    {
+        ParseStatistics statistics = new ParseStatistics();
+        try (PDDocument doc = PDFParser.parse(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_objstm.pdf")), statistics))
+        {
+            assertNotNull(doc.getPage(0));
+            assertTrue(statistics.xrefNanos() > 0);
+            assertFalse(statistics.isXrefFullScan());
+            assertFalse(statistics.isObjectsFullScan());
+            assertTrue(statistics.objects() > 0);
+            assertTrue(statistics.compressedObjects() > 0);
+            assertEquals(1, statistics.objectsStreams());
+            assertTrue(statistics.objectsStreamsNanos() > 0);
+            assertTrue(statistics.decodedBytes().get(COSName.FLATE_DECODE) > 0);
+        }
+    }
+
+    @Test
+    public void parseStatisticsFullScan() throws IOException
+    {
+        ParseStatistics statistics = new ParseStatistics();
+        try (PDDocument doc = PDFParser.parse(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_missing_startxref.pdf")),
+                statistics))
+        {
+            assertNotNull(doc.getPage(0));
+            assertTrue(statistics.isXrefFullScan());
+        }
+    }
+
+    @Test
+    public void prefetch() throws IOException
+    {
+        ParseStatistics statistics = new ParseStatistics();
+        try (PDDocument doc = PDFParser.parse(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test.pdf")), statistics))
+        {
+            assertTrue(doc.prefetch(false).isDone());
+            long parsed = statistics.objects();
+            assertTrue(parsed > 0);
+            assertNotNull(doc.getPage(0));
+            assertEquals(parsed, statistics.objects());
+        }
+    }
+
 }
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSObjectKey;
+import org.sejda.sambox.input.ParseListener.Recovery;
+import org.sejda.sambox.xref.CompressedXrefEntry;
+import org.sejda.sambox.xref.XrefEntry;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class ParseStatisticsTest
+{
+    private ParseStatistics victim = new ParseStatistics();
+
+    @Test
+    public void empty()
+    {
+        assertEquals(0, victim.objects());
+        assertEquals(0, victim.xrefNanos());
+        assertFalse(victim.isXrefFullScan());
+        assertFalse(victim.isObjectsFullScan());
+        assertTrue(victim.decodedBytes().isEmpty());
+        assertEquals(0, victim.recoveries(Recovery.MISSING_ENDOBJ));
+    }
+
+    @Test
+    public void xref()
+    {
+        victim.onXrefParsed(10);
+        victim.onXrefFullScan();
+        victim.onObjectsFullScan();
+        assertEquals(10, victim.xrefNanos());
+        assertTrue(victim.isXrefFullScan());
+        assertTrue(victim.isObjectsFullScan());
+    }
+
+    @Test
+    public void objects()
+    {
+        victim.onObjectParsed(XrefEntry.inUseEntry(1, 10, 0), 5);
+        victim.onObjectParsed(CompressedXrefEntry.compressedEntry(2, 3, 0), 7);
+        victim.onObjectsStreamDecoded(new COSObjectKey(3, 0), 100, 3);
+        assertEquals(2, victim.objects());
+        assertEquals(1, victim.compressedObjects());
+        assertEquals(12, victim.objectsNanos());
+        assertEquals(1, victim.objectsStreams());
+        assertEquals(100, victim.objectsStreamsBytes());
+        assertEquals(3, victim.objectsStreamsNanos());
+    }
+
+    @Test
+    public void decoded()
+    {
+        victim.onDecoded(COSName.FLATE_DECODE, 100, 2);
+        victim.onDecoded(COSName.FLATE_DECODE, 50, 3);
+        victim.onDecoded(COSName.DCT_DECODE, 10, 1);
+        assertEquals(150, victim.decodedBytes().get(COSName.FLATE_DECODE).longValue());
+        assertEquals(5, victim.decodeNanos().get(COSName.FLATE_DECODE).longValue());
+        assertEquals(10, victim.decodedBytes().get(COSName.DCT_DECODE).longValue());
+    }
+
+    @Test
+    public void recoveries()
+    {
+        victim.onRecovery(Recovery.MISSING_ENDOBJ, 10);
+        victim.onRecovery(Recovery.MISSING_ENDOBJ, 20);
+        victim.onRecovery(Recovery.STREAM_LENGTH, 20);
+        assertEquals(2, victim.recoveries(Recovery.MISSING_ENDOBJ));
+        assertEquals(1, victim.recoveries(Recovery.STREAM_LENGTH));
+        assertEquals(0, victim.recoveries(Recovery.MISSING_ENDSTREAM));
+    }
+}
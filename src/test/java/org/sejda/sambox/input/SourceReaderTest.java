@@ -18,7 +18,9 @@ package org.sejda.sambox.input;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.sejda.io.SeekableSources.inMemorySeekableSourceFrom;
 
 import java.io.IOException;
@@ -27,6 +29,7 @@ import org.junit.After;
 import org.junit.Test;
 import org.sejda.io.SeekableSource;
 import org.sejda.io.SeekableSources;
+import org.sejda.sambox.cos.COSName;
 import org.sejda.sambox.cos.COSObjectKey;
 import org.sejda.util.IOUtils;
 
@@ -639,4 +642,102 @@ public class SourceReaderTest
         victim.unreadUntilSpaces();
         assertEquals(11, victim.position());
     }
+
+    @Test
+    public void skipSingleToken() throws IOException
+    {
+        victim = new SourceReader(inMemorySeekableSourceFrom("Chuck Norris".getBytes()));
+        assertFalse(victim.skipTokenIfValue("Chu"));
+        assertEquals(0, victim.position());
+        assertTrue(victim.skipTokenIfValue("Chuck"));
+        assertEquals(5, victim.position());
+    }
+
+    @Test
+    public void isNextSingleToken() throws IOException
+    {
+        victim = new SourceReader(inMemorySeekableSourceFrom("  endobj".getBytes()));
+        assertFalse(victim.isNextToken("endstream"));
+        assertTrue(victim.isNextToken("endobj"));
+        assertEquals(0, victim.position());
+    }
+
+    @Test
+    public void readLongToken() throws IOException
+    {
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+        {
+            token.append('a');
+        }
+        victim = new SourceReader(
+                inMemorySeekableSourceFrom((token.toString() + " /" + token.toString()).getBytes()));
+        assertEquals(token.toString(), victim.readToken());
+        victim.skipSpaces();
+        assertEquals(COSName.getPDFName(token.toString()), victim.readCOSName());
+    }
+
+    @Test
+    public void readCOSName() throws IOException
+    {
+        victim = new SourceReader(inMemorySeekableSourceFrom("/Lime#20Green/Type /Type".getBytes()));
+        assertEquals(COSName.getPDFName("Lime Green"), victim.readCOSName());
+        assertEquals(COSName.TYPE, victim.readCOSName());
+        victim.skipSpaces();
+        assertSame(COSName.TYPE, victim.readCOSName());
+    }
+
+    @Test
+    public void readNameHighByte() throws IOException
+    {
+        victim = new SourceReader(inMemorySeekableSourceFrom("/A#E9 /B#E9".getBytes()));
+        assertEquals("A\u00e9", victim.readName());
+        victim.skipSpaces();
+        assertEquals(COSName.getPDFName("B\u00e9"), victim.readCOSName());
+    }
+
+    @Test
+    public void readSignedLong() throws IOException
+    {
+        victim = new SourceReader(inMemorySeekableSourceFrom("-53 +12".getBytes()));
+        assertEquals(-53, victim.readLong());
+        assertEquals(12, victim.readInt());
+    }
+
+    @Test
+    public void readMinLong() throws IOException
+    {
+        victim = new SourceReader(inMemorySeekableSourceFrom(Long.toString(Long.MIN_VALUE).getBytes()));
+        assertEquals(Long.MIN_VALUE, victim.readLong());
+    }
+
+    @Test(expected = IOException.class)
+    public void readIntOverflow() throws IOException
+    {
+        victim = new SourceReader(inMemorySeekableSourceFrom("2147483648".getBytes()));
+        victim.readInt();
+    }
+
+    @Test
+    public void readLongOverflow() throws IOException
+    {
+        victim = new SourceReader(inMemorySeekableSourceFrom("92233720368547758070".getBytes()));
+        try
+        {
+            victim.readLong();
+        }
+        catch (IOException e)
+        {
+            assertEquals(0, victim.position());
+            return;
+        }
+        fail("Exception expected");
+    }
+
+    @Test(expected = IOException.class)
+    public void readLongOnlySign() throws IOException
+    {
+        victim = new SourceReader(inMemorySeekableSourceFrom("- 10".getBytes()));
+        victim.readLong();
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sejda.io.SeekableSources;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSObjectKey;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class XrefIndexCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private XrefIndexCache victim;
+    private COSParser parser;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = folder.newFile("test.pdf");
+        copy("/sambox/simple_test_objstm.pdf");
+        victim = new XrefIndexCache(folder.newFolder("cache"));
+    }
+
+    @After
+    public void tearDown()
+    {
+        IOUtils.closeQuietly(parser);
+    }
+
+    private void copy(String resource) throws IOException
+    {
+        try (InputStream in = getClass().getResourceAsStream(resource))
+        {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private COSParser newParser() throws IOException
+    {
+        IOUtils.closeQuietly(parser);
+        parser = new COSParser(SeekableSources.seekableSourceFrom(file));
+        return parser;
+    }
+
+    @Test
+    public void storeAndLoad() throws IOException
+    {
+        XrefParser xrefParser = new XrefParser(newParser(), victim);
+        xrefParser.parse();
+        assertTrue(victim.indexFile(file).isFile());
+        COSParser cached = newParser();
+        COSDictionary trailer = victim.load(cached);
+        assertNotNull(trailer);
+        assertEquals(xrefParser.trailer().keySet(), trailer.keySet());
+        assertEquals(xrefParser.trailer().getItem(COSName.ROOT).id().objectIdentifier,
+                trailer.getItem(COSName.ROOT).id().objectIdentifier);
+        assertNotNull(trailer.getDictionaryObject(COSName.ROOT));
+        COSParser uncached = new COSParser(SeekableSources.seekableSourceFrom(file));
+        try
+        {
+            new XrefParser(uncached, new XrefIndexCache(null)).parse();
+            assertEquals(uncached.provider().entries(), cached.provider().entries());
+        }
+        finally
+        {
+            IOUtils.closeQuietly(uncached);
+        }
+    }
+
+    @Test
+    public void parseUsesIndex() throws IOException
+    {
+        new XrefParser(newParser(), victim).parse();
+        XrefParser xrefParser = new XrefParser(newParser(), victim);
+        xrefParser.parse();
+        assertNotNull(xrefParser.trailer().getDictionaryObject(COSName.ROOT));
+        assertNotNull(parser.provider().get(new COSObjectKey(6, 0)));
+    }
+
+    @Test
+    public void disabled() throws IOException
+    {
+        victim = new XrefIndexCache(null);
+        new XrefParser(newParser(), victim).parse();
+        assertNull(victim.load(newParser()));
+    }
+
+    @Test
+    public void staleModified() throws IOException
+    {
+        new XrefParser(newParser(), victim).parse();
+        assertTrue(file.setLastModified(file.lastModified() - 10000));
+        assertNull(victim.load(newParser()));
+    }
+
+    @Test
+    public void staleContent() throws IOException
+    {
+        new XrefParser(newParser(), victim).parse();
+        long modified = file.lastModified();
+        byte[] content = Files.readAllBytes(file.toPath());
+        content[content.length - 3] = 'X';
+        Files.write(file.toPath(), content);
+        assertTrue(file.setLastModified(modified));
+        assertNull(victim.load(newParser()));
+    }
+
+    @Test
+    public void corruptedIndex() throws IOException
+    {
+        new XrefParser(newParser(), victim).parse();
+        byte[] content = Files.readAllBytes(victim.indexFile(file).toPath());
+        Files.write(victim.indexFile(file).toPath(), Arrays.copyOf(content, 60));
+        assertNull(victim.load(newParser()));
+        assertTrue(parser.provider().entries().isEmpty());
+    }
+
+    @Test
+    public void notAFile() throws IOException
+    {
+        parser = new COSParser(SeekableSources.inMemorySeekableSourceFrom(
+                getClass().getResourceAsStream("/sambox/simple_test_objstm.pdf")));
+        new XrefParser(parser, victim).parse();
+        assertEquals(0, new File(folder.getRoot(), "cache").list().length);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+import org.sejda.sambox.filter.FlateEncoder;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class CompressedSizeEstimatorTest
+{
+
+    private CompressedSizeEstimator victim = new CompressedSizeEstimator(
+            FlateEncoder.defaultEncoder());
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullEncoder()
+    {
+        new CompressedSizeEstimator(null);
+    }
+
+    @Test
+    public void smallDataIsExact() throws IOException
+    {
+        byte[] data = text(1000);
+        assertEquals(compress(data).length,
+                victim.estimate(new ByteArrayInputStream(data), data.length));
+    }
+
+    @Test
+    public void largeTextIsEstimated() throws IOException
+    {
+        byte[] data = text(20000);
+        assertTrue(data.length > 2 * CompressedSizeEstimator.SAMPLE_SIZE);
+        long actual = compress(data).length;
+        long estimated = victim.estimate(new ByteArrayInputStream(data), data.length);
+        assertTrue("Estimated " + estimated + " actual " + actual,
+                Math.abs(actual - estimated) < actual * 0.05);
+    }
+
+    @Test
+    public void largeRandomIsEstimated() throws IOException
+    {
+        byte[] data = new byte[1024 * 1024];
+        new Random(7).nextBytes(data);
+        long actual = compress(data).length;
+        long estimated = victim.estimate(new ByteArrayInputStream(data), data.length);
+        assertTrue("Estimated " + estimated + " actual " + actual,
+                Math.abs(actual - estimated) < actual * 0.01);
+    }
+
+    @Test
+    public void shorterThanDeclared() throws IOException
+    {
+        byte[] data = text(10);
+        assertTrue(victim.estimate(new ByteArrayInputStream(data), 1024 * 1024) > 0);
+    }
+
+    private static byte[] text(int lines)
+    {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lines; i++)
+        {
+            builder.append(String.format("BT /F1 12 Tf %d %d Td (Line %d) Tj ET\n",
+                    random.nextInt(500), random.nextInt(800), i));
+        }
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] compress(byte[] data) throws IOException
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = FlateEncoder.defaultEncoder().compressing(compressed))
+        {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.sejda.io.SeekableSources;
+import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSBase;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSInteger;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSStream;
+import org.sejda.sambox.cos.COSString;
+import org.sejda.sambox.cos.DirectCOSObject;
+import org.sejda.sambox.cos.IndirectCOSObjectReference;
+import org.sejda.sambox.input.ExistingIndirectCOSObject;
+import org.sejda.sambox.input.PDFParser;
+import org.sejda.sambox.pdmodel.PDDocument;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class ContentDigestTest
+{
+
+    @Test
+    public void sameDictionaries()
+    {
+        assertEquals(ContentDigest.digestOf(dictionary()).get(),
+                ContentDigest.digestOf(dictionary()).get());
+    }
+
+    @Test
+    public void differentDictionaries()
+    {
+        COSDictionary other = dictionary();
+        other.setInt(COSName.SIZE, 5);
+        assertNotEquals(ContentDigest.digestOf(dictionary()).get(),
+                ContentDigest.digestOf(other).get());
+    }
+
+    @Test
+    public void directDictionaryValue()
+    {
+        COSDictionary victim = dictionary();
+        victim.setItem(COSName.D, DirectCOSObject.asDirectObject(dictionary()));
+        assertTrue(ContentDigest.digestOf(victim).isPresent());
+    }
+
+    @Test
+    public void indirectValues()
+    {
+        COSDictionary victim = dictionary();
+        victim.setItem(COSName.D, dictionary());
+        assertFalse(ContentDigest.digestOf(victim).isPresent());
+        COSDictionary victim2 = dictionary();
+        victim2.setItem(COSName.D, new IndirectCOSObjectReference(1, 0, COSInteger.ONE));
+        assertFalse(ContentDigest.digestOf(victim2).isPresent());
+    }
+
+    @Test
+    public void notDictionaries()
+    {
+        assertFalse(ContentDigest.digestOf(new COSArray(COSInteger.ONE)).isPresent());
+        assertFalse(ContentDigest.digestOf(COSInteger.ONE).isPresent());
+    }
+
+    @Test
+    public void streams() throws IOException
+    {
+        COSStream stream = stream("Chuck");
+        stream.setInt(COSName.LENGTH, 10);
+        assertEquals(ContentDigest.digestOf(stream).get(),
+                ContentDigest.digestOf(stream("Chuck")).get());
+        assertNotEquals(ContentDigest.digestOf(stream).get(),
+                ContentDigest.digestOf(stream("Norris")).get());
+    }
+
+    @Test
+    public void parsedStreamWithIndirectLength() throws IOException
+    {
+        try (PDDocument document = PDFParser.parse(SeekableSources.inMemorySeekableSourceFrom(
+                documentWithIndirectLength("Chuck"))))
+        {
+            COSBase metadata = document.getDocumentCatalog().getCOSObject()
+                    .getItem(COSName.METADATA);
+            COSStream parsed = (COSStream) metadata.getCOSObject();
+            assertThat(parsed.getItem(COSName.LENGTH), instanceOf(ExistingIndirectCOSObject.class));
+            assertEquals(ContentDigest.digestOf(stream("Chuck")).get(),
+                    ContentDigest.digestOf(metadata).get());
+        }
+    }
+
+    private static byte[] documentWithIndirectLength(String content)
+    {
+        StringBuilder document = new StringBuilder("%PDF-1.4\n");
+        List<Integer> offsets = new ArrayList<>();
+        offsets.add(document.length());
+        document.append("1 0 obj\n<< /Type /Catalog /Metadata 2 0 R >>\nendobj\n");
+        offsets.add(document.length());
+        document.append("2 0 obj\n<< /Subtype /Image /Length 3 0 R >>\nstream\n").append(content)
+                .append("\nendstream\nendobj\n");
+        offsets.add(document.length());
+        document.append("3 0 obj\n").append(content.length()).append("\nendobj\n");
+        int xref = document.length();
+        document.append("xref\n0 4\n0000000000 65535 f\r\n");
+        offsets.forEach(o -> document.append(String.format("%010d 00000 n\r\n", o)));
+        document.append("trailer\n<< /Size 4 /Root 1 0 R >>\nstartxref\n").append(xref)
+                .append("\n%%EOF\n");
+        return document.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static COSStream stream(String content) throws IOException
+    {
+        COSStream stream = new COSStream();
+        stream.setName(COSName.SUBTYPE, "Image");
+        try (OutputStream out = stream.createUnfilteredStream())
+        {
+            out.write(content.getBytes());
+        }
+        return stream;
+    }
+
+    private static COSDictionary dictionary()
+    {
+        COSDictionary dictionary = new COSDictionary();
+        dictionary.setName(COSName.TYPE, "Font");
+        dictionary.setItem(COSName.W, new COSArray(COSInteger.ONE, COSString.parseLiteral("a")));
+        dictionary.setInt(COSName.SIZE, 4);
+        return dictionary;
+    }
+}
@@ -17,28 +17,28 @@
 package org.sejda.sambox.output;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyByte;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.AdditionalMatchers;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.sejda.io.BufferedCountingChannelWriter;
 import org.sejda.io.CountingWritableByteChannel;
+import org.sejda.io.SeekableSource;
+import org.sejda.io.SeekableSources;
 import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSBase;
 import org.sejda.sambox.cos.COSBoolean;
 import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSDocument;
@@ -49,6 +49,7 @@ import org.sejda.sambox.cos.COSNull;
 import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.cos.COSString;
 import org.sejda.sambox.cos.IndirectCOSObjectReference;
+import org.sejda.sambox.util.ByteBufferSeekableSource;
 
 /**
  * @author Andrea Vacondio
@@ -88,21 +89,14 @@ public class DefaultCOSWriterTest
     public void visitCOSArray() throws Exception
     {
         COSArray array = new COSArray(COSBoolean.TRUE, COSInteger.get(10));
-        InOrder inOrder = Mockito.inOrder(writer);
-        victim.visit(array);
-        inOrder.verify(writer).write((byte) 0x5B);
-        inOrder.verify(writer).write("true");
-        inOrder.verify(writer).write((byte) 0x20);
-        inOrder.verify(writer).write("10");
-        inOrder.verify(writer).write((byte) 0x5D);
-        inOrder.verify(writer).writeEOL();
+        assertEquals("[true 10]\n", written(array));
     }
 
     @Test
     public void visitCOSBoolean() throws Exception
     {
-        victim.visit(COSBoolean.FALSE);
-        verify(writer).write(COSBoolean.FALSE.toString());
+        assertEquals("false", written(COSBoolean.FALSE));
+        assertEquals("true", written(COSBoolean.TRUE));
     }
 
     @Test
@@ -111,22 +105,7 @@ public class DefaultCOSWriterTest
         COSDictionary dictionary = new COSDictionary();
         dictionary.setBoolean(COSName.A, true);
         dictionary.setInt(COSName.C, 151);
-        InOrder inOrder = Mockito.inOrder(writer);
-        victim.visit(dictionary);
-        inOrder.verify(writer, times(2)).write((byte) 0x3C);
-        inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer).write((byte) 0x2F);
-        inOrder.verify(writer).write((byte) 0x41);
-        inOrder.verify(writer).write((byte) 0x20);
-        inOrder.verify(writer).write(COSBoolean.TRUE.toString());
-        inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer).write((byte) 0x2F);
-        inOrder.verify(writer).write((byte) 0x43);
-        inOrder.verify(writer).write((byte) 0x20);
-        inOrder.verify(writer).write("151");
-        inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer, times(2)).write((byte) 0x3E);
-        inOrder.verify(writer).writeEOL();
+        assertEquals("<<\n/A true\n/C 151\n>>\n", written(dictionary));
     }
 
     @Test
@@ -139,23 +118,18 @@ public class DefaultCOSWriterTest
     @Test
     public void visitCOSInteger() throws Exception
     {
-        victim.visit(COSInteger.get(123456));
-        verify(writer).write("123456");
+        assertEquals("123456", written(COSInteger.get(123456)));
+        assertEquals("0", written(COSInteger.ZERO));
+        assertEquals("-10", written(COSInteger.get(-10)));
+        assertEquals(Long.toString(Long.MAX_VALUE), written(COSInteger.get(Long.MAX_VALUE)));
+        assertEquals(Long.toString(Long.MIN_VALUE), written(COSInteger.get(Long.MIN_VALUE)));
     }
 
     @Test
     public void visitCOSName() throws Exception
     {
-        COSName name = COSName.getPDFName("a()7");
-        InOrder inOrder = Mockito.inOrder(writer);
-        victim.visit(name);
-        inOrder.verify(writer).write((byte) 0x2F);
-        inOrder.verify(writer).write((byte) 0x61);
-        inOrder.verify(writer).write((byte) 0x23);
-        inOrder.verify(writer).write(AdditionalMatchers.aryEq(new byte[] { 0x32, 0x38 }));
-        inOrder.verify(writer).write((byte) 0x23);
-        inOrder.verify(writer).write(AdditionalMatchers.aryEq(new byte[] { 0x32, 0x39 }));
-        inOrder.verify(writer).write((byte) 0x37);
+        assertEquals("/a#28#297", written(COSName.getPDFName("a()7")));
+        assertEquals("/A#20B", written(COSName.getPDFName("A B")));
     }
 
     @Test
@@ -175,36 +149,7 @@ public class DefaultCOSWriterTest
         {
             out.write(data);
         }
-        InOrder inOrder = Mockito.inOrder(writer);
-        victim.visit(stream);
-
-        inOrder.verify(writer, times(2)).write((byte) 0x3C);
-        inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer).write((byte) 0x2F);
-        inOrder.verify(writer).write((byte) 0x42);
-        inOrder.verify(writer).write((byte) 0x20);
-        inOrder.verify(writer).write("2");
-        inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer).write((byte) 0x2F);
-        inOrder.verify(writer).write((byte) 0x4C);
-        inOrder.verify(writer).write((byte) 0x65);
-        inOrder.verify(writer).write((byte) 0x6E);
-        inOrder.verify(writer).write((byte) 0x67);
-        inOrder.verify(writer).write((byte) 0x74);
-        inOrder.verify(writer).write((byte) 0x68);
-        inOrder.verify(writer).write((byte) 0x20);
-        inOrder.verify(writer).write("3");
-        inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer, times(2)).write((byte) 0x3E);
-        inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer)
-                .write(AdditionalMatchers.aryEq("stream".getBytes(StandardCharsets.US_ASCII)));
-        inOrder.verify(writer).write(AdditionalMatchers.aryEq(new byte[] { '\r', '\n' }));
-        inOrder.verify(writer).write(any(InputStream.class));
-        inOrder.verify(writer).write(AdditionalMatchers.aryEq(new byte[] { '\r', '\n' }));
-        inOrder.verify(writer).write(
-                AdditionalMatchers.aryEq("endstream".getBytes(StandardCharsets.US_ASCII)));
-        inOrder.verify(writer).writeEOL();
+        assertEquals("<<\n/B 2\n/Length 3\n>>\nstream\r\nABC\r\nendstream\n", written(stream));
     }
 
     @Test
@@ -224,15 +169,45 @@ public class DefaultCOSWriterTest
         assertEquals(COSInteger.THREE, stream.getDictionaryObject(COSName.LENGTH).getCOSObject());
     }
 
+    @Test
+    public void visitUnchangedExistingCOSStream() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        victim = new DefaultCOSWriter(CountingWritableByteChannel.from(out));
+        byte[] data = "ABCDEF".getBytes(StandardCharsets.US_ASCII);
+        try (SeekableSource source = SeekableSources.inMemorySeekableSourceFrom(data))
+        {
+            COSStream stream = new COSStream(new COSDictionary(), source, 1, 3);
+            stream.setItem(COSName.LENGTH, new IndirectCOSObjectReference(10, 0, COSNull.NULL));
+            victim.visit(stream);
+            victim.writer().flush();
+            assertEquals(COSInteger.THREE,
+                    stream.getDictionaryObject(COSName.LENGTH).getCOSObject());
+        }
+        assertEquals("<<\n/Length 10 0 R\n>>\nstream\r\nBCD\r\nendstream\n",
+                new String(out.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void visitUnchangedMappedCOSStream() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        victim = new DefaultCOSWriter(CountingWritableByteChannel.from(out));
+        ByteBufferSeekableSource source = new ByteBufferSeekableSource("id",
+                ByteBuffer.wrap("ABCDEF".getBytes(StandardCharsets.US_ASCII)));
+        COSStream stream = new COSStream(new COSDictionary(), source, 2, 4);
+        victim.visit(stream);
+        victim.writer().flush();
+        assertEquals("<<\n/Length 4\n>>\nstream\r\nCDEF\r\nendstream\n",
+                new String(out.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
     @Test
     public void visitHexCOSString() throws Exception
     {
         COSString string = COSString.parseLiteral("}Ap");
         string.setForceHexForm(true);
-        victim.visit(string);
-        verify(writer).write((byte) 0x3C);
-        verify(writer).write("7D4170");
-        verify(writer).write((byte) 0x3E);
+        assertEquals("<7D4170>", written(string));
     }
 
     @Test
@@ -255,19 +230,15 @@ public class DefaultCOSWriterTest
     public void visitCOSStringWithEscapeSequences() throws Exception
     {
         COSString string = COSString.parseLiteral("a\ns\t\r");
-        InOrder inOrder = Mockito.inOrder(writer);
-        victim.visit(string);
-        inOrder.verify(writer).write((byte) 0x3C);
-        inOrder.verify(writer).write("610A73090D");
-        inOrder.verify(writer).write((byte) 0x3E);
+        assertEquals("<610A73090D>", written(string));
     }
 
     @Test
     public void visitIndirectCOSObjectReference() throws Exception
     {
         IndirectCOSObjectReference ref = new IndirectCOSObjectReference(123, 0, new COSDictionary());
-        victim.visit(ref);
-        verify(writer).write(ref.toString());
+        assertEquals("123 0 R", written(ref));
+        assertEquals(ref.toString(), written(ref));
     }
 
     @Test
@@ -284,4 +255,14 @@ public class DefaultCOSWriterTest
         verify(writer).close();
     }
 
+    private static String written(COSBase value) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DefaultCOSWriter writer = new DefaultCOSWriter(CountingWritableByteChannel.from(out)))
+        {
+            value.accept(writer);
+            writer.writer().flush();
+        }
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
 }
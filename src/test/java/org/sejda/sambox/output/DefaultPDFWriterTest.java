@@ -19,6 +19,8 @@ package org.sejda.sambox.output;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -87,15 +89,18 @@ public class DefaultPDFWriterTest
         when(writer.offset()).thenReturn(54321l);
         objectWriter.writeObject(ref2);
         when(writer.offset()).thenReturn(98765l);
+        StringBuilder rows = new StringBuilder();
+        doAnswer(i -> rows.append(new String((byte[]) i.getArguments()[0],
+                StandardCharsets.US_ASCII))).when(writer).write(any(byte[].class));
         assertEquals(98765, victim.writeXrefTable());
         inOrder.verify(writer).write("xref");
         inOrder.verify(writer).writeEOL();
         inOrder.verify(writer).write("0 3");
         inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer).write(XrefEntry.DEFAULT_FREE_ENTRY.toXrefTableEntry());
-        inOrder.verify(writer).write(ref.xrefEntry().toXrefTableEntry());
-        inOrder.verify(writer).write(XrefEntry.DEFAULT_FREE_ENTRY.toXrefTableEntry());
-        inOrder.verify(writer).write(ref2.xrefEntry().toXrefTableEntry());
+        assertEquals(XrefEntry.DEFAULT_FREE_ENTRY.toXrefTableEntry()
+                + ref.xrefEntry().toXrefTableEntry()
+                + XrefEntry.DEFAULT_FREE_ENTRY.toXrefTableEntry()
+                + ref2.xrefEntry().toXrefTableEntry(), rows.toString());
     }
 
     @Test
@@ -161,9 +166,9 @@ public class DefaultPDFWriterTest
         objectWriter.writeObject(ref);
         InOrder inOrder = Mockito.inOrder(writer);
         victim.writeXrefStream(existingTrailer);
-        inOrder.verify(writer).write("2");
+        inOrder.verify(writer).write((byte) '2');
         inOrder.verify(writer).write(DefaultCOSWriter.SPACE);
-        inOrder.verify(writer).write("0");
+        inOrder.verify(writer).write((byte) '0');
         inOrder.verify(writer).write(DefaultCOSWriter.SPACE);
         inOrder.verify(writer).write(aryEq("obj".getBytes(StandardCharsets.US_ASCII)));
         inOrder.verify(writer).writeEOL();
@@ -24,13 +24,23 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.sejda.io.SeekableSources;
 import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.input.ExistingIndirectCOSObject;
+import org.sejda.sambox.input.PDFParser;
 import org.sejda.sambox.pdmodel.PDDocument;
 import org.sejda.sambox.pdmodel.PDPage;
 import org.sejda.sambox.pdmodel.PDPageContentStream;
@@ -104,6 +114,30 @@ public class ExistingPagesSizePredictorTest
         assertEquals(6, victim.context().written());
     }
 
+    @Test
+    public void addPageDoesntChangeThePage() throws IOException
+    {
+        victim = new ExistingPagesSizePredictor(WriteOption.COMPRESS_STREAMS);
+        COSStream contents = page.getCOSObject().getDictionaryObject(COSName.CONTENTS,
+                COSStream.class);
+        COSDictionary before = page.getCOSObject().duplicate();
+        COSDictionary contentsBefore = contents.duplicate();
+        victim.addPage(page);
+        assertEquals(before.entrySet(), page.getCOSObject().entrySet());
+        assertEquals(contentsBefore.entrySet(), contents.entrySet());
+    }
+
+    @Test
+    public void addPageDoesntWriteThePagesTree() throws IOException
+    {
+        for (int i = 0; i < 10; i++)
+        {
+            document.addPage(new PDPage());
+        }
+        victim.addPage(page);
+        assertEquals(5, victim.context().written());
+    }
+
     @Test
     public void addPageNull() throws IOException
     {
@@ -131,7 +165,8 @@ public class ExistingPagesSizePredictorTest
         assertEquals(0, victim.pages());
         assertFalse(victim.hasPages());
         assertTrue(victim.predictedPagesSize() > 0);
-        assertEquals(52, victim.predictedXrefTableSize());
+        // xref, subsection header and two entries
+        assertEquals(5 + 4 + 40, victim.predictedXrefTableSize());
         assertEquals(1, victim.context().written());
     }
 
@@ -141,7 +176,102 @@ public class ExistingPagesSizePredictorTest
         COSDictionary object = new COSDictionary();
         victim.addIndirectReferenceFor(object);
         victim.addIndirectReferenceFor(object);
-        assertEquals(52, victim.predictedXrefTableSize());
+        assertEquals(49, victim.predictedXrefTableSize());
         assertEquals(1, victim.context().written());
     }
+
+    @Test
+    public void predictsPlainWrite() throws IOException
+    {
+        assertAccuratePrediction(WriteOption.SYNC_BODY_WRITE);
+    }
+
+    @Test
+    public void predictsCompressedWrite() throws IOException
+    {
+        assertAccuratePrediction(WriteOption.COMPRESS_STREAMS);
+    }
+
+    @Test
+    public void predictsObjectStreamsWrite() throws IOException
+    {
+        assertAccuratePrediction(WriteOption.COMPRESS_STREAMS, WriteOption.OBJECT_STREAMS);
+    }
+
+    @Test
+    public void predictsXrefStreamWrite() throws IOException
+    {
+        assertAccuratePrediction(WriteOption.XREF_STREAM);
+    }
+
+    private static void assertAccuratePrediction(WriteOption... options) throws IOException
+    {
+        byte[] source = sampleDocument(30);
+        long predicted;
+        try (PDDocument document = parse(source);
+                ExistingPagesSizePredictor predictor = new ExistingPagesSizePredictor(options))
+        {
+            for (PDPage current : document.getPages())
+            {
+                predictor.addPage(current);
+            }
+            predicted = predictor.predictedPagesSize() + predictor.predictedXrefTableSize();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PDDocument document = parse(source))
+        {
+            PDDocumentSplitWriter split = new PDDocumentSplitWriter(document, options);
+            split.addOutput(IntStream.rangeClosed(1, document.getNumberOfPages()).boxed()
+                    .collect(Collectors.toList()), out);
+            split.write();
+        }
+        long actual = out.size();
+        assertTrue("Predicted " + predicted + " actual " + actual,
+                Math.abs(actual - predicted) < actual * 0.03);
+    }
+
+    private static byte[] sampleDocument(int pages) throws IOException
+    {
+        Random random = new Random(42);
+        try (PDDocument document = new PDDocument())
+        {
+            COSStream image = new COSStream();
+            byte[] imageData = new byte[200 * 1024];
+            random.nextBytes(imageData);
+            try (OutputStream out = image.createFilteredStream())
+            {
+                out.write(imageData);
+            }
+            image.setItem(COSName.FILTER, COSName.DCT_DECODE);
+            COSDictionary xobjects = new COSDictionary();
+            xobjects.setItem(COSName.getPDFName("Im1"), image);
+            COSDictionary resources = new COSDictionary();
+            resources.setItem(COSName.XOBJECT, xobjects);
+            for (int i = 0; i < pages; i++)
+            {
+                PDPage current = new PDPage();
+                current.getCOSObject().setItem(COSName.RESOURCES, resources);
+                COSStream contents = new COSStream();
+                try (OutputStream out = contents.createUnfilteredStream())
+                {
+                    for (int j = 0; j < 200; j++)
+                    {
+                        out.write(String.format("BT /F1 12 Tf %d %d Td (Line %d of page %d) Tj ET\n",
+                                random.nextInt(500), random.nextInt(800), j, i)
+                                .getBytes(StandardCharsets.US_ASCII));
+                    }
+                }
+                current.getCOSObject().setItem(COSName.CONTENTS, contents);
+                document.addPage(current);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.writeTo(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static PDDocument parse(byte[] bytes) throws IOException
+    {
+        return PDFParser.parse(SeekableSources.inMemorySeekableSourceFrom(bytes));
+    }
 }
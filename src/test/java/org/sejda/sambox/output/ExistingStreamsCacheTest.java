@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.sejda.io.SeekableSource;
+import org.sejda.io.SeekableSources;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSObjectKey;
+import org.sejda.sambox.cos.COSStream;
+import org.sejda.sambox.cos.IndirectCOSObjectIdentifier;
+import org.sejda.sambox.util.ByteBufferSeekableSource;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class ExistingStreamsCacheTest
+{
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeBudget()
+    {
+        new ExistingStreamsCache(-1);
+    }
+
+    @Test
+    public void notExisting() throws IOException
+    {
+        ExistingStreamsCache victim = new ExistingStreamsCache(100);
+        assertFalse(victim.getUnchangedFilteredSource(new COSStream()).isPresent());
+        assertEquals(0, victim.size());
+    }
+
+    @Test
+    public void cached() throws IOException
+    {
+        ExistingStreamsCache victim = new ExistingStreamsCache(100);
+        byte[] data = "ABCDEF".getBytes(StandardCharsets.US_ASCII);
+        SeekableSource source = SeekableSources.inMemorySeekableSourceFrom(data);
+        assertEquals("BCD", read(victim.getUnchangedFilteredSource(existing(source, 1))));
+        assertEquals(3, victim.size());
+        data[2] = 'X';
+        // data is now served from memory
+        assertEquals("BCD", read(victim.getUnchangedFilteredSource(existing(source, 1))));
+    }
+
+    @Test
+    public void leastRecentlyUsedDropped() throws IOException
+    {
+        ExistingStreamsCache victim = new ExistingStreamsCache(6);
+        byte[] data = "ABCDEF".getBytes(StandardCharsets.US_ASCII);
+        SeekableSource source = SeekableSources.inMemorySeekableSourceFrom(data);
+        victim.getUnchangedFilteredSource(existing(source, 1));
+        victim.getUnchangedFilteredSource(existing(source, 2));
+        victim.getUnchangedFilteredSource(existing(source, 1));
+        victim.getUnchangedFilteredSource(existing(source, 3));
+        assertEquals(6, victim.size());
+        data[2] = 'X';
+        assertEquals("BCD", read(victim.getUnchangedFilteredSource(existing(source, 1))));
+        assertEquals("BXD", read(victim.getUnchangedFilteredSource(existing(source, 2))));
+    }
+
+    @Test
+    public void biggerThanBudget() throws IOException
+    {
+        ExistingStreamsCache victim = new ExistingStreamsCache(2);
+        SeekableSource source = SeekableSources
+                .inMemorySeekableSourceFrom("ABCDEF".getBytes(StandardCharsets.US_ASCII));
+        Optional<SeekableSource> result = victim.getUnchangedFilteredSource(existing(source, 1));
+        assertTrue(result.isPresent());
+        assertFalse(result.get() instanceof ByteBufferSeekableSource);
+        assertEquals(0, victim.size());
+    }
+
+    @Test
+    public void clear() throws IOException
+    {
+        ExistingStreamsCache victim = new ExistingStreamsCache(100);
+        victim.getUnchangedFilteredSource(existing(SeekableSources
+                .inMemorySeekableSourceFrom("ABCDEF".getBytes(StandardCharsets.US_ASCII)), 1));
+        victim.clear();
+        assertEquals(0, victim.size());
+    }
+
+    private static COSStream existing(SeekableSource source, long objectNumber)
+    {
+        COSStream stream = new COSStream(new COSDictionary(), source, 1, 3);
+        stream.idIfAbsent(
+                new IndirectCOSObjectIdentifier(new COSObjectKey(objectNumber, 0), "source"));
+        return stream;
+    }
+
+    private static String read(Optional<SeekableSource> source) throws IOException
+    {
+        ByteBuffer data = ByteBuffer.allocate((int) source.get().size());
+        source.get().read(data);
+        return new String(data.array(), StandardCharsets.US_ASCII);
+    }
+}
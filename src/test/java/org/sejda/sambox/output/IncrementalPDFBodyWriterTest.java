@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.sejda.io.SeekableSources;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.IndirectCOSObjectReference;
+import org.sejda.sambox.input.PDFParser;
+import org.sejda.sambox.pdmodel.PDDocument;
+import org.sejda.sambox.pdmodel.PDPage;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class IncrementalPDFBodyWriterTest
+{
+    private byte[] original;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        original = IOUtils.toByteArray(getClass().getResourceAsStream("/sambox/simple_test.pdf"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullWrapped()
+    {
+        new IncrementalPDFBodyWriter(null, null);
+    }
+
+    @Test
+    public void writesModifiedObjectsOnly() throws IOException
+    {
+        PDFWriteContext context = new PDFWriteContext(null);
+        IndirectObjectsWriter writer = mock(IndirectObjectsWriter.class);
+        try (PDDocument document = parse(original))
+        {
+            document.getPage(0).setRotation(90);
+            document.getDocument().getCatalog().setItem(COSName.G, new COSDictionary());
+            context.startObjectNumbersAfter(
+                    document.getDocument().incrementalSource().get().highestObjectNumber());
+            try (IncrementalPDFBodyWriter victim = new IncrementalPDFBodyWriter(
+                    new SyncPDFBodyWriter(writer, context),
+                    document.getDocument().incrementalSource().get()))
+            {
+                victim.write(document.getDocument());
+            }
+        }
+        // catalog, page and the new dictionary
+        verify(writer, times(3)).writeObjectIfNotWritten(any(IndirectCOSObjectReference.class));
+    }
+
+    @Test
+    public void nothingModified() throws IOException
+    {
+        PDFWriteContext context = new PDFWriteContext(null);
+        IndirectObjectsWriter writer = mock(IndirectObjectsWriter.class);
+        try (PDDocument document = parse(original))
+        {
+            document.getPage(0);
+            try (IncrementalPDFBodyWriter victim = new IncrementalPDFBodyWriter(
+                    new SyncPDFBodyWriter(writer, context),
+                    document.getDocument().incrementalSource().get()))
+            {
+                victim.write(document.getDocument());
+            }
+        }
+        verify(writer, times(0)).writeObjectIfNotWritten(any(IndirectCOSObjectReference.class));
+    }
+
+    @Test
+    public void incrementalUpdate() throws IOException
+    {
+        byte[] updated = update(original);
+        assertTrue(updated.length > original.length);
+        assertArrayEquals(original, Arrays.copyOf(updated, original.length));
+        assertUpdated(updated);
+    }
+
+    @Test
+    public void incrementalUpdateXrefStream() throws IOException
+    {
+        byte[] updated = update(original, WriteOption.XREF_STREAM);
+        assertArrayEquals(original, Arrays.copyOf(updated, original.length));
+        assertUpdated(updated);
+    }
+
+    @Test
+    public void incrementalUpdateObjectStreams() throws IOException
+    {
+        byte[] updated = update(original, WriteOption.OBJECT_STREAMS);
+        assertArrayEquals(original, Arrays.copyOf(updated, original.length));
+        assertUpdated(updated);
+    }
+
+    @Test
+    public void incrementalUpdateOfAnUpdate() throws IOException
+    {
+        byte[] updated = update(update(original));
+        assertArrayEquals(original, Arrays.copyOf(updated, original.length));
+        assertUpdated(updated);
+    }
+
+    @Test
+    public void keepsFirstIdentifier() throws IOException
+    {
+        byte[] updated = update(original);
+        try (PDDocument first = parse(original); PDDocument second = parse(updated))
+        {
+            assertArrayEquals(first.getDocument().getDocumentID().getString(0).getBytes(),
+                    second.getDocument().getDocumentID().getString(0).getBytes());
+            assertNotEquals(second.getDocument().getDocumentID().getString(0),
+                    second.getDocument().getDocumentID().getString(1));
+        }
+    }
+
+    @Test
+    public void fullWriteWhenNotPossible() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument())
+        {
+            document.addPage(new PDPage());
+            document.writeTo(out, WriteOption.INCREMENTAL);
+        }
+        try (PDDocument document = parse(out.toByteArray()))
+        {
+            assertEquals(1, document.getNumberOfPages());
+        }
+    }
+
+    private static byte[] update(byte[] source, WriteOption... options) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WriteOption[] opts = Arrays.copyOf(options, options.length + 1);
+        opts[options.length] = WriteOption.INCREMENTAL;
+        try (PDDocument document = parse(source))
+        {
+            document.getDocumentInformation().setTitle("Updated");
+            document.getPage(0).setRotation(90);
+            document.writeTo(out, opts);
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertUpdated(byte[] updated) throws IOException
+    {
+        try (PDDocument document = parse(updated))
+        {
+            assertEquals("Updated", document.getDocumentInformation().getTitle());
+            assertEquals(90, document.getPage(0).getRotation());
+            assertEquals(1, document.getNumberOfPages());
+        }
+    }
+
+    private static PDDocument parse(byte[] bytes) throws IOException
+    {
+        return PDFParser.parse(SeekableSources.inMemorySeekableSourceFrom(bytes));
+    }
+}
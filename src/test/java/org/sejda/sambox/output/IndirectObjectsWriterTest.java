@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -75,13 +76,16 @@ public class IndirectObjectsWriterTest
                 COSInteger.get(100));
         InOrder inOrder = Mockito.inOrder(writer);
         victim.writeObjectIfNotWritten(ref);
-        inOrder.verify(writer).write("123");
+        inOrder.verify(writer).write((byte) '1');
+        inOrder.verify(writer).write((byte) '2');
+        inOrder.verify(writer).write((byte) '3');
         inOrder.verify(writer).write(DefaultCOSWriter.SPACE);
-        inOrder.verify(writer).write("0");
+        inOrder.verify(writer).write((byte) '0');
         inOrder.verify(writer).write(DefaultCOSWriter.SPACE);
         inOrder.verify(writer).write(aryEq("obj".getBytes(StandardCharsets.US_ASCII)));
         inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer).write("100");
+        inOrder.verify(writer).write((byte) '1');
+        inOrder.verify(writer, times(2)).write((byte) '0');
         inOrder.verify(writer).writeEOL();
         inOrder.verify(writer).write(aryEq("endobj".getBytes(StandardCharsets.US_ASCII)));
         inOrder.verify(writer).writeEOL();
@@ -117,6 +121,6 @@ public class IndirectObjectsWriterTest
         victim.writeObjectIfNotWritten(ref);
         victim.writeObjectIfNotWritten(ref);
         victim.writeObjectIfNotWritten(ref);
-        verify(writer).write("123");
+        verify(writer).write((byte) '3');
     }
 }
@@ -16,19 +16,23 @@
  */
 package org.sejda.sambox.output;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InOrder;
-import org.mockito.Mockito;
 import org.sejda.io.BufferedCountingChannelWriter;
 import org.sejda.io.CountingWritableByteChannel;
 import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.cos.COSString;
 import org.sejda.sambox.cos.IndirectCOSObjectReference;
 
@@ -79,22 +83,32 @@ public class IndirectReferencesAwareCOSWriterTest
         dictionary.setItem(COSName.A, string);
         dictionary.setInt(COSName.C, 151);
         IndirectCOSObjectReference ref = context.getOrCreateIndirectReferenceFor(string);
-        InOrder inOrder = Mockito.inOrder(writer);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        victim = new IndirectReferencesAwareCOSWriter(CountingWritableByteChannel.from(out),
+                context);
         victim.visit(dictionary);
-        inOrder.verify(writer, times(2)).write((byte) 0x3C);
-        inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer).write((byte) 0x2F);
-        inOrder.verify(writer).write((byte) 0x41);
-        inOrder.verify(writer).write((byte) 0x20);
-        inOrder.verify(writer).write(ref.toString());
-        inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer).write((byte) 0x2F);
-        inOrder.verify(writer).write((byte) 0x43);
-        inOrder.verify(writer).write((byte) 0x20);
-        inOrder.verify(writer).write("151");
-        inOrder.verify(writer).writeEOL();
-        inOrder.verify(writer, times(2)).write((byte) 0x3E);
-        inOrder.verify(writer).writeEOL();
+        victim.writer().flush();
+        assertEquals("<<\n/A " + ref.toString() + "\n/C 151\n>>\n",
+                new String(out.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void streamsAreClosedOnceWritten() throws Exception
+    {
+        COSStream stream = mock(COSStream.class);
+        victim.visit(stream);
+        verify(stream).close();
+        verify(stream, never()).unDecode();
     }
 
+    @Test
+    public void streamsAreOffloadedKeepingExistingObjects() throws Exception
+    {
+        victim = new IndirectReferencesAwareCOSWriter(writer,
+                new PDFWriteContext(null, WriteOption.KEEP_EXISTING_OBJECTS));
+        COSStream stream = mock(COSStream.class);
+        victim.visit(stream);
+        verify(stream).unDecode();
+        verify(stream, never()).close();
+    }
 }
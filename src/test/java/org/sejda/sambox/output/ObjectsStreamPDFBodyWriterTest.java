@@ -17,7 +17,9 @@
 package org.sejda.sambox.output;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -26,14 +28,20 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.hamcrest.core.IsInstanceOf;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.sejda.sambox.SAMBox;
+import org.sejda.sambox.cos.COSDictionary;
 import org.sejda.sambox.cos.COSInteger;
+import org.sejda.sambox.cos.COSName;
 import org.sejda.sambox.cos.COSStream;
 import org.sejda.sambox.cos.IndirectCOSObjectReference;
+import org.sejda.sambox.cos.NonStorableInObjectStreams;
 import org.sejda.sambox.xref.CompressedXrefEntry;
 
 /**
@@ -85,6 +93,23 @@ public class ObjectsStreamPDFBodyWriterTest
         verify(writer).onCompletion();
     }
 
+    @Test
+    public void writingAfterCompletionUsesNewStream() throws IOException
+    {
+        context = new PDFWriteContext(null, WriteOption.SYNC_BODY_WRITE);
+        when(writer.context()).thenReturn(context);
+        this.victim = new ObjectsStreamPDFBodyWriter(writer);
+        victim.writeObject(new IndirectCOSObjectReference(2, 0, COSInteger.THREE));
+        victim.onCompletion();
+        victim.writeObject(new IndirectCOSObjectReference(3, 0, COSInteger.THREE));
+        victim.onCompletion();
+        // two streams and their lengths
+        verify(writer, times(4)).writeObject(any());
+        assertTrue(((CompressedXrefEntry) context.getWritten(2L))
+                .getObjectStreamNumber() != ((CompressedXrefEntry) context.getWritten(3L))
+                        .getObjectStreamNumber());
+    }
+
     @Test
     public void closeDelegate() throws IOException
     {
@@ -96,6 +121,9 @@ public class ObjectsStreamPDFBodyWriterTest
     public void fillingStreamWritesItDown() throws IOException
     {
         System.setProperty(SAMBox.OBJECTS_STREAM_SIZE_PROPERTY, "2");
+        context = new PDFWriteContext(null, WriteOption.SYNC_BODY_WRITE);
+        when(writer.context()).thenReturn(context);
+        this.victim = new ObjectsStreamPDFBodyWriter(writer);
         victim.writeObject(new IndirectCOSObjectReference(2, 0, COSInteger.THREE));
         verify(writer, never()).writeObject(any());
         victim.writeObject(new IndirectCOSObjectReference(3, 0, COSInteger.THREE));
@@ -104,6 +132,39 @@ public class ObjectsStreamPDFBodyWriterTest
         System.getProperties().remove(SAMBox.OBJECTS_STREAM_SIZE_PROPERTY);
     }
 
+    @Test
+    public void compressedStreamsWrittenInOrder() throws IOException
+    {
+        System.setProperty(SAMBox.OBJECTS_STREAM_SIZE_PROPERTY, "1");
+        try
+        {
+            for (int i = 2; i < 20; i++)
+            {
+                victim.writeObject(new IndirectCOSObjectReference(i, 0, COSInteger.THREE));
+            }
+            victim.onCompletion();
+            ArgumentCaptor<IndirectCOSObjectReference> written = ArgumentCaptor
+                    .forClass(IndirectCOSObjectReference.class);
+            // stream and length
+            verify(writer, times(36)).writeObject(written.capture());
+            List<IndirectCOSObjectReference> streams = written.getAllValues().stream()
+                    .filter(r -> !(r instanceof NonStorableInObjectStreams))
+                    .collect(Collectors.toList());
+            assertEquals(18, streams.size());
+            for (int i = 1; i < streams.size(); i++)
+            {
+                assertTrue(streams.get(i - 1).xrefEntry().getObjectNumber() < streams.get(i)
+                        .xrefEntry().getObjectNumber());
+                assertNotNull(((COSDictionary) streams.get(i).getCOSObject())
+                        .getItem(COSName.LENGTH));
+            }
+        }
+        finally
+        {
+            System.getProperties().remove(SAMBox.OBJECTS_STREAM_SIZE_PROPERTY);
+        }
+    }
+
     @Test
     public void onCompletionWritesDown() throws IOException
     {
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.sejda.io.CountingWritableByteChannel;
+import org.sejda.io.SeekableSources;
+import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSStream;
+import org.sejda.sambox.input.PDFParser;
+import org.sejda.sambox.pdmodel.PDDocument;
+import org.sejda.sambox.pdmodel.PDPage;
+import org.sejda.sambox.pdmodel.common.PDRectangle;
+import org.sejda.sambox.util.SpecVersionUtils;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class PDDocumentMergeWriterTest
+{
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullChannel() throws IOException
+    {
+        new PDDocumentMergeWriter(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendAfterClose() throws IOException
+    {
+        PDDocumentMergeWriter victim = new PDDocumentMergeWriter(
+                CountingWritableByteChannel.from(new ByteArrayOutputStream()));
+        victim.close();
+        victim.append(parse(source("A", 2)));
+    }
+
+    @Test
+    public void merge() throws IOException
+    {
+        assertMerged(WriteOption.SYNC_BODY_WRITE);
+    }
+
+    @Test
+    public void mergeAsync() throws IOException
+    {
+        assertMerged();
+    }
+
+    @Test
+    public void mergeObjectStreams() throws IOException
+    {
+        assertMerged(WriteOption.OBJECT_STREAMS, WriteOption.COMPRESS_STREAMS);
+    }
+
+    @Test
+    public void mergeXrefStream() throws IOException
+    {
+        assertMerged(WriteOption.XREF_STREAM, WriteOption.DEDUPLICATE);
+    }
+
+    private static void assertMerged(WriteOption... options) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PDDocument first = parse(source("First", 2));
+        PDDocument second = parse(source("Second", 3));
+        second.setVersion(SpecVersionUtils.V1_6);
+        try (PDDocumentMergeWriter victim = new PDDocumentMergeWriter(
+                CountingWritableByteChannel.from(out), options))
+        {
+            victim.append(first);
+            assertFalse(first.isOpen());
+            victim.append(second);
+            assertFalse(second.isOpen());
+            assertEquals(5, victim.pages());
+        }
+        try (PDDocument merged = parse(out.toByteArray()))
+        {
+            assertEquals(5, merged.getNumberOfPages());
+            assertEquals(SpecVersionUtils.V1_6, merged.getVersion());
+            assertNotNull(merged.getDocument().getDocumentID());
+            assertData("First", merged.getPage(1));
+            assertData("Second", merged.getPage(2));
+            assertData("Second", merged.getPage(4));
+            assertEquals(PDRectangle.A4, merged.getPage(3).getMediaBox());
+            COSArray annotations = merged.getPage(2).getCOSObject()
+                    .getDictionaryObject(COSName.ANNOTS, COSArray.class);
+            COSDictionary link = (COSDictionary) annotations.getObject(0);
+            assertSame(merged.getPage(3).getCOSObject(),
+                    link.getDictionaryObject(COSName.DEST, COSArray.class).getObject(0));
+            assertSame(merged.getPage(2).getCOSObject(), link.getDictionaryObject(COSName.P));
+        }
+    }
+
+    private static void assertData(String expected, PDPage page) throws IOException
+    {
+        COSStream font = page.getResources().getCOSObject().getDictionaryObject(COSName.FONT,
+                COSStream.class);
+        assertArrayEquals(expected.getBytes(StandardCharsets.US_ASCII),
+                IOUtils.toByteArray(font.getUnfilteredStream()));
+    }
+
+    private static byte[] source(String data, int pages) throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            document.getPages().getCOSObject().setItem(COSName.MEDIA_BOX, PDRectangle.A4);
+            COSStream font = new COSStream();
+            try (OutputStream out = font.createUnfilteredStream())
+            {
+                out.write(data.getBytes(StandardCharsets.US_ASCII));
+            }
+            COSDictionary resources = new COSDictionary();
+            resources.setItem(COSName.FONT, font);
+            for (int i = 0; i < pages; i++)
+            {
+                PDPage page = new PDPage();
+                page.getCOSObject().removeItem(COSName.MEDIA_BOX);
+                page.getCOSObject().setItem(COSName.RESOURCES, resources);
+                document.addPage(page);
+            }
+            COSDictionary link = new COSDictionary();
+            link.setItem(COSName.TYPE, COSName.ANNOT);
+            link.setItem(COSName.SUBTYPE, COSName.getPDFName("Link"));
+            link.setItem(COSName.P, document.getPage(0).getCOSObject());
+            link.setItem(COSName.DEST, new COSArray(document.getPage(1).getCOSObject(),
+                    COSName.getPDFName("Fit")));
+            document.getPage(0).getCOSObject().setItem(COSName.ANNOTS, new COSArray(link));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.writeTo(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static PDDocument parse(byte[] bytes) throws IOException
+    {
+        return PDFParser.parse(SeekableSources.inMemorySeekableSourceFrom(bytes));
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.output;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.sejda.io.SeekableSources;
+import org.sejda.sambox.cos.COSArray;
+import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSStream;
+import org.sejda.sambox.input.PDFParser;
+import org.sejda.sambox.pdmodel.PDDocument;
+import org.sejda.sambox.pdmodel.PDPage;
+import org.sejda.sambox.pdmodel.common.PDRectangle;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class PDDocumentSplitWriterTest
+{
+    private static final byte[] FONT_DATA = "ChuckNorrisFontData".getBytes(StandardCharsets.US_ASCII);
+    private byte[] source;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            document.getPages().getCOSObject().setItem(COSName.MEDIA_BOX, PDRectangle.A4);
+            COSStream font = new COSStream();
+            try (OutputStream out = font.createUnfilteredStream())
+            {
+                out.write(FONT_DATA);
+            }
+            COSDictionary resources = new COSDictionary();
+            resources.setItem(COSName.FONT, font);
+            for (int i = 0; i < 4; i++)
+            {
+                PDPage page = new PDPage();
+                page.getCOSObject().removeItem(COSName.MEDIA_BOX);
+                page.getCOSObject().setItem(COSName.RESOURCES, resources);
+                document.addPage(page);
+            }
+            // link on page 1 to page 2 and to page 4
+            PDPage first = document.getPage(0);
+            first.getCOSObject().setItem(COSName.ANNOTS,
+                    new COSArray(link(first, document.getPage(1)), link(first, document.getPage(3))));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.writeTo(out);
+            source = out.toByteArray();
+        }
+    }
+
+    private static COSDictionary link(PDPage page, PDPage destination)
+    {
+        COSDictionary link = new COSDictionary();
+        link.setItem(COSName.TYPE, COSName.ANNOT);
+        link.setItem(COSName.SUBTYPE, COSName.getPDFName("Link"));
+        link.setItem(COSName.P, page.getCOSObject());
+        link.setItem(COSName.DEST, new COSArray(destination.getCOSObject(), COSName.getPDFName("Fit")));
+        return link;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullDocument()
+    {
+        new PDDocumentSplitWriter(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPage() throws IOException
+    {
+        try (PDDocument document = parse(source))
+        {
+            new PDDocumentSplitWriter(document).addOutput(asList(1, 5),
+                    new ByteArrayOutputStream());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyPages() throws IOException
+    {
+        try (PDDocument document = parse(source))
+        {
+            new PDDocumentSplitWriter(document).addOutput(Collections.emptyList(),
+                    new ByteArrayOutputStream());
+        }
+    }
+
+    @Test
+    public void split() throws IOException
+    {
+        ExistingStreamsCache cache = new ExistingStreamsCache(1024);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        ByteArrayOutputStream third = new ByteArrayOutputStream();
+        try (PDDocument document = parse(source))
+        {
+            PDDocumentSplitWriter victim = new PDDocumentSplitWriter(document, cache);
+            victim.addOutput(asList(1, 2), first);
+            victim.addOutput(asList(3), second);
+            victim.addOutput(asList(4, 1), third);
+            victim.write();
+            assertTrue(document.isOpen());
+            assertEquals(4, document.getNumberOfPages());
+        }
+        assertEquals(FONT_DATA.length, cache.size());
+        try (PDDocument document = parse(first.toByteArray()))
+        {
+            assertEquals(2, document.getNumberOfPages());
+            assertFontData(document.getPage(1));
+            assertEquals(PDRectangle.A4, document.getPage(0).getMediaBox());
+            COSArray annotations = document.getPage(0).getCOSObject()
+                    .getDictionaryObject(COSName.ANNOTS, COSArray.class);
+            assertEquals(2, annotations.size());
+            COSDictionary inside = (COSDictionary) annotations.getObject(0);
+            assertSame(document.getPage(1).getCOSObject(),
+                    inside.getDictionaryObject(COSName.DEST, COSArray.class).getObject(0));
+            assertSame(document.getPage(0).getCOSObject(), inside.getDictionaryObject(COSName.P));
+            assertFalse(((COSDictionary) annotations.getObject(1)).containsKey(COSName.DEST));
+        }
+        try (PDDocument document = parse(second.toByteArray()))
+        {
+            assertEquals(1, document.getNumberOfPages());
+            assertFontData(document.getPage(0));
+            assertNull(document.getPage(0).getCOSObject().getItem(COSName.ANNOTS));
+        }
+        try (PDDocument document = parse(third.toByteArray()))
+        {
+            assertEquals(2, document.getNumberOfPages());
+            COSArray annotations = document.getPage(1).getCOSObject()
+                    .getDictionaryObject(COSName.ANNOTS, COSArray.class);
+            assertFalse(((COSDictionary) annotations.getObject(0)).containsKey(COSName.DEST));
+            assertSame(document.getPage(0).getCOSObject(),
+                    ((COSDictionary) annotations.getObject(1))
+                            .getDictionaryObject(COSName.DEST, COSArray.class).getObject(0));
+        }
+    }
+
+    @Test
+    public void repeatedPage() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PDDocument document = parse(source))
+        {
+            PDDocumentSplitWriter victim = new PDDocumentSplitWriter(document);
+            victim.addOutput(asList(1, 2, 1), out);
+            victim.write();
+        }
+        try (PDDocument document = parse(out.toByteArray()))
+        {
+            assertEquals(3, document.getNumberOfPages());
+            COSDictionary first = document.getPage(0).getCOSObject();
+            COSDictionary repeated = document.getPage(2).getCOSObject();
+            assertNotSame(first, repeated);
+            COSArray firstAnnotations = first.getDictionaryObject(COSName.ANNOTS, COSArray.class);
+            COSArray repeatedAnnotations = repeated.getDictionaryObject(COSName.ANNOTS,
+                    COSArray.class);
+            assertEquals(2, firstAnnotations.size());
+            assertEquals(2, repeatedAnnotations.size());
+            COSDictionary firstLink = (COSDictionary) firstAnnotations.getObject(0);
+            COSDictionary repeatedLink = (COSDictionary) repeatedAnnotations.getObject(0);
+            assertNotSame(firstLink, repeatedLink);
+            assertSame(first, firstLink.getDictionaryObject(COSName.P));
+            assertSame(repeated, repeatedLink.getDictionaryObject(COSName.P));
+            assertSame(document.getPage(1).getCOSObject(),
+                    repeatedLink.getDictionaryObject(COSName.DEST, COSArray.class).getObject(0));
+        }
+    }
+
+    @Test
+    public void widgetDetachedFromFields() throws IOException
+    {
+        ByteArrayOutputStream form = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument())
+        {
+            document.addPage(new PDPage());
+            document.addPage(new PDPage());
+            COSDictionary field = new COSDictionary();
+            field.setItem(COSName.FT, COSName.getPDFName("Tx"));
+            field.setString(COSName.T, "ChuckNorrisField");
+            COSDictionary first = widget(document.getPage(0), field);
+            COSDictionary second = widget(document.getPage(1), field);
+            second.setString(COSName.NM, "OtherPageWidget");
+            field.setItem(COSName.KIDS, new COSArray(first, second));
+            COSDictionary acroForm = new COSDictionary();
+            acroForm.setItem(COSName.FIELDS, new COSArray(field));
+            document.getDocumentCatalog().getCOSObject().setItem(COSName.ACRO_FORM, acroForm);
+            document.writeTo(form);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PDDocument document = parse(form.toByteArray()))
+        {
+            PDDocumentSplitWriter victim = new PDDocumentSplitWriter(document);
+            victim.addOutput(asList(1), out);
+            victim.write();
+        }
+        assertFalse(new String(out.toByteArray(), StandardCharsets.ISO_8859_1)
+                .contains("OtherPageWidget"));
+        try (PDDocument document = parse(out.toByteArray()))
+        {
+            assertEquals(1, document.getNumberOfPages());
+            COSDictionary widget = (COSDictionary) document.getPage(0).getCOSObject()
+                    .getDictionaryObject(COSName.ANNOTS, COSArray.class).getObject(0);
+            assertFalse(widget.containsKey(COSName.PARENT));
+            assertEquals(COSName.getPDFName("Tx"), widget.getCOSName(COSName.FT));
+            assertEquals("ChuckNorrisField", widget.getString(COSName.T));
+            assertSame(document.getPage(0).getCOSObject(), widget.getDictionaryObject(COSName.P));
+        }
+    }
+
+    private static COSDictionary widget(PDPage page, COSDictionary field)
+    {
+        COSDictionary widget = new COSDictionary();
+        widget.setItem(COSName.TYPE, COSName.ANNOT);
+        widget.setItem(COSName.SUBTYPE, COSName.WIDGET);
+        widget.setItem(COSName.P, page.getCOSObject());
+        widget.setItem(COSName.PARENT, field);
+        widget.setItem(COSName.RECT, new PDRectangle(10, 10, 100, 20));
+        page.getCOSObject().setItem(COSName.ANNOTS, new COSArray(widget));
+        return widget;
+    }
+
+    private static void assertFontData(PDPage page) throws IOException
+    {
+        COSStream font = page.getResources().getCOSObject().getDictionaryObject(COSName.FONT,
+                COSStream.class);
+        assertNotNull(font);
+        assertArrayEquals(FONT_DATA, IOUtils.toByteArray(font.getUnfilteredStream()));
+    }
+
+    private static PDDocument parse(byte[] bytes) throws IOException
+    {
+        return PDFParser.parse(SeekableSources.inMemorySeekableSourceFrom(bytes));
+    }
+}
@@ -97,6 +97,20 @@ public class PDDocumentWriterTest
         verify(cosDoc).accept(isA(ObjectsStreamPDFBodyWriter.class));
     }
 
+    @Test
+    public void writeBodyParallel() throws Exception
+    {
+        PDDocument document = mock(PDDocument.class);
+        COSDocument cosDoc = mock(COSDocument.class);
+        when(document.getDocument()).thenReturn(cosDoc);
+        this.victim = new PDDocumentWriter(
+                CountingWritableByteChannel.from(new ByteArrayOutputStream()), null,
+                WriteOption.PARALLEL_BODY_WRITE);
+        TestUtils.setProperty(victim, "writer", this.writer);
+        victim.write(document);
+        verify(cosDoc).accept(isA(ParallelPDFBodyWriter.class));
+    }
+
     @Test
     public void writeBodyAsync() throws Exception
     {
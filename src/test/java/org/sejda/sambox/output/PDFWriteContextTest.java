@@ -22,12 +22,15 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.sejda.sambox.cos.COSDictionary;
+import org.sejda.sambox.cos.COSName;
+import org.sejda.sambox.cos.COSNull;
 import org.sejda.sambox.cos.COSObjectKey;
 import org.sejda.sambox.cos.IndirectCOSObjectIdentifier;
 import org.sejda.sambox.cos.IndirectCOSObjectReference;
@@ -73,6 +76,55 @@ public class PDFWriteContextTest
         assertEquals(existing, ref3.getCOSObject());
     }
 
+    @Test
+    public void release()
+    {
+        ExistingIndirectCOSObject existing = mock(ExistingIndirectCOSObject.class);
+        when(existing.id())
+                .thenReturn(new IndirectCOSObjectIdentifier(new COSObjectKey(10, 0), "Source"));
+        IndirectCOSObjectReference ref = context.createIndirectReferenceFor(existing);
+        context.release(ref);
+        verify(existing).releaseCOSObject();
+        assertEquals(COSNull.NULL, ref.getCOSObject());
+    }
+
+    @Test
+    public void releaseKeepingExistingObjects()
+    {
+        PDFWriteContext context = new PDFWriteContext(null, WriteOption.KEEP_EXISTING_OBJECTS);
+        ExistingIndirectCOSObject existing = mock(ExistingIndirectCOSObject.class);
+        when(existing.id())
+                .thenReturn(new IndirectCOSObjectIdentifier(new COSObjectKey(10, 0), "Source"));
+        IndirectCOSObjectReference ref = context.createIndirectReferenceFor(existing);
+        context.release(ref);
+        verify(existing, never()).releaseCOSObject();
+        assertEquals(COSNull.NULL, ref.getCOSObject());
+    }
+
+    @Test
+    public void createIndirectReferenceUnlessDuplicate()
+    {
+        COSDictionary dic = new COSDictionary();
+        dic.setName(COSName.TYPE, "Chuck");
+        COSDictionary dic2 = new COSDictionary(dic);
+        IndirectCOSObjectReference ref = context.createIndirectReferenceUnlessDuplicate(dic).get();
+        assertFalse(context.createIndirectReferenceUnlessDuplicate(dic2).isPresent());
+        assertEquals(ref, context.getIndirectReferenceFor(dic2));
+        dic2.setName(COSName.TYPE, "Norris");
+        COSDictionary dic3 = new COSDictionary(dic2);
+        assertNotEquals(ref, context.createIndirectReferenceUnlessDuplicate(dic3).get());
+    }
+
+    @Test
+    public void createIndirectReferenceUnlessDuplicateNotDirect()
+    {
+        COSDictionary dic = new COSDictionary();
+        dic.setItem(COSName.A, new COSDictionary());
+        COSDictionary dic2 = new COSDictionary(dic);
+        IndirectCOSObjectReference ref = context.createIndirectReferenceUnlessDuplicate(dic).get();
+        assertNotEquals(ref, context.createIndirectReferenceUnlessDuplicate(dic2).get());
+    }
+
     @Test
     public void getOrCreateIndirectReferenceFor()
     {
@@ -127,6 +179,16 @@ public class PDFWriteContextTest
         assertEquals(entry, context.getWritten(10L));
     }
 
+    @Test
+    public void putWrittenOtherGeneration()
+    {
+        context.putWritten(entry);
+        XrefEntry otherGeneration = XrefEntry.inUseEntry(10, 100, 1);
+        assertEquals(entry, context.putWritten(otherGeneration));
+        assertEquals(1, context.written());
+        assertEquals(otherGeneration, context.getWritten(10L));
+    }
+
     @Test
     public void highestLowestWritten()
     {
@@ -81,6 +81,24 @@ public class SyncPDFBodyWriterTest
         assertTrue(context.hasIndirectReferenceFor(threads));
     }
 
+    @Test
+    public void writeBodyDeduplicate() throws IOException
+    {
+        PDFWriteContext context = new PDFWriteContext(null, WriteOption.DEDUPLICATE);
+        victim = new SyncPDFBodyWriter(writer, context);
+        COSDictionary someDic = new COSDictionary();
+        someDic.setInt(COSName.SIZE, 4);
+        document.getDocument().getCatalog().setItem(COSName.H, someDic);
+        victim.write(document.getDocument());
+        assertEquals(
+                context.getIndirectReferenceFor(
+                        document.getDocument().getCatalog().getItem(COSName.G)),
+                context.getIndirectReferenceFor(
+                        document.getDocument().getCatalog().getItem(COSName.H)));
+        // catalog, info, pages and one of the identical dictionaries
+        verify(writer, times(4)).writeObjectIfNotWritten(any());
+    }
+
     @Test
     public void nullSafeWriteBody() throws IOException
     {
@@ -156,6 +156,15 @@ public class TestPDDocument extends TestCase
         }
     }
 
+    @Test
+    public void testPrefetchNewDocument() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            assertTrue(document.prefetch(true).isDone());
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void requiredNotBlankVersion()
     {
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sejda.io.SeekableSource;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class ByteBufferSeekableSourceTest
+{
+    private ByteBufferSeekableSource victim;
+
+    @Before
+    public void setUp()
+    {
+        victim = new ByteBufferSeekableSource("id",
+                ByteBuffer.wrap("Chuck Norris".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullBuffer()
+    {
+        new ByteBufferSeekableSource("id", null);
+    }
+
+    @Test
+    public void read() throws IOException
+    {
+        assertEquals('C', victim.read());
+        assertEquals('h', victim.read());
+        assertEquals(2, victim.position());
+        victim.position(11);
+        assertEquals('s', victim.read());
+        assertEquals(-1, victim.read());
+    }
+
+    @Test
+    public void readBuffer() throws IOException
+    {
+        ByteBuffer dst = ByteBuffer.allocate(5);
+        assertEquals(5, victim.read(dst));
+        assertEquals("Chuck", new String(dst.array(), StandardCharsets.US_ASCII));
+        dst.clear();
+        victim.position(10);
+        assertEquals(2, victim.read(dst));
+        assertEquals(-1, victim.read(dst));
+    }
+
+    @Test
+    public void positionOverSize() throws IOException
+    {
+        victim.position(50);
+        assertEquals(victim.size(), victim.position());
+        assertEquals(-1, victim.read());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePosition() throws IOException
+    {
+        victim.position(-1);
+    }
+
+    @Test
+    public void view() throws IOException
+    {
+        SeekableSource view = victim.view(6, 6);
+        assertEquals(6, view.size());
+        assertEquals('N', view.read());
+        assertEquals(0, victim.position());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidView() throws IOException
+    {
+        victim.view(6, 20);
+    }
+
+    @Test
+    public void asByteBuffer() throws IOException
+    {
+        victim.position(3);
+        ByteBuffer buffer = ((ByteBufferSeekableSource) victim.view(6, 6)).asByteBuffer();
+        assertEquals(0, buffer.position());
+        assertEquals(6, buffer.remaining());
+        assertEquals('N', buffer.get());
+        assertEquals(3, victim.position());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void readClosed() throws IOException
+    {
+        victim.close();
+        assertFalse(victim.isOpen());
+        victim.read();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sejda.io.SeekableSource;
+import org.sejda.io.SeekableSources;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class IndependentSeekableSourceTest
+{
+    private SeekableSource shared;
+
+    @Before
+    public void setUp()
+    {
+        shared = SeekableSources
+                .inMemorySeekableSourceFrom("Chuck Norris".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullSource() throws IOException
+    {
+        new IndependentSeekableSource(null);
+    }
+
+    @Test
+    public void independentPositions() throws IOException
+    {
+        IndependentSeekableSource first = new IndependentSeekableSource(shared);
+        IndependentSeekableSource second = new IndependentSeekableSource(shared);
+        assertEquals(shared.id(), first.id());
+        assertEquals(shared.size(), first.size());
+        first.position(6);
+        assertEquals('N', first.read());
+        assertEquals('C', second.read());
+        assertEquals(7, first.position());
+        assertEquals(1, second.position());
+        assertEquals(0, shared.position());
+    }
+
+    @Test
+    public void readBuffer() throws IOException
+    {
+        IndependentSeekableSource victim = new IndependentSeekableSource(shared);
+        ByteBuffer dst = ByteBuffer.allocate(5);
+        assertEquals(5, victim.read(dst));
+        assertEquals("Chuck", new String(dst.array(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void view() throws IOException
+    {
+        IndependentSeekableSource victim = new IndependentSeekableSource(shared);
+        SeekableSource view = victim.view(6, 6);
+        assertEquals(6, view.size());
+        assertEquals('N', view.read());
+    }
+
+    @Test
+    public void closeDoesntCloseShared() throws IOException
+    {
+        IndependentSeekableSource victim = new IndependentSeekableSource(shared);
+        victim.close();
+        assertTrue(shared.isOpen());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void readClosed() throws IOException
+    {
+        IndependentSeekableSource victim = new IndependentSeekableSource(shared);
+        victim.close();
+        victim.read();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sejda.sambox.util;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sejda.io.SeekableSource;
+import org.sejda.sambox.SAMBox;
+import org.sejda.sambox.input.PDFParser;
+import org.sejda.sambox.pdmodel.PDDocument;
+
+/**
+ * @author Andrea Vacondio
+ *
+ */
+public class MappedFileSeekableSourceTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private File file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = folder.newFile();
+        try (InputStream in = getClass().getResourceAsStream("/sambox/simple_test.pdf"))
+        {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        System.clearProperty(SAMBox.MAPPED_PAGE_SIZE_PROPERTY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullFile() throws IOException
+    {
+        new MappedFileSeekableSource(null);
+    }
+
+    @Test
+    public void read() throws IOException
+    {
+        try (MappedFileSeekableSource victim = new MappedFileSeekableSource(file))
+        {
+            assertEquals(file.length(), victim.size());
+            assertEquals('%', victim.read());
+            victim.position(1);
+            assertEquals('P', victim.read());
+            assertEquals(2, victim.position());
+        }
+    }
+
+    @Test
+    public void readPages() throws IOException
+    {
+        System.setProperty(SAMBox.MAPPED_PAGE_SIZE_PROPERTY, "3");
+        byte[] expected = Files.readAllBytes(file.toPath());
+        try (MappedFileSeekableSource victim = new MappedFileSeekableSource(file))
+        {
+            assertEquals(expected.length, victim.size());
+            ByteBuffer buffer = ByteBuffer.allocate(expected.length + 10);
+            assertEquals(expected.length, victim.read(buffer));
+            assertArrayEquals(expected, Arrays.copyOf(buffer.array(), expected.length));
+            assertEquals(-1, victim.read());
+            victim.position(4);
+            assertEquals(expected[4], (byte) victim.read());
+        }
+    }
+
+    @Test
+    public void pageView() throws IOException
+    {
+        System.setProperty(SAMBox.MAPPED_PAGE_SIZE_PROPERTY, "8");
+        try (MappedFileSeekableSource victim = new MappedFileSeekableSource(file))
+        {
+            SeekableSource view = victim.view(1, 4);
+            assertThat(view, is(instanceOf(ByteBufferSeekableSource.class)));
+            assertEquals('P', view.read());
+            assertEquals(4, view.size());
+        }
+    }
+
+    @Test
+    public void viewAcrossPages() throws IOException
+    {
+        System.setProperty(SAMBox.MAPPED_PAGE_SIZE_PROPERTY, "4");
+        try (MappedFileSeekableSource victim = new MappedFileSeekableSource(file))
+        {
+            SeekableSource view = victim.view(1, 7);
+            assertThat(view, is(not(instanceOf(ByteBufferSeekableSource.class))));
+            assertEquals(7, view.size());
+            ByteBuffer buffer = ByteBuffer.allocate(7);
+            assertEquals(7, view.read(buffer));
+            assertEquals("PDF-1.", new String(buffer.array(), 0, 6, StandardCharsets.US_ASCII));
+            assertEquals(-1, view.read());
+            SeekableSource nested = view.view(3, 2);
+            assertThat(nested, is(instanceOf(ByteBufferSeekableSource.class)));
+            assertEquals('-', nested.read());
+            assertEquals('1', nested.read());
+            assertEquals(-1, nested.read());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void viewClosed() throws IOException
+    {
+        MappedFileSeekableSource victim = new MappedFileSeekableSource(file);
+        victim.close();
+        assertFalse(victim.isOpen());
+        victim.view(1, 4);
+    }
+
+    @Test
+    public void parse() throws IOException
+    {
+        System.setProperty(SAMBox.MAPPED_PAGE_SIZE_PROPERTY, "1024");
+        try (PDDocument doc = PDFParser.parse(new MappedFileSeekableSource(file)))
+        {
+            assertNotNull(doc.getPage(0).getContents());
+            assertNotNull(doc.getPage(0).getContentStreams().next().getCOSObject()
+                    .getUnfilteredByteBuffer());
+        }
+    }
+}
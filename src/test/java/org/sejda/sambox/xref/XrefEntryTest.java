@@ -24,6 +24,7 @@ import static org.sejda.sambox.xref.XrefEntry.freeEntry;
 import static org.sejda.sambox.xref.XrefEntry.inUseEntry;
 import static org.sejda.sambox.xref.XrefEntry.unknownOffsetEntry;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 import org.junit.Test;
@@ -115,4 +116,30 @@ public class XrefEntryTest
         assertTrue(Arrays.equals(expected, bytes));
     }
 
+    @Test
+    public void toXrefTableEntryReusedDestination()
+    {
+        byte[] destination = new byte[XrefEntry.XREF_TABLE_ENTRY_LENGTH];
+        inUseEntry(10, 9_999_999_999L, 65535).toXrefTableEntry(destination);
+        assertEquals("9999999999 65535 n\r\n", new String(destination, StandardCharsets.US_ASCII));
+        XrefEntry.DEFAULT_FREE_ENTRY.toXrefTableEntry(destination);
+        assertEquals(XrefEntry.DEFAULT_FREE_ENTRY.toXrefTableEntry(),
+                new String(destination, StandardCharsets.US_ASCII));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toXrefTableEntryOffsetTooBig()
+    {
+        inUseEntry(10, 10_000_000_000L, 0).toXrefTableEntry();
+    }
+
+    @Test
+    public void toXrefStreamEntryReusedDestination()
+    {
+        byte[] destination = new byte[6];
+        inUseEntry(12, 1234, 1).toXrefStreamEntry(4, 1, destination);
+        assertTrue(Arrays.equals(inUseEntry(12, 1234, 1).toXrefStreamEntry(4, 1), destination));
+        compressedEntry(12, 5, 3).toXrefStreamEntry(4, 1, destination);
+        assertTrue(Arrays.equals(compressedEntry(12, 5, 3).toXrefStreamEntry(4, 1), destination));
+    }
 }
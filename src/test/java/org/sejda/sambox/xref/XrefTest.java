@@ -16,10 +16,16 @@
  */
 package org.sejda.sambox.xref;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 import org.sejda.sambox.cos.COSObjectKey;
 
@@ -77,4 +83,155 @@ public class XrefTest
         xref.addIfAbsent(CompressedXrefEntry.compressedEntry(20, 50, 1));
         assertEquals(2, xref.values().size());
     }
+
+    @Test
+    public void lookups()
+    {
+        Xref xref = new Xref();
+        xref.add(XrefEntry.inUseEntry(50, 4000, 0));
+        xref.add(CompressedXrefEntry.compressedEntry(51, 3, 1));
+        assertEquals(XrefEntry.inUseEntry(50, 4000, 0), xref.get(new COSObjectKey(50, 0)));
+        assertEquals(xref.get(51), xref.get(new COSObjectKey(51, 0)));
+        assertEquals(3, ((CompressedXrefEntry) xref.get(51)).getObjectStreamNumber());
+        xref.add(XrefEntry.inUseEntry(50, 5000, 0));
+        assertEquals(5000, xref.get(50).getByteOffset());
+    }
+
+    @Test
+    public void containsObjectNumber()
+    {
+        Xref xref = new Xref();
+        xref.add(XrefEntry.inUseEntry(50, 4000, 2));
+        xref.add(XrefEntry.inUseEntry(Integer.MAX_VALUE + 10L, 4000, 0));
+        assertTrue(xref.contains(50));
+        assertTrue(xref.contains(Integer.MAX_VALUE + 10L));
+        assertFalse(xref.contains(51));
+        assertFalse(xref.contains(-1));
+    }
+
+    @Test
+    public void remove()
+    {
+        Xref xref = new Xref();
+        XrefEntry entry = XrefEntry.inUseEntry(50, 4000, 0);
+        XrefEntry otherGeneration = XrefEntry.inUseEntry(50, 2000, 1);
+        xref.add(entry);
+        xref.add(otherGeneration);
+        assertNull(xref.remove(new COSObjectKey(50, 3)));
+        assertEquals(entry, xref.remove(new COSObjectKey(50, 0)));
+        assertEquals(otherGeneration, xref.get(50));
+        assertEquals(otherGeneration, xref.remove(new COSObjectKey(50, 1)));
+        assertFalse(xref.contains(50));
+        assertEquals(0, xref.size());
+        assertNull(xref.highest());
+    }
+
+    @Test
+    public void differentGenerations()
+    {
+        Xref xref = new Xref();
+        XrefEntry entry = XrefEntry.inUseEntry(50, 4000, 0);
+        XrefEntry otherGeneration = XrefEntry.inUseEntry(50, 2000, 1);
+        assertNull(xref.addIfAbsent(entry));
+        assertNull(xref.addIfAbsent(otherGeneration));
+        assertEquals(entry, xref.get(new COSObjectKey(50, 0)));
+        assertEquals(otherGeneration, xref.get(new COSObjectKey(50, 1)));
+        assertEquals(entry, xref.get(50));
+        assertEquals(2, xref.size());
+    }
+
+    @Test
+    public void compressed()
+    {
+        Xref xref = new Xref();
+        CompressedXrefEntry entry = CompressedXrefEntry.compressedEntry(20, 50, 3);
+        xref.add(entry);
+        XrefEntry result = xref.get(new COSObjectKey(20, 0));
+        assertThat(result, instanceOf(CompressedXrefEntry.class));
+        assertEquals(entry, result);
+        assertEquals(50, ((CompressedXrefEntry) result).getObjectStreamNumber());
+        assertEquals(3, ((CompressedXrefEntry) result).getIndex());
+    }
+
+    @Test
+    public void replaceWithDifferentType()
+    {
+        Xref xref = new Xref();
+        xref.add(XrefEntry.inUseEntry(20, 4000, 0));
+        XrefEntry free = XrefEntry.freeEntry(20, 0);
+        xref.add(free);
+        assertEquals(free, xref.get(new COSObjectKey(20, 0)));
+        assertEquals(1, xref.size());
+    }
+
+    @Test
+    public void farObjectNumber()
+    {
+        Xref xref = new Xref();
+        XrefEntry far = XrefEntry.inUseEntry(Integer.MAX_VALUE + 10L, 4000, 0);
+        XrefEntry near = XrefEntry.inUseEntry(2, 200, 0);
+        assertNull(xref.add(far));
+        assertNull(xref.add(near));
+        assertEquals(far, xref.get(new COSObjectKey(Integer.MAX_VALUE + 10L, 0)));
+        assertEquals(far, xref.highest());
+        assertEquals(near, xref.lowest());
+        assertEquals(2, xref.size());
+    }
+
+    @Test
+    public void sparseEntriesMovedWhenGrowing()
+    {
+        Xref xref = new Xref();
+        XrefEntry first = XrefEntry.inUseEntry(100000, 4000, 0);
+        xref.add(first);
+        for (int i = 1; i < 30000; i++)
+        {
+            xref.add(XrefEntry.inUseEntry(i, i * 10, 0));
+        }
+        assertEquals(first, xref.get(new COSObjectKey(100000, 0)));
+        assertEquals(first, xref.highest());
+        assertEquals(30000, xref.size());
+        assertEquals(30000, xref.values().size());
+    }
+
+    @Test
+    public void highestLowest()
+    {
+        Xref xref = new Xref();
+        assertNull(xref.highest());
+        assertNull(xref.lowest());
+        XrefEntry lowest = XrefEntry.inUseEntry(3, 200, 0);
+        XrefEntry highest = XrefEntry.inUseEntry(20, 100, 0);
+        xref.add(highest);
+        xref.add(XrefEntry.inUseEntry(10, 300, 0));
+        xref.add(lowest);
+        assertEquals(lowest, xref.lowest());
+        assertEquals(highest, xref.highest());
+    }
+
+    @Test
+    public void getByObjectNumber()
+    {
+        Xref xref = new Xref();
+        assertNull(xref.get(10));
+        assertNull(xref.get(-1));
+        XrefEntry entry = XrefEntry.inUseEntry(10, 200, 2);
+        xref.add(entry);
+        assertEquals(entry, xref.get(10));
+    }
+
+    @Test
+    public void valuesAreSorted()
+    {
+        Xref xref = new Xref();
+        xref.add(XrefEntry.inUseEntry(Integer.MAX_VALUE + 10L, 4000, 0));
+        xref.add(XrefEntry.inUseEntry(5, 4000, 1));
+        xref.add(XrefEntry.inUseEntry(5, 4000, 0));
+        xref.add(XrefEntry.inUseEntry(2, 4000, 0));
+        List<XrefEntry> values = new ArrayList<>(xref.values());
+        assertEquals(2, values.get(0).getObjectNumber());
+        assertEquals(new COSObjectKey(5, 0), values.get(1).key());
+        assertEquals(new COSObjectKey(5, 1), values.get(2).key());
+        assertEquals(Integer.MAX_VALUE + 10L, values.get(3).getObjectNumber());
+    }
 }